@@ -26,6 +26,14 @@ import java.lang.annotation.Target;
  * Annotate the with this annotation to declare that the unit will get messages
  * delivered one at a time.
  * 
+ * <p>
+ * Messages are always delivered one at a time, in the order received, on
+ * whatever thread in the pool is free. For units with this trait, attribute
+ * requests are also queued with the messages, so that they are never handled
+ * concurrently with a message. Consequently, a unit with this trait must not
+ * wait for its own attributes in the onMessage method.
+ * </p>
+ * 
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
  */
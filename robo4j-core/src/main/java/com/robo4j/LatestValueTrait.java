@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Annotate units with this annotation to declare that only the latest value
+ * matters to them, for example a controller fed by a high rate sensor. Only
+ * the newest message waiting to be delivered is kept for each sending unit and
+ * coalescing key (see {@link RoboUnit#getCoalescingKey(Object)}), older ones
+ * are replaced.
+ * 
+ * <p>
+ * The sending unit is known when the message is sent by a local unit, from
+ * within its onMessage method or from a task it scheduled from onMessage or
+ * start with the scheduler of its context. Messages sent from elsewhere, for
+ * example from other threads, are only coalesced by their key.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface LatestValueTrait {
+
+}
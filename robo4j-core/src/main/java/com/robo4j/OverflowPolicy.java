@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+/**
+ * What to do with a message sent to a unit when the mailbox of the unit is
+ * full. Configured per system or per unit, using the key
+ * {@link RoboBuilder#KEY_MAILBOX_OVERFLOW_POLICY}.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public enum OverflowPolicy {
+	/**
+	 * The sender waits until there is room in the mailbox. Senders running on
+	 * the threads of the system, for example units sending from their
+	 * onMessage method, could be holding up the very thread the mailbox needs
+	 * to be drained. Their messages are dropped instead.
+	 */
+	BLOCK,
+	/**
+	 * The message being sent is dropped. This is the default.
+	 */
+	DROP_NEWEST,
+	/**
+	 * The oldest message waiting in the mailbox is dropped to make room for
+	 * the message being sent.
+	 */
+	DROP_OLDEST,
+	/**
+	 * A message waiting in the mailbox is replaced by a newer message with the
+	 * same key (see {@link RoboUnit#getCoalescingKey(Object)}). If the mailbox
+	 * is full of messages with other keys, the message being sent is dropped.
+	 */
+	COALESCE
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.logging.SimpleLoggingUtil;
+
+/**
+ * A handle to the reference of a unit in a context, resolved by id once and
+ * then reused. Use it on hot paths that would otherwise look up the same
+ * reference by id for every message. If the unit is not available when first
+ * used, for example since it lives in a remote context that has not been
+ * discovered yet, the handle will try again the next time it is used.
+ *
+ * <p>
+ * Get instances from {@link RoboContext#getReferenceHandle(String)}. Handles
+ * are thread safe.
+ * </p>
+ *
+ * @param <T>
+ *            the type of messages accepted by the unit.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class ReferenceHandle<T> {
+	private final RoboContext context;
+	private final String id;
+	private volatile RoboReference<T> reference;
+	// Only the first message to a missing unit is logged
+	private volatile boolean missingLogged;
+
+	ReferenceHandle(RoboContext context, String id) {
+		this.context = context;
+		this.id = id;
+	}
+
+	/**
+	 * @return the id of the unit.
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the reference, resolving it if this is the first time it is
+	 * available.
+	 *
+	 * @return the reference, or null if there is no unit with the id in the
+	 *         context.
+	 */
+	public RoboReference<T> get() {
+		RoboReference<T> result = reference;
+		if (result == null) {
+			// Racing resolves are harmless, any resolved reference will do
+			result = context.getReference(id);
+			reference = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Sends a message to the unit. If there is no unit with the id, the
+	 * message is dropped, and the first time that happens it is logged.
+	 *
+	 * @param message
+	 *            the message to send.
+	 * @return true if the reference could be resolved and the message was
+	 *         sent, false if there is no unit with the id in the context.
+	 */
+	public boolean sendMessage(T message) {
+		RoboReference<T> result = get();
+		if (result == null) {
+			if (!missingLogged) {
+				missingLogged = true;
+				SimpleLoggingUtil.error(getClass(), "No unit " + id + " in " + context.getId() + " - dropping messages to it");
+			}
+			return false;
+		}
+		result.sendMessage(message);
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "ReferenceHandle id: " + id + " (context: " + context.getId() + ")";
+	}
+}
@@ -22,6 +22,8 @@ import com.robo4j.configuration.ConfigurationFactoryException;
 import com.robo4j.configuration.XmlConfigurationFactory;
 import com.robo4j.logging.SimpleLoggingUtil;
 import com.robo4j.net.LookupServiceProvider;
+import com.robo4j.scheduler.DefaultScheduler;
+import com.robo4j.scheduler.HashedWheelScheduler;
 import com.robo4j.util.StringConstants;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -58,6 +60,84 @@ public final class RoboBuilder {
 	 * Configuration key for the maximum thread size for the worker thread pool.
 	 */
 	public static final String KEY_BLOCKING_POOL_SIZE = "poolSizeBlocking";
+	/**
+	 * Configuration key for running the units with the {@link BlockingTrait}
+	 * on virtual threads, one per task, instead of in the blocking thread
+	 * pool. Falls back to the blocking thread pool on JVMs without virtual
+	 * threads. The default is false.
+	 */
+	public static final String KEY_BLOCKING_POOL_VIRTUAL = "poolVirtualBlocking";
+	/**
+	 * Configuration key for running the tasks handed to the scheduler for
+	 * immediate execution, such as message deliveries to units without traits,
+	 * on virtual threads. Scheduled tasks still run in the scheduler thread
+	 * pool. Falls back to the scheduler thread pool on JVMs without virtual
+	 * threads. The default is false.
+	 */
+	public static final String KEY_SCHEDULER_VIRTUAL = "poolVirtualScheduler";
+	/**
+	 * Configuration key for using the {@link HashedWheelScheduler} instead of
+	 * the {@link DefaultScheduler}. The hashed wheel scales better with many
+	 * periodic tasks, at the price of a fixed timer resolution. The default is
+	 * false.
+	 */
+	public static final String KEY_SCHEDULER_WHEEL = "schedulerWheel";
+	/**
+	 * Configuration key for the tick duration of the
+	 * {@link HashedWheelScheduler}, in microseconds. Defaults to
+	 * {@link HashedWheelScheduler#DEFAULT_TICK_MICROS}.
+	 */
+	public static final String KEY_SCHEDULER_WHEEL_TICK = "schedulerWheelTick";
+	/**
+	 * Configuration key for the number of slots in the wheel of the
+	 * {@link HashedWheelScheduler}. Defaults to
+	 * {@link HashedWheelScheduler#DEFAULT_WHEEL_SIZE}.
+	 */
+	public static final String KEY_SCHEDULER_WHEEL_SIZE = "schedulerWheelSize";
+	/**
+	 * Configuration key for the number of messages that can be waiting in the
+	 * mailbox of a unit, 1024 by default. Can also be set in the configuration
+	 * of a unit, to override the system setting for that unit. Note that
+	 * mailboxes used to be unbounded; see {@link #KEY_MAILBOX_OVERFLOW_POLICY}
+	 * for what happens when one is full.
+	 */
+	public static final String KEY_MAILBOX_CAPACITY = "mailboxCapacity";
+	/**
+	 * Configuration key for what to do when the mailbox of a unit is full. The
+	 * value is the name of an {@link OverflowPolicy}, the default being
+	 * {@link OverflowPolicy#DROP_NEWEST}, so by default messages to a unit that
+	 * cannot keep up are lost. Dropped messages are counted, and logged on the
+	 * first drop and then every thousandth. Can also be set in the
+	 * configuration of a unit, to override the system setting for that unit.
+	 */
+	public static final String KEY_MAILBOX_OVERFLOW_POLICY = "mailboxOverflowPolicy";
+	/**
+	 * Configuration key for the maximum number of messages delivered from the
+	 * mailbox of a unit before the thread is handed back to the pool.
+	 */
+	public static final String KEY_MAILBOX_BATCH_SIZE = "mailboxBatchSize";
+	/**
+	 * Configuration key for collecting metrics for the message delivery to the
+	 * units, available as {@link SystemAttributes#DESCRIPTOR_METRICS} on the
+	 * references and from {@link RoboContext#getMetrics()}. Can also be set in
+	 * the configuration of a unit, to override the system setting for that
+	 * unit. The default is false, in which case there is no overhead.
+	 */
+	public static final String KEY_METRICS = "metrics";
+	/**
+	 * Configuration key for the ids of the units that a unit depends on,
+	 * separated by commas. Set in the configuration of a unit. The unit is
+	 * started after the units it depends on, and stopped and shut down before
+	 * them.
+	 */
+	public static final String KEY_DEPENDS_ON = "dependsOn";
+	/**
+	 * Configuration key for starting, stopping and shutting down the units
+	 * concurrently on the blocking thread pool, as far as the dependencies
+	 * between the units allow. The default is false, handling the units one
+	 * at a time, still in dependency order.
+	 */
+	public static final String KEY_LIFECYCLE_PARALLEL = "lifecycleParallel";
 	/**
 	 * Configuration key for the child configuration for the message server.
 	 */
@@ -17,8 +17,11 @@
 package com.robo4j;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 
 import com.robo4j.configuration.Configuration;
+import com.robo4j.metrics.UnitMetrics;
 import com.robo4j.scheduler.Scheduler;
 
 /**
@@ -61,6 +64,21 @@ public interface RoboContext {
 	 */
 	<T> RoboReference<T> getReference(String id);
 
+	/**
+	 * Returns a handle to the reference of a specific robo unit. The handle
+	 * resolves the id once, so that code sending many messages to the same
+	 * unit can skip looking it up for each message.
+	 * 
+	 * @param id
+	 *            the unique id of the robo unit for which to get a handle.
+	 * @param <T>
+	 *            the message type of the robo unit.
+	 * @return the handle to the reference.
+	 */
+	default <T> ReferenceHandle<T> getReferenceHandle(String id) {
+		return new ReferenceHandle<>(this, id);
+	}
+
 	/**
 	 * Returns the units available in the context.
 	 * 
@@ -86,4 +104,15 @@ public interface RoboContext {
 	 * Metadata describing the system.
 	 */
 	Configuration getConfiguration();
+
+	/**
+	 * Returns a snapshot of the message delivery metrics of the units
+	 * collecting metrics (see {@link RoboBuilder#KEY_METRICS}).
+	 * 
+	 * @return the metrics, keyed by unit id. Empty if no unit collects
+	 *         metrics, or if the context does not support metrics.
+	 */
+	default Map<String, UnitMetrics> getMetrics() {
+		return Collections.emptyMap();
+	}
 }
@@ -19,14 +19,17 @@ package com.robo4j;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.configuration.ConfigurationBuilder;
 import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.metrics.UnitMetrics;
 import com.robo4j.net.ContextEmitter;
 import com.robo4j.net.MessageCallback;
 import com.robo4j.net.MessageServer;
 import com.robo4j.net.ReferenceDesciptor;
 import com.robo4j.net.RoboContextDescriptor;
 import com.robo4j.scheduler.DefaultScheduler;
+import com.robo4j.scheduler.HashedWheelScheduler;
 import com.robo4j.scheduler.RoboThreadFactory;
 import com.robo4j.scheduler.Scheduler;
+import com.robo4j.scheduler.VirtualThreadExecutors;
 import com.robo4j.util.SystemUtil;
 
 import java.io.IOException;
@@ -35,20 +38,29 @@ import java.io.Serializable;
 import java.net.SocketException;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
 
 /**
  * This is the default implementation for a local {@link RoboContext}. Contains
@@ -61,25 +73,37 @@ import java.util.stream.Collectors;
 final class RoboSystem implements RoboContext {
 	private static final String NAME_BLOCKING_POOL = "Robo4J Blocking Pool";
 	private static final String NAME_WORKER_POOL = "Robo4J Worker Pool";
+	private static final String NAME_VIRTUAL_SCHEDULER = "Robo4J Virtual Scheduler";
 	private static final int DEFAULT_BLOCKING_POOL_SIZE = 4;
 	private static final int DEFAULT_WORKER_POOL_SIZE = 2;
 	private static final int DEFAULT_SCHEDULER_POOL_SIZE = 2;
 	private static final int KEEP_ALIVE_TIME = 10;
+	private static final int DEFAULT_MAILBOX_CAPACITY = 1024;
+	private static final int DEFAULT_MAILBOX_BATCH_SIZE = 16;
+	private static final int LIFECYCLE_TIMEOUT = 10;
 
-	private static final EnumSet<LifecycleState> MESSAGE_DELIVERY_CRITERIA = EnumSet.of(LifecycleState.STARTED, LifecycleState.STOPPED,
+	static final EnumSet<LifecycleState> MESSAGE_DELIVERY_CRITERIA = EnumSet.of(LifecycleState.STARTED, LifecycleState.STOPPED,
 			LifecycleState.STOPPING);
 
 	private final AtomicReference<LifecycleState> state = new AtomicReference<>(LifecycleState.UNINITIALIZED);
-	private final Map<String, RoboUnit<?>> units = new HashMap<>();
-	private final Map<RoboUnit<?>, RoboReference<?>> referenceCache = new WeakHashMap<>();
+	// Copy on write - replaced as a whole when units are added
+	private volatile UnitRegistry registry = UnitRegistry.EMPTY;
 
 	private final Scheduler systemScheduler;
+	// What the units get, binding the tasks they schedule to them
+	private final Scheduler unitScheduler;
 
 	private final ThreadPoolExecutor workExecutor;
 	private final LinkedBlockingQueue<Runnable> workQueue = new LinkedBlockingQueue<>();
 
-	private final ThreadPoolExecutor blockingExecutor;
-	private final LinkedBlockingQueue<Runnable> blockingQueue = new LinkedBlockingQueue<>();
+	private final ExecutorService blockingExecutor;
+
+	private final int mailboxCapacity;
+	private final int mailboxBatchSize;
+	private final OverflowPolicy mailboxOverflowPolicy;
+	private final boolean metricsEnabled;
+	private final boolean parallelLifecycle;
+	private volatile UnitLifecycle lifecycle;
 
 	private final String uid;
 	private final Configuration configuration;
@@ -101,6 +125,8 @@ final class RoboSystem implements RoboContext {
 		private final RoboUnit<T> unit;
 		private final DeliveryPolicy deliveryPolicy;
 		private final ThreadingPolicy threadingPolicy;
+		private final boolean latestValue;
+		private volatile UnitMailbox<T> mailbox;
 
 		LocalRoboReference(RoboUnit<T> unit) {
 			this.unit = unit;
@@ -108,6 +134,7 @@ final class RoboSystem implements RoboContext {
 			Class<? extends RoboUnit<?>> clazz = (Class<? extends RoboUnit<?>>) unit.getClass();
 			this.deliveryPolicy = deriveDeliveryPolicy(clazz);
 			this.threadingPolicy = deriveThreadingPolicy(clazz);
+			this.latestValue = clazz.getAnnotation(LatestValueTrait.class) != null;
 		}
 
 		private ThreadingPolicy deriveThreadingPolicy(Class<? extends RoboUnit<?>> clazz) {
@@ -145,18 +172,9 @@ final class RoboSystem implements RoboContext {
 		@Override
 		public void sendMessage(T message) {
 			if (MESSAGE_DELIVERY_CRITERIA.contains(getState())) {
-				switch (threadingPolicy) {
-				case NORMAL:
-					deliverOnQueue(message);
-					break;
-				case CRITICAL:
-					synchronized (unit) {
-						deliverOnQueue(message);
-					}
-					break;
-				default:
-					throw new IllegalStateException(String.format("not supported policy: %s", threadingPolicy));
-				}
+				// The mailbox is drained by at most one thread at a time, so
+				// messages are delivered one at a time and in order.
+				getMailbox().offer(message);
 			}
 		}
 
@@ -165,35 +183,116 @@ final class RoboSystem implements RoboContext {
 			return "LocalReference id: " + unit.getId() + " (system: " + uid + ")";
 		}
 
-		private void deliverOnQueue(T message) {
+		// Created on first use, since the unit configuration is not available
+		// when the reference is created.
+		private UnitMailbox<T> getMailbox() {
+			UnitMailbox<T> result = mailbox;
+			if (result == null) {
+				synchronized (this) {
+					result = mailbox;
+					if (result == null) {
+						result = createMailbox();
+						mailbox = result;
+					}
+				}
+			}
+			return result;
+		}
+
+		private UnitMailbox<T> createMailbox() {
+			int capacity = mailboxCapacity;
+			OverflowPolicy overflowPolicy = mailboxOverflowPolicy;
+			boolean metrics = metricsEnabled;
+			Configuration unitConfiguration = unit.getConfiguration();
+			if (unitConfiguration != null) {
+				capacity = unitConfiguration.getInteger(RoboBuilder.KEY_MAILBOX_CAPACITY, capacity);
+				overflowPolicy = parseOverflowPolicy(unitConfiguration, overflowPolicy);
+				metrics = unitConfiguration.getBoolean(RoboBuilder.KEY_METRICS, metrics);
+			}
+			UnitMetricsRecorder recorder = metrics ? new UnitMetricsRecorder() : null;
+			if (latestValue) {
+				return UnitMailbox.createLatestValueMailbox(unit, getExecutor(deliveryPolicy), capacity, mailboxBatchSize, recorder);
+			}
+			return new UnitMailbox<>(unit, getExecutor(deliveryPolicy), capacity, mailboxBatchSize, overflowPolicy, recorder);
+		}
+
+		private Executor getExecutor(DeliveryPolicy deliveryPolicy) {
 			switch (deliveryPolicy) {
 			case SYSTEM:
-				systemScheduler.execute(new Messenger<T>(unit, message));
-				break;
+				return systemScheduler::execute;
 			case WORK:
-				workExecutor.execute(new Messenger<T>(unit, message));
-				break;
+				return workExecutor;
 			case BLOCKING:
-				blockingExecutor.execute(new Messenger<T>(unit, message));
-				break;
+				return blockingExecutor;
 			default:
-				SimpleLoggingUtil.error(getClass(), "not supported policy: " + deliveryPolicy);
+				throw new IllegalStateException(String.format("not supported policy: %s", deliveryPolicy));
 			}
 		}
 
 		@Override
 		public <R> Future<R> getAttribute(AttributeDescriptor<R> attribute) {
-			return systemScheduler.submit(() -> unit.onGetAttribute(attribute));
+			if (SystemAttributes.isSystemAttribute(attribute)) {
+				return CompletableFuture.completedFuture(attribute.getAttributeType().cast(getSystemAttribute(attribute)));
+			}
+			return submit(() -> unit.onGetAttribute(attribute));
+		}
+
+		private <R> Future<R> submit(Callable<R> callable) {
+			switch (threadingPolicy) {
+			case NORMAL:
+				return systemScheduler.submit(callable);
+			case CRITICAL:
+				// Serialized with the message delivery, so that the unit never
+				// sees an attribute request in the middle of a message
+				FutureTask<R> task = new FutureTask<>(callable);
+				getMailbox().execute(task);
+				return task;
+			default:
+				throw new IllegalStateException(String.format("not supported policy: %s", threadingPolicy));
+			}
+		}
+
+		private Object getSystemAttribute(AttributeDescriptor<?> attribute) {
+			UnitMailbox<T> mailbox = getMailbox();
+			switch (attribute.getAttributeName()) {
+			case SystemAttributes.ATTR_MAILBOX_SIZE:
+				return mailbox.size();
+			case SystemAttributes.ATTR_MAILBOX_CAPACITY:
+				return mailbox.capacity();
+			case SystemAttributes.ATTR_MAILBOX_DROPPED:
+				return mailbox.getDroppedCount();
+			case SystemAttributes.ATTR_MAILBOX_COALESCED:
+				return mailbox.getCoalescedCount();
+			case SystemAttributes.ATTR_METRICS:
+				return mailbox.getMetrics();
+			default:
+				return null;
+			}
 		}
 
 		@Override
 		public Collection<AttributeDescriptor<?>> getKnownAttributes() {
-			return unit.getKnownAttributes();
+			Collection<AttributeDescriptor<?>> unitAttributes = unit.getKnownAttributes();
+			List<AttributeDescriptor<?>> result = new ArrayList<>(unitAttributes.size() + SystemAttributes.MAILBOX_ATTRIBUTES.size() + 1);
+			result.addAll(unitAttributes);
+			result.addAll(SystemAttributes.MAILBOX_ATTRIBUTES);
+			if (getMailbox().isCollectingMetrics()) {
+				result.add(SystemAttributes.DESCRIPTOR_METRICS);
+			}
+			return result;
+		}
+
+		/**
+		 * @return a snapshot of the metrics of the unit, or null if the unit
+		 *         does not collect metrics.
+		 */
+		UnitMetrics getMetrics() {
+			return getMailbox().getMetrics();
 		}
 
 		@Override
 		public Future<Map<AttributeDescriptor<?>, Object>> getAttributes() {
-			return systemScheduler.submit(unit::onGetAttributes);
+			return submit(unit::onGetAttributes);
 		}
 
 		@Override
@@ -206,26 +305,6 @@ final class RoboSystem implements RoboContext {
 		}
 	}
 
-	// Protects the executors from problems in the units.
-	private static class Messenger<T> implements Runnable {
-		private final RoboUnit<T> unit;
-		private final T message;
-
-		public Messenger(RoboUnit<T> unit, T message) {
-			this.unit = unit;
-			this.message = message;
-		}
-
-		@Override
-		public void run() {
-			try {
-				unit.onMessage(message);
-			} catch (Throwable t) {
-				SimpleLoggingUtil.error(unit.getClass(), "Error processing message", t);
-			}
-		}
-	}
-
 	/**
 	 * Constructor.
 	 */
@@ -248,12 +327,30 @@ final class RoboSystem implements RoboContext {
 		this.configuration = configuration;
 		int schedulerPoolSize = configuration.getInteger(RoboBuilder.KEY_SCHEDULER_POOL_SIZE, DEFAULT_SCHEDULER_POOL_SIZE);
 		int workerPoolSize = configuration.getInteger(RoboBuilder.KEY_WORKER_POOL_SIZE, DEFAULT_WORKER_POOL_SIZE);
-		int blockingPoolSize = configuration.getInteger(RoboBuilder.KEY_BLOCKING_POOL_SIZE, DEFAULT_SCHEDULER_POOL_SIZE);
+		int blockingPoolSize = configuration.getInteger(RoboBuilder.KEY_BLOCKING_POOL_SIZE, DEFAULT_BLOCKING_POOL_SIZE);
+		mailboxCapacity = configuration.getInteger(RoboBuilder.KEY_MAILBOX_CAPACITY, DEFAULT_MAILBOX_CAPACITY);
+		mailboxBatchSize = configuration.getInteger(RoboBuilder.KEY_MAILBOX_BATCH_SIZE, DEFAULT_MAILBOX_BATCH_SIZE);
+		mailboxOverflowPolicy = parseOverflowPolicy(configuration, OverflowPolicy.DROP_NEWEST);
+		metricsEnabled = configuration.getBoolean(RoboBuilder.KEY_METRICS, Boolean.FALSE);
+		parallelLifecycle = configuration.getBoolean(RoboBuilder.KEY_LIFECYCLE_PARALLEL, Boolean.FALSE);
 		workExecutor = new ThreadPoolExecutor(workerPoolSize, workerPoolSize, KEEP_ALIVE_TIME, TimeUnit.SECONDS, workQueue,
 				new RoboThreadFactory(new ThreadGroup(NAME_WORKER_POOL), NAME_WORKER_POOL, true));
-		blockingExecutor = new ThreadPoolExecutor(blockingPoolSize, blockingPoolSize, KEEP_ALIVE_TIME, TimeUnit.SECONDS, blockingQueue,
-				new RoboThreadFactory(new ThreadGroup(NAME_BLOCKING_POOL), NAME_BLOCKING_POOL, true));
-		systemScheduler = new DefaultScheduler(this, schedulerPoolSize);
+		ExecutorService virtualBlockingExecutor = configuration.getBoolean(RoboBuilder.KEY_BLOCKING_POOL_VIRTUAL, Boolean.FALSE)
+				? createVirtualExecutor(NAME_BLOCKING_POOL) : null;
+		blockingExecutor = virtualBlockingExecutor != null ? virtualBlockingExecutor
+				: new ThreadPoolExecutor(blockingPoolSize, blockingPoolSize, KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+						new RoboThreadFactory(new ThreadGroup(NAME_BLOCKING_POOL), NAME_BLOCKING_POOL, true));
+		ExecutorService virtualSchedulerExecutor = configuration.getBoolean(RoboBuilder.KEY_SCHEDULER_VIRTUAL, Boolean.FALSE)
+				? createVirtualExecutor(NAME_VIRTUAL_SCHEDULER) : null;
+		if (configuration.getBoolean(RoboBuilder.KEY_SCHEDULER_WHEEL, Boolean.FALSE)) {
+			systemScheduler = new HashedWheelScheduler(this, schedulerPoolSize, virtualSchedulerExecutor,
+					configuration.getInteger(RoboBuilder.KEY_SCHEDULER_WHEEL_TICK, HashedWheelScheduler.DEFAULT_TICK_MICROS),
+					TimeUnit.MICROSECONDS,
+					configuration.getInteger(RoboBuilder.KEY_SCHEDULER_WHEEL_SIZE, HashedWheelScheduler.DEFAULT_WHEEL_SIZE));
+		} else {
+			systemScheduler = new DefaultScheduler(this, schedulerPoolSize, virtualSchedulerExecutor);
+		}
+		unitScheduler = new UnitBoundScheduler(systemScheduler);
 		messageServer = initServer(configuration.getChildConfiguration(RoboBuilder.KEY_CONFIGURATION_SERVER));
 		emitterConfiguration = configuration.getChildConfiguration(RoboBuilder.KEY_CONFIGURATION_EMITTER);
 	}
@@ -287,7 +384,7 @@ final class RoboSystem implements RoboContext {
 		if (state.get() != LifecycleState.UNINITIALIZED) {
 			throw new UnsupportedOperationException("All units must be registered up front for now.");
 		}
-		addToMap(unitSet);
+		register(unitSet);
 	}
 
 	/**
@@ -300,7 +397,7 @@ final class RoboSystem implements RoboContext {
 		if (state.get() != LifecycleState.UNINITIALIZED) {
 			throw new UnsupportedOperationException("All units must be registered up front for now.");
 		}
-		addToMap(units);
+		register(Arrays.asList(units));
 	}
 
 	@Override
@@ -340,19 +437,13 @@ final class RoboSystem implements RoboContext {
 	}
 
 	private void startUnits() {
-		// NOTE(Marcus/Sep 4, 2017): May want to schedule the starts.
-		for (RoboUnit<?> unit : units.values()) {
-			unit.setState(LifecycleState.STARTING);
-			unit.start();
-			unit.setState(LifecycleState.STARTED);
-		}
+		awaitLifecycle("start", getLifecycle().runInDependencyOrder("start", RoboSystem::startUnit,
+				getLifecycleExecutor(blockingExecutor)));
 		state.set(LifecycleState.STARTED);
 	}
 
 	@Override
 	public void stop() {
-		// NOTE(Marcus/Sep 4, 2017): We may want schedule the stops in the
-		// future.
 		if (emitterFuture != null) {
 			emitterFuture.cancel(true);
 		}
@@ -360,7 +451,8 @@ final class RoboSystem implements RoboContext {
 			messageServer.stop();
 		}
 		if (state.compareAndSet(LifecycleState.STARTED, LifecycleState.STOPPING)) {
-			units.values().forEach(RoboUnit::stop);
+			awaitLifecycle("stop", getLifecycle().runInReverseDependencyOrder("stop", RoboUnit::stop,
+					getLifecycleExecutor(blockingExecutor)));
 		}
 		state.set(LifecycleState.STOPPED);
 	}
@@ -369,22 +461,16 @@ final class RoboSystem implements RoboContext {
 	public void shutdown() {
 		stop();
 		state.set(LifecycleState.SHUTTING_DOWN);
-		units.values().forEach((unit) -> unit.setState(LifecycleState.SHUTTING_DOWN));
+		registry.getUnits().values().forEach((unit) -> unit.setState(LifecycleState.SHUTTING_DOWN));
 
 		// First shutdown all executors. We don't care at this point, as any
 		// messages will no longer be delivered.
 		workExecutor.shutdown();
 		blockingExecutor.shutdown();
 
-		// Then schedule shutdowns on the scheduler threads...
-		for (RoboUnit<?> unit : units.values()) {
-			getScheduler().execute(new Runnable() {
-				@Override
-				public void run() {
-					RoboSystem.shutdownUnit(unit);
-				}
-			});
-		}
+		// Then run the shutdowns on the scheduler threads...
+		awaitLifecycle("shut down", getLifecycle().runInReverseDependencyOrder("shut down", RoboSystem::shutdownUnit,
+				getLifecycleExecutor(systemScheduler::execute)));
 
 		// Then shutdown the system scheduler. Will wait until the termination
 		// shutdown of the system scheduler (or the timeout).
@@ -407,22 +493,31 @@ final class RoboSystem implements RoboContext {
 
 	@Override
 	public Collection<RoboReference<?>> getUnits() {
-		return units.values().stream().map(this::getReference).collect(Collectors.toList());
+		return registry.getReferences();
 	}
 
 	@Override
 	public <T> RoboReference<T> getReference(String id) {
 		@SuppressWarnings("unchecked")
-		RoboUnit<T> roboUnit = (RoboUnit<T>) units.get(id);
-		if (roboUnit == null) {
-			return null;
+		RoboReference<T> reference = (RoboReference<T>) registry.getReference(id);
+		return reference;
+	}
+
+	@Override
+	public Map<String, UnitMetrics> getMetrics() {
+		Map<String, UnitMetrics> result = new HashMap<>();
+		for (RoboReference<?> reference : registry.getReferences()) {
+			UnitMetrics metrics = ((LocalRoboReference<?>) reference).getMetrics();
+			if (metrics != null) {
+				result.put(reference.getId(), metrics);
+			}
 		}
-		return getReference(roboUnit);
+		return Collections.unmodifiableMap(result);
 	}
 
 	@Override
 	public Scheduler getScheduler() {
-		return systemScheduler;
+		return unitScheduler;
 	}
 
 	@Override
@@ -431,60 +526,128 @@ final class RoboSystem implements RoboContext {
 	}
 
 	/**
-	 * Returns the reference for a specific unit.
+	 * Returns the reference for a specific unit. A unit that has not been
+	 * added to the system yet gets a new reference, which is the one interned
+	 * when the unit is added.
 	 * 
 	 * @param roboUnit
 	 *            the robo unit for which to retrieve a reference.
 	 * @return the {@link RoboReference} to the unit.
 	 */
 	public <T> RoboReference<T> getReference(RoboUnit<T> roboUnit) {
-		@SuppressWarnings("unchecked")
-		RoboReference<T> reference = (RoboReference<T>) referenceCache.get(roboUnit);
-		if (reference == null) {
-			reference = createReference(roboUnit);
-			referenceCache.put(roboUnit, reference);
+		UnitRegistry currentRegistry = registry;
+		if (currentRegistry.getUnit(roboUnit.getId()) == roboUnit) {
+			@SuppressWarnings("unchecked")
+			RoboReference<T> reference = (RoboReference<T>) currentRegistry.getReference(roboUnit.getId());
+			return reference;
 		}
-		return reference;
+		return createReference(roboUnit);
 	}
 
 	@Override
 	public String toString() {
-		return "RoboSystem id: " + uid + " unit count: " + units.size();
+		return "RoboSystem id: " + uid + " unit count: " + registry.size();
 	}
 
 	private <T> RoboReference<T> createReference(RoboUnit<T> roboUnit) {
 		return new LocalRoboReference<>(roboUnit);
 	}
 
-	private void addToMap(Set<RoboUnit<?>> unitSet) {
-		unitSet.forEach(unit -> units.put(unit.getId(), unit));
+	// Writers are rare and serialized, readers only ever see complete
+	// snapshots
+	private synchronized void register(Collection<? extends RoboUnit<?>> addedUnits) {
+		registry = registry.with(addedUnits, this::internReference);
 	}
 
-	private void addToMap(RoboUnit<?>... unitArray) {
-		// NOTE(Marcus/Aug 9, 2017): Do not streamify...
-		for (RoboUnit<?> unit : unitArray) {
-			units.put(unit.getId(), unit);
+	// A unit created with this system as its context already holds the
+	// reference it got in its constructor, so keep using that one
+	private RoboReference<?> internReference(RoboUnit<?> unit) {
+		if (unit.getContext() == this) {
+			return unit.internalGetReference();
 		}
+		return createReference(unit);
+	}
+
+	// The units are only known once the system is built, so the dependencies
+	// are resolved on first use
+	private UnitLifecycle getLifecycle() {
+		UnitLifecycle result = lifecycle;
+		if (result == null) {
+			synchronized (this) {
+				result = lifecycle;
+				if (result == null) {
+					result = new UnitLifecycle(registry.getUnits());
+					lifecycle = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	private Executor getLifecycleExecutor(Executor parallelExecutor) {
+		return parallelLifecycle ? parallelExecutor : Runnable::run;
+	}
+
+	private void awaitLifecycle(String name, CompletableFuture<Void> future) {
+		try {
+			future.get(LIFECYCLE_TIMEOUT, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			SimpleLoggingUtil.error(getClass(), "Interrupted when waiting for the units to " + name + ".", e);
+		} catch (ExecutionException | TimeoutException e) {
+			SimpleLoggingUtil.error(getClass(), "Failed to " + name + " the units.", e);
+		}
+	}
+
+	private static void startUnit(RoboUnit<?> unit) {
+		unit.setState(LifecycleState.STARTING);
+		// Tasks scheduled when starting are sending on behalf of the unit
+		UnitMailbox.runAs(unit, unit::start);
+		unit.setState(LifecycleState.STARTED);
 	}
 
 	private static void shutdownUnit(RoboUnit<?> unit) {
-		// NOTE(Marcus/Aug 11, 2017): Should really be scheduled and done in
-		// parallel.
 		unit.shutdown();
 		unit.setState(LifecycleState.SHUTDOWN);
 	}
 
+	private static ExecutorService createVirtualExecutor(String name) {
+		ExecutorService executor = VirtualThreadExecutors.create(name);
+		if (executor == null) {
+			SimpleLoggingUtil.info(RoboSystem.class, "Virtual threads not available - using the thread pool for " + name);
+		}
+		return executor;
+	}
+
 	private static Configuration createConfiguration(int schedulerPoolSize, int workerPoolSize, int blockingPoolSize) {
 		return new ConfigurationBuilder().addInteger(RoboBuilder.KEY_SCHEDULER_POOL_SIZE, schedulerPoolSize)
 				.addInteger(RoboBuilder.KEY_WORKER_POOL_SIZE, workerPoolSize).addInteger(RoboBuilder.KEY_BLOCKING_POOL_SIZE, blockingPoolSize).build();
 	}
 
+	private static OverflowPolicy parseOverflowPolicy(Configuration configuration, OverflowPolicy defaultPolicy) {
+		String policyName = configuration.getString(RoboBuilder.KEY_MAILBOX_OVERFLOW_POLICY, null);
+		if (policyName == null) {
+			return defaultPolicy;
+		}
+		try {
+			return OverflowPolicy.valueOf(policyName.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			SimpleLoggingUtil.error(RoboSystem.class, "Unknown overflow policy " + policyName + ", using " + defaultPolicy);
+			return defaultPolicy;
+		}
+	}
+
 	private MessageServer initServer(Configuration serverConfiguration) {
 		if (serverConfiguration != null) {
 			return new MessageServer(new MessageCallback() {
 				@Override
 				public void handleMessage(String sourceUuid, String id, Object message) {
-					getReference(id).sendMessage(message);
+					RoboSystem.this.getReference(id).sendMessage(message);
+				}
+
+				@Override
+				public RoboReference<?> getReference(String id) {
+					return RoboSystem.this.getReference(id);
 				}
 			}, serverConfiguration);
 		} else {
@@ -226,7 +226,7 @@ public abstract class RoboUnit<T> implements RoboReference<T> {
 		Map<AttributeDescriptor<?>, Object> result = new HashMap<>();
 		Collection<AttributeDescriptor<?>> knownAttributes = getKnownAttributes();
 		for (AttributeDescriptor<?> descriptor : knownAttributes) {
-			result.put(descriptor, getAttribute(descriptor));
+			result.put(descriptor, onGetAttribute(descriptor));
 		}
 		return result;
 	}
@@ -244,6 +244,21 @@ public abstract class RoboUnit<T> implements RoboReference<T> {
 		return null;
 	}
 
+	/**
+	 * Returns the key used to coalesce pending messages, when the mailbox of
+	 * this unit uses {@link OverflowPolicy#COALESCE}. A message waiting to be
+	 * delivered is replaced by a newer message with an equal key. May be
+	 * overridden in subclasses, the default is to use the class of the
+	 * message, i.e. only the latest message of each type is kept.
+	 *
+	 * @param message
+	 *            the message for which to return the key.
+	 * @return the key for the message.
+	 */
+	protected Object getCoalescingKey(T message) {
+		return message.getClass();
+	}
+
 	/**
 	 * @return a RoboReference. Internal use only.
 	 */
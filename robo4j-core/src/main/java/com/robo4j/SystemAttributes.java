@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import com.robo4j.metrics.UnitMetrics;
+import com.robo4j.util.AttributeUtils;
+
+/**
+ * Attributes provided by the system for all local units, in addition to the
+ * attributes known by the units themselves.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class SystemAttributes {
+	public static final String ATTR_MAILBOX_SIZE = "mailboxSize";
+	public static final String ATTR_MAILBOX_CAPACITY = "mailboxCapacity";
+	public static final String ATTR_MAILBOX_DROPPED = "mailboxDroppedMessages";
+	public static final String ATTR_MAILBOX_COALESCED = "mailboxCoalescedMessages";
+	public static final String ATTR_METRICS = "metrics";
+
+	/**
+	 * The number of messages currently waiting in the mailbox of the unit.
+	 */
+	public static final DefaultAttributeDescriptor<Integer> DESCRIPTOR_MAILBOX_SIZE = DefaultAttributeDescriptor.create(Integer.class,
+			ATTR_MAILBOX_SIZE);
+	/**
+	 * The capacity of the mailbox of the unit.
+	 */
+	public static final DefaultAttributeDescriptor<Integer> DESCRIPTOR_MAILBOX_CAPACITY = DefaultAttributeDescriptor
+			.create(Integer.class, ATTR_MAILBOX_CAPACITY);
+	/**
+	 * The total number of messages dropped due to the overflow policy.
+	 */
+	public static final DefaultAttributeDescriptor<Long> DESCRIPTOR_MAILBOX_DROPPED = DefaultAttributeDescriptor.create(Long.class,
+			ATTR_MAILBOX_DROPPED);
+	/**
+	 * The total number of messages replaced by a newer message with the same
+	 * key.
+	 */
+	public static final DefaultAttributeDescriptor<Long> DESCRIPTOR_MAILBOX_COALESCED = DefaultAttributeDescriptor.create(Long.class,
+			ATTR_MAILBOX_COALESCED);
+
+	/**
+	 * A snapshot of the message delivery metrics of the unit. Only available
+	 * if metrics are enabled, see {@link RoboBuilder#KEY_METRICS}.
+	 */
+	public static final DefaultAttributeDescriptor<UnitMetrics> DESCRIPTOR_METRICS = DefaultAttributeDescriptor
+			.create(UnitMetrics.class, ATTR_METRICS);
+
+	static final Collection<AttributeDescriptor<?>> MAILBOX_ATTRIBUTES = Collections.unmodifiableList(
+			Arrays.asList(DESCRIPTOR_MAILBOX_SIZE, DESCRIPTOR_MAILBOX_CAPACITY, DESCRIPTOR_MAILBOX_DROPPED, DESCRIPTOR_MAILBOX_COALESCED));
+
+	private SystemAttributes() {
+		// no instances
+	}
+
+	/**
+	 * Checks if the descriptor is one of the system provided attributes.
+	 * 
+	 * @param descriptor
+	 *            the descriptor to check.
+	 * @return true if the attribute is provided by the system.
+	 */
+	public static boolean isSystemAttribute(AttributeDescriptor<?> descriptor) {
+		for (AttributeDescriptor<?> systemDescriptor : MAILBOX_ATTRIBUTES) {
+			if (AttributeUtils.validateAttributeByNameAndType(descriptor, systemDescriptor.getAttributeName(),
+					systemDescriptor.getAttributeType())) {
+				return true;
+			}
+		}
+		return AttributeUtils.validateAttributeByNameAndType(descriptor, ATTR_METRICS, UnitMetrics.class);
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.scheduler.CatchUpPolicy;
+import com.robo4j.scheduler.FinalInvocationListener;
+import com.robo4j.scheduler.FixedRateFuture;
+import com.robo4j.scheduler.FixedRateTask;
+import com.robo4j.scheduler.Scheduler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The scheduler handed out to the units. Tasks scheduled by a unit, from its
+ * onMessage or start methods, are run on behalf of that unit, so that the
+ * messages they send are known to come from the unit. This is what lets
+ * {@link LatestValueTrait} units tell periodic sensor reads from different
+ * units apart.
+ *
+ * <p>
+ * Messages scheduled with a target reference are sent by the scheduler
+ * itself, and are not bound to a unit.
+ * </p>
+ *
+ * <p>
+ * Internal implementation class.
+ * </p>
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class UnitBoundScheduler implements Scheduler {
+	private final Scheduler delegate;
+
+	UnitBoundScheduler(Scheduler delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long period, TimeUnit unit,
+			int numberOfInvocations, FinalInvocationListener listener) {
+		return delegate.schedule(target, message, delay, period, unit, numberOfInvocations, listener);
+	}
+
+	@Override
+	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long interval, TimeUnit unit,
+			int numberOfInvocations) {
+		return delegate.schedule(target, message, delay, interval, unit, numberOfInvocations);
+	}
+
+	@Override
+	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long interval, TimeUnit unit) {
+		return delegate.schedule(target, message, delay, interval, unit);
+	}
+
+	@Override
+	public void execute(Runnable r) {
+		delegate.execute(UnitMailbox.bindToCurrentUnit(r));
+	}
+
+	@Override
+	public <T> Future<T> submit(Callable<T> r) {
+		return delegate.submit(UnitMailbox.bindToCurrentUnit(r));
+	}
+
+	@Override
+	public void schedule(Runnable runnable, long delay, TimeUnit unit) {
+		delegate.schedule(UnitMailbox.bindToCurrentUnit(runnable), delay, unit);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable runnable, long delay, long interval, TimeUnit unit) {
+		return delegate.scheduleAtFixedRate(UnitMailbox.bindToCurrentUnit(runnable), delay, interval, unit);
+	}
+
+	@Override
+	public FixedRateFuture scheduleAtFixedRate(FixedRateTask task, long delay, long period, TimeUnit unit,
+			CatchUpPolicy policy) {
+		RoboUnit<?> owner = UnitMailbox.getCurrentUnit();
+		if (owner != null) {
+			FixedRateTask unboundTask = task;
+			task = (intendedTime, actualTime) -> UnitMailbox.runAs(owner, () -> unboundTask.run(intendedTime, actualTime));
+		}
+		return delegate.scheduleAtFixedRate(task, delay, period, unit, policy);
+	}
+
+	@Override
+	public void shutdown() throws InterruptedException {
+		delegate.shutdown();
+	}
+}
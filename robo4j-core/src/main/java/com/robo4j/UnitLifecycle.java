@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.robo4j.logging.SimpleLoggingUtil;
+
+/**
+ * Runs the life cycle transitions of the units of a system, honouring the
+ * dependencies declared with {@link RoboBuilder#KEY_DEPENDS_ON}. A unit is
+ * started after the units it depends on, and stopped and shut down before
+ * them. Units without dependencies between them are handled concurrently.
+ *
+ * <p>
+ * Internal implementation class.
+ * </p>
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class UnitLifecycle {
+	private static final String DEPENDENCY_SEPARATOR = ",";
+
+	private final Map<String, RoboUnit<?>> units;
+	// The ids of the units each unit depends on
+	private final Map<String, List<String>> dependencies = new HashMap<>();
+	// The ids of the units depending on each unit
+	private final Map<String, List<String>> dependents = new HashMap<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param units
+	 *            the units of the system, by id.
+	 * @throws IllegalStateException
+	 *             if the dependencies between the units are circular.
+	 */
+	UnitLifecycle(Map<String, RoboUnit<?>> units) {
+		this.units = units;
+		for (String id : units.keySet()) {
+			dependencies.put(id, new ArrayList<>());
+			dependents.put(id, new ArrayList<>());
+		}
+		for (RoboUnit<?> unit : units.values()) {
+			for (String dependency : parseDependencies(unit)) {
+				if (!units.containsKey(dependency)) {
+					SimpleLoggingUtil.error(getClass(),
+							"Unit " + unit.getId() + " depends on the unknown unit " + dependency + " - ignoring the dependency");
+					continue;
+				}
+				dependencies.get(unit.getId()).add(dependency);
+				dependents.get(dependency).add(unit.getId());
+			}
+		}
+		checkForCycles();
+	}
+
+	/**
+	 * Performs the action on all units, each unit after the units it depends
+	 * on. If the action fails for a unit, the units depending on it are
+	 * skipped and set to {@link LifecycleState#FAILED}.
+	 *
+	 * @param name
+	 *            the name of the action, used for logging.
+	 * @param action
+	 *            the action to perform on each unit.
+	 * @param executor
+	 *            the executor to perform the actions in.
+	 * @return a future completing when the action has been performed on all
+	 *         units.
+	 */
+	CompletableFuture<Void> runInDependencyOrder(String name, Consumer<RoboUnit<?>> action, Executor executor) {
+		return run(name, action, executor, dependencies, true);
+	}
+
+	/**
+	 * Performs the action on all units, each unit before the units it depends
+	 * on. A failure for one unit does not prevent the action from being
+	 * performed on the other units.
+	 *
+	 * @param name
+	 *            the name of the action, used for logging.
+	 * @param action
+	 *            the action to perform on each unit.
+	 * @param executor
+	 *            the executor to perform the actions in.
+	 * @return a future completing when the action has been performed on all
+	 *         units.
+	 */
+	CompletableFuture<Void> runInReverseDependencyOrder(String name, Consumer<RoboUnit<?>> action, Executor executor) {
+		return run(name, action, executor, dependents, false);
+	}
+
+	private CompletableFuture<Void> run(String name, Consumer<RoboUnit<?>> action, Executor executor, Map<String, List<String>> prerequisites,
+			boolean skipOnFailure) {
+		Map<String, CompletableFuture<Boolean>> futures = new HashMap<>();
+		for (String id : units.keySet()) {
+			schedule(id, name, action, executor, prerequisites, skipOnFailure, futures);
+		}
+		return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[futures.size()]));
+	}
+
+	// The future for each unit completes with whether the action succeeded
+	private CompletableFuture<Boolean> schedule(String id, String name, Consumer<RoboUnit<?>> action, Executor executor,
+			Map<String, List<String>> prerequisites, boolean skipOnFailure, Map<String, CompletableFuture<Boolean>> futures) {
+		CompletableFuture<Boolean> future = futures.get(id);
+		if (future != null) {
+			return future;
+		}
+		List<String> prerequisiteIds = prerequisites.get(id);
+		List<CompletableFuture<Boolean>> prerequisiteFutures = new ArrayList<>(prerequisiteIds.size());
+		for (String prerequisiteId : prerequisiteIds) {
+			prerequisiteFutures.add(schedule(prerequisiteId, name, action, executor, prerequisites, skipOnFailure, futures));
+		}
+		RoboUnit<?> unit = units.get(id);
+		future = CompletableFuture.allOf(prerequisiteFutures.toArray(new CompletableFuture<?>[prerequisiteFutures.size()]))
+				.thenApplyAsync(v -> {
+					if (skipOnFailure && !allSucceeded(prerequisiteFutures)) {
+						SimpleLoggingUtil.error(getClass(), "Could not " + name + " unit " + id + ", since a unit it depends on failed");
+						unit.setState(LifecycleState.FAILED);
+						return false;
+					}
+					return perform(name, action, unit);
+				}, executor);
+		futures.put(id, future);
+		return future;
+	}
+
+	private boolean perform(String name, Consumer<RoboUnit<?>> action, RoboUnit<?> unit) {
+		long startTime = System.nanoTime();
+		try {
+			action.accept(unit);
+		} catch (RuntimeException e) {
+			SimpleLoggingUtil.error(getClass(), "Failed to " + name + " unit " + unit.getId(), e);
+			unit.setState(LifecycleState.FAILED);
+			return false;
+		}
+		SimpleLoggingUtil.debug(getClass(), String.format("Completed %s of unit %s in %d ms", name, unit.getId(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)));
+		return true;
+	}
+
+	private static boolean allSucceeded(List<CompletableFuture<Boolean>> futures) {
+		for (CompletableFuture<Boolean> future : futures) {
+			if (!future.join()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void checkForCycles() {
+		Map<String, Boolean> visited = new HashMap<>();
+		for (String id : units.keySet()) {
+			checkForCycles(id, visited, new ArrayList<>());
+		}
+	}
+
+	// Depth first search. A unit that is visited but not done is on the
+	// current path, so reaching it again means there is a cycle.
+	private void checkForCycles(String id, Map<String, Boolean> visited, List<String> path) {
+		Boolean done = visited.get(id);
+		if (done != null) {
+			if (!done) {
+				path.add(id);
+				throw new IllegalStateException("Circular unit dependencies: " + String.join(" -> ", path.subList(path.indexOf(id), path.size())));
+			}
+			return;
+		}
+		visited.put(id, Boolean.FALSE);
+		path.add(id);
+		for (String dependency : dependencies.get(id)) {
+			checkForCycles(dependency, visited, path);
+		}
+		path.remove(path.size() - 1);
+		visited.put(id, Boolean.TRUE);
+	}
+
+	private static List<String> parseDependencies(RoboUnit<?> unit) {
+		if (unit.getConfiguration() == null) {
+			return Collections.emptyList();
+		}
+		String value = unit.getConfiguration().getString(RoboBuilder.KEY_DEPENDS_ON, null);
+		if (value == null) {
+			return Collections.emptyList();
+		}
+		List<String> result = new ArrayList<>();
+		for (String dependency : value.split(DEPENDENCY_SEPARATOR)) {
+			String trimmed = dependency.trim();
+			if (!trimmed.isEmpty() && !result.contains(trimmed)) {
+				result.add(trimmed);
+			}
+		}
+		return result;
+	}
+}
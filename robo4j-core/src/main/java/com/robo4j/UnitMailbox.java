@@ -0,0 +1,542 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.jfr.JfrSupport;
+import com.robo4j.jfr.MessageDispatchEvent;
+import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.metrics.UnitMetrics;
+import com.robo4j.util.RingBuffer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The mailbox of a unit. Messages are put in a bounded ring buffer, and the
+ * mailbox schedules itself on the executor of the unit only when there is no
+ * drain already pending. A single drain delivers up to batch size messages
+ * before yielding the thread, so there is at most one drain in flight per unit
+ * and messages are delivered to the unit in the order they were received.
+ *
+ * <p>
+ * What happens when the mailbox is full is decided by the
+ * {@link OverflowPolicy}. For {@link OverflowPolicy#COALESCE}, the ring buffer
+ * holds the keys of the pending messages, and the latest message for each key
+ * is kept in a map. Latest value mailboxes (see {@link LatestValueTrait}) are
+ * coalescing mailboxes where the key also includes the sending unit.
+ * </p>
+ *
+ * <p>
+ * For {@link OverflowPolicy#BLOCK}, units sending from within a drain, or
+ * from a task they scheduled, never wait for room in a mailbox, since the
+ * drain they would be waiting for may be queued behind them on the same pool.
+ * </p>
+ *
+ * <p>
+ * Tasks, such as attribute requests to units with the
+ * {@link CriticalSectionTrait}, can also be put in the mailbox. They are run
+ * by the drain in between the messages, and never concurrently with the
+ * onMessage method of the unit.
+ * </p>
+ *
+ * <p>
+ * If the mailbox has a {@link UnitMetricsRecorder}, messages are put in the
+ * ring buffer together with the time they were received, so that the time
+ * spent waiting in the mailbox can be recorded along with the time spent in
+ * the unit.
+ * </p>
+ *
+ * <p>
+ * Internal implementation class.
+ * </p>
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class UnitMailbox<T> implements Runnable {
+	private static final int IDLE = 0;
+	private static final int SCHEDULED = 1;
+	private static final long BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+	private static final long DROPPED_WARNING_INTERVAL = 1000;
+	// Neither the ring buffer nor the map allow null, so nulls are boxed
+	private static final Object NULL_MESSAGE = new Object();
+	// The unit this thread is running for, if any. Set while draining the
+	// mailbox of the unit, and while running tasks the unit scheduled.
+	private static final ThreadLocal<RoboUnit<?>> CURRENT_UNIT = new ThreadLocal<>();
+	private static final boolean JFR_AVAILABLE = JfrSupport.isAvailable();
+
+	/**
+	 * Wraps tasks, to tell them apart from messages.
+	 */
+	private static final class MailboxTask {
+		private final RunnableFuture<?> task;
+
+		MailboxTask(RunnableFuture<?> task) {
+			this.task = task;
+		}
+	}
+
+	/**
+	 * Wraps messages with the time they were received, when collecting
+	 * metrics.
+	 */
+	private static final class TimedMessage {
+		private final Object message;
+		private final long receivedTime;
+
+		TimedMessage(Object message, long receivedTime) {
+			this.message = message;
+			this.receivedTime = receivedTime;
+		}
+	}
+
+	/**
+	 * Key for latest value mailboxes.
+	 */
+	private static final class SenderKey {
+		private final String senderId;
+		private final Object key;
+
+		SenderKey(String senderId, Object key) {
+			this.senderId = senderId;
+			this.key = key;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * senderId.hashCode() + key.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof SenderKey))
+				return false;
+			SenderKey other = (SenderKey) obj;
+			return senderId.equals(other.senderId) && key.equals(other.key);
+		}
+	}
+
+	private final RoboUnit<T> unit;
+	private final Executor executor;
+	private final RingBuffer<Object> messages;
+	private final int batchSize;
+	private final OverflowPolicy overflowPolicy;
+	private final ConcurrentMap<Object, Object> coalescedMessages;
+	private final boolean coalesceBySender;
+	private final UnitMetricsRecorder metrics;
+	private final AtomicInteger drainState = new AtomicInteger(IDLE);
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	UnitMailbox(RoboUnit<T> unit, Executor executor, int capacity, int batchSize, OverflowPolicy overflowPolicy) {
+		this(unit, executor, capacity, batchSize, overflowPolicy, null);
+	}
+
+	/**
+	 * Creates a mailbox collecting metrics with the given recorder.
+	 */
+	UnitMailbox(RoboUnit<T> unit, Executor executor, int capacity, int batchSize, OverflowPolicy overflowPolicy,
+			UnitMetricsRecorder metrics) {
+		this(unit, executor, capacity, batchSize, overflowPolicy, false, metrics);
+	}
+
+	private UnitMailbox(RoboUnit<T> unit, Executor executor, int capacity, int batchSize, OverflowPolicy overflowPolicy,
+			boolean coalesceBySender, UnitMetricsRecorder metrics) {
+		this.unit = unit;
+		this.executor = executor;
+		this.messages = new RingBuffer<>(capacity);
+		this.batchSize = batchSize;
+		this.overflowPolicy = overflowPolicy;
+		this.coalescedMessages = overflowPolicy == OverflowPolicy.COALESCE ? new ConcurrentHashMap<>() : null;
+		this.coalesceBySender = coalesceBySender;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Creates a mailbox only keeping the latest message per sender and key.
+	 */
+	static <T> UnitMailbox<T> createLatestValueMailbox(RoboUnit<T> unit, Executor executor, int capacity, int batchSize,
+			UnitMetricsRecorder metrics) {
+		return new UnitMailbox<>(unit, executor, capacity, batchSize, OverflowPolicy.COALESCE, true, metrics);
+	}
+
+	/**
+	 * @return the unit the current thread is running for, or null if none.
+	 */
+	static RoboUnit<?> getCurrentUnit() {
+		return CURRENT_UNIT.get();
+	}
+
+	/**
+	 * Binds the task to the unit the current thread is running for, if any,
+	 * so that messages sent by the task are known to be sent by that unit.
+	 *
+	 * @param task
+	 *            the task to bind.
+	 * @return the bound task, or the task itself if the thread is not running
+	 *         for a unit.
+	 */
+	static Runnable bindToCurrentUnit(Runnable task) {
+		RoboUnit<?> unit = CURRENT_UNIT.get();
+		if (unit == null) {
+			return task;
+		}
+		return () -> runAs(unit, task);
+	}
+
+	/**
+	 * Binds the task to the unit the current thread is running for, if any.
+	 *
+	 * @see #bindToCurrentUnit(Runnable)
+	 */
+	static <R> Callable<R> bindToCurrentUnit(Callable<R> task) {
+		RoboUnit<?> unit = CURRENT_UNIT.get();
+		if (unit == null) {
+			return task;
+		}
+		return () -> {
+			RoboUnit<?> previous = CURRENT_UNIT.get();
+			CURRENT_UNIT.set(unit);
+			try {
+				return task.call();
+			} finally {
+				restoreCurrentUnit(previous);
+			}
+		};
+	}
+
+	/**
+	 * Runs the task on the current thread, on behalf of the unit.
+	 *
+	 * @param unit
+	 *            the unit sending any messages sent by the task.
+	 * @param task
+	 *            the task to run.
+	 */
+	static void runAs(RoboUnit<?> unit, Runnable task) {
+		RoboUnit<?> previous = CURRENT_UNIT.get();
+		CURRENT_UNIT.set(unit);
+		try {
+			task.run();
+		} finally {
+			restoreCurrentUnit(previous);
+		}
+	}
+
+	private static void restoreCurrentUnit(RoboUnit<?> previous) {
+		if (previous == null) {
+			CURRENT_UNIT.remove();
+		} else {
+			CURRENT_UNIT.set(previous);
+		}
+	}
+
+	/**
+	 * Puts the message in the mailbox and makes sure that a drain is scheduled.
+	 *
+	 * @param message
+	 *            the message to deliver.
+	 * @return true if the message was accepted.
+	 */
+	boolean offer(T message) {
+		Object boxed = message == null ? NULL_MESSAGE : message;
+		if (metrics == null) {
+			return offerBoxed(boxed);
+		}
+		if (offerBoxed(new TimedMessage(boxed, System.nanoTime()))) {
+			metrics.messageReceived();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Puts a task in the mailbox, to be run by the drain in order with the
+	 * messages. If the task could not be accepted, it is cancelled.
+	 *
+	 * @param task
+	 *            the task to run.
+	 * @return true if the task was accepted.
+	 */
+	boolean execute(RunnableFuture<?> task) {
+		if (offerBoxed(new MailboxTask(task))) {
+			return true;
+		}
+		task.cancel(false);
+		return false;
+	}
+
+	private boolean offerBoxed(Object boxed) {
+		boolean accepted;
+		switch (overflowPolicy) {
+		case DROP_NEWEST:
+			accepted = messages.offer(boxed);
+			break;
+		case DROP_OLDEST:
+			accepted = offerDropOldest(boxed);
+			break;
+		case COALESCE:
+			accepted = offerCoalesce(boxed);
+			break;
+		default:
+			accepted = offerBlock(boxed);
+		}
+		if (accepted) {
+			scheduleDrain();
+		} else {
+			messageDropped();
+		}
+		return accepted;
+	}
+
+	/**
+	 * Counts a dropped message, whether rejected or evicted from a full
+	 * mailbox, and warns on the first one, and then on every
+	 * {@value #DROPPED_WARNING_INTERVAL}th, so that losing messages does not go
+	 * unnoticed, nor floods the log.
+	 */
+	private void messageDropped() {
+		long dropped = droppedCount.incrementAndGet();
+		if (dropped == 1 || dropped % DROPPED_WARNING_INTERVAL == 0) {
+			SimpleLoggingUtil.error(getClass(), "Mailbox of " + unit.getId() + " full, " + dropped
+					+ " messages dropped so far by the " + overflowPolicy + " overflow policy");
+		}
+	}
+
+	/**
+	 * @return the number of messages waiting to be delivered.
+	 */
+	int size() {
+		return messages.size();
+	}
+
+	/**
+	 * @return the capacity of the mailbox.
+	 */
+	int capacity() {
+		return messages.capacity();
+	}
+
+	/**
+	 * @return the total number of messages dropped.
+	 */
+	long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return the total number of messages replaced by newer messages.
+	 */
+	long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return true if the mailbox collects metrics.
+	 */
+	boolean isCollectingMetrics() {
+		return metrics != null;
+	}
+
+	/**
+	 * @return a snapshot of the metrics of the mailbox, or null if the mailbox
+	 *         does not collect metrics.
+	 */
+	UnitMetrics getMetrics() {
+		return metrics == null ? null : metrics.snapshot(unit.getId(), size());
+	}
+
+	@Override
+	public void run() {
+		while (!drainBatch()) {
+			if (!drainState.compareAndSet(IDLE, SCHEDULED)) {
+				// A sender already scheduled the next drain
+				return;
+			}
+			try {
+				executor.execute(this);
+				return;
+			} catch (RejectedExecutionException e) {
+				// The executor is shutting down, so deliver what was already
+				// accepted on this thread.
+			}
+		}
+	}
+
+	private boolean offerBlock(Object message) {
+		while (!messages.offer(message)) {
+			if (CURRENT_UNIT.get() != null) {
+				// Sent by a unit, from within a drain or a scheduled task. The
+				// drain of this mailbox may be queued behind it on the same
+				// pool, or be this very drain, so waiting here could stall the
+				// pool for good.
+				return false;
+			}
+			if (!RoboSystem.MESSAGE_DELIVERY_CRITERIA.contains(unit.getState())) {
+				return false;
+			}
+			scheduleDrain();
+			LockSupport.parkNanos(BACKOFF_NANOS);
+		}
+		return true;
+	}
+
+	private boolean offerDropOldest(Object message) {
+		while (!messages.offer(message)) {
+			Object dropped = messages.poll();
+			if (dropped != null) {
+				messageDropped();
+				if (dropped instanceof MailboxTask) {
+					((MailboxTask) dropped).task.cancel(false);
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean offerCoalesce(Object message) {
+		Object key = getKey(message);
+		// Serialized per key by the map, so that a message is only ever in
+		// the map while its key is queued. Otherwise a sender replacing the
+		// message of a sender that then fails to queue the key would be told
+		// that its message got through.
+		Object result = coalescedMessages.compute(key, (k, pending) -> {
+			if (pending != null) {
+				// The drain has not picked up the previous message for the
+				// key yet, so it will get this one instead
+				coalescedCount.incrementAndGet();
+				return message;
+			}
+			return messages.offer(k) ? message : null;
+		});
+		return result != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object getKey(Object message) {
+		if (message instanceof TimedMessage) {
+			message = ((TimedMessage) message).message;
+		}
+		if (message instanceof MailboxTask) {
+			// Tasks are never coalesced
+			return message;
+		}
+		Object key = message == NULL_MESSAGE ? NULL_MESSAGE : unit.getCoalescingKey((T) message);
+		if (key == null) {
+			key = NULL_MESSAGE;
+		}
+		if (coalesceBySender) {
+			RoboUnit<?> sender = CURRENT_UNIT.get();
+			if (sender != null) {
+				return new SenderKey(sender.getId(), key);
+			}
+		}
+		return key;
+	}
+
+	private Object poll() {
+		Object next = messages.poll();
+		if (next != null && coalescedMessages != null) {
+			return coalescedMessages.remove(next);
+		}
+		return next;
+	}
+
+	private boolean drainBatch() {
+		CURRENT_UNIT.set(unit);
+		if (metrics != null) {
+			metrics.recordQueueDepth(messages.size());
+		}
+		try {
+			for (int i = 0; i < batchSize; i++) {
+				Object message = poll();
+				if (message == null) {
+					break;
+				}
+				deliver(message);
+			}
+		} finally {
+			CURRENT_UNIT.remove();
+			drainState.set(IDLE);
+		}
+		return messages.isEmpty();
+	}
+
+	private void scheduleDrain() {
+		if (drainState.compareAndSet(IDLE, SCHEDULED)) {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				drainState.set(IDLE);
+				throw e;
+			}
+		}
+	}
+
+	private void deliver(Object message) {
+		if (message instanceof MailboxTask) {
+			((MailboxTask) message).task.run();
+			return;
+		}
+		if (metrics != null && message instanceof TimedMessage) {
+			TimedMessage timedMessage = (TimedMessage) message;
+			long startTime = System.nanoTime();
+			deliverMessage(timedMessage.message);
+			metrics.recordDelivery(startTime - timedMessage.receivedTime, System.nanoTime() - startTime);
+			return;
+		}
+		deliverMessage(message);
+	}
+
+	private void deliverMessage(Object message) {
+		if (JFR_AVAILABLE) {
+			MessageDispatchEvent event = new MessageDispatchEvent();
+			if (event.isEnabled()) {
+				event.begin();
+				invokeUnit(message);
+				event.end();
+				if (event.shouldCommit()) {
+					event.setUnitId(unit.getId());
+					event.setMessageClass(message == NULL_MESSAGE ? null : message.getClass());
+					event.commit();
+				}
+				return;
+			}
+		}
+		invokeUnit(message);
+	}
+
+	// Protects the executors from problems in the units.
+	@SuppressWarnings("unchecked")
+	private void invokeUnit(Object message) {
+		try {
+			unit.onMessage(message == NULL_MESSAGE ? null : (T) message);
+		} catch (Throwable t) {
+			SimpleLoggingUtil.error(unit.getClass(), "Error processing message", t);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.robo4j.metrics.LatencyHistogram;
+import com.robo4j.metrics.UnitMetrics;
+
+/**
+ * Collects the metrics for the message delivery to a unit. Only created when
+ * metrics are enabled, so that a mailbox without metrics pays nothing but a
+ * null check.
+ *
+ * <p>
+ * Internal implementation class.
+ * </p>
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class UnitMetricsRecorder {
+	// Striped, since any number of threads may be sending to the unit
+	private final LongAdder received = new LongAdder();
+	private final LongAdder processed = new LongAdder();
+	private final LatencyHistogram queueWait = new LatencyHistogram();
+	private final LatencyHistogram processingTime = new LatencyHistogram();
+	private final long startTime = System.nanoTime();
+	// Only updated by the drain, of which there is at most one at a time
+	private volatile int maxQueueDepth;
+
+	void messageReceived() {
+		received.increment();
+	}
+
+	void recordQueueDepth(int depth) {
+		if (depth > maxQueueDepth) {
+			maxQueueDepth = depth;
+		}
+	}
+
+	void recordDelivery(long queueWaitNanos, long processingNanos) {
+		processed.increment();
+		queueWait.record(queueWaitNanos);
+		processingTime.record(processingNanos);
+	}
+
+	UnitMetrics snapshot(String unitId, int queueDepth) {
+		return new UnitMetrics(unitId, received.sum(), processed.sum(), queueDepth, maxQueueDepth, System.nanoTime() - startTime,
+				queueWait.snapshot(), processingTime.snapshot());
+	}
+}
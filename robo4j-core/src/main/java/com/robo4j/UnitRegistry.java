@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable snapshot of the units of a system and their interned references.
+ * Adding units creates a new snapshot, which is then published by swapping a
+ * single volatile field, so lookups never take a lock and never see a
+ * partially updated registry.
+ *
+ * <p>
+ * Internal implementation class.
+ * </p>
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class UnitRegistry {
+	static final UnitRegistry EMPTY = new UnitRegistry(Collections.emptyMap(), Collections.emptyMap());
+
+	private final Map<String, RoboUnit<?>> units;
+	private final Map<String, RoboReference<?>> references;
+	private final List<RoboReference<?>> referenceList;
+
+	private UnitRegistry(Map<String, RoboUnit<?>> units, Map<String, RoboReference<?>> references) {
+		this.units = Collections.unmodifiableMap(units);
+		this.references = Collections.unmodifiableMap(references);
+		this.referenceList = Collections.unmodifiableList(new ArrayList<>(references.values()));
+	}
+
+	/**
+	 * Creates a new registry with the units of this registry and the added
+	 * units. An added unit replaces any unit with the same id.
+	 *
+	 * @param addedUnits
+	 *            the units to add.
+	 * @param referenceFactory
+	 *            provides the reference to use for each added unit.
+	 * @return the new registry.
+	 */
+	UnitRegistry with(Collection<? extends RoboUnit<?>> addedUnits, Function<RoboUnit<?>, RoboReference<?>> referenceFactory) {
+		Map<String, RoboUnit<?>> newUnits = new HashMap<>(units);
+		Map<String, RoboReference<?>> newReferences = new HashMap<>(references);
+		for (RoboUnit<?> unit : addedUnits) {
+			newUnits.put(unit.getId(), unit);
+			newReferences.put(unit.getId(), referenceFactory.apply(unit));
+		}
+		return new UnitRegistry(newUnits, newReferences);
+	}
+
+	RoboUnit<?> getUnit(String id) {
+		return units.get(id);
+	}
+
+	RoboReference<?> getReference(String id) {
+		return references.get(id);
+	}
+
+	/**
+	 * @return the units, by id.
+	 */
+	Map<String, RoboUnit<?>> getUnits() {
+		return units;
+	}
+
+	/**
+	 * @return the references to all the units.
+	 */
+	List<RoboReference<?>> getReferences() {
+		return referenceList;
+	}
+
+	int size() {
+		return units.size();
+	}
+}
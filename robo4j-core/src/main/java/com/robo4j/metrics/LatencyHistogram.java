@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.metrics;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram, in the style of HdrHistogram. Values are
+ * recorded in nanoseconds into log-linear buckets: every power of two is split
+ * into {@value #SUB_BUCKETS} linear sub-buckets, so any recorded value is
+ * known with a relative error of at most 12.5%, using a fixed number of
+ * buckets. Values above roughly 73 minutes are recorded in the last bucket.
+ * 
+ * <p>
+ * Recording is a couple of atomic increments, and safe from any number of
+ * threads. Use {@link #snapshot()} to get a serializable copy for reporting.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 41;
+	private static final int NUMBER_OF_BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+
+	/**
+	 * Records a value.
+	 * 
+	 * @param nanos
+	 *            the value to record, in nanoseconds. Negative values are
+	 *            recorded as 0.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		buckets.incrementAndGet(getBucket(value));
+		total.addAndGet(value);
+		long currentMax = max.get();
+		while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+			currentMax = max.get();
+		}
+	}
+
+	/**
+	 * Records values which were skipped altogether, such as the ticks of a
+	 * fixed rate schedule which never ran.
+	 * 
+	 * @param count
+	 *            the number of values skipped.
+	 */
+	public void recordSkipped(long count) {
+		skipped.addAndGet(count);
+	}
+
+	/**
+	 * @return a copy of the current state of the histogram. The copy is not
+	 *         atomic with respect to concurrent recording, but every bucket is
+	 *         consistent in itself.
+	 */
+	public Snapshot snapshot() {
+		long[] counts = new long[NUMBER_OF_BUCKETS];
+		long count = 0;
+		for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			count += counts[i];
+		}
+		return new Snapshot(counts, count, total.get(), max.get(), skipped.get());
+	}
+
+	static int getBucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT) {
+			return NUMBER_OF_BUCKETS - 1;
+		}
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long getBucketLowerBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = bucket % SUB_BUCKETS;
+		return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+	}
+
+	/**
+	 * An immutable copy of a {@link LatencyHistogram}.
+	 */
+	public static final class Snapshot implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final long[] counts;
+		private final long count;
+		private final long total;
+		private final long max;
+		private final long skipped;
+
+		private Snapshot(long[] counts, long count, long total, long max, long skipped) {
+			this.counts = counts;
+			this.count = count;
+			this.total = total;
+			this.max = max;
+			this.skipped = skipped;
+		}
+
+		/**
+		 * @return the number of recorded values.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * @return the number of values which were skipped, and so never
+		 *         recorded.
+		 */
+		public long getSkippedCount() {
+			return skipped;
+		}
+
+		/**
+		 * @return the highest recorded value, in nanoseconds.
+		 */
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * @return the mean of the recorded values, in nanoseconds, or 0 if
+		 *         nothing has been recorded.
+		 */
+		public long getMean() {
+			return count == 0 ? 0 : total / count;
+		}
+
+		/**
+		 * Returns the value at the given percentile. The value is the highest
+		 * value equivalent to the bucket the percentile falls in, capped at the
+		 * highest value recorded.
+		 * 
+		 * @param percentile
+		 *            the percentile, between 0 and 100.
+		 * @return the value, in nanoseconds, or 0 if nothing has been
+		 *         recorded.
+		 */
+		public long getPercentile(double percentile) {
+			if (percentile < 0 || percentile > 100) {
+				throw new IllegalArgumentException("Percentile out of range: " + percentile);
+			}
+			if (count == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+			long seen = 0;
+			for (int i = 0; i < counts.length - 1; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return Math.min(getBucketLowerBound(i + 1) - 1, max);
+				}
+			}
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			String result = String.format("count=%d, mean=%dns, p50=%dns, p99=%dns, max=%dns", count, getMean(),
+					getPercentile(50), getPercentile(99), max);
+			return skipped == 0 ? result : result + ", skipped=" + skipped;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.metrics;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the metrics for the message delivery to a unit: how many
+ * messages it received and processed, how long the messages waited in the
+ * mailbox, and how long the unit spent processing them.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class UnitMetrics implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final String unitId;
+	private final long received;
+	private final long processed;
+	private final int queueDepth;
+	private final int maxQueueDepth;
+	private final long elapsedNanos;
+	private final LatencyHistogram.Snapshot queueWait;
+	private final LatencyHistogram.Snapshot processingTime;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param unitId
+	 *            the id of the unit.
+	 * @param received
+	 *            the number of messages accepted into the mailbox.
+	 * @param processed
+	 *            the number of messages delivered to the unit.
+	 * @param queueDepth
+	 *            the number of messages currently in the mailbox.
+	 * @param maxQueueDepth
+	 *            the highest number of messages seen in the mailbox.
+	 * @param elapsedNanos
+	 *            the time the metrics have been collected.
+	 * @param queueWait
+	 *            the time the messages waited in the mailbox.
+	 * @param processingTime
+	 *            the time the unit spent processing the messages.
+	 */
+	public UnitMetrics(String unitId, long received, long processed, int queueDepth, int maxQueueDepth, long elapsedNanos,
+			LatencyHistogram.Snapshot queueWait, LatencyHistogram.Snapshot processingTime) {
+		this.unitId = unitId;
+		this.received = received;
+		this.processed = processed;
+		this.queueDepth = queueDepth;
+		this.maxQueueDepth = maxQueueDepth;
+		this.elapsedNanos = elapsedNanos;
+		this.queueWait = queueWait;
+		this.processingTime = processingTime;
+	}
+
+	/**
+	 * @return the id of the unit.
+	 */
+	public String getUnitId() {
+		return unitId;
+	}
+
+	/**
+	 * @return the number of messages accepted into the mailbox.
+	 */
+	public long getReceived() {
+		return received;
+	}
+
+	/**
+	 * @return the number of messages delivered to the unit.
+	 */
+	public long getProcessed() {
+		return processed;
+	}
+
+	/**
+	 * @return the number of messages in the mailbox when the snapshot was
+	 *         taken.
+	 */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * @return the highest number of messages seen in the mailbox when
+	 *         starting to deliver a batch.
+	 */
+	public int getMaxQueueDepth() {
+		return maxQueueDepth;
+	}
+
+	/**
+	 * @return for how long, in nanoseconds, the metrics have been collected.
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return the average number of messages processed per second since the
+	 *         metrics started to be collected.
+	 */
+	public double getThroughput() {
+		return elapsedNanos == 0 ? 0 : processed * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+	}
+
+	/**
+	 * @return the time, in nanoseconds, messages waited in the mailbox before
+	 *         being delivered.
+	 */
+	public LatencyHistogram.Snapshot getQueueWait() {
+		return queueWait;
+	}
+
+	/**
+	 * @return the time, in nanoseconds, the unit spent processing the
+	 *         messages.
+	 */
+	public LatencyHistogram.Snapshot getProcessingTime() {
+		return processingTime;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("UnitMetrics [unitId=%s, received=%d, processed=%d, queueDepth=%d, maxQueueDepth=%d, "
+				+ "throughput=%.1f/s, queueWait=(%s), processingTime=(%s)]", unitId, received, processed, queueDepth,
+				maxQueueDepth, getThroughput(), queueWait, processingTime);
+	}
+}
@@ -6,14 +6,19 @@ import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.configuration.ConfigurationFactory;
+import com.robo4j.logging.SimpleLoggingUtil;
 import com.robo4j.scheduler.Scheduler;
 
-import java.io.IOException;
 import java.net.InetAddress;
 import java.net.URI;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  *
@@ -21,8 +26,15 @@ import java.util.concurrent.Future;
  * @author Miroslav Wengner (@miragemiko)
  */
 public class ClientRemoteRoboContext implements RoboContext {
+	// How long to wait for the replies to the queries that are not returning
+	// futures
+	private static final long QUERY_TIMEOUT_MILLIS = 10000;
+	// Log every dropped message up to this many, then only every this many
+	private static final long DROPPED_LOG_INTERVAL = 100;
+
 	private final RoboContextDescriptorEntry descriptorEntry;
 	private final MessageClient client;
+	private final Map<String, RoboReference<?>> referenceCache = new ConcurrentHashMap<>();
 
 	private class ClientRemoteRoboReference<T> implements RoboReference<T> {
 
@@ -39,19 +51,17 @@ public class ClientRemoteRoboContext implements RoboContext {
 
 		@Override
 		public LifecycleState getState() {
-			throw new UnsupportedOperationException("Not supported yet!");
+			return await(client.queryState(id), null);
 		}
 
 		@Override
 		public void sendMessage(Object message) {
-			try {
-				if (!client.isConnected()) {
-					client.connect();
+			if (!client.sendMessage(id, message)) {
+				long dropped = client.getDroppedCount();
+				if (dropped <= DROPPED_LOG_INTERVAL || dropped % DROPPED_LOG_INTERVAL == 0) {
+					SimpleLoggingUtil.error(ClientRemoteRoboContext.class, "Dropped message to " + id + " in "
+							+ ClientRemoteRoboContext.this.getId() + " - " + dropped + " dropped so far");
 				}
-				client.sendMessage(id, message);
-			} catch (IOException e) {
-				// TODO: Error handling
-				e.printStackTrace();
 			}
 		}
 
@@ -67,17 +77,28 @@ public class ClientRemoteRoboContext implements RoboContext {
 
 		@Override
 		public <R> Future<R> getAttribute(AttributeDescriptor<R> attribute) {
-			throw new UnsupportedOperationException("Not supported yet!");
+			return client.queryAttribute(id, attribute);
 		}
 
 		@Override
 		public Collection<AttributeDescriptor<?>> getKnownAttributes() {
-			throw new UnsupportedOperationException("Not supported yet!");
+			return await(client.queryKnownAttributes(id), Collections.emptyList());
 		}
 
 		@Override
 		public Future<Map<AttributeDescriptor<?>, Object>> getAttributes() {
-			throw new UnsupportedOperationException("Not supported yet!");
+			return client.queryAttributes(id);
+		}
+
+		private <R> R await(Future<R> future, R defaultValue) {
+			try {
+				return future.get(QUERY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException | TimeoutException e) {
+				SimpleLoggingUtil.error(ClientRemoteRoboContext.class, "Failed to query " + id + " in " + ClientRemoteRoboContext.this.getId(), e);
+			}
+			return defaultValue;
 		}
 
 	}
@@ -111,8 +132,9 @@ public class ClientRemoteRoboContext implements RoboContext {
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public <T> RoboReference<T> getReference(String id) {
-		return new ClientRemoteRoboReference<>(id);
+		return (RoboReference<T>) referenceCache.computeIfAbsent(id, referenceId -> new ClientRemoteRoboReference<>(referenceId));
 	}
 
 	@Override
@@ -135,6 +157,17 @@ public class ClientRemoteRoboContext implements RoboContext {
 		return descriptorEntry.address;
 	}
 
+	/**
+	 * Closes the connection to the remote context. Called by the lookup
+	 * service when the remote context has stopped sending heartbeats. The
+	 * context and its references may still be held by others, so they keep
+	 * working, and connect again when the next message is sent. May be called
+	 * more than once.
+	 */
+	void close() {
+		client.disconnect();
+	}
+
 	@Override
 	public Configuration getConfiguration() {
 		// TODO Auto-generated method stub
@@ -27,6 +27,7 @@ import java.net.InetSocketAddress;
 import java.net.MulticastSocket;
 import java.net.SocketAddress;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
 import java.util.Collections;
 import java.util.HashMap;
@@ -41,6 +42,12 @@ import java.util.concurrent.ConcurrentHashMap;
  * enough heartbeats. Note that the entries themselves can have individual
  * settings for the heartbeat.
  * 
+ * <p>
+ * The remote context for an entry, and with it the connection to the remote
+ * context, is created on the first lookup and then shared by everyone looking
+ * up the same context. The connection is closed when the entry is removed.
+ * </p>
+ * 
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
  */
@@ -48,30 +55,48 @@ class LookupServiceImpl implements LookupService {
 	// FIXME(marcus/6 Nov 2017): This should be calculated, and used when
 	// constructing the packet
 	private final static int MAX_PACKET_SIZE = 1500;
-	private MulticastSocket socket;
+	// How often to check for contexts that stopped sending heartbeats, in ms
+	private final static int EVICTION_CHECK_INTERVAL = 1000;
 	private String address;
 	private int port;
 	private Updater currentUpdater;
 	private Map<String, RoboContextDescriptorEntry> entries = new ConcurrentHashMap<>();
 	private final LocalLookupServiceImpl localContexts;
+	private final float missedHeartbeatsBeforeRemoval;
 
 	private class Updater implements Runnable {
+		private final MulticastSocket socket;
 		private byte[] buffer = new byte[MAX_PACKET_SIZE];
-		private volatile boolean isRunning;
+		private volatile boolean isRunning = true;
+		private long lastEvictionCheck = System.currentTimeMillis();
+
+		Updater(MulticastSocket socket) {
+			this.socket = socket;
+		}
 
 		@Override
 		public void run() {
-			while (!isRunning) {
+			while (isRunning) {
 				try {
 					DatagramPacket packet = new DatagramPacket(buffer, MAX_PACKET_SIZE);
 					socket.receive(packet);
 					process(packet);
+				} catch (SocketTimeoutException e) {
+					// Time to check for evictions
 				} catch (IOException e) {
-					SimpleLoggingUtil.error(getClass(),
-							"Failed to look for lookupservice packets. Lookup service will no longer discover new remote contexts.", e);
-					isRunning = false;
+					if (isRunning) {
+						SimpleLoggingUtil.error(getClass(),
+								"Failed to look for lookupservice packets. Lookup service will no longer discover new remote contexts.", e);
+						isRunning = false;
+					}
+				}
+				long now = System.currentTimeMillis();
+				if (now - lastEvictionCheck >= EVICTION_CHECK_INTERVAL) {
+					lastEvictionCheck = now;
+					evictStaleEntries(now);
 				}
 			}
+			socket.close();
 		}
 
 		private void process(DatagramPacket packet) {
@@ -107,6 +132,7 @@ class LookupServiceImpl implements LookupService {
 				entry.address = ((InetSocketAddress) address).getAddress();
 			}
 			entry.descriptor = HearbeatMessageCodec.decode(packet.getData());
+			entry.lastAccess = System.currentTimeMillis();
 			return entry;
 		}
 
@@ -124,6 +150,7 @@ class LookupServiceImpl implements LookupService {
 
 		public void stop() {
 			isRunning = false;
+			socket.close();
 		}
 	}
 
@@ -131,8 +158,8 @@ class LookupServiceImpl implements LookupService {
 			throws SocketException, UnknownHostException {
 		this.address = address;
 		this.port = port;
+		this.missedHeartbeatsBeforeRemoval = missedHeartbeatsBeforeRemoval;
 		this.localContexts = localContexts;
-
 	}
 
 	@Override
@@ -149,19 +176,52 @@ class LookupServiceImpl implements LookupService {
 	public RoboContext getContext(String id) {
 		RoboContextDescriptorEntry entry = entries.get(id);
 		if (entry != null) {
-			return new ClientRemoteRoboContext(entry);
+			return getRemoteContext(entry);
 		} else {
 			LocalRoboContextDescriptor localEntry = localContexts.getLocalDescriptor(id);
 			return localEntry != null ? localEntry.getContext() : null;
 		}
 	}
 
+	private ClientRemoteRoboContext getRemoteContext(RoboContextDescriptorEntry entry) {
+		ClientRemoteRoboContext context = entry.context;
+		if (context == null) {
+			synchronized (entry) {
+				context = entry.context;
+				if (context == null) {
+					context = new ClientRemoteRoboContext(entry);
+					entry.context = context;
+				}
+			}
+		}
+		return context;
+	}
+
+	/**
+	 * Removes the entries that have missed too many heartbeats, and closes the
+	 * connections to them.
+	 */
+	void evictStaleEntries(long now) {
+		for (RoboContextDescriptorEntry entry : entries.values()) {
+			long maxAge = (long) (entry.descriptor.getHeartBeatInterval() * missedHeartbeatsBeforeRemoval);
+			if (now - entry.lastAccess > maxAge && entries.remove(entry.descriptor.getId(), entry)) {
+				SimpleLoggingUtil.debug(getClass(), "Removing " + entry.descriptor.getId() + " after missing heartbeats");
+				synchronized (entry) {
+					if (entry.context != null) {
+						entry.context.close();
+					}
+				}
+			}
+		}
+	}
+
 	@Override
 	public synchronized void start() throws IOException {
 		stop();
-		socket = new MulticastSocket(port);
+		MulticastSocket socket = new MulticastSocket(port);
+		socket.setSoTimeout(EVICTION_CHECK_INTERVAL);
 		socket.joinGroup(InetAddress.getByName(address));
-		currentUpdater = new Updater();
+		currentUpdater = new Updater(socket);
 		Thread t = new Thread(currentUpdater, "LookupService listener");
 		t.setDaemon(true);
 		t.start();
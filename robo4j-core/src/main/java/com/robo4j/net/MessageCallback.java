@@ -16,6 +16,8 @@
  */
 package com.robo4j.net;
 
+import com.robo4j.RoboReference;
+
 /**
  * Message callback interface for handling a received message.
  *
@@ -35,4 +37,16 @@ public interface MessageCallback {
 	 *            the message sent.
 	 */
 	void handleMessage(String sourceUuid, String id, Object message);
+
+	/**
+	 * Looks up the reference to answer queries from remote contexts about.
+	 * 
+	 * @param id
+	 *            the id of the reference.
+	 * @return the reference, or null if there is no such reference, or
+	 *         queries are not supported.
+	 */
+	default RoboReference<?> getReference(String id) {
+		return null;
+	}
 }
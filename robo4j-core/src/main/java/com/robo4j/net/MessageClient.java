@@ -16,36 +16,106 @@
  */
 package com.robo4j.net;
 
+import com.robo4j.AttributeDescriptor;
+import com.robo4j.DefaultAttributeDescriptor;
+import com.robo4j.LifecycleState;
 import com.robo4j.RoboContext;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.logging.SimpleLoggingUtil;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.WriteAbortedException;
 import java.net.Socket;
+import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Message client. Normally used by RemoteRoboContext to communicate with a
  * discovered MessageServer.
  * 
+ * <p>
+ * Sending a message only puts it in a bounded outbound queue, so callers are
+ * never held up by the network. A writer thread takes the messages off the
+ * queue in batches, and flushes the stream once per batch. If the connection
+ * fails, the writer reconnects with an exponential backoff, and sends the
+ * batch again. Messages may therefore be delivered twice when reconnecting.
+ * </p>
+ * 
+ * <p>
+ * The state and attributes of the remote units can be queried. Queries are
+ * sent through the same queue as the messages, each with its own correlation
+ * id, so any number of queries can be outstanding on the connection at the
+ * same time. The returned futures complete when the replies arrive, and fail
+ * if the connection is lost before that.
+ * </p>
+ * 
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
  */
 public class MessageClient {
 	public final static String KEY_SO_TIMEOUT = "timeout";
 	public final static String KEY_KEEP_ALIVE = "keepAlive";
+	/**
+	 * Configuration key for how many times to reconnect before dropping a
+	 * batch of messages.
+	 */
 	public final static String KEY_RETRIES = "retries";
+	/**
+	 * Configuration key for the maximum number of messages waiting to be
+	 * sent. Messages sent when the queue is full are dropped.
+	 */
+	public final static String KEY_QUEUE_CAPACITY = "queueCapacity";
+	/**
+	 * Configuration key for the maximum number of messages written before
+	 * flushing.
+	 */
+	public final static String KEY_BATCH_SIZE = "batchSize";
+	/**
+	 * Configuration key for the maximum time, in milliseconds, to wait for
+	 * more messages to fill up a batch before flushing. The default, 0, sends
+	 * whatever is in the queue right away.
+	 */
+	public final static String KEY_MAX_LATENCY = "maxLatency";
+	/**
+	 * Configuration key for the time, in milliseconds, to wait before the
+	 * first reconnect attempt. Doubled for each failed attempt.
+	 */
+	public final static String KEY_RECONNECT_BACKOFF = "reconnectBackoff";
 	public final static int DEFAULT_SO_TIMEOUT = 2000000;
 	public final static boolean DEFAULT_KEEP_ALIVE = true;
+	public final static int DEFAULT_RETRIES = 3;
+	public final static int DEFAULT_QUEUE_CAPACITY = 1024;
+	public final static int DEFAULT_BATCH_SIZE = 64;
+	public final static int DEFAULT_MAX_LATENCY = 0;
+	public final static int DEFAULT_RECONNECT_BACKOFF = 100;
+
+	private static final long MAX_RECONNECT_BACKOFF = TimeUnit.SECONDS.toMillis(10);
+	private static final long IDLE_POLL_MILLIS = 500;
+	private static final long SHUTDOWN_TIMEOUT_MILLIS = 2000;
 
 	/*
 	 * Executor for incoming messages from the server
@@ -74,8 +144,13 @@ public class MessageClient {
 		@Override
 		public void run() {
 			ObjectInputStream ois = getStream();
-			while (!quit) {
+			while (!quit && ois != null) {
 				try {
+					byte dataType = ois.readByte();
+					if (dataType == MessageProtocolConstants.QUERY_REPLY) {
+						readQueryReply(ois);
+						continue;
+					}
 					String uuid = ois.readUTF();
 					String id = ois.readUTF();
 					Object message = ois.readObject();
@@ -88,18 +163,49 @@ public class MessageClient {
 					}
 				} catch (SocketTimeoutException e) {
 					// This will likely happen.
+				} catch (EOFException | SocketException e) {
+					// Connection closed. If it was closed on this side, its
+					// queries have been failed already, and the ones sent
+					// since are on a new connection.
+					synchronized (connectionLock) {
+						if (!quit) {
+							failSentQueries("Connection to " + messageServerURI + " closed");
+						}
+					}
+					return;
 				} catch (Exception e) {
 					SimpleLoggingUtil.debug(MessageClient.class, "Message delivery failed for recipient", e);
 				}
 			}
 		}
 
+		private void readQueryReply(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+			int correlationId = ois.readInt();
+			boolean success = ois.readBoolean();
+			Query query = pendingQueries.remove(correlationId);
+			try {
+				Object result = ois.readObject();
+				if (query != null) {
+					if (success) {
+						query.result.complete(result);
+					} else {
+						query.result.completeExceptionally(new IOException("Remote query failed: " + result));
+					}
+				}
+			} catch (WriteAbortedException e) {
+				if (query != null) {
+					query.result.completeExceptionally(e);
+				}
+			}
+		}
+
 		private ObjectInputStream getStream() {
 			try {
 				return new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
 			} catch (IOException e) {
-				SimpleLoggingUtil.error(getClass(), "Failed to get input stream for remote reference listener!");
-				e.printStackTrace();
+				if (!quit) {
+					SimpleLoggingUtil.error(getClass(), "Failed to get input stream for remote reference listener!", e);
+				}
 			}
 			return null;
 		}
@@ -110,47 +216,322 @@ public class MessageClient {
 
 	}
 
+	private static final class Query {
+		private final int correlationId;
+		private final byte kind;
+		private final AttributeDescriptor<?> attribute;
+		private final CompletableFuture<Object> result = new CompletableFuture<>();
+		private volatile boolean sent;
+
+		Query(int correlationId, byte kind, AttributeDescriptor<?> attribute) {
+			this.correlationId = correlationId;
+			this.kind = kind;
+			this.attribute = attribute;
+		}
+	}
+
+	private static final class OutboundMessage {
+		private final String id;
+		private final Object message;
+
+		OutboundMessage(String id, Object message) {
+			this.id = id;
+			this.message = message;
+		}
+	}
+
+	/*
+	 * Takes the messages off the queue and writes them in batches.
+	 */
+	private class Writer implements Runnable {
+		@Override
+		public void run() {
+			List<OutboundMessage> batch = new ArrayList<>(batchSize);
+			try {
+				while (running) {
+					OutboundMessage first = outboundQueue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+					if (first != null) {
+						batch.add(first);
+						fillBatch(batch);
+						writeBatch(batch);
+						batch.clear();
+					}
+				}
+			} catch (InterruptedException e) {
+				// Shutting down
+			}
+			// Try once to send what is left
+			outboundQueue.drainTo(batch);
+			if (!batch.isEmpty()) {
+				writeBatch(batch);
+			}
+			closeConnection();
+		}
+
+		private void fillBatch(List<OutboundMessage> batch) throws InterruptedException {
+			outboundQueue.drainTo(batch, batchSize - batch.size());
+			if (maxLatencyNanos > 0) {
+				long deadline = System.nanoTime() + maxLatencyNanos;
+				while (batch.size() < batchSize && running) {
+					long remaining = deadline - System.nanoTime();
+					OutboundMessage next = remaining > 0 ? outboundQueue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+					if (next == null) {
+						return;
+					}
+					batch.add(next);
+					outboundQueue.drainTo(batch, batchSize - batch.size());
+				}
+			}
+		}
+
+		private void writeBatch(List<OutboundMessage> batch) {
+			int next = 0;
+			int attempts = 0;
+			long backoff = reconnectBackoff;
+			while (next < batch.size()) {
+				try {
+					synchronized (connectionLock) {
+						connect();
+						while (next < batch.size()) {
+							OutboundMessage message = batch.get(next++);
+							try {
+								if (message.message instanceof Query) {
+									writeQuery(message.id, (Query) message.message);
+								} else {
+									deliverMessage(message.id, message.message);
+								}
+							} catch (ObjectStreamException e) {
+								// The message could not be serialized. The
+								// object stream has written the exception in
+								// its place, so the stream can still be used.
+								SimpleLoggingUtil.error(MessageClient.class, "Could not serialize message to " + message.id, e);
+								droppedCount.incrementAndGet();
+							}
+						}
+						objectOutputStream.flush();
+					}
+				} catch (IOException e) {
+					closeConnection();
+					if (++attempts > maxFailCount || !running || !sleep(backoff)) {
+						SimpleLoggingUtil.error(MessageClient.class,
+								"Could not send messages to " + messageServerURI + " - dropping " + batch.size() + " messages", e);
+						dropBatch(batch, e);
+						return;
+					}
+					// Resend the whole batch, as we do not know how much of it
+					// made it
+					next = 0;
+					backoff = Math.min(backoff * 2, MAX_RECONNECT_BACKOFF);
+				}
+			}
+		}
+
+		private void dropBatch(List<OutboundMessage> batch, IOException cause) {
+			droppedCount.addAndGet(batch.size());
+			for (OutboundMessage message : batch) {
+				if (message.message instanceof Query) {
+					failQuery((Query) message.message, cause);
+				}
+			}
+		}
+
+		private boolean sleep(long millis) {
+			try {
+				Thread.sleep(millis);
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+	}
+
 	private final URI messageServerURI;
 	private final String sourceUUID;
+	private final Configuration configuration;
+	private final MessageCodecRegistry codecRegistry;
+	private final ByteArrayOutputStream codecBuffer = new ByteArrayOutputStream();
+	private final DataOutputStream codecOutput = new DataOutputStream(codecBuffer);
+	private final int maxFailCount;
+	private final int batchSize;
+	private final long maxLatencyNanos;
+	private final long reconnectBackoff;
+	private final BlockingQueue<OutboundMessage> outboundQueue;
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicInteger nextCorrelationId = new AtomicInteger();
+	private final Map<Integer, Query> pendingQueries = new ConcurrentHashMap<>();
+	private final Object connectionLock = new Object();
 	private Socket socket;
 	private ObjectOutputStream objectOutputStream;
-	private Configuration configuration;
-	private int failCount;
-	private final int maxFailCount;
 	private RemoteReferenceListener remoteReferenceListener;
+	private Thread writerThread;
+	private volatile boolean running = true;
 
 	public MessageClient(URI messageServerURI, String sourceUUID, Configuration configuration) {
+		this(messageServerURI, sourceUUID, configuration, MessageCodecRegistry.getDefaultRegistry());
+	}
+
+	public MessageClient(URI messageServerURI, String sourceUUID, Configuration configuration, MessageCodecRegistry codecRegistry) {
 		this.messageServerURI = messageServerURI;
 		this.sourceUUID = sourceUUID;
 		this.configuration = configuration;
-		this.maxFailCount = configuration.getInteger(KEY_RETRIES, 3);
+		this.codecRegistry = codecRegistry;
+		this.maxFailCount = configuration.getInteger(KEY_RETRIES, DEFAULT_RETRIES);
+		this.batchSize = configuration.getInteger(KEY_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+		this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getInteger(KEY_MAX_LATENCY, DEFAULT_MAX_LATENCY));
+		this.reconnectBackoff = configuration.getInteger(KEY_RECONNECT_BACKOFF, DEFAULT_RECONNECT_BACKOFF);
+		this.outboundQueue = new ArrayBlockingQueue<>(configuration.getInteger(KEY_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY));
 	}
 
+	/**
+	 * Connects to the server, unless already connected. Not required before
+	 * sending messages, as the writer connects as needed.
+	 */
 	public void connect() throws UnknownHostException, IOException {
-		if (socket == null || socket.isClosed() || !socket.isConnected()) {
-//			socket = new Socket(messageServerURI.getHost(), messageServerURI.getPort());
+		synchronized (connectionLock) {
+			if (isConnected()) {
+				return;
+			}
 			socket = new Socket(messageServerURI.getHost(), messageServerURI.getPort());
-			socket.setKeepAlive(configuration.getBoolean(KEY_KEEP_ALIVE, DEFAULT_KEEP_ALIVE));
-			socket.setSoTimeout(configuration.getInteger(KEY_SO_TIMEOUT, DEFAULT_SO_TIMEOUT));
-		}
-		objectOutputStream = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
-		objectOutputStream.writeShort(MessageProtocolConstants.MAGIC);
-		objectOutputStream.writeUTF(sourceUUID);
-		remoteReferenceListener = new RemoteReferenceListener(socket);
-		remoteReferenceCallExecutor.execute(remoteReferenceListener);
-	}
-
-	public void sendMessage(String id, Object message) throws IOException {
-		try {
-			deliverMessage(id, message);
-		} catch (IOException e) {
-			if (failCount < maxFailCount) {
-				failCount++;
-				connect();
-				sendMessage(id, message);
-			} else {
+			try {
+				socket.setKeepAlive(configuration.getBoolean(KEY_KEEP_ALIVE, DEFAULT_KEEP_ALIVE));
+				socket.setSoTimeout(configuration.getInteger(KEY_SO_TIMEOUT, DEFAULT_SO_TIMEOUT));
+				objectOutputStream = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+				objectOutputStream.writeShort(MessageProtocolConstants.MAGIC);
+				objectOutputStream.writeUTF(sourceUUID);
+				objectOutputStream.flush();
+			} catch (IOException e) {
+				closeConnection();
 				throw e;
 			}
+			remoteReferenceListener = new RemoteReferenceListener(socket);
+			remoteReferenceCallExecutor.execute(remoteReferenceListener);
+		}
+	}
+
+	/**
+	 * Queues a message to be sent to the server.
+	 * 
+	 * @param id
+	 *            the id of the recipient unit.
+	 * @param message
+	 *            the message.
+	 * @return true if the message was queued, false if the queue was full or
+	 *         the client shut down.
+	 */
+	public boolean sendMessage(String id, Object message) {
+		if (!running) {
+			droppedCount.incrementAndGet();
+			return false;
+		}
+		ensureWriterStarted();
+		if (!outboundQueue.offer(new OutboundMessage(id, message))) {
+			droppedCount.incrementAndGet();
+			SimpleLoggingUtil.debug(getClass(), "Outbound queue to " + messageServerURI + " full - dropping message to " + id);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Queries the state of a remote unit.
+	 * 
+	 * @param id
+	 *            the id of the remote unit.
+	 * @return the future state.
+	 */
+	public CompletableFuture<LifecycleState> queryState(String id) {
+		return query(id, MessageProtocolConstants.QUERY_STATE, null).thenApply(LifecycleState.class::cast);
+	}
+
+	/**
+	 * Queries the attributes known by a remote unit.
+	 * 
+	 * @param id
+	 *            the id of the remote unit.
+	 * @return the future attribute descriptors.
+	 */
+	@SuppressWarnings("unchecked")
+	public CompletableFuture<Collection<AttributeDescriptor<?>>> queryKnownAttributes(String id) {
+		return query(id, MessageProtocolConstants.QUERY_KNOWN_ATTRIBUTES, null)
+				.thenApply(result -> (Collection<AttributeDescriptor<?>>) result);
+	}
+
+	/**
+	 * Queries all the attribute values of a remote unit.
+	 * 
+	 * @param id
+	 *            the id of the remote unit.
+	 * @return the future attribute values.
+	 */
+	@SuppressWarnings("unchecked")
+	public CompletableFuture<Map<AttributeDescriptor<?>, Object>> queryAttributes(String id) {
+		return query(id, MessageProtocolConstants.QUERY_ATTRIBUTES, null)
+				.thenApply(result -> (Map<AttributeDescriptor<?>, Object>) result);
+	}
+
+	/**
+	 * Queries an attribute value of a remote unit.
+	 * 
+	 * @param id
+	 *            the id of the remote unit.
+	 * @param attribute
+	 *            the attribute to query for.
+	 * @return the future attribute value.
+	 */
+	public <R> CompletableFuture<R> queryAttribute(String id, AttributeDescriptor<R> attribute) {
+		// The descriptor is sent to the server, so make sure that it can be
+		// serialized and deserialized on the other side.
+		AttributeDescriptor<R> descriptor = DefaultAttributeDescriptor.create(attribute.getAttributeType(), attribute.getAttributeName());
+		return query(id, MessageProtocolConstants.QUERY_ATTRIBUTE, descriptor).thenApply(attribute.getAttributeType()::cast);
+	}
+
+	private CompletableFuture<Object> query(String id, int kind, AttributeDescriptor<?> attribute) {
+		Query query = new Query(nextCorrelationId.incrementAndGet(), (byte) kind, attribute);
+		pendingQueries.put(query.correlationId, query);
+		if (!sendMessage(id, query)) {
+			failQuery(query, new IOException("Could not queue query to " + messageServerURI));
+		}
+		return query.result;
+	}
+
+	private void failQuery(Query query, IOException cause) {
+		pendingQueries.remove(query.correlationId);
+		query.result.completeExceptionally(cause);
+	}
+
+	/*
+	 * Fails the queries that have been sent, since the replies will never
+	 * arrive. Queries still in the queue are sent on the next connection.
+	 */
+	private void failSentQueries(String reason) {
+		for (Query query : pendingQueries.values()) {
+			if (query.sent) {
+				failQuery(query, new IOException(reason));
+			}
+		}
+	}
+
+	/**
+	 * @return the number of messages dropped, because the queue was full or
+	 *         they could not be sent.
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return the number of messages waiting to be sent.
+	 */
+	public int getQueueSize() {
+		return outboundQueue.size();
+	}
+
+	private synchronized void ensureWriterStarted() {
+		if (writerThread == null) {
+			writerThread = new Thread(new Writer(), "MessageClient Writer for " + messageServerURI);
+			writerThread.setDaemon(true);
+			writerThread.start();
 		}
 	}
 
@@ -159,49 +540,117 @@ public class MessageClient {
 		if (message instanceof String) {
 			objectOutputStream.writeByte(MessageProtocolConstants.MOD_UTF8);
 			objectOutputStream.writeUTF((String) message);
-		} else if (message instanceof Number) {
-			if (message instanceof Float) {
-				objectOutputStream.writeByte(MessageProtocolConstants.FLOAT);
-				objectOutputStream.writeFloat((Float) message);
-			} else if (message instanceof Integer) {
-				objectOutputStream.writeByte(MessageProtocolConstants.INT);
-				objectOutputStream.writeInt((Integer) message);
-			} else if (message instanceof Double) {
-				objectOutputStream.writeByte(MessageProtocolConstants.DOUBLE);
-				objectOutputStream.writeDouble((Double) message);
-			} else if (message instanceof Long) {
-				objectOutputStream.writeByte(MessageProtocolConstants.LONG);
-				objectOutputStream.writeLong((Long) message);
-			} else if (message instanceof Byte) {
-				objectOutputStream.writeByte(MessageProtocolConstants.BYTE);
-				objectOutputStream.writeByte((Byte) message);
-			} else if (message instanceof Short) {
-				objectOutputStream.writeByte(MessageProtocolConstants.SHORT);
-				objectOutputStream.writeShort((Short) message);
-			}
+		} else if (message instanceof Float) {
+			objectOutputStream.writeByte(MessageProtocolConstants.FLOAT);
+			objectOutputStream.writeFloat((Float) message);
+		} else if (message instanceof Integer) {
+			objectOutputStream.writeByte(MessageProtocolConstants.INT);
+			objectOutputStream.writeInt((Integer) message);
+		} else if (message instanceof Double) {
+			objectOutputStream.writeByte(MessageProtocolConstants.DOUBLE);
+			objectOutputStream.writeDouble((Double) message);
+		} else if (message instanceof Long) {
+			objectOutputStream.writeByte(MessageProtocolConstants.LONG);
+			objectOutputStream.writeLong((Long) message);
+		} else if (message instanceof Byte) {
+			objectOutputStream.writeByte(MessageProtocolConstants.BYTE);
+			objectOutputStream.writeByte((Byte) message);
+		} else if (message instanceof Short) {
+			objectOutputStream.writeByte(MessageProtocolConstants.SHORT);
+			objectOutputStream.writeShort((Short) message);
 		} else if (message instanceof Character) {
 			objectOutputStream.writeByte(MessageProtocolConstants.CHAR);
 			objectOutputStream.writeChar((Character) message);
 		} else {
-			objectOutputStream.writeByte(MessageProtocolConstants.OBJECT);
-			objectOutputStream.writeObject(message);
+			MessageCodec<Object> codec = message == null ? null : codecRegistry.getEncoder(message.getClass());
+			if (codec != null) {
+				encodeWithCodec(codec, message);
+			} else {
+				objectOutputStream.writeByte(MessageProtocolConstants.OBJECT);
+				objectOutputStream.writeObject(message);
+			}
+		}
+	}
+
+	private void writeQuery(String id, Query query) throws IOException {
+		if (query.result.isDone()) {
+			// Already failed, so do not bother
+			return;
 		}
-		objectOutputStream.flush();
+		objectOutputStream.writeUTF(id);
+		objectOutputStream.writeByte(MessageProtocolConstants.QUERY);
+		objectOutputStream.writeInt(query.correlationId);
+		objectOutputStream.writeByte(query.kind);
+		if (query.kind == MessageProtocolConstants.QUERY_ATTRIBUTE) {
+			objectOutputStream.writeObject(query.attribute);
+		}
+		query.sent = true;
+	}
+
+	private void encodeWithCodec(MessageCodec<Object> codec, Object message) throws IOException {
+		codecBuffer.reset();
+		codec.encode(message, codecOutput);
+		objectOutputStream.writeByte(MessageProtocolConstants.CODEC);
+		objectOutputStream.writeShort(codec.getTypeId());
+		objectOutputStream.writeInt(codecBuffer.size());
+		codecBuffer.writeTo(objectOutputStream);
 	}
 
 	public boolean isConnected() {
-		return socket != null && socket.isConnected();
+		synchronized (connectionLock) {
+			return socket != null && socket.isConnected() && !socket.isClosed();
+		}
+	}
+
+	private void closeConnection() {
+		synchronized (connectionLock) {
+			if (remoteReferenceListener != null) {
+				remoteReferenceListener.shutdown();
+				remoteReferenceListener = null;
+			}
+			if (socket != null) {
+				try {
+					socket.close();
+				} catch (IOException e) {
+					// Do not care.
+				}
+				socket = null;
+				objectOutputStream = null;
+				failSentQueries("Connection to " + messageServerURI + " closed");
+			}
+		}
 	}
 
+	/**
+	 * Closes the connection to the server, if there is one. Unlike
+	 * {@link #shutdown()}, the client can still be used, and connects again
+	 * for the next message.
+	 */
+	public void disconnect() {
+		closeConnection();
+	}
+
+	/**
+	 * Stops the client. Messages still in the queue are sent if the server
+	 * can be reached without reconnecting.
+	 */
 	public void shutdown() {
-		try {
-			objectOutputStream.flush();
-			objectOutputStream.close();
-			remoteReferenceListener.shutdown();
-			remoteReferenceCallExecutor.shutdown();
-			socket.close();
-		} catch (IOException e) {
-			// Do not care.
+		running = false;
+		Thread writerThread;
+		synchronized (this) {
+			writerThread = this.writerThread;
+		}
+		if (writerThread != null) {
+			try {
+				writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		closeConnection();
+		for (Query query : pendingQueries.values()) {
+			failQuery(query, new IOException("Client shut down"));
 		}
+		remoteReferenceCallExecutor.shutdown();
 	}
 }
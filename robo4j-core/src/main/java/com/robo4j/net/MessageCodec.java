@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.net;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes and decodes messages of a certain type sent to remote contexts. A
+ * compact alternative to Java serialization, which is only used for messages
+ * that have no codec.
+ * 
+ * <p>
+ * Codecs are looked up with the {@link java.util.ServiceLoader}, so they can
+ * be registered by listing them in
+ * META-INF/services/com.robo4j.net.MessageCodec, or they can be registered
+ * programmatically with a {@link MessageCodecRegistry}. Both ends of a
+ * connection must use the same codec for a type id. The codec for a class is
+ * also used for its subclasses, unless they have a codec of their own.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public interface MessageCodec<T> {
+	/**
+	 * Type ids from 0 to this value (exclusive) are reserved for Robo4J.
+	 */
+	int RESERVED_TYPE_IDS = 1024;
+
+	/**
+	 * Largest possible type id.
+	 */
+	int MAX_TYPE_ID = 0xFFFF;
+
+	/**
+	 * @return the id identifying the codec on the wire, unique within a
+	 *         registry. Must be between 0 and {@link #MAX_TYPE_ID}.
+	 */
+	int getTypeId();
+
+	/**
+	 * @return the class of the messages handled by the codec.
+	 */
+	Class<T> getMessageClass();
+
+	/**
+	 * Encodes the message.
+	 * 
+	 * @param message
+	 *            the message to encode. Never null.
+	 * @param out
+	 *            where to write the encoded message.
+	 * @throws IOException
+	 *             if the message could not be written.
+	 */
+	void encode(T message, DataOutput out) throws IOException;
+
+	/**
+	 * Decodes a message.
+	 * 
+	 * @param in
+	 *            the data written by {@link #encode(Object, DataOutput)}.
+	 * @return the decoded message.
+	 * @throws IOException
+	 *             if the message could not be read.
+	 */
+	T decode(DataInput in) throws IOException;
+}
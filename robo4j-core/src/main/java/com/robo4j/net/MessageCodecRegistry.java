@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.net;
+
+import com.robo4j.logging.SimpleLoggingUtil;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry for the {@link MessageCodec}s used when talking to remote
+ * contexts.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class MessageCodecRegistry {
+	private static final MessageCodecRegistry DEFAULT_REGISTRY = new MessageCodecRegistry();
+	// Marks classes known to have no codec in the lookup cache
+	private static final MessageCodec<?> NO_CODEC = new MessageCodec<Object>() {
+		@Override
+		public int getTypeId() {
+			return -1;
+		}
+
+		@Override
+		public Class<Object> getMessageClass() {
+			return Object.class;
+		}
+
+		@Override
+		public void encode(Object message, DataOutput out) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Object decode(DataInput in) {
+			throw new UnsupportedOperationException();
+		}
+	};
+
+	private final Map<Class<?>, MessageCodec<?>> codecsByClass = new ConcurrentHashMap<>();
+	private final Map<Integer, MessageCodec<?>> codecsByTypeId = new ConcurrentHashMap<>();
+	private final Map<Class<?>, MessageCodec<?>> encoderCache = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a registry with the codecs available through the service loader
+	 * of the context class loader.
+	 */
+	public MessageCodecRegistry() {
+		this(Thread.currentThread().getContextClassLoader());
+	}
+
+	/**
+	 * Creates a registry with the codecs available through the service loader
+	 * of the specified class loader.
+	 * 
+	 * @param classLoader
+	 *            the class loader to look for codecs in.
+	 */
+	public MessageCodecRegistry(ClassLoader classLoader) {
+		try {
+			for (MessageCodec<?> codec : ServiceLoader.load(MessageCodec.class, classLoader)) {
+				register(codec);
+			}
+		} catch (ServiceConfigurationError e) {
+			SimpleLoggingUtil.error(getClass(), "Failed to load message codecs", e);
+		}
+	}
+
+	/**
+	 * @return the registry used by default by the {@link MessageServer} and
+	 *         the {@link MessageClient}.
+	 */
+	public static MessageCodecRegistry getDefaultRegistry() {
+		return DEFAULT_REGISTRY;
+	}
+
+	/**
+	 * Registers a codec.
+	 * 
+	 * @param codec
+	 *            the codec to register.
+	 * @return true if the codec was registered, false if there already was a
+	 *         codec with the same type id or message class.
+	 */
+	public boolean register(MessageCodec<?> codec) {
+		int typeId = codec.getTypeId();
+		if (typeId < 0 || typeId > MessageCodec.MAX_TYPE_ID) {
+			throw new IllegalArgumentException("Type id out of range for " + codec.getClass().getName() + ": " + typeId);
+		}
+		synchronized (codecsByTypeId) {
+			MessageCodec<?> previous = codecsByTypeId.get(typeId);
+			if (previous == null) {
+				previous = codecsByClass.get(codec.getMessageClass());
+			}
+			if (previous != null) {
+				SimpleLoggingUtil.error(getClass(), "Could not register " + codec.getClass().getName() + " - type id " + typeId
+						+ " or class " + codec.getMessageClass().getName() + " already used by " + previous.getClass().getName());
+				return false;
+			}
+			codecsByTypeId.put(typeId, codec);
+			codecsByClass.put(codec.getMessageClass(), codec);
+			encoderCache.clear();
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the codec to encode messages of the specified class with. This
+	 * is the codec of the class itself, or of the closest super class or
+	 * interface with a codec.
+	 * 
+	 * @param messageClass
+	 *            the class of the message.
+	 * @return the codec, or null if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> MessageCodec<T> getEncoder(Class<? extends T> messageClass) {
+		MessageCodec<?> codec = encoderCache.get(messageClass);
+		if (codec == null) {
+			codec = findCodec(messageClass);
+			encoderCache.put(messageClass, codec == null ? NO_CODEC : codec);
+		}
+		return codec == NO_CODEC ? null : (MessageCodec<T>) codec;
+	}
+
+	/**
+	 * @param typeId
+	 *            the type id read from the wire.
+	 * @return the codec for the type id, or null if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> MessageCodec<T> getDecoder(int typeId) {
+		return (MessageCodec<T>) codecsByTypeId.get(typeId);
+	}
+
+	public boolean isEmpty() {
+		return codecsByTypeId.isEmpty();
+	}
+
+	private MessageCodec<?> findCodec(Class<?> messageClass) {
+		for (Class<?> clazz = messageClass; clazz != null; clazz = clazz.getSuperclass()) {
+			MessageCodec<?> codec = codecsByClass.get(clazz);
+			if (codec != null) {
+				return codec;
+			}
+		}
+		for (Class<?> clazz = messageClass; clazz != null; clazz = clazz.getSuperclass()) {
+			MessageCodec<?> codec = findInterfaceCodec(clazz);
+			if (codec != null) {
+				return codec;
+			}
+		}
+		return null;
+	}
+
+	private MessageCodec<?> findInterfaceCodec(Class<?> clazz) {
+		for (Class<?> interfaceClass : clazz.getInterfaces()) {
+			MessageCodec<?> codec = codecsByClass.get(interfaceClass);
+			if (codec == null) {
+				codec = findInterfaceCodec(interfaceClass);
+			}
+			if (codec != null) {
+				return codec;
+			}
+		}
+		return null;
+	}
+}
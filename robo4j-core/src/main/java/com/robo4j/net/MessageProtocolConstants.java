@@ -68,10 +68,59 @@ interface MessageProtocolConstants {
 	 */
 	int MOD_UTF8 = 32;
 
+	/**
+	 * Message is encoded by a {@link MessageCodec}. Followed by the type id of
+	 * the codec (unsigned short), the length of the encoded message (int) and
+	 * the encoded message.
+	 */
+	int CODEC = 48;
+
 	/**
 	 * This is a Robo4J reference. Serialization will be specially handled.
 	 */
 	int REFERENCE = 64;
 
+	/**
+	 * This is a query for the state or the attributes of the recipient,
+	 * rather than a message. Followed by the correlation id (int), the kind of
+	 * query (byte) and, for {@link #QUERY_ATTRIBUTE}, the serialized attribute
+	 * descriptor. Only sent from client to server.
+	 */
+	int QUERY = 80;
+
+	/**
+	 * The reply to a {@link #QUERY}. Followed by the correlation id of the
+	 * query (int), whether the query succeeded (boolean) and the result, or
+	 * the error message, as an object. Only sent from server to client.
+	 */
+	int QUERY_REPLY = 81;
+
+	/**
+	 * A message sent through a serialized reference. Followed by the id of the
+	 * context to deliver to, the id of the recipient (modified UTF8) and the
+	 * message (object). Only sent from server to client.
+	 */
+	int REFERENCE_MESSAGE = 82;
+
+	/**
+	 * Query for the {@link com.robo4j.LifecycleState} of the recipient.
+	 */
+	int QUERY_STATE = 0;
+
+	/**
+	 * Query for the known attribute descriptors of the recipient.
+	 */
+	int QUERY_KNOWN_ATTRIBUTES = 1;
+
+	/**
+	 * Query for all the attribute values of the recipient.
+	 */
+	int QUERY_ATTRIBUTES = 2;
+
+	/**
+	 * Query for a single attribute value of the recipient.
+	 */
+	int QUERY_ATTRIBUTE = 3;
+
 	short MAGIC = (short) 0xC0FE;
 }
@@ -16,23 +16,66 @@
  */
 package com.robo4j.net;
 
+import com.robo4j.AttributeDescriptor;
+import com.robo4j.DefaultAttributeDescriptor;
+import com.robo4j.RoboReference;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.scheduler.RoboThreadFactory;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.WriteAbortedException;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This is a server that listens on messages, and sends them off to the
  * indicated local recipient. It is associated to RoboContext.
  * 
- * TODO: Rewrite in NIO for better thread management.
+ * <p>
+ * All connections are handled by a single selector thread, which only moves
+ * bytes. Once a complete message has been received on a connection (see
+ * {@link ObjectStreamFramer}), the connection is scheduled on a small, fixed
+ * pool of reader threads, which decode the messages and hand them to the
+ * callback. Messages from the same connection are decoded and delivered in
+ * order, one at a time.
+ * </p>
+ * 
+ * <p>
+ * Queries for the state and attributes of the local units are answered on a
+ * separate pool, since the units may take their time to answer. The replies
+ * carry the correlation id of the query, and are sent back in whatever order
+ * the queries complete.
+ * </p>
  *
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
@@ -40,55 +83,284 @@ import java.net.URISyntaxException;
 public class MessageServer {
 	public final static String KEY_HOST_NAME = "hostname";
 	public static final String KEY_PORT = "port";
+	/**
+	 * Configuration key for the number of threads decoding the incoming
+	 * messages.
+	 */
+	public static final String KEY_READER_POOL_SIZE = "readerPoolSize";
+	public static final String KEY_BACKLOG = "backlog";
+	/**
+	 * Configuration key for the number of threads answering queries from
+	 * remote contexts.
+	 */
+	public static final String KEY_QUERY_POOL_SIZE = "queryPoolSize";
+	/**
+	 * Configuration key for how long, in milliseconds, to wait for a unit to
+	 * answer a query.
+	 */
+	public static final String KEY_QUERY_TIMEOUT = "queryTimeout";
+
+	private static final int DEFAULT_READER_POOL_SIZE = 2;
+	private static final int DEFAULT_QUERY_POOL_SIZE = 2;
+	private static final int DEFAULT_QUERY_TIMEOUT = 10000;
+	private static final int DEFAULT_BACKLOG = 20;
+	private static final int READ_BUFFER_SIZE = 16 * 1024;
+	private static final int INITIAL_INBOUND_BUFFER_SIZE = 4 * 1024;
+	private static final String NAME_READER_POOL = "Robo4J Message Readers";
+	private static final String NAME_QUERY_POOL = "Robo4J Query Handlers";
+	// Returned for messages that could not be decoded, but did not break the
+	// stream
+	private static final Object UNDECODABLE_MESSAGE = new Object();
 
 	private volatile int listeningPort = 0;
 	private volatile String listeningHost;
 	private volatile boolean running = false;
-	private volatile Thread startingThread = null;
+	private volatile Selector selector;
+	private volatile ExecutorService readerPool;
+	private volatile ExecutorService queryPool;
+	private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+	private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+	private final MessageCodecRegistry codecRegistry;
 	private MessageCallback callback;
 	private Configuration configuration;
 
-	private class MessageHandler implements Runnable {
-		private Socket socket;
+	/**
+	 * The bytes received on a connection, not yet decoded. Also the stream
+	 * read by the object input stream, only allowing it to read up to the end
+	 * of the current frame.
+	 */
+	private static class InboundBuffer extends InputStream {
+		private byte[] buffer = new byte[INITIAL_INBOUND_BUFFER_SIZE];
+		private int readPosition;
+		private int writePosition;
+		private int frameRemaining;
+
+		synchronized void append(ByteBuffer source) {
+			int length = source.remaining();
+			if (buffer.length - writePosition < length) {
+				int size = writePosition - readPosition;
+				byte[] target = buffer;
+				if (buffer.length - size < length) {
+					target = new byte[Math.max(buffer.length * 2, size + length)];
+				}
+				System.arraycopy(buffer, readPosition, target, 0, size);
+				buffer = target;
+				readPosition = 0;
+				writePosition = size;
+			}
+			source.get(buffer, writePosition, length);
+			writePosition += length;
+		}
+
+		/**
+		 * Starts the next frame, if it has been completely received.
+		 * 
+		 * @return true if a complete frame is available.
+		 */
+		synchronized boolean nextFrame(ObjectStreamFramer framer, boolean handshake) throws IOException {
+			int length = handshake ? framer.frameHandshake(buffer, readPosition, writePosition)
+					: framer.frameMessage(buffer, readPosition, writePosition);
+			if (length < 0) {
+				return false;
+			}
+			frameRemaining = length;
+			return true;
+		}
+
+		@Override
+		public synchronized int read() {
+			if (frameRemaining == 0) {
+				return -1;
+			}
+			frameRemaining--;
+			return buffer[readPosition++] & 0xFF;
+		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (frameRemaining == 0) {
+				return -1;
+			}
+			int length = Math.min(len, frameRemaining);
+			System.arraycopy(buffer, readPosition, b, off, length);
+			readPosition += length;
+			frameRemaining -= length;
+			return length;
+		}
+
+		@Override
+		public synchronized int available() {
+			return frameRemaining;
+		}
+	}
+
+	/**
+	 * Collects what is written for the remote context, and queues it for the
+	 * selector thread to send on flush.
+	 */
+	private class ConnectionOutputStream extends OutputStream {
+		private final Connection connection;
+		private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+		ConnectionOutputStream(Connection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public synchronized void write(int b) {
+			pending.write(b);
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			pending.write(b, off, len);
+		}
+
+		@Override
+		public synchronized void flush() throws IOException {
+			if (pending.size() > 0) {
+				connection.send(ByteBuffer.wrap(pending.toByteArray()));
+				pending.reset();
+			}
+		}
+	}
+
+	private class Connection implements Runnable {
+		private final SocketChannel channel;
+		private final InboundBuffer inbound = new InboundBuffer();
+		private final ObjectStreamFramer framer = new ObjectStreamFramer();
+		private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+		private final AtomicBoolean decodeScheduled = new AtomicBoolean();
+		private final AtomicBoolean closed = new AtomicBoolean();
+		private final AtomicLong received = new AtomicLong();
+		private final Object remoteAddress;
+		private SelectionKey key;
+		private volatile boolean endOfStream;
+		// Only used by the reader thread currently decoding
+		private ObjectInputStream objectInputStream;
+		private String uuid;
+		private ServerRemoteRoboContext context;
+
+		Connection(SocketChannel channel) throws IOException {
+			this.channel = channel;
+			this.remoteAddress = channel.getRemoteAddress();
+		}
+
+		/**
+		 * Called by the selector thread when data has been read.
+		 */
+		void received(ByteBuffer data) {
+			inbound.append(data);
+			scheduleDecode();
+		}
 
-		public MessageHandler(Socket socket) {
-			this.socket = socket;
+		/**
+		 * Called by the selector thread when the remote end has closed the
+		 * connection. Whatever was already received will still be decoded.
+		 */
+		void endOfStream() {
+			key.cancel();
+			endOfStream = true;
+			scheduleDecode();
+		}
+
+		private void scheduleDecode() {
+			received.incrementAndGet();
+			if (decodeScheduled.compareAndSet(false, true)) {
+				try {
+					readerPool.execute(this);
+				} catch (RejectedExecutionException e) {
+					// Shutting down
+					decodeScheduled.set(false);
+				}
+			}
 		}
 
 		@Override
 		public void run() {
-			try (ObjectInputStream objectInputStream = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()))) {
-				// Init protocol. First check magic...
-				if (checkMagic(objectInputStream.readShort())) {
-					final String uuid = objectInputStream.readUTF();
-					final ServerRemoteRoboContext context = new ServerRemoteRoboContext(uuid, socket.getOutputStream());
-					// Then keep reading string, byte, data triplets until dead
-					ReferenceDesciptor.setCurrentContext(context);
-					while (running) {
-						String id = (String) objectInputStream.readUTF();
-						Object message = decodeMessage(objectInputStream);
-						callback.handleMessage(uuid, id, message);
-					}
-				} else {
-					SimpleLoggingUtil.error(getClass(),
-							"Got wrong communication magic - will shutdown communication with " + socket.getRemoteSocketAddress());
+			while (true) {
+				long seen = received.get();
+				decodeFrames();
+				if (endOfStream) {
+					close();
 				}
+				decodeScheduled.set(false);
+				// Data may have arrived after the last frame attempt, but
+				// before the flag was reset
+				if (closed.get() || received.get() == seen || !decodeScheduled.compareAndSet(false, true)) {
+					return;
+				}
+			}
+		}
 
+		private void decodeFrames() {
+			ReferenceDesciptor.setCurrentContext(context);
+			try {
+				while (!closed.get()) {
+					if (context == null) {
+						if (!decodeHandshake()) {
+							return;
+						}
+						ReferenceDesciptor.setCurrentContext(context);
+					} else if (inbound.nextFrame(framer, false)) {
+						String id = objectInputStream.readUTF();
+						byte dataType = objectInputStream.readByte();
+						if (dataType == MessageProtocolConstants.QUERY) {
+							decodeQuery(id, objectInputStream);
+						} else {
+							Object message = decodeMessage(dataType, objectInputStream);
+							if (message != UNDECODABLE_MESSAGE) {
+								callback.handleMessage(uuid, id, message);
+							}
+						}
+					} else {
+						return;
+					}
+				}
 			} catch (IOException e) {
-				SimpleLoggingUtil.error(getClass(), "IO Exception communicating with " + socket.getRemoteSocketAddress(), e);
+				SimpleLoggingUtil.error(getClass(), "IO Exception communicating with " + remoteAddress, e);
+				close();
 			} catch (ClassNotFoundException e) {
-				SimpleLoggingUtil.error(getClass(), "Could not find class to deserialize message to - will stop receiving messages from "
-						+ socket.getRemoteSocketAddress(), e);
+				SimpleLoggingUtil.error(getClass(),
+						"Could not find class to deserialize message to - will stop receiving messages from " + remoteAddress, e);
+				close();
+			} finally {
+				ReferenceDesciptor.setCurrentContext(null);
 			}
-			SimpleLoggingUtil.info(getClass(), "Shutting down socket " + socket.toString());
+		}
 
+		private boolean decodeHandshake() throws IOException {
+			if (!inbound.nextFrame(framer, true)) {
+				return false;
+			}
+			objectInputStream = new ObjectInputStream(inbound);
+			// Init protocol. First check magic...
+			if (objectInputStream.readShort() != MessageProtocolConstants.MAGIC) {
+				SimpleLoggingUtil.error(getClass(), "Got wrong communication magic - will shutdown communication with " + remoteAddress);
+				close();
+				return false;
+			}
+			uuid = objectInputStream.readUTF();
+			context = new ServerRemoteRoboContext(uuid, new ConnectionOutputStream(this));
+			return true;
 		}
 
-		private Object decodeMessage(ObjectInputStream objectInputStream) throws IOException, ClassNotFoundException {
-			byte dataType = objectInputStream.readByte();
+		private Object decodeMessage(byte dataType, ObjectInputStream objectInputStream) throws IOException, ClassNotFoundException {
 			switch (dataType) {
+			case MessageProtocolConstants.CODEC:
+				return decodeWithCodec(objectInputStream);
 			case MessageProtocolConstants.OBJECT:
-				return objectInputStream.readObject();
+				try {
+					return objectInputStream.readObject();
+				} catch (WriteAbortedException e) {
+					// The client could not serialize the message, but the
+					// stream is still fine
+					SimpleLoggingUtil.error(getClass(), "Client " + remoteAddress + " failed to send message", e.getCause());
+					return UNDECODABLE_MESSAGE;
+				}
 			case MessageProtocolConstants.MOD_UTF8:
 				return objectInputStream.readUTF();
 			case MessageProtocolConstants.BYTE:
@@ -110,8 +382,87 @@ public class MessageServer {
 			}
 		}
 
-		private boolean checkMagic(short magic) {
-			return magic == MessageProtocolConstants.MAGIC;
+		private Object decodeWithCodec(ObjectInputStream objectInputStream) throws IOException {
+			int typeId = objectInputStream.readUnsignedShort();
+			byte[] data = new byte[objectInputStream.readInt()];
+			objectInputStream.readFully(data);
+			MessageCodec<?> codec = codecRegistry.getDecoder(typeId);
+			if (codec == null) {
+				SimpleLoggingUtil.error(getClass(), "No codec for type id " + typeId + " - dropping message from " + remoteAddress);
+				return UNDECODABLE_MESSAGE;
+			}
+			return codec.decode(new DataInputStream(new ByteArrayInputStream(data)));
+		}
+
+		private void decodeQuery(String id, ObjectInputStream objectInputStream) throws IOException, ClassNotFoundException {
+			int correlationId = objectInputStream.readInt();
+			byte queryKind = objectInputStream.readByte();
+			AttributeDescriptor<?> attribute = null;
+			if (queryKind == MessageProtocolConstants.QUERY_ATTRIBUTE) {
+				try {
+					attribute = (AttributeDescriptor<?>) objectInputStream.readObject();
+				} catch (WriteAbortedException e) {
+					SimpleLoggingUtil.error(getClass(), "Client " + remoteAddress + " failed to send query", e.getCause());
+					return;
+				}
+			}
+			AttributeDescriptor<?> queriedAttribute = attribute;
+			ServerRemoteRoboContext replyContext = context;
+			try {
+				queryPool.execute(() -> answerQuery(replyContext, correlationId, id, queryKind, queriedAttribute));
+			} catch (RejectedExecutionException e) {
+				// Shutting down
+			}
+		}
+
+		/**
+		 * Queues data to be sent by the selector thread.
+		 */
+		void send(ByteBuffer data) throws IOException {
+			if (closed.get()) {
+				throw new IOException("Connection to " + remoteAddress + " is closed");
+			}
+			outbound.add(data);
+			boolean scheduled = runOnSelector(() -> {
+				if (key.isValid()) {
+					key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				}
+			});
+			if (!scheduled) {
+				// No selector thread left to ever write the queued data
+				close();
+				throw new IOException("Server stopped - could not send to " + remoteAddress);
+			}
+		}
+
+		/**
+		 * Called by the selector thread when the channel is writable.
+		 */
+		void write() throws IOException {
+			ByteBuffer data;
+			while ((data = outbound.peek()) != null) {
+				channel.write(data);
+				if (data.hasRemaining()) {
+					return;
+				}
+				outbound.poll();
+			}
+			// Anything queued after this re-enables writing through a
+			// selector task
+			key.interestOps(SelectionKey.OP_READ);
+		}
+
+		void close() {
+			if (closed.compareAndSet(false, true)) {
+				SimpleLoggingUtil.info(getClass(), "Shutting down socket " + remoteAddress);
+				connections.remove(this);
+				outbound.clear();
+				try {
+					channel.close();
+				} catch (IOException e) {
+					// Do not care.
+				}
+			}
 		}
 	}
 
@@ -125,47 +476,211 @@ public class MessageServer {
 	 *            configuration
 	 */
 	public MessageServer(MessageCallback callback, Configuration configuration) {
+		this(callback, configuration, MessageCodecRegistry.getDefaultRegistry());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param callback
+	 *            message callback
+	 * @param configuration
+	 *            configuration
+	 * @param codecRegistry
+	 *            the codecs to decode messages with
+	 */
+	public MessageServer(MessageCallback callback, Configuration configuration, MessageCodecRegistry codecRegistry) {
 		this.callback = callback;
 		this.configuration = configuration;
+		this.codecRegistry = codecRegistry;
 	}
 
 	/**
 	 * This will be blocking/running until stop is called (and perhaps for
-	 * longer). Dispatch in whatever thread you feel appropriate.
+	 * longer). Dispatch in whatever thread you feel appropriate. The calling
+	 * thread becomes the selector thread of the server.
 	 * 
 	 * @throws IOException
 	 */
 	public void start() throws IOException {
-		startingThread = Thread.currentThread();
 		String host = configuration.getString(KEY_HOST_NAME, null);
 		InetAddress bindAddress = null;
 		if (host != null) {
 			bindAddress = InetAddress.getByName(host);
 		}
+		int readerPoolSize = configuration.getInteger(KEY_READER_POOL_SIZE, DEFAULT_READER_POOL_SIZE);
 
-		try (ServerSocket serverSocket = new ServerSocket(configuration.getInteger(KEY_PORT, 0), configuration.getInteger("backlog", 20),
-				bindAddress)) {
-			listeningHost = serverSocket.getInetAddress().getHostAddress();
-			listeningPort = serverSocket.getLocalPort();
-			ThreadGroup g = new ThreadGroup("Robo4J communication threads");
+		try (Selector selector = Selector.open(); ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+			serverChannel.bind(new InetSocketAddress(bindAddress, configuration.getInteger(KEY_PORT, 0)),
+					configuration.getInteger(KEY_BACKLOG, DEFAULT_BACKLOG));
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+			readerPool = Executors.newFixedThreadPool(readerPoolSize,
+					new RoboThreadFactory(new ThreadGroup(NAME_READER_POOL), NAME_READER_POOL, true));
+			queryPool = Executors.newFixedThreadPool(configuration.getInteger(KEY_QUERY_POOL_SIZE, DEFAULT_QUERY_POOL_SIZE),
+					new RoboThreadFactory(new ThreadGroup(NAME_QUERY_POOL), NAME_QUERY_POOL, true));
+			this.selector = selector;
 			running = true;
-			while (running) {
-				MessageHandler handler = new MessageHandler(serverSocket.accept());
-				Thread t = new Thread(g, handler, "Communication [" + handler.socket.getRemoteSocketAddress() + "]");
-				t.setDaemon(true);
-				t.start();
+			listeningHost = serverChannel.socket().getInetAddress().getHostAddress();
+			listeningPort = serverChannel.socket().getLocalPort();
+			try {
+				runSelectorLoop(selector, serverChannel);
+			} finally {
+				connections.forEach(Connection::close);
+				readerPool.shutdown();
+				queryPool.shutdown();
 			}
 		} finally {
 			running = false;
-			startingThread = null;
+			selector = null;
+			// The connections are closed, so the tasks have nothing to do
+			selectorTasks.clear();
+		}
+	}
+
+	private void runSelectorLoop(Selector selector, ServerSocketChannel serverChannel) throws IOException {
+		ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+		while (running) {
+			selector.select();
+			Runnable task;
+			while ((task = selectorTasks.poll()) != null) {
+				task.run();
+			}
+			Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+			while (selectedKeys.hasNext()) {
+				SelectionKey key = selectedKeys.next();
+				selectedKeys.remove();
+				if (!key.isValid()) {
+					continue;
+				}
+				if (key.isAcceptable()) {
+					accept(selector, serverChannel);
+					continue;
+				}
+				Connection connection = (Connection) key.attachment();
+				try {
+					if (key.isReadable()) {
+						read(connection, readBuffer);
+					}
+					if (key.isValid() && key.isWritable()) {
+						connection.write();
+					}
+				} catch (IOException e) {
+					SimpleLoggingUtil.error(getClass(), "IO Exception communicating with " + connection.remoteAddress, e);
+					connection.close();
+				}
+			}
+		}
+	}
+
+	private void accept(Selector selector, ServerSocketChannel serverChannel) {
+		try {
+			SocketChannel channel = serverChannel.accept();
+			if (channel == null) {
+				return;
+			}
+			channel.configureBlocking(false);
+			Connection connection = new Connection(channel);
+			connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+			connections.add(connection);
+		} catch (IOException e) {
+			SimpleLoggingUtil.error(getClass(), "Failed to accept connection", e);
+		}
+	}
+
+	private void read(Connection connection, ByteBuffer readBuffer) throws IOException {
+		readBuffer.clear();
+		int count = connection.channel.read(readBuffer);
+		if (count < 0) {
+			connection.endOfStream();
+			return;
+		}
+		if (count > 0) {
+			readBuffer.flip();
+			connection.received(readBuffer);
+		}
+	}
+
+	/**
+	 * Queues a task for the selector thread.
+	 * 
+	 * @return false if the server is not running, in which case the task
+	 *         will never run.
+	 */
+	private boolean runOnSelector(Runnable task) {
+		Selector selector = this.selector;
+		if (selector == null) {
+			return false;
+		}
+		selectorTasks.add(task);
+		selector.wakeup();
+		return true;
+	}
+
+	private void answerQuery(ServerRemoteRoboContext replyContext, int correlationId, String id, byte queryKind,
+			AttributeDescriptor<?> attribute) {
+		boolean success = false;
+		Object result;
+		try {
+			RoboReference<?> reference = callback.getReference(id);
+			if (reference == null) {
+				result = "No reference with id " + id;
+			} else {
+				result = runQuery(reference, queryKind, attribute);
+				success = true;
+			}
+		} catch (ExecutionException e) {
+			result = String.valueOf(e.getCause());
+		} catch (Exception e) {
+			result = e.toString();
+		}
+		try {
+			replyContext.sendQueryReply(correlationId, success, result);
+		} catch (IOException e) {
+			SimpleLoggingUtil.error(getClass(), "Failed to send reply to query " + correlationId + " for " + id, e);
+		}
+	}
+
+	private Object runQuery(RoboReference<?> reference, byte queryKind, AttributeDescriptor<?> attribute)
+			throws InterruptedException, ExecutionException, TimeoutException, IOException {
+		long timeout = configuration.getInteger(KEY_QUERY_TIMEOUT, DEFAULT_QUERY_TIMEOUT);
+		switch (queryKind) {
+		case MessageProtocolConstants.QUERY_STATE:
+			return reference.getState();
+		case MessageProtocolConstants.QUERY_KNOWN_ATTRIBUTES:
+			ArrayList<AttributeDescriptor<?>> descriptors = new ArrayList<>();
+			for (AttributeDescriptor<?> descriptor : reference.getKnownAttributes()) {
+				descriptors.add(toSerializable(descriptor));
+			}
+			return descriptors;
+		case MessageProtocolConstants.QUERY_ATTRIBUTES:
+			HashMap<AttributeDescriptor<?>, Object> attributes = new HashMap<>();
+			Map<AttributeDescriptor<?>, Object> values = reference.getAttributes().get(timeout, TimeUnit.MILLISECONDS);
+			if (values != null) {
+				for (Map.Entry<AttributeDescriptor<?>, Object> entry : values.entrySet()) {
+					attributes.put(toSerializable(entry.getKey()), entry.getValue());
+				}
+			}
+			return attributes;
+		case MessageProtocolConstants.QUERY_ATTRIBUTE:
+			return reference.getAttribute(attribute).get(timeout, TimeUnit.MILLISECONDS);
+		default:
+			throw new IOException("The query kind " + queryKind + " is not supported!");
+		}
+	}
+
+	private static AttributeDescriptor<?> toSerializable(AttributeDescriptor<?> descriptor) {
+		if (descriptor instanceof DefaultAttributeDescriptor) {
+			return descriptor;
 		}
+		return DefaultAttributeDescriptor.create(descriptor.getAttributeType(), descriptor.getAttributeName());
 	}
 
 	public void stop() {
 		running = false;
-		Thread startingThread = this.startingThread;
-		if (startingThread != null) {
-			startingThread.interrupt();
+		Selector selector = this.selector;
+		if (selector != null) {
+			selector.wakeup();
 		}
 	}
 
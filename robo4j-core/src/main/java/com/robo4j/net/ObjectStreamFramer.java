@@ -0,0 +1,513 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.net;
+
+import java.io.ObjectStreamConstants;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the boundaries of the messages sent by a {@link MessageClient}, so
+ * that a message is only decoded once all of its bytes have been received.
+ * The messages are written with an {@link java.io.ObjectOutputStream}, so
+ * this walks the grammar of the object serialization stream protocol, keeping
+ * track of the class descriptors in the handle table, without instantiating
+ * anything.
+ * 
+ * <p>
+ * Classes with a custom writeObject method are expected to follow the
+ * protocol, i.e. write their default fields (defaultWriteObject or
+ * writeFields) before any optional data.
+ * </p>
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class ObjectStreamFramer implements ObjectStreamConstants {
+	/**
+	 * Thrown when running out of data in the middle of a frame. Preallocated,
+	 * as this is part of the normal flow.
+	 */
+	@SuppressWarnings("serial")
+	private static final class IncompleteFrame extends Exception {
+		IncompleteFrame() {
+			super("Incomplete frame", null, false, false);
+		}
+	}
+
+	/**
+	 * What we need to know about a class to skip its instances.
+	 */
+	private static final class ClassDesc {
+		byte flags;
+		byte[] fieldTypes;
+		char arrayComponentType;
+		ClassDesc superDesc;
+	}
+
+	private static final IncompleteFrame INCOMPLETE = new IncompleteFrame();
+
+	private List<ClassDesc> handles = new ArrayList<>();
+	private int blockRemaining;
+	private boolean headerRead;
+
+	private byte[] data;
+	private int position;
+	private int limit;
+
+	/**
+	 * Finds the end of the opening handshake, i.e. the stream header followed
+	 * by the magic and the id of the sending context.
+	 * 
+	 * @return the length of the handshake, or -1 if not all of it has been
+	 *         received yet.
+	 * @throws StreamCorruptedException
+	 *             if the data does not follow the protocol.
+	 */
+	int frameHandshake(byte[] data, int offset, int limit) throws StreamCorruptedException {
+		int savedBlockRemaining = blockRemaining;
+		reset(data, offset, limit);
+		try {
+			if (readShort() != STREAM_MAGIC || readShort() != STREAM_VERSION) {
+				throw new StreamCorruptedException("Invalid stream header");
+			}
+			headerRead = true;
+			skipBlock(2);
+			skipBlock(readBlockUnsignedShort());
+			return position - offset;
+		} catch (IncompleteFrame e) {
+			headerRead = false;
+			blockRemaining = savedBlockRemaining;
+			return -1;
+		}
+	}
+
+	/**
+	 * Finds the end of the next message, i.e. the id of the recipient, the
+	 * type of the message and the message itself.
+	 * 
+	 * @return the length of the message, or -1 if not all of it has been
+	 *         received yet.
+	 * @throws StreamCorruptedException
+	 *             if the data does not follow the protocol.
+	 */
+	int frameMessage(byte[] data, int offset, int limit) throws StreamCorruptedException {
+		if (!headerRead) {
+			throw new StreamCorruptedException("Message before handshake");
+		}
+		List<ClassDesc> savedHandles = handles;
+		int savedHandleCount = handles.size();
+		int savedBlockRemaining = blockRemaining;
+		reset(data, offset, limit);
+		try {
+			skipBlock(readBlockUnsignedShort());
+			skipPayload(readBlockByte());
+			return position - offset;
+		} catch (IncompleteFrame e) {
+			handles = savedHandles;
+			handles.subList(savedHandleCount, handles.size()).clear();
+			blockRemaining = savedBlockRemaining;
+			return -1;
+		}
+	}
+
+	private void reset(byte[] data, int offset, int limit) {
+		this.data = data;
+		this.position = offset;
+		this.limit = limit;
+	}
+
+	private void skipPayload(int dataType) throws IncompleteFrame, StreamCorruptedException {
+		switch (dataType) {
+		case MessageProtocolConstants.OBJECT:
+			if (blockRemaining != 0) {
+				throw new StreamCorruptedException("Unexpected block data before object");
+			}
+			skipObject();
+			break;
+		case MessageProtocolConstants.MOD_UTF8:
+			skipBlock(readBlockUnsignedShort());
+			break;
+		case MessageProtocolConstants.CODEC:
+			skipBlock(2);
+			int length = (readBlockUnsignedShort() << 16) | readBlockUnsignedShort();
+			if (length < 0) {
+				throw new StreamCorruptedException("Illegal message length " + length);
+			}
+			skipBlock(length);
+			break;
+		case MessageProtocolConstants.QUERY:
+			skipBlock(4);
+			if (readBlockByte() == MessageProtocolConstants.QUERY_ATTRIBUTE) {
+				if (blockRemaining != 0) {
+					throw new StreamCorruptedException("Unexpected block data before attribute descriptor");
+				}
+				skipObject();
+			}
+			break;
+		case MessageProtocolConstants.BYTE:
+			skipBlock(1);
+			break;
+		case MessageProtocolConstants.SHORT:
+		case MessageProtocolConstants.CHAR:
+			skipBlock(2);
+			break;
+		case MessageProtocolConstants.INT:
+		case MessageProtocolConstants.FLOAT:
+			skipBlock(4);
+			break;
+		case MessageProtocolConstants.LONG:
+		case MessageProtocolConstants.DOUBLE:
+			skipBlock(8);
+			break;
+		default:
+			throw new StreamCorruptedException("The type with id " + dataType + " is not supported!");
+		}
+	}
+
+	// Primitive data written outside of objects is chunked into block data
+	// records.
+	private void skipBlock(int length) throws IncompleteFrame, StreamCorruptedException {
+		while (length > 0) {
+			if (blockRemaining == 0) {
+				readBlockHeader();
+			}
+			int skipped = Math.min(length, blockRemaining);
+			skip(skipped);
+			blockRemaining -= skipped;
+			length -= skipped;
+		}
+	}
+
+	private int readBlockByte() throws IncompleteFrame, StreamCorruptedException {
+		if (blockRemaining == 0) {
+			readBlockHeader();
+		}
+		blockRemaining--;
+		return readByte();
+	}
+
+	private int readBlockUnsignedShort() throws IncompleteFrame, StreamCorruptedException {
+		return ((readBlockByte() & 0xFF) << 8) | (readBlockByte() & 0xFF);
+	}
+
+	private void readBlockHeader() throws IncompleteFrame, StreamCorruptedException {
+		while (true) {
+			byte tc = readByte();
+			switch (tc) {
+			case TC_BLOCKDATA:
+				blockRemaining = readByte() & 0xFF;
+				break;
+			case TC_BLOCKDATALONG:
+				blockRemaining = readInt();
+				if (blockRemaining < 0) {
+					throw new StreamCorruptedException("Illegal block data length " + blockRemaining);
+				}
+				break;
+			case TC_RESET:
+				resetHandles();
+				continue;
+			default:
+				throw new StreamCorruptedException(String.format("Expected block data, got type code %02X", tc));
+			}
+			if (blockRemaining > 0) {
+				return;
+			}
+		}
+	}
+
+	private void skipObject() throws IncompleteFrame, StreamCorruptedException {
+		byte tc;
+		while ((tc = readByte()) == TC_RESET) {
+			resetHandles();
+		}
+		switch (tc) {
+		case TC_NULL:
+			break;
+		case TC_REFERENCE:
+			getHandle(readInt());
+			break;
+		case TC_CLASSDESC:
+			readNonProxyDesc();
+			break;
+		case TC_PROXYCLASSDESC:
+			readProxyDesc();
+			break;
+		case TC_OBJECT:
+			ClassDesc desc = readClassDesc();
+			newHandle(null);
+			skipClassData(desc);
+			break;
+		case TC_STRING:
+			newHandle(null);
+			skip(readUnsignedShort());
+			break;
+		case TC_LONGSTRING:
+			newHandle(null);
+			skip(readLong());
+			break;
+		case TC_ARRAY:
+			skipArray();
+			break;
+		case TC_CLASS:
+			readClassDesc();
+			newHandle(null);
+			break;
+		case TC_ENUM:
+			readClassDesc();
+			newHandle(null);
+			skipObject();
+			break;
+		case TC_EXCEPTION:
+			// The sender failed to write the object, and wrote the exception
+			// instead. Handles are reset both before and after.
+			resetHandles();
+			skipObject();
+			resetHandles();
+			break;
+		default:
+			throw new StreamCorruptedException(String.format("Unexpected type code %02X", tc));
+		}
+	}
+
+	private void skipArray() throws IncompleteFrame, StreamCorruptedException {
+		ClassDesc desc = readClassDesc();
+		if (desc == null || desc.arrayComponentType == 0) {
+			throw new StreamCorruptedException("Array without array class descriptor");
+		}
+		newHandle(null);
+		int length = readInt();
+		if (length < 0) {
+			throw new StreamCorruptedException("Illegal array length " + length);
+		}
+		char componentType = desc.arrayComponentType;
+		if (componentType == 'L' || componentType == '[') {
+			for (int i = 0; i < length; i++) {
+				skipObject();
+			}
+		} else {
+			skip((long) length * primitiveSize(componentType));
+		}
+	}
+
+	private void skipClassData(ClassDesc desc) throws IncompleteFrame, StreamCorruptedException {
+		if (desc == null) {
+			throw new StreamCorruptedException("Object without class descriptor");
+		}
+		if ((desc.flags & SC_EXTERNALIZABLE) != 0) {
+			if ((desc.flags & SC_BLOCK_DATA) == 0) {
+				throw new StreamCorruptedException("Externalizable data in protocol version 1 is not supported");
+			}
+			skipAnnotation();
+			return;
+		}
+		skipClassDataInHierarchy(desc);
+	}
+
+	// Super class data first
+	private void skipClassDataInHierarchy(ClassDesc desc) throws IncompleteFrame, StreamCorruptedException {
+		if (desc.superDesc != null) {
+			skipClassDataInHierarchy(desc.superDesc);
+		}
+		if ((desc.flags & SC_SERIALIZABLE) != 0) {
+			for (byte fieldType : desc.fieldTypes) {
+				if (fieldType == 'L' || fieldType == '[') {
+					skipObject();
+				} else {
+					skip(primitiveSize((char) fieldType));
+				}
+			}
+			if ((desc.flags & SC_WRITE_METHOD) != 0) {
+				skipAnnotation();
+			}
+		}
+	}
+
+	// Block data and objects, until the end block marker
+	private void skipAnnotation() throws IncompleteFrame, StreamCorruptedException {
+		while (true) {
+			byte tc = peekByte();
+			switch (tc) {
+			case TC_ENDBLOCKDATA:
+				readByte();
+				return;
+			case TC_BLOCKDATA:
+				readByte();
+				skip(readByte() & 0xFF);
+				break;
+			case TC_BLOCKDATALONG:
+				readByte();
+				int length = readInt();
+				if (length < 0) {
+					throw new StreamCorruptedException("Illegal block data length " + length);
+				}
+				skip(length);
+				break;
+			default:
+				skipObject();
+			}
+		}
+	}
+
+	private ClassDesc readClassDesc() throws IncompleteFrame, StreamCorruptedException {
+		byte tc = readByte();
+		switch (tc) {
+		case TC_NULL:
+			return null;
+		case TC_REFERENCE:
+			ClassDesc desc = getHandle(readInt());
+			if (desc == null) {
+				throw new StreamCorruptedException("Handle does not refer to a class descriptor");
+			}
+			return desc;
+		case TC_CLASSDESC:
+			return readNonProxyDesc();
+		case TC_PROXYCLASSDESC:
+			return readProxyDesc();
+		default:
+			throw new StreamCorruptedException(String.format("Expected class descriptor, got type code %02X", tc));
+		}
+	}
+
+	private ClassDesc readNonProxyDesc() throws IncompleteFrame, StreamCorruptedException {
+		ClassDesc desc = new ClassDesc();
+		int nameLength = readUnsignedShort();
+		int nameStart = position;
+		skip(nameLength);
+		if (nameLength > 1 && data[nameStart] == '[') {
+			desc.arrayComponentType = (char) data[nameStart + 1];
+		}
+		// serialVersionUID
+		skip(8);
+		newHandle(desc);
+		desc.flags = readByte();
+		int fieldCount = readUnsignedShort();
+		desc.fieldTypes = new byte[fieldCount];
+		for (int i = 0; i < fieldCount; i++) {
+			byte fieldType = readByte();
+			desc.fieldTypes[i] = fieldType;
+			skip(readUnsignedShort());
+			if (fieldType == 'L' || fieldType == '[') {
+				// The type name of the field, as a string object
+				skipObject();
+			} else {
+				primitiveSize((char) fieldType);
+			}
+		}
+		skipAnnotation();
+		desc.superDesc = readClassDesc();
+		return desc;
+	}
+
+	private ClassDesc readProxyDesc() throws IncompleteFrame, StreamCorruptedException {
+		ClassDesc desc = new ClassDesc();
+		desc.flags = SC_SERIALIZABLE;
+		desc.fieldTypes = new byte[0];
+		newHandle(desc);
+		int interfaceCount = readInt();
+		for (int i = 0; i < interfaceCount; i++) {
+			skip(readUnsignedShort());
+		}
+		skipAnnotation();
+		desc.superDesc = readClassDesc();
+		return desc;
+	}
+
+	private static int primitiveSize(char type) throws StreamCorruptedException {
+		switch (type) {
+		case 'B':
+		case 'Z':
+			return 1;
+		case 'C':
+		case 'S':
+			return 2;
+		case 'I':
+		case 'F':
+			return 4;
+		case 'J':
+		case 'D':
+			return 8;
+		default:
+			throw new StreamCorruptedException("Illegal type code " + type);
+		}
+	}
+
+	private void newHandle(ClassDesc desc) {
+		handles.add(desc);
+	}
+
+	private ClassDesc getHandle(int handle) throws StreamCorruptedException {
+		int index = handle - baseWireHandle;
+		if (index < 0 || index >= handles.size()) {
+			throw new StreamCorruptedException("Invalid handle " + Integer.toHexString(handle));
+		}
+		return handles.get(index);
+	}
+
+	private void resetHandles() throws StreamCorruptedException {
+		if (blockRemaining != 0) {
+			throw new StreamCorruptedException("Reset in the middle of block data");
+		}
+		// The old list may still be needed if the frame turns out to be
+		// incomplete
+		handles = new ArrayList<>();
+	}
+
+	private void skip(long length) throws IncompleteFrame, StreamCorruptedException {
+		if (length < 0) {
+			throw new StreamCorruptedException("Illegal length " + length);
+		}
+		if (length > limit - position) {
+			throw INCOMPLETE;
+		}
+		position += (int) length;
+	}
+
+	private byte peekByte() throws IncompleteFrame {
+		if (position >= limit) {
+			throw INCOMPLETE;
+		}
+		return data[position];
+	}
+
+	private byte readByte() throws IncompleteFrame {
+		byte b = peekByte();
+		position++;
+		return b;
+	}
+
+	private int readUnsignedShort() throws IncompleteFrame {
+		return ((readByte() & 0xFF) << 8) | (readByte() & 0xFF);
+	}
+
+	private short readShort() throws IncompleteFrame {
+		return (short) readUnsignedShort();
+	}
+
+	private int readInt() throws IncompleteFrame {
+		return (readUnsignedShort() << 16) | readUnsignedShort();
+	}
+
+	private long readLong() throws IncompleteFrame {
+		return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+	}
+}
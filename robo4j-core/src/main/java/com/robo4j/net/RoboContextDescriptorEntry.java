@@ -27,6 +27,10 @@ import java.net.InetAddress;
  */
 class RoboContextDescriptorEntry {
 	public RoboContextDescriptor descriptor;
-	public long lastAccess;
+	public volatile long lastAccess;
 	public InetAddress address;
+	/**
+	 * The shared remote context, created on first lookup.
+	 */
+	public volatile ClientRemoteRoboContext context;
 }
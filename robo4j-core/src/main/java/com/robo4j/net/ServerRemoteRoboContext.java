@@ -100,9 +100,13 @@ public class ServerRemoteRoboContext implements RoboContext {
 			try {
 				// FIXME: Change the serialization to be the same as for the
 				// client to server
-				outputStream.writeUTF(getTargetContextId());
-				outputStream.writeUTF(getId());
-				outputStream.writeObject(message);
+				synchronized (outputStream) {
+					outputStream.writeByte(MessageProtocolConstants.REFERENCE_MESSAGE);
+					outputStream.writeUTF(getTargetContextId());
+					outputStream.writeUTF(getId());
+					outputStream.writeObject(message);
+					outputStream.flush();
+				}
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
@@ -187,6 +191,32 @@ public class ServerRemoteRoboContext implements RoboContext {
 		return null;
 	}
 
+	/**
+	 * Sends the reply to a query from the client.
+	 * 
+	 * @param correlationId
+	 *            the correlation id of the query.
+	 * @param success
+	 *            true if the result is the answer to the query, false if it is
+	 *            an error message.
+	 * @param result
+	 *            the result of the query.
+	 * @throws IOException
+	 *             if the reply could not be sent.
+	 */
+	void sendQueryReply(int correlationId, boolean success, Object result) throws IOException {
+		synchronized (outputStream) {
+			outputStream.writeByte(MessageProtocolConstants.QUERY_REPLY);
+			outputStream.writeInt(correlationId);
+			outputStream.writeBoolean(success);
+			try {
+				outputStream.writeObject(result);
+			} finally {
+				outputStream.flush();
+			}
+		}
+	}
+
 	public RoboReference<?> getRoboReference(String ctxId, String id, String fqn) {
 		// FIXME: Cache these?
 		return new ServerRemoteRoboReference(ctxId, id, fqn);
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+/**
+ * What a fixed rate schedule does about ticks it missed, for example because
+ * the previous run took longer than the period, or because the scheduler
+ * threads were busy.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public enum CatchUpPolicy {
+	/**
+	 * The missed ticks are dropped, and the task next runs at the next tick on
+	 * the original schedule.
+	 */
+	SKIP,
+	/**
+	 * Every missed tick is run, back to back, until the schedule has caught
+	 * up. This is how
+	 * {@link Scheduler#scheduleAtFixedRate(Runnable, long, long, java.util.concurrent.TimeUnit)}
+	 * behaves.
+	 */
+	BURST,
+	/**
+	 * The missed ticks are collapsed into a single run, done immediately, for
+	 * the latest missed tick. After that the task runs on the original
+	 * schedule.
+	 */
+	COMPRESS
+}
@@ -17,6 +17,7 @@
 package com.robo4j.scheduler;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -38,6 +39,7 @@ public class DefaultScheduler implements Scheduler {
 	private static final int TERMINATION_TIMEOUT = 4;
 
 	private final ScheduledExecutorService executor;
+	private final ExecutorService taskExecutor;
 	private final RoboContext context;
 
 	/**
@@ -59,9 +61,30 @@ public class DefaultScheduler implements Scheduler {
 	 *            the number of threads in the thread pool.
 	 */
 	public DefaultScheduler(RoboContext context, int numberOfThreads) {
+		this(context, numberOfThreads, null);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param context
+	 *            the context.
+	 * @param numberOfThreads
+	 *            the number of threads in the thread pool.
+	 * @param taskExecutor
+	 *            the executor to run the tasks given to
+	 *            {@link #execute(Runnable)} and {@link #submit(Callable)} on,
+	 *            for example a virtual thread executor (see
+	 *            {@link VirtualThreadExecutors}). If null, they are run in the
+	 *            thread pool of the scheduler. Scheduled tasks are always run
+	 *            in the thread pool of the scheduler. The scheduler takes
+	 *            ownership of the executor, and will shut it down.
+	 */
+	public DefaultScheduler(RoboContext context, int numberOfThreads, ExecutorService taskExecutor) {
 		this.context = context;
 		this.executor = new ScheduledThreadPoolExecutor(numberOfThreads,
 				new RoboThreadFactory(new ThreadGroup("Robo4J Scheduler"), "Robo4J Scheduler", true));
+		this.taskExecutor = taskExecutor == null ? executor : taskExecutor;
 	}
 
 	@Override
@@ -92,7 +115,10 @@ public class DefaultScheduler implements Scheduler {
 	@Override
 	public void shutdown() throws InterruptedException {
 		executor.shutdown();
+		taskExecutor.shutdown();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TERMINATION_TIMEOUT);
 		executor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.SECONDS);
+		taskExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
 	}
 
 	static <T> void deliverMessage(final RoboReference<T> reference, final T message) {
@@ -118,11 +144,11 @@ public class DefaultScheduler implements Scheduler {
 
 	@Override
 	public void execute(Runnable r) {
-		executor.execute(r);
+		taskExecutor.execute(r);
 	}
 
 	@Override
 	public <T> Future<T> submit(Callable<T> r) {
-		return executor.submit(r);
+		return taskExecutor.submit(r);
 	}
 }
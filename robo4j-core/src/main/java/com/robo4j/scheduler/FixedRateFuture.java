@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+import com.robo4j.jfr.JfrSupport;
+import com.robo4j.jfr.SchedulerTickEvent;
+import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.metrics.LatencyHistogram;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The future of a drift free fixed rate schedule. Every tick is scheduled as a
+ * one shot on the {@link Scheduler}, at an absolute time on the original
+ * schedule, so the time it takes to run the task, and any lateness of the
+ * scheduler, never accumulates into drift. Missed ticks are handled according
+ * to the {@link CatchUpPolicy}, and the lateness of every tick is recorded in a
+ * {@link LatencyHistogram}, ticks never run counting as skipped.
+ * 
+ * <p>
+ * The schedule runs until cancelled, or until the task throws an exception.
+ * Ticks never run concurrently with each other.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class FixedRateFuture implements ScheduledFuture<Object> {
+	private static final boolean JFR_AVAILABLE = JfrSupport.isAvailable();
+
+	private final Scheduler scheduler;
+	private final FixedRateTask task;
+	private final long period;
+	private final CatchUpPolicy policy;
+	private final LatencyHistogram histogram = new LatencyHistogram();
+	private final CompletableFuture<Object> completion = new CompletableFuture<>();
+	private volatile long nextIntendedTime;
+
+	private FixedRateFuture(Scheduler scheduler, FixedRateTask task, long period, CatchUpPolicy policy) {
+		this.scheduler = scheduler;
+		this.task = task;
+		this.period = period;
+		this.policy = policy;
+	}
+
+	static FixedRateFuture schedule(Scheduler scheduler, FixedRateTask task, long delay, long period, TimeUnit unit,
+			CatchUpPolicy policy) {
+		if (task == null || policy == null) {
+			throw new NullPointerException("Task and catch up policy must be specified");
+		}
+		if (period <= 0) {
+			throw new IllegalArgumentException("Period must be positive: " + period);
+		}
+		FixedRateFuture future = new FixedRateFuture(scheduler, task, unit.toNanos(period), policy);
+		long now = System.nanoTime();
+		future.nextIntendedTime = now + unit.toNanos(Math.max(0, delay));
+		future.arm(now);
+		return future;
+	}
+
+	/**
+	 * @return the live lateness histogram of this schedule. Use
+	 *         {@link LatencyHistogram#snapshot()} to get a consistent copy.
+	 */
+	public LatencyHistogram getLatenessHistogram() {
+		return histogram;
+	}
+
+	/**
+	 * @return the catch up policy of this schedule.
+	 */
+	public CatchUpPolicy getCatchUpPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Cancels the schedule. A tick already running is always allowed to
+	 * complete, so the argument is ignored.
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return completion.cancel(false);
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return completion.isCancelled();
+	}
+
+	@Override
+	public boolean isDone() {
+		return completion.isDone();
+	}
+
+	@Override
+	public Object get() throws InterruptedException, ExecutionException {
+		return completion.get();
+	}
+
+	@Override
+	public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		return completion.get(timeout, unit);
+	}
+
+	@Override
+	public long getDelay(TimeUnit unit) {
+		return unit.convert(nextIntendedTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public int compareTo(Delayed o) {
+		return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+	}
+
+	private void arm(long now) {
+		try {
+			scheduler.schedule(this::fire, Math.max(0, nextIntendedTime - now), TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			// The scheduler is shutting down
+			completion.completeExceptionally(e);
+		}
+	}
+
+	private void fire() {
+		if (completion.isDone()) {
+			return;
+		}
+		long intendedTime = nextIntendedTime;
+		long actualTime = System.nanoTime();
+		histogram.record(actualTime - intendedTime);
+		try {
+			if (JFR_AVAILABLE) {
+				runRecorded(intendedTime, actualTime);
+			} else {
+				task.run(intendedTime, actualTime);
+			}
+		} catch (Throwable t) {
+			SimpleLoggingUtil.error(getClass(), "Fixed rate task failed - cancelling the schedule", t);
+			completion.completeExceptionally(t);
+			return;
+		}
+		if (completion.isDone()) {
+			return;
+		}
+		long now = System.nanoTime();
+		long next = intendedTime + period;
+		if (next <= now && policy != CatchUpPolicy.BURST) {
+			// The number of ticks on the schedule which are already due
+			long missed = (now - next) / period + 1;
+			if (policy == CatchUpPolicy.SKIP) {
+				next += missed * period;
+				histogram.recordSkipped(missed);
+			} else {
+				next += (missed - 1) * period;
+				histogram.recordSkipped(missed - 1);
+			}
+		}
+		nextIntendedTime = next;
+		arm(now);
+	}
+
+	private void runRecorded(long intendedTime, long actualTime) {
+		SchedulerTickEvent event = new SchedulerTickEvent();
+		event.begin();
+		task.run(intendedTime, actualTime);
+		event.end();
+		if (event.shouldCommit()) {
+			event.setLateness(actualTime - intendedTime);
+			event.setPeriod(period);
+			event.setCatchUpPolicy(policy.name());
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+/**
+ * A task run at a fixed rate, which is told when it was supposed to run and
+ * when it actually ran. Useful for control loops, which can compute their
+ * deltas from the actual fire times rather than from the wall clock.
+ * 
+ * @see Scheduler#scheduleAtFixedRate(FixedRateTask, long, long,
+ *      java.util.concurrent.TimeUnit, CatchUpPolicy)
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@FunctionalInterface
+public interface FixedRateTask {
+	/**
+	 * Runs the task.
+	 * 
+	 * @param intendedTime
+	 *            the time, in {@link System#nanoTime()} nanoseconds, that this
+	 *            tick was supposed to fire.
+	 * @param actualTime
+	 *            the time, in {@link System#nanoTime()} nanoseconds, that this
+	 *            tick actually fired.
+	 */
+	void run(long intendedTime, long actualTime);
+}
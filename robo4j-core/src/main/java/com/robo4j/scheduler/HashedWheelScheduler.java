@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+import com.robo4j.RoboContext;
+import com.robo4j.RoboReference;
+import com.robo4j.logging.SimpleLoggingUtil;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A scheduler built on a hashed timing wheel. Scheduling and cancelling are
+ * constant time operations, which makes this scheduler a better fit than the
+ * {@link DefaultScheduler} for systems with many periodic tasks.
+ * 
+ * <p>
+ * A single timer thread advances the wheel one tick at a time, and hands the
+ * tasks that are due to the thread pool of the scheduler. New tasks are
+ * handed to the timer thread through a lock free queue. Tasks are never run
+ * early, but may run up to one tick late, so the tick duration is the
+ * resolution of the scheduler. Periodic tasks are scheduled at a fixed rate,
+ * and never run concurrently with themselves. While there are no tasks at
+ * all, the timer thread does not tick, but waits for the next task.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class HashedWheelScheduler implements Scheduler {
+	/**
+	 * The default tick duration, in microseconds.
+	 */
+	public static final int DEFAULT_TICK_MICROS = 1000;
+	/**
+	 * The default number of slots in the wheel.
+	 */
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+
+	private static final int DEFAULT_NUMBER_OF_THREADS = 2;
+	private static final int TERMINATION_TIMEOUT = 4;
+	private static final int MAX_WHEEL_SIZE = 1 << 20;
+	private static final long KEEP_ALIVE_TIME = 10;
+	private static final String NAME_SCHEDULER_POOL = "Robo4J Scheduler";
+	private static final String NAME_TIMER_THREAD = "Robo4J Scheduler Timer";
+
+	private static final int WAITING = 0;
+	private static final int RUNNING = 1;
+	private static final int DONE = 2;
+	private static final int CANCELLED = 3;
+
+	/**
+	 * A task on the wheel. Also the future handed back to the caller.
+	 */
+	private final class WheelTimeout implements ScheduledFuture<Object>, Runnable {
+		private final Runnable task;
+		private final long periodNanos;
+		private final FinalInvocationListener listener;
+		private final CompletableFuture<Object> completion = new CompletableFuture<>();
+		private final AtomicInteger state = new AtomicInteger(WAITING);
+		private int remainingInvocations;
+		// Absolute, in System.nanoTime()
+		private volatile long deadline;
+		// Only accessed by the timer thread
+		private long remainingRounds;
+		private WheelTimeout next;
+
+		WheelTimeout(Runnable task, long deadline, long periodNanos, int numberOfInvocations, FinalInvocationListener listener) {
+			this.task = task;
+			this.deadline = deadline;
+			this.periodNanos = periodNanos;
+			this.remainingInvocations = numberOfInvocations;
+			this.listener = listener;
+		}
+
+		@Override
+		public void run() {
+			if (!state.compareAndSet(WAITING, RUNNING)) {
+				return;
+			}
+			try {
+				task.run();
+			} catch (Throwable t) {
+				// Like the ScheduledThreadPoolExecutor, do not run again. A
+				// task cancelled while running stays cancelled.
+				if (state.compareAndSet(RUNNING, DONE)) {
+					completion.completeExceptionally(t);
+				}
+				return;
+			}
+			if (periodNanos <= 0) {
+				if (state.compareAndSet(RUNNING, DONE)) {
+					completion.complete(null);
+				}
+			} else if (remainingInvocations > 0 && --remainingInvocations == 0) {
+				if (listener != null) {
+					listener.onFinalInvocation(context);
+				}
+				// Same as with the DefaultScheduler, the future is cancelled
+				// after the final invocation
+				state.set(CANCELLED);
+				completion.cancel(false);
+			} else if (state.compareAndSet(RUNNING, WAITING)) {
+				deadline += periodNanos;
+				try {
+					addTimeout(this);
+				} catch (RejectedExecutionException e) {
+					// Shutting down
+				}
+			}
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			if (other == this) {
+				return 0;
+			}
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			while (true) {
+				int current = state.get();
+				if (current == DONE || current == CANCELLED) {
+					return false;
+				}
+				// A running task is not interrupted, but will not run again
+				if (state.compareAndSet(current, CANCELLED)) {
+					completion.cancel(false);
+					return true;
+				}
+			}
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return state.get() == CANCELLED;
+		}
+
+		@Override
+		public boolean isDone() {
+			return completion.isDone();
+		}
+
+		@Override
+		public Object get() throws InterruptedException, ExecutionException {
+			return completion.get();
+		}
+
+		@Override
+		public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			return completion.get(timeout, unit);
+		}
+	}
+
+	/*
+	 * Advances the wheel.
+	 */
+	private final class Timer implements Runnable {
+		private final long startTime = System.nanoTime();
+		private long tick;
+		// Number of timeouts in the buckets of the wheel
+		private int wheelTimeouts;
+
+		@Override
+		public void run() {
+			while (running) {
+				if (wheelTimeouts == 0 && newTimeouts.isEmpty()) {
+					awaitNewTimeouts();
+					continue;
+				}
+				long tickTime = startTime + (tick + 1) * tickNanos;
+				long sleepNanos;
+				while ((sleepNanos = tickTime - System.nanoTime()) > 0 && running) {
+					LockSupport.parkNanos(this, sleepNanos);
+				}
+				if (!running) {
+					break;
+				}
+				tick++;
+				transferNewTimeouts();
+				expireTimeouts(wheel[(int) (tick & mask)]);
+			}
+			cancelAll();
+		}
+
+		/**
+		 * Parks until a new timeout is added, instead of ticking through an
+		 * empty wheel.
+		 */
+		private void awaitNewTimeouts() {
+			timerIdle = true;
+			// Checked again after publishing the flag, so that a timeout added
+			// in between is not missed
+			while (running && newTimeouts.isEmpty()) {
+				LockSupport.park(this);
+			}
+			timerIdle = false;
+			// Nothing is on the wheel, so the ticks slept through can be
+			// skipped
+			tick = Math.max(tick, (System.nanoTime() - startTime) / tickNanos);
+		}
+
+		private void transferNewTimeouts() {
+			WheelTimeout timeout;
+			while ((timeout = newTimeouts.poll()) != null) {
+				if (timeout.state.get() != WAITING) {
+					continue;
+				}
+				long targetTick = Math.max(tick, ceilDiv(timeout.deadline - startTime, tickNanos));
+				timeout.remainingRounds = (targetTick - tick) / wheel.length;
+				Bucket bucket = wheel[(int) (targetTick & mask)];
+				timeout.next = bucket.head;
+				bucket.head = timeout;
+				wheelTimeouts++;
+			}
+		}
+
+		private void expireTimeouts(Bucket bucket) {
+			WheelTimeout previous = null;
+			WheelTimeout timeout = bucket.head;
+			while (timeout != null) {
+				WheelTimeout next = timeout.next;
+				boolean remove;
+				if (timeout.state.get() != WAITING) {
+					remove = true;
+				} else if (timeout.remainingRounds <= 0) {
+					remove = true;
+					dispatch(timeout);
+				} else {
+					remove = false;
+					timeout.remainingRounds--;
+				}
+				if (remove) {
+					wheelTimeouts--;
+					timeout.next = null;
+					if (previous == null) {
+						bucket.head = next;
+					} else {
+						previous.next = next;
+					}
+				} else {
+					previous = timeout;
+				}
+				timeout = next;
+			}
+		}
+
+		private void dispatch(WheelTimeout timeout) {
+			try {
+				executor.execute(timeout);
+			} catch (RejectedExecutionException e) {
+				timeout.cancel(false);
+			}
+		}
+
+		private void cancelAll() {
+			for (Bucket bucket : wheel) {
+				for (WheelTimeout timeout = bucket.head; timeout != null; timeout = timeout.next) {
+					timeout.cancel(false);
+				}
+				bucket.head = null;
+			}
+			WheelTimeout timeout;
+			while ((timeout = newTimeouts.poll()) != null) {
+				timeout.cancel(false);
+			}
+		}
+	}
+
+	private static final class Bucket {
+		private WheelTimeout head;
+	}
+
+	private final RoboContext context;
+	private final ExecutorService executor;
+	private final ExecutorService taskExecutor;
+	private final long tickNanos;
+	private final Bucket[] wheel;
+	private final int mask;
+	private final Queue<WheelTimeout> newTimeouts = new ConcurrentLinkedQueue<>();
+	private final Thread timerThread;
+	private volatile boolean running = true;
+	private volatile boolean timerIdle;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param context
+	 *            the context.
+	 */
+	public HashedWheelScheduler(RoboContext context) {
+		this(context, DEFAULT_NUMBER_OF_THREADS, null, DEFAULT_TICK_MICROS, TimeUnit.MICROSECONDS, DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param context
+	 *            the context.
+	 * @param numberOfThreads
+	 *            the number of threads in the thread pool running the tasks.
+	 * @param taskExecutor
+	 *            the executor to run the tasks given to
+	 *            {@link #execute(Runnable)} and {@link #submit(Callable)} on.
+	 *            If null, they are run in the thread pool of the scheduler.
+	 *            The scheduler takes ownership of the executor, and will shut
+	 *            it down.
+	 * @param tickDuration
+	 *            the duration of a tick, i.e. the resolution of the scheduler.
+	 * @param tickUnit
+	 *            the time unit of the tick duration.
+	 * @param wheelSize
+	 *            the number of slots in the wheel. Rounded up to the closest
+	 *            power of two.
+	 */
+	public HashedWheelScheduler(RoboContext context, int numberOfThreads, ExecutorService taskExecutor, long tickDuration,
+			TimeUnit tickUnit, int wheelSize) {
+		if (tickDuration <= 0) {
+			throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+		}
+		if (wheelSize <= 0 || wheelSize > MAX_WHEEL_SIZE) {
+			throw new IllegalArgumentException("Wheel size out of range: " + wheelSize);
+		}
+		this.context = context;
+		this.tickNanos = tickUnit.toNanos(tickDuration);
+		int size = 1 << (32 - Integer.numberOfLeadingZeros(wheelSize - 1));
+		this.wheel = new Bucket[size];
+		for (int i = 0; i < size; i++) {
+			wheel[i] = new Bucket();
+		}
+		this.mask = size - 1;
+		this.executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), new RoboThreadFactory(new ThreadGroup(NAME_SCHEDULER_POOL), NAME_SCHEDULER_POOL, true));
+		this.taskExecutor = taskExecutor == null ? executor : taskExecutor;
+		this.timerThread = new Thread(new Timer(), NAME_TIMER_THREAD);
+		timerThread.setDaemon(true);
+		timerThread.start();
+	}
+
+	@Override
+	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long period, TimeUnit unit,
+			int numberOfInvocations, FinalInvocationListener listener) {
+		if (numberOfInvocations <= 0) {
+			throw new IllegalArgumentException("Number of invocations must be positive: " + numberOfInvocations);
+		}
+		return addTimeout(() -> DefaultScheduler.deliverMessage(target, message), delay, period, unit, numberOfInvocations,
+				listener);
+	}
+
+	@Override
+	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long interval, TimeUnit unit,
+			int numberOfInvocations) {
+		return schedule(target, message, delay, interval, unit, numberOfInvocations, null);
+	}
+
+	@Override
+	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long interval, TimeUnit unit) {
+		return addTimeout(() -> DefaultScheduler.deliverMessage(target, message), delay, interval, unit, 0, null);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable runnable, long delay, long interval, TimeUnit unit) {
+		return addTimeout(runnable, delay, interval, unit, 0, null);
+	}
+
+	@Override
+	public void schedule(Runnable runnable, long delay, TimeUnit unit) {
+		addTimeout(new WheelTimeout(runnable, System.nanoTime() + unit.toNanos(delay), 0, 0, null));
+	}
+
+	private ScheduledFuture<?> addTimeout(Runnable runnable, long delay, long period, TimeUnit unit, int numberOfInvocations,
+			FinalInvocationListener listener) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("Period must be positive: " + period);
+		}
+		WheelTimeout timeout = new WheelTimeout(runnable, System.nanoTime() + unit.toNanos(delay), unit.toNanos(period),
+				numberOfInvocations, listener);
+		addTimeout(timeout);
+		return timeout;
+	}
+
+	private void addTimeout(WheelTimeout timeout) {
+		if (!running) {
+			timeout.cancel(false);
+			throw new RejectedExecutionException("Scheduler has been shut down");
+		}
+		newTimeouts.add(timeout);
+		if (timerIdle) {
+			LockSupport.unpark(timerThread);
+		}
+	}
+
+	@Override
+	public void execute(Runnable r) {
+		taskExecutor.execute(r);
+	}
+
+	@Override
+	public <T> Future<T> submit(Callable<T> r) {
+		return taskExecutor.submit(r);
+	}
+
+	@Override
+	public void shutdown() throws InterruptedException {
+		running = false;
+		LockSupport.unpark(timerThread);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TERMINATION_TIMEOUT);
+		timerThread.join(TimeUnit.SECONDS.toMillis(TERMINATION_TIMEOUT));
+		executor.shutdown();
+		taskExecutor.shutdown();
+		executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		taskExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		if (timerThread.isAlive()) {
+			SimpleLoggingUtil.error(getClass(), "Timer thread did not stop in time");
+		}
+	}
+
+	private static long ceilDiv(long value, long divisor) {
+		return value <= 0 ? 0 : (value + divisor - 1) / divisor;
+	}
+}
@@ -146,6 +146,28 @@ public interface Scheduler {
 	 */
 	ScheduledFuture<?> scheduleAtFixedRate(Runnable runnable, long delay, long interval, TimeUnit unit);
 
+	/**
+	 * Schedules a task at a fixed rate, without drift. The task is given both
+	 * the intended and the actual time of each tick, and the lateness of the
+	 * ticks is recorded in the histogram of the returned future.
+	 * 
+	 * @param task
+	 *            the task to run.
+	 * @param delay
+	 *            the delay before the first tick.
+	 * @param period
+	 *            the period between the ticks.
+	 * @param unit
+	 *            the time unit of the delay and period.
+	 * @param policy
+	 *            what to do about missed ticks.
+	 * @return the future of the schedule, which can be used to cancel it.
+	 */
+	default FixedRateFuture scheduleAtFixedRate(FixedRateTask task, long delay, long period, TimeUnit unit,
+			CatchUpPolicy policy) {
+		return FixedRateFuture.schedule(this, task, delay, period, unit, policy);
+	}
+
 	/**
 	 * Scheduler shutdown
 	 *
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.robo4j.logging.SimpleLoggingUtil;
+
+/**
+ * Creates executors running each task on a new virtual thread, on JVMs that
+ * support virtual threads. Robo4J is compiled for Java 8, so the virtual
+ * thread API is looked up reflectively.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class VirtualThreadExecutors {
+	private static final Method OF_VIRTUAL;
+	private static final Method BUILDER_NAME;
+	private static final Method BUILDER_FACTORY;
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+	private static final boolean AVAILABLE;
+
+	static {
+		Method ofVirtual = null;
+		Method builderName = null;
+		Method builderFactory = null;
+		Method newThreadPerTaskExecutor = null;
+		boolean available = false;
+		try {
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builderName = builderClass.getMethod("name", String.class, long.class);
+			builderFactory = builderClass.getMethod("factory");
+			newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			// On the JDKs where virtual threads are a preview feature, this
+			// fails unless previews are enabled
+			ofVirtual.invoke(null);
+			available = true;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Virtual threads not supported
+		}
+		OF_VIRTUAL = ofVirtual;
+		BUILDER_NAME = builderName;
+		BUILDER_FACTORY = builderFactory;
+		NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+		AVAILABLE = available;
+	}
+
+	private VirtualThreadExecutors() {
+		// Not to be instantiated
+	}
+
+	/**
+	 * @return true if virtual threads are supported by the JVM.
+	 */
+	public static boolean isAvailable() {
+		return AVAILABLE;
+	}
+
+	/**
+	 * Creates an executor starting a new virtual thread for each task.
+	 *
+	 * @param name
+	 *            the prefix to use for the names of the threads.
+	 * @return the executor, or null if virtual threads are not supported by
+	 *         the JVM.
+	 */
+	public static ExecutorService create(String name) {
+		if (!AVAILABLE) {
+			return null;
+		}
+		try {
+			Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name + "-", 1L);
+			ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+			return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			SimpleLoggingUtil.error(VirtualThreadExecutors.class, "Could not create virtual thread executor for " + name, e);
+			return null;
+		}
+	}
+}
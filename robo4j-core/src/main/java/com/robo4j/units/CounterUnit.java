@@ -16,7 +16,6 @@
  */
 package com.robo4j.units;
 
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -27,6 +26,10 @@ import com.robo4j.RoboReference;
 import com.robo4j.RoboUnit;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.metrics.LatencyHistogram;
+import com.robo4j.scheduler.CatchUpPolicy;
+import com.robo4j.scheduler.FixedRateFuture;
+import com.robo4j.scheduler.FixedRateTask;
 
 /**
  * A simple unit which will count upwards from zero. Useful, for example, as a
@@ -57,17 +60,23 @@ public class CounterUnit extends RoboUnit<CounterCommand> {
 	 */
 	public static final String KEY_TARGET = "target";
 
+	/**
+	 * The name of the attribute holding a snapshot of the lateness histogram
+	 * of the counter ticks. Null if the counter has never been started.
+	 */
+	public static final String ATTRIBUTE_NAME_LATENESS = "Lateness";
+
 	/*
 	 * The currently running timer updater.
 	 */
-	private ScheduledFuture<?> scheduledFuture;
+	private FixedRateFuture scheduledFuture;
 
 	/*
 	 * The id of the target.
 	 */
 	private String targetId;
 
-	private final class CounterUnitAction implements Runnable {
+	private final class CounterUnitAction implements FixedRateTask {
 		private RoboReference<Integer> target;
 
 		public CounterUnitAction(RoboReference<Integer> target) {
@@ -75,7 +84,7 @@ public class CounterUnit extends RoboUnit<CounterCommand> {
 		}
 
 		@Override
-		public void run() {
+		public void run(long intendedTime, long actualTime) {
 			if (target != null) {
 				target.sendMessage(counter.getAndIncrement());
 			} else {
@@ -113,7 +122,8 @@ public class CounterUnit extends RoboUnit<CounterCommand> {
 			switch (message) {
 			case START:
 				scheduledFuture = getContext().getScheduler().scheduleAtFixedRate(
-						new CounterUnitAction(getContext().getReference(targetId)), 0, interval, TimeUnit.MILLISECONDS);
+						new CounterUnitAction(getContext().getReference(targetId)), 0, interval, TimeUnit.MILLISECONDS,
+						CatchUpPolicy.BURST);
 				break;
 			case STOP:
 				scheduledFuture.cancel(false);
@@ -131,6 +141,10 @@ public class CounterUnit extends RoboUnit<CounterCommand> {
 		if (attribute.getAttributeName().equals("Counter") && attribute.getAttributeType() == Integer.class) {
 			return (R) (Integer) counter.get();
 		}
+		if (attribute.getAttributeName().equals(ATTRIBUTE_NAME_LATENESS)
+				&& attribute.getAttributeType() == LatencyHistogram.Snapshot.class) {
+			return scheduledFuture == null ? null : (R) scheduledFuture.getLatenessHistogram().snapshot();
+		}
 		return null;
 	}
 
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring buffer. Safe for multiple producers and multiple
+ * consumers, although the typical use is many producers and a single consumer.
+ * Each slot carries a sequence number, so producers and consumers only ever
+ * contend on a single CAS of the position they are advancing.
+ *
+ * <p>
+ * The capacity is rounded up to the closest power of two. Null elements are
+ * not permitted.
+ * </p>
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class RingBuffer<E> {
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private final AtomicReferenceArray<E> elements;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            the minimum capacity of the buffer. Will be rounded up to the
+	 *            closest power of two.
+	 */
+	public RingBuffer(int capacity) {
+		if (capacity <= 0 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Capacity out of range: " + capacity);
+		}
+		int size = roundToPowerOfTwo(capacity);
+		elements = new AtomicReferenceArray<>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+		mask = size - 1;
+	}
+
+	/**
+	 * Adds the element to the tail of the buffer, if there is room.
+	 *
+	 * @param element
+	 *            the element to add.
+	 * @return true if the element was added, false if the buffer was full.
+	 */
+	public boolean offer(E element) {
+		if (element == null) {
+			throw new NullPointerException("Null elements not permitted");
+		}
+		long position = tail.get();
+		while (true) {
+			int index = (int) (position & mask);
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					elements.lazySet(index, element);
+					sequences.set(index, position + 1);
+					return true;
+				}
+				position = tail.get();
+			} else if (difference < 0) {
+				return false;
+			} else {
+				position = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Removes the element at the head of the buffer.
+	 *
+	 * @return the element at the head, or null if the buffer was empty.
+	 */
+	public E poll() {
+		long position = head.get();
+		while (true) {
+			int index = (int) (position & mask);
+			long difference = sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (head.compareAndSet(position, position + 1)) {
+					E element = elements.get(index);
+					elements.lazySet(index, null);
+					sequences.set(index, position + mask + 1);
+					return element;
+				}
+				position = head.get();
+			} else if (difference < 0) {
+				return null;
+			} else {
+				position = head.get();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of elements currently in the buffer. Only an estimate
+	 *         when the buffer is concurrently modified.
+	 */
+	public int size() {
+		long size = tail.get() - head.get();
+		return size < 0 ? 0 : (int) Math.min(size, capacity());
+	}
+
+	/**
+	 * @return true if the buffer currently contains no elements.
+	 */
+	public boolean isEmpty() {
+		return tail.get() == head.get();
+	}
+
+	/**
+	 * @return the actual capacity of the buffer.
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+	private static int roundToPowerOfTwo(int value) {
+		return 1 << (32 - Integer.numberOfLeadingZeros(value - 1));
+	}
+}
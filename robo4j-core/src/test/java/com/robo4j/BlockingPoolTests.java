@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.robo4j.configuration.Configuration;
+import com.robo4j.configuration.ConfigurationBuilder;
+import com.robo4j.scheduler.VirtualThreadExecutors;
+
+/**
+ * Tests for the blocking pool, including a benchmark comparing the latency of
+ * the thread pool and virtual threads.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class BlockingPoolTests {
+	private static final int BLOCKING_POOL_SIZE = 4;
+	private static final int MESSAGES_PER_UNIT = 20;
+	private static final long BLOCKING_TIME_MILLIS = 5;
+
+	/**
+	 * Simulates a unit doing blocking reads, like an I2C device.
+	 */
+	@BlockingTrait
+	private static class SleepingUnit extends RoboUnit<Long> {
+		private final long[] latencies;
+		private final CountDownLatch latch;
+		private int count;
+
+		SleepingUnit(RoboContext context, String id, int numberOfMessages, CountDownLatch latch) {
+			super(Long.class, context, id);
+			this.latencies = new long[numberOfMessages];
+			this.latch = latch;
+		}
+
+		@Override
+		public void onMessage(Long sendTime) {
+			latencies[count++] = System.nanoTime() - sendTime;
+			try {
+				Thread.sleep(BLOCKING_TIME_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			latch.countDown();
+		}
+	}
+
+	@Test
+	public void testVirtualBlockingPool() throws Exception {
+		// Must deliver all messages, whether or not virtual threads are
+		// available on this JVM
+		long[] latencies = runBlockingUnits(true, 8, 5);
+		Assert.assertEquals(8 * 5, latencies.length);
+	}
+
+	@Test
+	public void testVirtualThreadExecutor() {
+		Assert.assertEquals(VirtualThreadExecutors.isAvailable(), VirtualThreadExecutors.create("test") != null);
+	}
+
+	@Ignore
+	@Test
+	public void benchmarkBlockingPool() throws Exception {
+		System.out.println("Virtual threads available: " + VirtualThreadExecutors.isAvailable());
+		System.out.println(String.format("%6s %14s %14s %14s %14s", "Units", "Pool p50 (ms)", "Pool p99 (ms)",
+				"Virtual p50", "Virtual p99"));
+		for (int units = 1; units <= 64; units *= 2) {
+			long[] pool = runBlockingUnits(false, units, MESSAGES_PER_UNIT);
+			long[] virtual = runBlockingUnits(true, units, MESSAGES_PER_UNIT);
+			System.out.println(String.format("%6d %14.2f %14.2f %14.2f %14.2f", units, percentile(pool, 50), percentile(pool, 99),
+					percentile(virtual, 50), percentile(virtual, 99)));
+		}
+	}
+
+	private static long[] runBlockingUnits(boolean virtual, int numberOfUnits, int messagesPerUnit) throws Exception {
+		Configuration systemConfig = new ConfigurationBuilder().addInteger(RoboBuilder.KEY_BLOCKING_POOL_SIZE, BLOCKING_POOL_SIZE)
+				.addBoolean(RoboBuilder.KEY_BLOCKING_POOL_VIRTUAL, virtual).build();
+		RoboBuilder builder = new RoboBuilder(systemConfig);
+		CountDownLatch latch = new CountDownLatch(numberOfUnits * messagesPerUnit);
+		List<SleepingUnit> units = new ArrayList<>();
+		for (int i = 0; i < numberOfUnits; i++) {
+			SleepingUnit unit = new SleepingUnit(builder.getContext(), "sleeper" + i, messagesPerUnit, latch);
+			units.add(unit);
+			builder.add(unit);
+		}
+		RoboContext system = builder.build();
+		system.start();
+		List<RoboReference<Long>> references = new ArrayList<>();
+		for (SleepingUnit unit : units) {
+			references.add(system.getReference(unit.getId()));
+		}
+		// Every unit gets a message each blocking period, so with a fixed
+		// pool smaller than the number of units the messages start queuing up
+		for (int i = 0; i < messagesPerUnit; i++) {
+			for (RoboReference<Long> reference : references) {
+				reference.sendMessage(System.nanoTime());
+			}
+			Thread.sleep(BLOCKING_TIME_MILLIS);
+		}
+		Assert.assertTrue(latch.await(60, TimeUnit.SECONDS));
+		system.shutdown();
+
+		long[] latencies = new long[numberOfUnits * messagesPerUnit];
+		int i = 0;
+		for (SleepingUnit unit : units) {
+			System.arraycopy(unit.latencies, 0, latencies, i, messagesPerUnit);
+			i += messagesPerUnit;
+		}
+		return latencies;
+	}
+
+	private static double percentile(long[] values, int percentile) {
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int index = Math.min(sorted.length - 1, (int) Math.ceil(percentile / 100.0 * sorted.length) - 1);
+		return sorted[Math.max(index, 0)] / 1_000_000.0;
+	}
+}
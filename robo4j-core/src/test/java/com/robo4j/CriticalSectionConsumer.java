@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consumer checking that it never gets called concurrently.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@CriticalSectionTrait
+@WorkTrait
+public class CriticalSectionConsumer extends RoboUnit<Integer> {
+	public static final DefaultAttributeDescriptor<Integer> DESCRIPTOR_TOTAL_MESSAGES = DefaultAttributeDescriptor
+			.create(Integer.class, "totalMessages");
+	public static final DefaultAttributeDescriptor<Integer> DESCRIPTOR_OVERLAPS = DefaultAttributeDescriptor.create(Integer.class,
+			"overlaps");
+	private final AtomicBoolean busy = new AtomicBoolean();
+	private final AtomicInteger overlaps = new AtomicInteger();
+	private int lastMessage = -1;
+	private int totalMessages;
+
+	public CriticalSectionConsumer(RoboContext context, String id) {
+		super(Integer.class, context, id);
+	}
+
+	@Override
+	public void onMessage(Integer message) {
+		enter();
+		if (message != lastMessage + 1) {
+			overlaps.incrementAndGet();
+		}
+		lastMessage = message;
+		totalMessages++;
+		Thread.yield();
+		exit();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected <R> R onGetAttribute(AttributeDescriptor<R> descriptor) {
+		enter();
+		try {
+			if (descriptor.getAttributeName().equals(DESCRIPTOR_TOTAL_MESSAGES.getAttributeName())) {
+				return (R) (Integer) totalMessages;
+			}
+			if (descriptor.getAttributeName().equals(DESCRIPTOR_OVERLAPS.getAttributeName())) {
+				return (R) (Integer) overlaps.get();
+			}
+			return null;
+		} finally {
+			exit();
+		}
+	}
+
+	private void enter() {
+		if (!busy.compareAndSet(false, true)) {
+			overlaps.incrementAndGet();
+		}
+	}
+
+	private void exit() {
+		busy.set(false);
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.robo4j.configuration.ConfigurationBuilder;
+import com.robo4j.jfr.JfrSupport;
+import com.robo4j.scheduler.CatchUpPolicy;
+import com.robo4j.scheduler.FixedRateFuture;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Tests that the message dispatch and scheduler tick events are committed.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class JfrEventsTests {
+	private static final String EVENT_DISPATCH = "com.robo4j.MessageDispatch";
+	private static final String EVENT_TICK = "com.robo4j.SchedulerTick";
+
+	@Test
+	public void testEvents() throws Exception {
+		Assume.assumeTrue(JfrSupport.isAvailable());
+		int totalMessages = 10;
+		Path file = Files.createTempFile("robo4j", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(EVENT_DISPATCH);
+			recording.enable(EVENT_TICK);
+			recording.start();
+
+			RoboSystem system = new RoboSystem();
+			StringConsumer consumer = new StringConsumer(system, "consumer");
+			consumer.initialize(new ConfigurationBuilder().addInteger(StringConsumer.PROP_TOTAL_MESSAGES, totalMessages).build());
+			system.addUnits(consumer);
+			system.start();
+			RoboReference<String> ref = system.getReference(consumer.getId());
+			for (int i = 0; i < totalMessages; i++) {
+				ref.sendMessage(String.valueOf(i));
+			}
+			CountDownLatch ticks = new CountDownLatch(3);
+			FixedRateFuture future = system.getScheduler().scheduleAtFixedRate((intended, actual) -> ticks.countDown(), 0, 5,
+					TimeUnit.MILLISECONDS, CatchUpPolicy.SKIP);
+			CountDownLatch latch = ref.getAttribute(StringConsumer.DESCRIPTOR_COUNT_DOWN_LATCH).get();
+			Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+			Assert.assertTrue(ticks.await(10, TimeUnit.SECONDS));
+			future.cancel(false);
+			system.shutdown();
+
+			recording.stop();
+			recording.dump(file);
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			long dispatches = events.stream().filter(e -> e.getEventType().getName().equals(EVENT_DISPATCH))
+					.filter(e -> "consumer".equals(e.getString("unitId"))).count();
+			long tickEvents = events.stream().filter(e -> e.getEventType().getName().equals(EVENT_TICK))
+					.filter(e -> "SKIP".equals(e.getString("catchUpPolicy"))).count();
+			Assert.assertEquals(totalMessages, dispatches);
+			Assert.assertTrue(tickEvents >= 3);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Consumer only interested in the latest readings. The {@link #GATE} message
+ * holds up the consumer until the gate is opened, so that messages can pile up
+ * in its mailbox.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@LatestValueTrait
+@WorkTrait
+public class LatestValueConsumer extends RoboUnit<Integer> {
+	public static final int GATE = -1;
+	private final CountDownLatch gate = new CountDownLatch(1);
+	private final CountDownLatch receivedLatch;
+	private final List<Integer> receivedMessages = Collections.synchronizedList(new ArrayList<>());
+
+	public LatestValueConsumer(RoboContext context, String id, int expectedMessages) {
+		super(Integer.class, context, id);
+		receivedLatch = new CountDownLatch(expectedMessages);
+	}
+
+	@Override
+	public void onMessage(Integer message) {
+		receivedMessages.add(message);
+		if (message == GATE) {
+			try {
+				gate.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		receivedLatch.countDown();
+	}
+
+	public void openGate() {
+		gate.countDown();
+	}
+
+	public CountDownLatch getReceivedLatch() {
+		return receivedLatch;
+	}
+
+	public List<Integer> getReceivedMessages() {
+		return receivedMessages;
+	}
+}
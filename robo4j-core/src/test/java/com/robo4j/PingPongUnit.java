@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Unit answering every message with a burst of messages to its peer, until
+ * the hop count runs out. A negative hop count marks the end of the test.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class PingPongUnit extends RoboUnit<Integer> {
+	public static final int DONE = -1;
+	private final String peerId;
+	private final int burstSize;
+	private final CountDownLatch doneLatch = new CountDownLatch(1);
+
+	public PingPongUnit(RoboContext context, String id, String peerId, int burstSize) {
+		super(Integer.class, context, id);
+		this.peerId = peerId;
+		this.burstSize = burstSize;
+	}
+
+	@Override
+	public void onMessage(Integer hops) {
+		if (hops == DONE) {
+			doneLatch.countDown();
+			return;
+		}
+		if (hops > 0) {
+			RoboReference<Integer> peer = getContext().getReference(peerId);
+			for (int i = 0; i < burstSize; i++) {
+				peer.sendMessage(hops - 1);
+			}
+		}
+	}
+
+	public CountDownLatch getDoneLatch() {
+		return doneLatch;
+	}
+}
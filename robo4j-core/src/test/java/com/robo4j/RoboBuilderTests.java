@@ -146,6 +146,23 @@ public class RoboBuilderTests {
 		system.shutdown();
 	}
 
+	@Test
+	public void testMailboxConfiguration() throws RoboBuilderException, InterruptedException, ExecutionException {
+		RoboBuilder builder = new RoboBuilder(SystemUtil.getInputStreamByResourceName("testMailboxSystem.xml"));
+		builder.add(SystemUtil.getInputStreamByResourceName("testMailboxSystem.xml"));
+		RoboContext system = builder.build();
+		system.start();
+
+		RoboReference<String> producer = system.getReference("producer");
+		RoboReference<String> consumer = system.getReference("consumer");
+		Assert.assertTrue(producer.getKnownAttributes().contains(SystemAttributes.DESCRIPTOR_MAILBOX_DROPPED));
+		Assert.assertEquals(64, (int) producer.getAttribute(SystemAttributes.DESCRIPTOR_MAILBOX_CAPACITY).get());
+		Assert.assertEquals(16, (int) consumer.getAttribute(SystemAttributes.DESCRIPTOR_MAILBOX_CAPACITY).get());
+		Assert.assertEquals(0, (long) consumer.getAttribute(SystemAttributes.DESCRIPTOR_MAILBOX_DROPPED).get());
+
+		system.shutdown();
+	}
+
 	@Test
 	public void testAddingNonUnique() {
 		RoboBuilder builder = new RoboBuilder();
@@ -199,9 +216,11 @@ public class RoboBuilderTests {
 
 		RoboReference<String> producerRef = system.getReference(producerUnitName);
 		Assert.assertNotNull(producerRef);
+		CountDownLatch producerLatch = producerRef.getAttribute(StringProducer.DESCRIPTOR_COUNT_DOWN_LATCH).get();
 		for (int i = 0; i < numberOfMessages; i++) {
 			producerRef.sendMessage(StringProducer.PROPERTY_SEND_RANDOM_MESSAGE);
 		}
+		producerLatch.await(20, TimeUnit.SECONDS);
 		final int producerTotalSentMessages = producerRef.getAttribute(StringProducer.DESCRIPTOR_TOTAL_MESSAGES).get();
 		Assert.assertEquals(numberOfMessages, producerTotalSentMessages);
 
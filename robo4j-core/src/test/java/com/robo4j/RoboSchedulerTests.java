@@ -16,18 +16,32 @@
  */
 package com.robo4j;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import com.robo4j.LifecycleState;
 import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
+import com.robo4j.configuration.ConfigurationBuilder;
+import com.robo4j.metrics.LatencyHistogram;
+import com.robo4j.scheduler.CatchUpPolicy;
+import com.robo4j.scheduler.DefaultScheduler;
 import com.robo4j.scheduler.FinalInvocationListener;
+import com.robo4j.scheduler.FixedRateFuture;
+import com.robo4j.scheduler.HashedWheelScheduler;
 import com.robo4j.scheduler.Scheduler;
 
 /**
@@ -37,6 +51,9 @@ import com.robo4j.scheduler.Scheduler;
  * @author Miroslav Wengner (@miragemiko)
  */
 public class RoboSchedulerTests {
+	private static final long CATCH_UP_PERIOD_MILLIS = 10;
+	private static final long SLOW_TICK_MILLIS = 35;
+
 	private static class SchedulerListener implements FinalInvocationListener {
 		volatile boolean wasFinalCalled;
 
@@ -46,10 +63,28 @@ public class RoboSchedulerTests {
 		}
 	}
 
+	private static class SlowFirstTickRun {
+		final List<Long> intendedTimes;
+		final LatencyHistogram.Snapshot histogram;
+
+		SlowFirstTickRun(List<Long> intendedTimes, LatencyHistogram.Snapshot histogram) {
+			this.intendedTimes = intendedTimes;
+			this.histogram = histogram;
+		}
+	}
+
 	@Test
 	public void testScheduler() throws InterruptedException, ExecutionException {
+		runScheduler(new RoboSystem());
+	}
+
+	@Test
+	public void testWheelScheduler() throws InterruptedException, ExecutionException {
+		runScheduler(createWheelSystem());
+	}
+
+	private void runScheduler(RoboSystem system) throws InterruptedException, ExecutionException {
 		// FIXME: 20.08.17 (miro,marcus): when notification implemented, correct the test
-		RoboSystem system = new RoboSystem();
 		StringConsumer consumer = new StringConsumer(system, "consumer");
 		system.addUnits(consumer);
 		consumer.setState(LifecycleState.STARTED);
@@ -72,7 +107,15 @@ public class RoboSchedulerTests {
 
 	@Test
 	public void testSchedulerWithPressureAndMultipleTasks() throws InterruptedException, ExecutionException {
-		RoboSystem system = new RoboSystem();
+		runSchedulerWithPressureAndMultipleTasks(new RoboSystem());
+	}
+
+	@Test
+	public void testWheelSchedulerWithPressureAndMultipleTasks() throws InterruptedException, ExecutionException {
+		runSchedulerWithPressureAndMultipleTasks(createWheelSystem());
+	}
+
+	private void runSchedulerWithPressureAndMultipleTasks(RoboSystem system) throws InterruptedException, ExecutionException {
 		StringConsumer consumer = new StringConsumer(system, "consumer");
 		system.addUnits(consumer);
 
@@ -89,6 +132,269 @@ public class RoboSchedulerTests {
 		system.shutdown();
 	}
 
+	@Test
+	public void testWheelSchedulerDelayAndCancel() throws Exception {
+		HashedWheelScheduler scheduler = new HashedWheelScheduler(null);
+		CountDownLatch latch = new CountDownLatch(1);
+		long start = System.nanoTime();
+		scheduler.schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+		Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+		Assert.assertTrue("Ran early", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+		AtomicInteger counter = new AtomicInteger();
+		ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(counter::incrementAndGet, 0, 5, TimeUnit.MILLISECONDS);
+		Thread.sleep(100);
+		Assert.assertTrue(future.cancel(false));
+		int count = counter.get();
+		Assert.assertTrue(count > 0);
+		Thread.sleep(50);
+		Assert.assertTrue(counter.get() <= count + 1);
+		Assert.assertTrue(future.isCancelled());
+
+		ScheduledFuture<?> failing = scheduler.scheduleAtFixedRate(() -> {
+			throw new IllegalStateException("Failing");
+		}, 0, 5, TimeUnit.MILLISECONDS);
+		try {
+			failing.get(1, TimeUnit.SECONDS);
+			Assert.fail("Expected the task to fail");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testWheelSchedulerCancelWhileRunning() throws Exception {
+		HashedWheelScheduler scheduler = new HashedWheelScheduler(null);
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(() -> {
+			running.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			throw new IllegalStateException("Failing after the cancel");
+		}, 0, 5, TimeUnit.MILLISECONDS);
+		Assert.assertTrue(running.await(1, TimeUnit.SECONDS));
+		Assert.assertTrue(future.cancel(false));
+		release.countDown();
+		Thread.sleep(50);
+		// Whatever happens at the end of the run, the cancel stands
+		Assert.assertTrue(future.isCancelled());
+		try {
+			future.get();
+			Assert.fail("Expected the task to be cancelled");
+		} catch (CancellationException e) {
+			// Expected
+		}
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testWheelSchedulerParksWhenIdle() throws Exception {
+		List<Thread> timersBefore = getWheelTimerThreads();
+		HashedWheelScheduler scheduler = new HashedWheelScheduler(null);
+		List<Thread> timers = getWheelTimerThreads();
+		timers.removeAll(timersBefore);
+		Assert.assertEquals(1, timers.size());
+		Thread timer = timers.get(0);
+
+		// Without tasks, the timer waits without a timeout instead of ticking
+		awaitThreadState(timer, Thread.State.WAITING);
+
+		CountDownLatch latch = new CountDownLatch(1);
+		long start = System.nanoTime();
+		scheduler.schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+		Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+		Assert.assertTrue("Ran early", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+		awaitThreadState(timer, Thread.State.WAITING);
+
+		scheduler.shutdown();
+		Assert.assertFalse(timer.isAlive());
+	}
+
+	private static List<Thread> getWheelTimerThreads() {
+		List<Thread> result = new ArrayList<>();
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if ("Robo4J Scheduler Timer".equals(thread.getName())) {
+				result.add(thread);
+			}
+		}
+		return result;
+	}
+
+	private static void awaitThreadState(Thread thread, Thread.State state) throws InterruptedException {
+		for (int i = 0; i < 100 && thread.getState() != state; i++) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(state, thread.getState());
+	}
+
+	@Test
+	public void testFixedRateCatchUpPolicies() throws Exception {
+		runFixedRateCatchUpPolicies(new DefaultScheduler(null));
+	}
+
+	@Test
+	public void testWheelFixedRateCatchUpPolicies() throws Exception {
+		runFixedRateCatchUpPolicies(new HashedWheelScheduler(null));
+	}
+
+	private void runFixedRateCatchUpPolicies(Scheduler scheduler) throws Exception {
+		long period = TimeUnit.MILLISECONDS.toNanos(CATCH_UP_PERIOD_MILLIS);
+		// The first tick ends no sooner than 35 ms after it was due, so the
+		// ticks at 10, 20 and 30 ms are missed
+		long minLateness = TimeUnit.MILLISECONDS.toNanos(SLOW_TICK_MILLIS) - 3 * period;
+
+		SlowFirstTickRun run = runSlowFirstTick(scheduler, CatchUpPolicy.BURST);
+		for (int i = 1; i < run.intendedTimes.size(); i++) {
+			Assert.assertEquals(i * period, run.intendedTimes.get(i) - run.intendedTimes.get(0));
+		}
+		Assert.assertEquals(0, run.histogram.getSkippedCount());
+		Assert.assertTrue(run.histogram.getMax() >= minLateness);
+
+		// All the missed ticks are skipped, the next one is at 40 ms or later
+		run = runSlowFirstTick(scheduler, CatchUpPolicy.SKIP);
+		assertOnSchedule(run.intendedTimes, period);
+		Assert.assertTrue(run.intendedTimes.get(1) - run.intendedTimes.get(0) >= 4 * period);
+		Assert.assertTrue(run.histogram.getSkippedCount() >= 3);
+
+		// ...and for compress, the latest missed, at 30 ms or later, is run late
+		run = runSlowFirstTick(scheduler, CatchUpPolicy.COMPRESS);
+		assertOnSchedule(run.intendedTimes, period);
+		Assert.assertTrue(run.intendedTimes.get(1) - run.intendedTimes.get(0) >= 3 * period);
+		Assert.assertTrue(run.histogram.getSkippedCount() >= 2);
+		Assert.assertTrue(run.histogram.getMax() >= minLateness);
+
+		FixedRateFuture failing = scheduler.scheduleAtFixedRate((intended, actual) -> {
+			throw new IllegalStateException("Failing");
+		}, 0, 5, TimeUnit.MILLISECONDS, CatchUpPolicy.SKIP);
+		try {
+			failing.get(10, TimeUnit.SECONDS);
+			Assert.fail("Expected the task to fail");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		Assert.assertEquals(1, failing.getLatenessHistogram().snapshot().getCount());
+		scheduler.shutdown();
+	}
+
+	/**
+	 * Runs ticks until four have run. The first tick runs until 35 ms after it
+	 * was due, however late it fired.
+	 */
+	private static SlowFirstTickRun runSlowFirstTick(Scheduler scheduler, CatchUpPolicy policy) throws Exception {
+		List<Long> intendedTimes = new ArrayList<>();
+		AtomicInteger earlyTicks = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(4);
+		FixedRateFuture future = scheduler.scheduleAtFixedRate((intended, actual) -> {
+			if (actual < intended) {
+				earlyTicks.incrementAndGet();
+			}
+			int tick;
+			synchronized (intendedTimes) {
+				intendedTimes.add(intended);
+				tick = intendedTimes.size();
+			}
+			if (tick == 1) {
+				waitUntil(intended + TimeUnit.MILLISECONDS.toNanos(SLOW_TICK_MILLIS));
+			}
+			latch.countDown();
+		}, 0, CATCH_UP_PERIOD_MILLIS, TimeUnit.MILLISECONDS, policy);
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(future.cancel(false));
+		Assert.assertTrue(future.isCancelled());
+		Assert.assertEquals("Fired early", 0, earlyTicks.get());
+		Assert.assertTrue(future.getLatenessHistogram().snapshot().getCount() >= 4);
+		synchronized (intendedTimes) {
+			return new SlowFirstTickRun(new ArrayList<>(intendedTimes.subList(0, 4)), future.getLatenessHistogram().snapshot());
+		}
+	}
+
+	private static void assertOnSchedule(List<Long> intendedTimes, long period) {
+		for (int i = 1; i < intendedTimes.size(); i++) {
+			long step = intendedTimes.get(i) - intendedTimes.get(i - 1);
+			Assert.assertTrue("Not a positive step: " + step, step > 0);
+			Assert.assertEquals("Drifted from the schedule", 0, step % period);
+		}
+	}
+
+	private static void waitUntil(long nanoTime) {
+		long remaining;
+		while ((remaining = nanoTime - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(remaining);
+		}
+	}
+
+	/**
+	 * Compares the jitter and throughput of the schedulers for many periodic
+	 * tasks. Run manually.
+	 */
+	@Ignore
+	@Test
+	public void benchmarkSchedulers() throws InterruptedException {
+		for (int numberOfTasks : new int[] { 100, 1000, 10000 }) {
+			benchmarkScheduler("DefaultScheduler", new DefaultScheduler(null), numberOfTasks);
+			benchmarkScheduler("HashedWheelScheduler", new HashedWheelScheduler(null), numberOfTasks);
+		}
+	}
+
+	private void benchmarkScheduler(String name, Scheduler scheduler, int numberOfTasks) throws InterruptedException {
+		final long periodMillis = 10;
+		final long durationMillis = 3000;
+		final int maxRuns = (int) (durationMillis / periodMillis) + 2;
+		long[][] lateness = new long[numberOfTasks][maxRuns];
+		int[] runs = new int[numberOfTasks];
+		long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+		List<ScheduledFuture<?>> futures = new ArrayList<>(numberOfTasks);
+		for (int i = 0; i < numberOfTasks; i++) {
+			final int task = i;
+			// Spread the tasks over the period
+			long delay = start - System.nanoTime() + i * TimeUnit.MILLISECONDS.toNanos(periodMillis) / numberOfTasks;
+			long firstRun = System.nanoTime() + delay;
+			futures.add(scheduler.scheduleAtFixedRate(() -> {
+				int run = runs[task];
+				if (run < maxRuns) {
+					lateness[task][run] = System.nanoTime() - (firstRun + run * TimeUnit.MILLISECONDS.toNanos(periodMillis));
+					runs[task] = run + 1;
+				}
+			}, delay, TimeUnit.MILLISECONDS.toNanos(periodMillis), TimeUnit.NANOSECONDS));
+		}
+		Thread.sleep(durationMillis);
+		futures.forEach(future -> future.cancel(false));
+		scheduler.shutdown();
+
+		int total = 0;
+		for (int count : runs) {
+			total += count;
+		}
+		long[] all = new long[total];
+		int index = 0;
+		for (int i = 0; i < numberOfTasks; i++) {
+			System.arraycopy(lateness[i], 0, all, index, runs[i]);
+			index += runs[i];
+		}
+		Arrays.sort(all);
+		long sum = 0;
+		for (long late : all) {
+			sum += late;
+		}
+		System.out.println(String.format("%-20s tasks: %5d runs/s: %8.0f lateness us mean: %6d p50: %6d p99: %6d max: %6d", name,
+				numberOfTasks, total * 1000.0 / durationMillis, sum / Math.max(1, total) / 1000, percentile(all, 0.5) / 1000,
+				percentile(all, 0.99) / 1000, total == 0 ? 0 : all[total - 1] / 1000));
+	}
+
+	private static long percentile(long[] sorted, double percentile) {
+		return sorted.length == 0 ? 0 : sorted[(int) (percentile * (sorted.length - 1))];
+	}
+
+	private RoboSystem createWheelSystem() {
+		return new RoboSystem(UUID.randomUUID().toString(),
+				new ConfigurationBuilder().addBoolean(RoboBuilder.KEY_SCHEDULER_WHEEL, true).build());
+	}
+
 	private void get(ScheduledFuture<?> f) throws InterruptedException, ExecutionException {
 		try {
 			f.get();
@@ -16,11 +16,21 @@
  */
 package com.robo4j;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.robo4j.configuration.Configuration;
 import com.robo4j.configuration.ConfigurationBuilder;
+import com.robo4j.metrics.UnitMetrics;
 
 /**
  * Test(s) for the RoboUnits.
@@ -51,6 +61,154 @@ public class RoboUnitTests {
 		Assert.assertEquals(totalMessages, consumer.getReceivedMessages().size());
 	}
 
+	@Test
+	public void testMailboxDeliveryOrder() throws Exception {
+		int totalMessages = 1000;
+		Configuration systemConfig = new ConfigurationBuilder().addInteger(RoboBuilder.KEY_MAILBOX_CAPACITY, 8)
+				.addInteger(RoboBuilder.KEY_MAILBOX_BATCH_SIZE, 4)
+				.addString(RoboBuilder.KEY_MAILBOX_OVERFLOW_POLICY, OverflowPolicy.BLOCK.name()).build();
+		RoboSystem system = new RoboSystem(systemConfig);
+		StringConsumer consumer = new StringConsumer(system, "consumer");
+		consumer.initialize(new ConfigurationBuilder().addInteger(StringConsumer.PROP_TOTAL_MESSAGES, totalMessages).build());
+		system.addUnits(consumer);
+		system.start();
+		RoboReference<String> ref = system.getReference(consumer.getId());
+		for (int i = 0; i < totalMessages; i++) {
+			ref.sendMessage(String.valueOf(i));
+		}
+		CountDownLatch latch = ref.getAttribute(StringConsumer.DESCRIPTOR_COUNT_DOWN_LATCH).get();
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		system.shutdown();
+		List<String> received = consumer.getReceivedMessages();
+		Assert.assertEquals(totalMessages, received.size());
+		for (int i = 0; i < totalMessages; i++) {
+			Assert.assertEquals(String.valueOf(i), received.get(i));
+		}
+	}
+
+	@Test
+	public void testUnitsFloodingEachOther() throws Exception {
+		assertNoDeadlock(new ConfigurationBuilder().addInteger(RoboBuilder.KEY_MAILBOX_CAPACITY, 4).build());
+		assertNoDeadlock(new ConfigurationBuilder().addInteger(RoboBuilder.KEY_MAILBOX_CAPACITY, 4)
+				.addString(RoboBuilder.KEY_MAILBOX_OVERFLOW_POLICY, OverflowPolicy.BLOCK.name()).build());
+	}
+
+	private static void assertNoDeadlock(Configuration systemConfig) throws Exception {
+		// Both units are drained by the default pool, and keep filling up
+		// each other's mailboxes
+		RoboSystem system = new RoboSystem(systemConfig);
+		PingPongUnit ping = new PingPongUnit(system, "ping", "pong", 32);
+		PingPongUnit pong = new PingPongUnit(system, "pong", "ping", 32);
+		system.addUnits(ping, pong);
+		system.start();
+		RoboReference<Integer> pingRef = system.getReference(ping.getId());
+		RoboReference<Integer> pongRef = system.getReference(pong.getId());
+		pingRef.sendMessage(3);
+		pongRef.sendMessage(3);
+
+		// Sent from a thread of its own, since this sender waits for room
+		// when blocking, which would never come if the pool was stuck
+		CompletableFuture.runAsync(() -> {
+			pingRef.sendMessage(PingPongUnit.DONE);
+			pongRef.sendMessage(PingPongUnit.DONE);
+		});
+		Assert.assertTrue(ping.getDoneLatch().await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(pong.getDoneLatch().await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(pingRef.getAttribute(SystemAttributes.DESCRIPTOR_MAILBOX_DROPPED).get() > 0);
+		Assert.assertTrue(pongRef.getAttribute(SystemAttributes.DESCRIPTOR_MAILBOX_DROPPED).get() > 0);
+		system.shutdown();
+	}
+
+	@Test
+	public void testLatestValueFromScheduledSenders() throws Exception {
+		int totalReadings = 10;
+		RoboSystem system = new RoboSystem();
+		LatestValueConsumer consumer = new LatestValueConsumer(system, "consumer", 3);
+		ScheduledSender first = new ScheduledSender(system, "first", consumer.getId(), totalReadings);
+		ScheduledSender second = new ScheduledSender(system, "second", consumer.getId(), totalReadings);
+		system.addUnits(consumer, first, second);
+		system.start();
+		// Hold up the consumer, so that the readings pile up in its mailbox
+		system.getReference(consumer.getId()).sendMessage(LatestValueConsumer.GATE);
+		system.getReference(first.getId()).sendMessage("start");
+		system.getReference(second.getId()).sendMessage("start");
+		Assert.assertTrue(first.getDoneLatch().await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(second.getDoneLatch().await(10, TimeUnit.SECONDS));
+
+		consumer.openGate();
+		Assert.assertTrue(consumer.getReceivedLatch().await(10, TimeUnit.SECONDS));
+		system.shutdown();
+		// The latest reading of each sender, even though both send the same
+		// type of message from the scheduler threads
+		Assert.assertEquals(Arrays.asList(LatestValueConsumer.GATE, totalReadings - 1, totalReadings - 1),
+				consumer.getReceivedMessages());
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		int totalMessages = 1000;
+		RoboSystem system = new RoboSystem(new ConfigurationBuilder().addBoolean(RoboBuilder.KEY_METRICS, true).build());
+		StringConsumer consumer = new StringConsumer(system, "consumer");
+		consumer.initialize(new ConfigurationBuilder().addInteger(StringConsumer.PROP_TOTAL_MESSAGES, totalMessages).build());
+		StringConsumer unmeasured = new StringConsumer(system, "unmeasured");
+		unmeasured.initialize(new ConfigurationBuilder().addBoolean(RoboBuilder.KEY_METRICS, false).build());
+		system.addUnits(consumer, unmeasured);
+		system.start();
+		RoboReference<String> ref = system.getReference(consumer.getId());
+		for (int i = 0; i < totalMessages; i++) {
+			ref.sendMessage(String.valueOf(i));
+		}
+		CountDownLatch latch = ref.getAttribute(StringConsumer.DESCRIPTOR_COUNT_DOWN_LATCH).get();
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		// The last delivery is recorded after the unit is done with it
+		system.shutdown();
+
+		Assert.assertTrue(ref.getKnownAttributes().contains(SystemAttributes.DESCRIPTOR_METRICS));
+		UnitMetrics metrics = ref.getAttribute(SystemAttributes.DESCRIPTOR_METRICS).get();
+		Assert.assertEquals(totalMessages, metrics.getReceived());
+		Assert.assertEquals(totalMessages, metrics.getProcessed());
+		Assert.assertEquals(totalMessages, metrics.getQueueWait().getCount());
+		Assert.assertEquals(totalMessages, metrics.getProcessingTime().getCount());
+		Assert.assertTrue(metrics.getMaxQueueDepth() > 0);
+		Assert.assertTrue(metrics.getThroughput() > 0);
+
+		RoboReference<String> unmeasuredRef = system.getReference(unmeasured.getId());
+		Assert.assertFalse(unmeasuredRef.getKnownAttributes().contains(SystemAttributes.DESCRIPTOR_METRICS));
+		Assert.assertNull(unmeasuredRef.getAttribute(SystemAttributes.DESCRIPTOR_METRICS).get());
+
+		Map<String, UnitMetrics> snapshot = system.getMetrics();
+		Assert.assertEquals(1, snapshot.size());
+		Assert.assertEquals(totalMessages, snapshot.get(consumer.getId()).getProcessed());
+	}
+
+	@Test
+	public void testCriticalSectionUnits() throws Exception {
+		int totalUnits = 200;
+		int totalMessages = 50;
+		RoboSystem system = new RoboSystem("criticalSystem", 2, 4, 2);
+		List<CriticalSectionConsumer> consumers = new ArrayList<>();
+		for (int i = 0; i < totalUnits; i++) {
+			consumers.add(new CriticalSectionConsumer(system, "consumer" + i));
+		}
+		system.addUnits(consumers.toArray(new RoboUnit<?>[totalUnits]));
+		system.start();
+		List<Future<Integer>> attributeReads = new ArrayList<>();
+		for (int i = 0; i < totalMessages; i++) {
+			for (CriticalSectionConsumer consumer : consumers) {
+				consumer.sendMessage(i);
+				attributeReads.add(consumer.getAttribute(CriticalSectionConsumer.DESCRIPTOR_TOTAL_MESSAGES));
+			}
+		}
+		for (Future<Integer> attributeRead : attributeReads) {
+			attributeRead.get(10, TimeUnit.SECONDS);
+		}
+		for (CriticalSectionConsumer consumer : consumers) {
+			Assert.assertEquals(totalMessages, (int) consumer.getAttribute(CriticalSectionConsumer.DESCRIPTOR_TOTAL_MESSAGES).get());
+			Assert.assertEquals(0, (int) consumer.getAttribute(CriticalSectionConsumer.DESCRIPTOR_OVERLAPS).get());
+		}
+		system.shutdown();
+	}
+
 	@Test
 	public void testReferences() throws Exception {
 		RoboSystem system = new RoboSystem();
@@ -69,4 +227,37 @@ public class RoboUnitTests {
 		system.shutdown();
 		Assert.assertEquals(2, consumer.getReceivedMessages().size());
 	}
+
+	@Test
+	public void testInternedReferences() throws Exception {
+		RoboSystem system = new RoboSystem();
+		StringConsumer consumer = new StringConsumer(system, "consumer");
+		RoboReference<String> constructorReference = consumer.internalGetReference();
+		system.addUnits(consumer);
+
+		Assert.assertSame(constructorReference, system.getReference(consumer.getId()));
+		Assert.assertSame(constructorReference, system.getReference(consumer));
+		Assert.assertSame(constructorReference, system.getUnits().iterator().next());
+		Assert.assertNull(system.getReference("missing"));
+		system.shutdown();
+	}
+
+	@Test
+	public void testReferenceHandle() throws Exception {
+		RoboSystem system = new RoboSystem();
+		ReferenceHandle<String> missing = system.getReferenceHandle("consumer");
+		Assert.assertNull(missing.get());
+		Assert.assertFalse(missing.sendMessage("Lost"));
+
+		StringConsumer consumer = new StringConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+		ReferenceHandle<String> handle = system.getReferenceHandle("consumer");
+		Assert.assertSame(system.getReference("consumer"), handle.get());
+		Assert.assertTrue(handle.sendMessage("Lalala"));
+		// Resolves on the next use once the unit is there
+		Assert.assertTrue(missing.sendMessage("Lalala"));
+		system.shutdown();
+		Assert.assertEquals(2, consumer.getReceivedMessages().size());
+	}
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Periodically sends readings to a target, like a sensor unit would, from a
+ * task scheduled when it gets a message.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class ScheduledSender extends RoboUnit<Object> {
+	private final String targetId;
+	private final int totalReadings;
+	private final AtomicInteger readings = new AtomicInteger();
+	private final CountDownLatch doneLatch = new CountDownLatch(1);
+	private volatile ScheduledFuture<?> future;
+
+	public ScheduledSender(RoboContext context, String id, String targetId, int totalReadings) {
+		super(Object.class, context, id);
+		this.targetId = targetId;
+		this.totalReadings = totalReadings;
+	}
+
+	@Override
+	public void onMessage(Object message) {
+		RoboReference<Integer> target = getContext().getReference(targetId);
+		future = getContext().getScheduler().scheduleAtFixedRate(() -> {
+			int reading = readings.getAndIncrement();
+			if (reading < totalReadings) {
+				target.sendMessage(reading);
+				if (reading == totalReadings - 1) {
+					doneLatch.countDown();
+				}
+			} else if (future != null) {
+				future.cancel(false);
+			}
+		}, 0, 1, TimeUnit.MILLISECONDS);
+	}
+
+	public CountDownLatch getDoneLatch() {
+		return doneLatch;
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.robo4j.configuration.Configuration;
+import com.robo4j.configuration.ConfigurationBuilder;
+import com.robo4j.util.SystemUtil;
+
+/**
+ * Tests for the dependency aware life cycle of the units in a system.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class UnitLifecycleTests {
+
+	private static class LifecycleUnit extends RoboUnit<Object> {
+		private final List<String> events;
+		private final CountDownLatch startLatch;
+		private final int startDelay;
+		private volatile boolean startedConcurrently;
+
+		LifecycleUnit(RoboContext context, String id, List<String> events, CountDownLatch startLatch, int startDelay) {
+			super(Object.class, context, id);
+			this.events = events;
+			this.startLatch = startLatch;
+			this.startDelay = startDelay;
+		}
+
+		@Override
+		public void start() {
+			if (startDelay < 0) {
+				throw new IllegalStateException("Failing on purpose");
+			}
+			SystemUtil.sleep(startDelay);
+			if (startLatch != null) {
+				startLatch.countDown();
+				try {
+					startedConcurrently = startLatch.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			events.add("start " + getId());
+		}
+
+		@Override
+		public void stop() {
+			events.add("stop " + getId());
+		}
+
+		@Override
+		public void shutdown() {
+			events.add("shutdown " + getId());
+		}
+	}
+
+	@Test
+	public void testDependencyOrder() throws Exception {
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+		RoboSystem system = new RoboSystem();
+		LifecycleUnit database = createUnit(system, "database", null, events, null, 100);
+		LifecycleUnit server = createUnit(system, "server", "database", events, null, 0);
+		LifecycleUnit client = createUnit(system, "client", "server, database", events, null, 0);
+		system.addUnits(client, server, database);
+		system.start();
+		Assert.assertEquals(LifecycleState.STARTED, client.getState());
+		system.shutdown();
+
+		Assert.assertEquals(Arrays.asList("start database", "start server", "start client", "stop client", "stop server", "stop database",
+				"shutdown client", "shutdown server", "shutdown database"), events);
+		Assert.assertEquals(LifecycleState.SHUTDOWN, database.getState());
+	}
+
+	@Test
+	public void testIndependentUnitsStartConcurrently() throws Exception {
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch startLatch = new CountDownLatch(2);
+		RoboSystem system = new RoboSystem(new ConfigurationBuilder().addBoolean(RoboBuilder.KEY_LIFECYCLE_PARALLEL, true).build());
+		LifecycleUnit first = createUnit(system, "first", null, events, startLatch, 0);
+		LifecycleUnit second = createUnit(system, "second", null, events, startLatch, 0);
+		system.addUnits(first, second);
+		system.start();
+		system.shutdown();
+
+		Assert.assertTrue(first.startedConcurrently);
+		Assert.assertTrue(second.startedConcurrently);
+	}
+
+	@Test
+	public void testSequentialLifecycle() throws Exception {
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+		RoboSystem system = new RoboSystem();
+		LifecycleUnit first = createUnit(system, "first", null, events, null, 0);
+		LifecycleUnit second = createUnit(system, "second", "first", events, null, 0);
+		system.addUnits(first, second);
+		system.start();
+		system.shutdown();
+
+		Assert.assertEquals(Arrays.asList("start first", "start second", "stop second", "stop first", "shutdown second", "shutdown first"),
+				events);
+	}
+
+	@Test
+	public void testFailedDependency() throws Exception {
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+		RoboSystem system = new RoboSystem();
+		LifecycleUnit failing = createUnit(system, "failing", null, events, null, -1);
+		LifecycleUnit dependent = createUnit(system, "dependent", "failing", events, null, 0);
+		LifecycleUnit independent = createUnit(system, "independent", null, events, null, 0);
+		system.addUnits(failing, dependent, independent);
+		system.start();
+
+		Assert.assertEquals(LifecycleState.STARTED, system.getState());
+		Assert.assertEquals(LifecycleState.FAILED, failing.getState());
+		Assert.assertEquals(LifecycleState.FAILED, dependent.getState());
+		Assert.assertEquals(LifecycleState.STARTED, independent.getState());
+		Assert.assertEquals(Collections.singletonList("start independent"), events);
+		system.shutdown();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCircularDependencies() throws Exception {
+		RoboSystem system = new RoboSystem();
+		List<String> events = new ArrayList<>();
+		system.addUnits(createUnit(system, "first", "second", events, null, 0), createUnit(system, "second", "first", events, null, 0));
+		system.start();
+	}
+
+	private static LifecycleUnit createUnit(RoboContext context, String id, String dependsOn, List<String> events, CountDownLatch startLatch,
+			int startDelay) throws ConfigurationException {
+		LifecycleUnit unit = new LifecycleUnit(context, id, events, startLatch, startDelay);
+		ConfigurationBuilder builder = new ConfigurationBuilder();
+		if (dependsOn != null) {
+			builder.addString(RoboBuilder.KEY_DEPENDS_ON, dependsOn);
+		}
+		Configuration configuration = builder.build();
+		unit.initialize(configuration);
+		return unit;
+	}
+}
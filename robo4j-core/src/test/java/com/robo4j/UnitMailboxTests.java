@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.robo4j.metrics.UnitMetrics;
+
+/**
+ * Test(s) for the unit mailboxes. Drains are run manually, to be able to fill
+ * up the mailboxes.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class UnitMailboxTests {
+	private static final int CAPACITY = 4;
+	private static final int MESSAGES = 10;
+
+	private static class ManualExecutor implements Executor {
+		private final Deque<Runnable> tasks = new ArrayDeque<>();
+		private int executedTasks;
+
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		void runAll() {
+			while (!tasks.isEmpty()) {
+				tasks.poll().run();
+				executedTasks++;
+			}
+		}
+	}
+
+	@Test
+	public void testBatchedDrain() {
+		ManualExecutor executor = new ManualExecutor();
+		StringConsumer consumer = createConsumer();
+		UnitMailbox<String> mailbox = new UnitMailbox<>(consumer, executor, 16, 2, OverflowPolicy.BLOCK);
+		sendMessages(mailbox);
+		Assert.assertEquals(MESSAGES, mailbox.size());
+
+		executor.runAll();
+		Assert.assertEquals(MESSAGES / 2, executor.executedTasks);
+		Assert.assertEquals(Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"), consumer.getReceivedMessages());
+		Assert.assertEquals(0, mailbox.getDroppedCount());
+	}
+
+	@Test
+	public void testDropNewest() {
+		ManualExecutor executor = new ManualExecutor();
+		StringConsumer consumer = createConsumer();
+		UnitMailbox<String> mailbox = new UnitMailbox<>(consumer, executor, CAPACITY, 16, OverflowPolicy.DROP_NEWEST);
+		sendMessages(mailbox);
+
+		executor.runAll();
+		Assert.assertEquals(Arrays.asList("0", "1", "2", "3"), consumer.getReceivedMessages());
+		Assert.assertEquals(MESSAGES - CAPACITY, mailbox.getDroppedCount());
+	}
+
+	@Test
+	public void testDropOldest() {
+		ManualExecutor executor = new ManualExecutor();
+		StringConsumer consumer = createConsumer();
+		UnitMailbox<String> mailbox = new UnitMailbox<>(consumer, executor, CAPACITY, 16, OverflowPolicy.DROP_OLDEST);
+		sendMessages(mailbox);
+
+		executor.runAll();
+		Assert.assertEquals(Arrays.asList("6", "7", "8", "9"), consumer.getReceivedMessages());
+		Assert.assertEquals(MESSAGES - CAPACITY, mailbox.getDroppedCount());
+	}
+
+	@Test
+	public void testCoalesce() {
+		ManualExecutor executor = new ManualExecutor();
+		StringConsumer consumer = createConsumer();
+		UnitMailbox<String> mailbox = new UnitMailbox<>(consumer, executor, CAPACITY, 16, OverflowPolicy.COALESCE);
+		sendMessages(mailbox);
+		Assert.assertEquals(1, mailbox.size());
+
+		executor.runAll();
+		Assert.assertEquals(Arrays.asList("9"), consumer.getReceivedMessages());
+		Assert.assertEquals(MESSAGES - 1, mailbox.getCoalescedCount());
+		Assert.assertEquals(0, mailbox.getDroppedCount());
+
+		mailbox.offer("10");
+		executor.runAll();
+		Assert.assertEquals(Arrays.asList("9", "10"), consumer.getReceivedMessages());
+	}
+
+	@Test
+	public void testCoalesceWithMetrics() {
+		ManualExecutor executor = new ManualExecutor();
+		StringConsumer consumer = createConsumer();
+		UnitMailbox<String> mailbox = new UnitMailbox<>(consumer, executor, CAPACITY, 16, OverflowPolicy.COALESCE,
+				new UnitMetricsRecorder());
+		sendMessages(mailbox);
+		Assert.assertEquals(1, mailbox.size());
+
+		executor.runAll();
+		Assert.assertEquals(Arrays.asList("9"), consumer.getReceivedMessages());
+		UnitMetrics metrics = mailbox.getMetrics();
+		Assert.assertEquals(MESSAGES, metrics.getReceived());
+		Assert.assertEquals(1, metrics.getProcessed());
+		Assert.assertEquals(1, metrics.getMaxQueueDepth());
+		Assert.assertEquals(0, metrics.getQueueDepth());
+		Assert.assertNull(new UnitMailbox<>(consumer, executor, CAPACITY, 16, OverflowPolicy.BLOCK).getMetrics());
+	}
+
+	@Test
+	public void testLatestValuePerSender() {
+		ManualExecutor executor = new ManualExecutor();
+		StringConsumer consumer = createConsumer();
+		UnitMailbox<String> mailbox = UnitMailbox.createLatestValueMailbox(consumer, executor, CAPACITY, 16, null);
+		UnitMailbox<String> firstSender = new UnitMailbox<>(new ForwardingUnit("first", mailbox), executor, 16, 16,
+				OverflowPolicy.BLOCK);
+		UnitMailbox<String> secondSender = new UnitMailbox<>(new ForwardingUnit("second", mailbox), executor, 16, 16,
+				OverflowPolicy.BLOCK);
+		sendMessages(firstSender);
+		sendMessages(secondSender);
+
+		// Run the senders only, the consumer drain is queued last
+		executor.tasks.poll().run();
+		executor.tasks.poll().run();
+		Assert.assertEquals(2, mailbox.size());
+
+		executor.runAll();
+		Assert.assertEquals(Arrays.asList("9", "9"), consumer.getReceivedMessages());
+		Assert.assertEquals(2 * (MESSAGES - 1), mailbox.getCoalescedCount());
+	}
+
+	@Test
+	public void testConcurrentCoalesceOnFullMailbox() throws Exception {
+		int senders = 4;
+		int messagesPerSender = 20000;
+		ManualExecutor executor = new ManualExecutor();
+		KeyedConsumer consumer = new KeyedConsumer();
+		UnitMailbox<String> mailbox = new UnitMailbox<>(consumer, executor, CAPACITY, 16, OverflowPolicy.COALESCE);
+		// Full of other keys, so that no message for the contended key can
+		// get in
+		for (int i = 0; i < CAPACITY; i++) {
+			Assert.assertTrue(mailbox.offer("filler" + i + ":" + i));
+		}
+
+		Set<String> accepted = ConcurrentHashMap.newKeySet();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < senders; i++) {
+			String prefix = "contended:" + i + "-";
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int j = 0; j < messagesPerSender; j++) {
+					String message = prefix + j;
+					if (mailbox.offer(message)) {
+						accepted.add(message);
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		executor.runAll();
+		long delivered = consumer.getReceivedMessages().stream().filter(m -> m.startsWith("contended:")).count();
+		// A message reported as accepted must not go missing
+		Assert.assertEquals(accepted.isEmpty() ? 0 : 1, delivered);
+		Assert.assertTrue(accepted.isEmpty());
+		Assert.assertEquals(senders * messagesPerSender, mailbox.getDroppedCount());
+
+		// Nothing left behind for the key
+		Assert.assertTrue(mailbox.offer("contended:last"));
+		executor.runAll();
+		List<String> received = consumer.getReceivedMessages();
+		Assert.assertEquals("contended:last", received.get(received.size() - 1));
+	}
+
+	/**
+	 * Coalesces the messages by the part before the colon.
+	 */
+	private static class KeyedConsumer extends StringConsumer {
+		KeyedConsumer() {
+			super(new RoboSystem(), "keyed");
+			setState(LifecycleState.STARTED);
+		}
+
+		@Override
+		protected Object getCoalescingKey(String message) {
+			return message.substring(0, message.indexOf(':'));
+		}
+	}
+
+	private static class ForwardingUnit extends RoboUnit<String> {
+		private final UnitMailbox<String> target;
+
+		ForwardingUnit(String id, UnitMailbox<String> target) {
+			super(String.class, null, id);
+			this.target = target;
+			setState(LifecycleState.STARTED);
+		}
+
+		@Override
+		public void onMessage(String message) {
+			target.offer(message);
+		}
+	}
+
+	private static StringConsumer createConsumer() {
+		StringConsumer consumer = new StringConsumer(new RoboSystem(), "consumer");
+		consumer.setState(LifecycleState.STARTED);
+		return consumer;
+	}
+
+	private static void sendMessages(UnitMailbox<String> mailbox) {
+		for (int i = 0; i < MESSAGES; i++) {
+			mailbox.offer(String.valueOf(i));
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link LatencyHistogram}.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class LatencyHistogramTests {
+
+	@Test
+	public void testBuckets() {
+		long previousLowerBound = -1;
+		for (long value = 0; value < 1L << 20; value = value * 2 + 1) {
+			int bucket = LatencyHistogram.getBucket(value);
+			long lowerBound = LatencyHistogram.getBucketLowerBound(bucket);
+			Assert.assertTrue(lowerBound <= value);
+			Assert.assertTrue(value < LatencyHistogram.getBucketLowerBound(bucket + 1));
+			// At most 12.5% off
+			Assert.assertTrue(value - lowerBound <= value / 8);
+			Assert.assertTrue(lowerBound > previousLowerBound);
+			previousLowerBound = lowerBound;
+		}
+		Assert.assertEquals(LatencyHistogram.getBucket(Long.MAX_VALUE), LatencyHistogram.getBucket(1L << 50));
+	}
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertEquals(0, histogram.snapshot().getPercentile(99));
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+		histogram.record(-1);
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		Assert.assertEquals(1001, snapshot.getCount());
+		Assert.assertEquals(1_000_000, snapshot.getMax());
+		Assert.assertEquals(1_000_000, snapshot.getPercentile(100));
+		assertWithin(500_000, snapshot.getPercentile(50));
+		assertWithin(990_000, snapshot.getPercentile(99));
+		assertWithin(500_000, snapshot.getMean());
+	}
+
+	@Test
+	public void testSkipped() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1000);
+		histogram.recordSkipped(3);
+		histogram.recordSkipped(2);
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		Assert.assertEquals(1, snapshot.getCount());
+		Assert.assertEquals(5, snapshot.getSkippedCount());
+		Assert.assertEquals(1000, snapshot.getMean());
+	}
+
+	private static void assertWithin(long expected, long actual) {
+		Assert.assertTrue("Expected about " + expected + ", got " + actual, Math.abs(expected - actual) <= expected / 8);
+	}
+}
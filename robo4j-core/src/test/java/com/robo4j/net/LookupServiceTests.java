@@ -87,6 +87,29 @@ public class LookupServiceTests {
 		System.out.println("Address: " + remoteContext.getAddress());
 	}
 
+	@Test
+	public void testRemoteContextCachedUntilEvicted() throws IOException, InterruptedException {
+		final LookupService service = getLookupService(new LocalLookupServiceImpl());
+		service.start();
+		RoboContextDescriptor descriptor = createRoboContextDescriptor();
+		ContextEmitter emitter = new ContextEmitter(descriptor, InetAddress.getByName(LookupServiceProvider.DEFAULT_MULTICAST_ADDRESS),
+				LookupServiceProvider.DEFAULT_PORT, 250);
+
+		for (int i = 0; i < 10 && service.getDescriptor(descriptor.getId()) == null; i++) {
+			emitter.emit();
+			Thread.sleep(250);
+		}
+		RoboContext context = service.getContext(descriptor.getId());
+		Assert.assertNotNull(context);
+		Assert.assertSame(context, service.getContext(descriptor.getId()));
+		Assert.assertSame(context.getReference("unit"), context.getReference("unit"));
+
+		long missedAll = (long) (descriptor.getHeartBeatInterval() * (ALLOWED_HEARTBEAT_MISSES + 1));
+		((LookupServiceImpl) service).evictStaleEntries(System.currentTimeMillis() + missedAll);
+		service.stop();
+		Assert.assertNull(service.getContext(descriptor.getId()));
+	}
+
 	private static RoboContextDescriptor createRoboContextDescriptor() {
 		Map<String, String> metadata = new HashMap<>();
 		String id = "MyID";
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.net;
+
+import com.robo4j.configuration.Configuration;
+import com.robo4j.configuration.ConfigurationBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the queueing and batching in the {@link MessageClient}.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class MessageClientTest {
+	private static final String CONST_MYUUID = "myuuid";
+
+	@Test
+	public void testBatchedMessages() throws Exception {
+		final int numberOfMessages = 500;
+		final List<Object> messages = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch messageLatch = new CountDownLatch(numberOfMessages);
+		MessageServer server = startServer(0, messages, messageLatch);
+
+		Configuration clientConfig = new ConfigurationBuilder().addInteger(MessageClient.KEY_BATCH_SIZE, 16)
+				.addInteger(MessageClient.KEY_MAX_LATENCY, 5).build();
+		MessageClient client = new MessageClient(server.getListeningURI(), CONST_MYUUID, clientConfig);
+		for (int i = 0; i < numberOfMessages; i++) {
+			Assert.assertTrue(client.sendMessage("test", i % 2 == 0 ? Integer.valueOf(i) : new TestMessageType(i, "Message " + i, null)));
+		}
+
+		Assert.assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+		client.shutdown();
+		server.stop();
+		for (int i = 0; i < numberOfMessages; i++) {
+			Object message = messages.get(i);
+			Assert.assertEquals(i, message instanceof Integer ? message : ((TestMessageType) message).getNumber());
+		}
+		Assert.assertEquals(0, client.getDroppedCount());
+	}
+
+	@Test
+	public void testReconnect() throws Exception {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		final List<Object> messages = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch messageLatch = new CountDownLatch(2);
+
+		Configuration clientConfig = new ConfigurationBuilder().addInteger(MessageClient.KEY_RECONNECT_BACKOFF, 50)
+				.addInteger(MessageClient.KEY_RETRIES, 10).build();
+		MessageClient client = new MessageClient(new URI("robo4j", "", "localhost", port, "", "", ""),
+				CONST_MYUUID, clientConfig);
+		// Nobody is listening yet, so the writer will have to back off
+		Assert.assertTrue(client.sendMessage("test", "First"));
+		Assert.assertTrue(client.sendMessage("test", "Second"));
+		Thread.sleep(100);
+		Assert.assertFalse(client.isConnected());
+
+		MessageServer server = startServer(port, messages, messageLatch);
+		Assert.assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+		client.shutdown();
+		server.stop();
+		Assert.assertEquals("First", messages.get(0));
+		Assert.assertEquals("Second", messages.get(1));
+	}
+
+	@Test
+	public void testSendAfterDisconnect() throws Exception {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		final List<Object> messages = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch messageLatch = new CountDownLatch(2);
+		MessageServer server = startServer(port, messages, messageLatch);
+		MessageClient client = new MessageClient(new URI("robo4j", "", "localhost", port, "", "", ""), CONST_MYUUID,
+				new ConfigurationBuilder().addInteger(MessageClient.KEY_RECONNECT_BACKOFF, 50).build());
+
+		Assert.assertTrue(client.sendMessage("test", "First"));
+		for (int i = 0; i < 50 && messages.isEmpty(); i++) {
+			Thread.sleep(100);
+		}
+		Assert.assertTrue(client.isConnected());
+
+		// As done by the lookup service for a context missing heartbeats
+		client.disconnect();
+		client.disconnect();
+		Assert.assertFalse(client.isConnected());
+
+		Assert.assertTrue(client.sendMessage("test", "Second"));
+		Assert.assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+		Assert.assertTrue(client.isConnected());
+		client.shutdown();
+		server.stop();
+		Assert.assertEquals(Arrays.asList("First", "Second"), messages);
+		Assert.assertEquals(0, client.getDroppedCount());
+	}
+
+	@Test
+	public void testUnserializableMessageDropped() throws Exception {
+		final List<Object> messages = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch messageLatch = new CountDownLatch(2);
+		MessageServer server = startServer(0, messages, messageLatch);
+
+		MessageClient client = new MessageClient(server.getListeningURI(), CONST_MYUUID,
+				new ConfigurationBuilder().addInteger(MessageClient.KEY_MAX_LATENCY, 20).build());
+		client.sendMessage("test", "First");
+		client.sendMessage("test", new Object());
+		client.sendMessage("test", "Third");
+
+		Assert.assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+		client.shutdown();
+		server.stop();
+		Assert.assertEquals("First", messages.get(0));
+		Assert.assertEquals("Third", messages.get(1));
+		Assert.assertEquals(1, client.getDroppedCount());
+	}
+
+	private static MessageServer startServer(int port, List<Object> messages, CountDownLatch messageLatch)
+			throws InterruptedException {
+		Configuration serverConfig = new ConfigurationBuilder().addString(MessageServer.KEY_HOST_NAME, "localhost")
+				.addInteger(MessageServer.KEY_PORT, port).build();
+		MessageServer server = new MessageServer((uuid, id, message) -> {
+			messages.add(message);
+			messageLatch.countDown();
+		}, serverConfig);
+
+		Thread t = new Thread(() -> {
+			try {
+				server.start();
+			} catch (IOException e) {
+				Assert.fail(e.getMessage());
+			}
+		}, "Server Listener");
+		t.setDaemon(true);
+		t.start();
+		for (int i = 0; i < 10; i++) {
+			if (server.getListeningPort() == 0) {
+				Thread.sleep(250);
+			} else {
+				break;
+			}
+		}
+		return server;
+	}
+}
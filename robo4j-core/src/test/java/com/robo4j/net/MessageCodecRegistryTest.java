@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.net;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Serializable;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class MessageCodecRegistryTest {
+	@SuppressWarnings("serial")
+	private static class SubMessageType extends TestMessageType {
+		SubMessageType() {
+			super(1, "sub", null);
+		}
+	}
+
+	private static class SerializableCodec implements MessageCodec<Serializable> {
+		@Override
+		public int getTypeId() {
+			return MessageCodec.RESERVED_TYPE_IDS + 2;
+		}
+
+		@Override
+		public Class<Serializable> getMessageClass() {
+			return Serializable.class;
+		}
+
+		@Override
+		public void encode(Serializable message, DataOutput out) {
+		}
+
+		@Override
+		public Serializable decode(DataInput in) {
+			return null;
+		}
+	}
+
+	@Test
+	public void testLookup() {
+		MessageCodecRegistry registry = new MessageCodecRegistry();
+		Assert.assertNull(registry.getEncoder(TestMessageType.class));
+		Assert.assertTrue(registry.register(new TestMessageTypeCodec()));
+		Assert.assertTrue(registry.register(new SerializableCodec()));
+
+		Assert.assertEquals(TestMessageTypeCodec.class, registry.getEncoder(TestMessageType.class).getClass());
+		Assert.assertEquals(TestMessageTypeCodec.class, registry.getEncoder(SubMessageType.class).getClass());
+		Assert.assertEquals(SerializableCodec.class, registry.getEncoder(Integer.class).getClass());
+		Assert.assertNull(registry.getEncoder(Object.class));
+		Assert.assertEquals(TestMessageTypeCodec.class, registry.getDecoder(TestMessageTypeCodec.TYPE_ID).getClass());
+	}
+
+	@Test
+	public void testDuplicateTypeId() {
+		MessageCodecRegistry registry = new MessageCodecRegistry();
+		Assert.assertTrue(registry.register(new TestMessageTypeCodec()));
+		Assert.assertFalse(registry.register(new TestMessageTypeCodec()));
+	}
+}
@@ -25,9 +25,13 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -194,6 +198,112 @@ public class MessageServerTest {
 		}
 	}
 
+	@Test
+	public void testManyClients() throws Exception {
+		final int numberOfClients = 16;
+		final int messagesPerClient = 100;
+		final Map<String, List<Object>> messages = new ConcurrentHashMap<>();
+		final CountDownLatch messageLatch = new CountDownLatch(numberOfClients * messagesPerClient);
+
+		Configuration serverConfig = new ConfigurationBuilder().addString(MessageServer.KEY_HOST_NAME, "localhost")
+				.addInteger(MessageServer.KEY_READER_POOL_SIZE, 2).build();
+		MessageServer server = new MessageServer((uuid, id, message) -> {
+			messages.computeIfAbsent(uuid, (key) -> Collections.synchronizedList(new ArrayList<>())).add(message);
+			messageLatch.countDown();
+		}, serverConfig);
+
+		Thread t = new Thread(() -> {
+			try {
+				server.start();
+			} catch (IOException e) {
+				exception = e;
+				Assert.fail(e.getMessage());
+			}
+		}, "Server Listener");
+		t.setDaemon(true);
+		t.start();
+		for (int i = 0; i < 10; i++) {
+			if (server.getListeningPort() == 0) {
+				Thread.sleep(250);
+			} else {
+				break;
+			}
+		}
+
+		List<MessageClient> clients = new ArrayList<>();
+		for (int i = 0; i < numberOfClients; i++) {
+			MessageClient client = new MessageClient(server.getListeningURI(), CONST_MYUUID + i,
+					ConfigurationFactory.createEmptyConfiguration());
+			client.connect();
+			clients.add(client);
+		}
+		for (int i = 0; i < messagesPerClient; i++) {
+			for (MessageClient client : clients) {
+				client.sendMessage("test", i % 2 == 0 ? Integer.valueOf(i) : new TestMessageType(i, "Message " + i, null));
+			}
+		}
+
+		Assert.assertTrue(messageLatch.await(10, TimeUnit.SECONDS));
+		server.stop();
+		Assert.assertEquals(numberOfClients, messages.size());
+		for (List<Object> received : messages.values()) {
+			for (int i = 0; i < messagesPerClient; i++) {
+				Object message = received.get(i);
+				Assert.assertEquals(i, message instanceof Integer ? message : ((TestMessageType) message).getNumber());
+			}
+		}
+		clients.forEach(MessageClient::shutdown);
+	}
+
+	@Test
+	public void testCodecMessages() throws Exception {
+		final List<Object> messages = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch messageLatch = new CountDownLatch(3);
+		MessageCodecRegistry codecRegistry = new MessageCodecRegistry();
+		codecRegistry.register(new TestMessageTypeCodec());
+
+		Configuration serverConfig = new ConfigurationBuilder().addString(MessageServer.KEY_HOST_NAME, "localhost").build();
+		MessageServer server = new MessageServer((uuid, id, message) -> {
+			messages.add(message);
+			messageLatch.countDown();
+		}, serverConfig, codecRegistry);
+
+		Thread t = new Thread(() -> {
+			try {
+				server.start();
+			} catch (IOException e) {
+				exception = e;
+				Assert.fail(e.getMessage());
+			}
+		}, "Server Listener");
+		t.setDaemon(true);
+		t.start();
+		for (int i = 0; i < 10; i++) {
+			if (server.getListeningPort() == 0) {
+				Thread.sleep(250);
+			} else {
+				break;
+			}
+		}
+
+		MessageClient client = new MessageClient(server.getListeningURI(), CONST_MYUUID,
+				ConfigurationFactory.createEmptyConfiguration(), codecRegistry);
+		client.connect();
+		client.sendMessage("test", new TestMessageType(1, "One", null));
+		// No codec, so serialized
+		client.sendMessage("test", new BigDecimal("2.5"));
+		client.sendMessage("test", new TestMessageType(3, null, null));
+
+		Assert.assertTrue(messageLatch.await(2, TimeUnit.SECONDS));
+		server.stop();
+		client.shutdown();
+		Assert.assertEquals(1, ((TestMessageType) messages.get(0)).getNumber());
+		Assert.assertEquals("One", ((TestMessageType) messages.get(0)).getText());
+		Assert.assertEquals(new BigDecimal("2.5"), messages.get(1));
+		Assert.assertEquals(3, ((TestMessageType) messages.get(2)).getNumber());
+		Assert.assertNull(((TestMessageType) messages.get(2)).getText());
+	}
+
 	public static RoboContext createTestContext() {
 		RoboTestContext testContext = new RoboTestContext("TestContext", ConfigurationFactory.createEmptyConfiguration());
 		Configuration configuration = new ConfigurationBuilder().addString("name", "Test").addString("description", "Lalalala").build();
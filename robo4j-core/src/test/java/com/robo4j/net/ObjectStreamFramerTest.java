@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.net;
+
+import com.robo4j.AttributeDescriptor;
+import com.robo4j.DefaultAttributeDescriptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class ObjectStreamFramerTest {
+
+	@Test
+	public void testFramesReceivedByteByByte() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		List<Integer> boundaries = new ArrayList<>();
+		out.writeShort(MessageProtocolConstants.MAGIC);
+		out.writeUTF("myuuid");
+		out.flush();
+		boundaries.add(bytes.size());
+
+		Map<String, Object> map = new HashMap<>();
+		map.put("numbers", new int[] { 1, 2, 3 });
+		map.put("unit", TimeUnit.SECONDS);
+		Object[] messages = { "Lalala", 17, 4.2d, 'x', new TestMessageType(8, "Eight", null),
+				new TestMessageType(9, null, null), Arrays.asList("a", "b"), map, new String[][] { { "x" }, { "y", null } },
+				TimeUnit.MILLISECONDS, null, new byte[3000], new Object(),
+				DefaultAttributeDescriptor.create(Integer.class, "count"), new TestMessageType(10, "Ten", null) };
+		for (Object message : messages) {
+			out.writeUTF("target");
+			if (message instanceof String) {
+				out.writeByte(MessageProtocolConstants.MOD_UTF8);
+				out.writeUTF((String) message);
+			} else if (message instanceof Integer) {
+				out.writeByte(MessageProtocolConstants.INT);
+				out.writeInt((Integer) message);
+			} else if (message instanceof Double) {
+				out.writeByte(MessageProtocolConstants.DOUBLE);
+				out.writeDouble((Double) message);
+			} else if (message instanceof Character) {
+				out.writeByte(MessageProtocolConstants.CHAR);
+				out.writeChar((Character) message);
+			} else if (message instanceof AttributeDescriptor) {
+				out.writeByte(MessageProtocolConstants.QUERY);
+				out.writeInt(4711);
+				out.writeByte(MessageProtocolConstants.QUERY_ATTRIBUTE);
+				out.writeObject(message);
+			} else if (message instanceof byte[]) {
+				out.writeByte(MessageProtocolConstants.CODEC);
+				out.writeShort(MessageCodec.RESERVED_TYPE_IDS);
+				out.writeInt(((byte[]) message).length);
+				out.write((byte[]) message);
+			} else {
+				out.writeByte(MessageProtocolConstants.OBJECT);
+				try {
+					out.writeObject(message);
+				} catch (NotSerializableException e) {
+					// The exception is written to the stream instead
+				}
+			}
+			out.flush();
+			boundaries.add(bytes.size());
+		}
+		byte[] data = bytes.toByteArray();
+
+		// Offer one more byte at a time, as if each byte was received
+		// separately
+		ObjectStreamFramer framer = new ObjectStreamFramer();
+		List<Integer> found = new ArrayList<>();
+		int start = 0;
+		for (int limit = 0; limit <= data.length; limit++) {
+			int length = found.isEmpty() ? framer.frameHandshake(data, start, limit) : framer.frameMessage(data, start, limit);
+			if (length >= 0) {
+				start += length;
+				found.add(start);
+			}
+		}
+		Assert.assertEquals(boundaries, found);
+	}
+
+	@Test(expected = StreamCorruptedException.class)
+	public void testCorruptStream() throws IOException {
+		byte[] data = { (byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE };
+		new ObjectStreamFramer().frameHandshake(data, 0, data.length);
+	}
+}
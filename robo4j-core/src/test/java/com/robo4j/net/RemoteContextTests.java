@@ -17,12 +17,14 @@
 package com.robo4j.net;
 
 import com.robo4j.ConfigurationException;
+import com.robo4j.LifecycleState;
 import com.robo4j.RoboBuilder;
 import com.robo4j.RoboBuilderException;
 import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
 import com.robo4j.StringConsumer;
 import com.robo4j.StringProducerRemote;
+import com.robo4j.SystemAttributes;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.configuration.ConfigurationBuilder;
 import com.robo4j.util.SystemUtil;
@@ -31,8 +33,12 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Note that on Mac OS X, it seems the easiest way to get this test to run is to
@@ -208,6 +214,42 @@ public class RemoteContextTests {
 		Assert.assertTrue(producerAcknowledge > 0);
 	}
 
+	@Test
+	public void testRemoteAttributeQueries() throws Exception {
+		final int numberOfQueries = 200;
+		RoboContext receiverSystem = buildRemoteReceiverContext(ACK_CONSUMER);
+		receiverSystem.start();
+
+		final LookupService service = LookupServiceTests.getLookupService(new LocalLookupServiceImpl());
+		service.start();
+		getRoboContextDescriptor(service, CONTEXT_ID_REMOTE_RECEIVER);
+		RoboContext remoteContext = service.getContext(CONTEXT_ID_REMOTE_RECEIVER);
+		RoboReference<TestMessageType> remoteConsumer = remoteContext.getReference(ACK_CONSUMER);
+
+		Assert.assertEquals(LifecycleState.STARTED, remoteConsumer.getState());
+		Assert.assertTrue(remoteConsumer.getKnownAttributes().stream()
+				.anyMatch(descriptor -> SystemAttributes.ATTR_MAILBOX_CAPACITY.equals(descriptor.getAttributeName())));
+		Assert.assertNotNull(remoteConsumer.getAttributes().get(5, TimeUnit.SECONDS));
+
+		// All queries are outstanding at the same time on the one connection
+		List<Future<Integer>> replies = new ArrayList<>();
+		for (int i = 0; i < numberOfQueries; i++) {
+			replies.add(remoteConsumer.getAttribute(AckingStringConsumer.DESCRIPTOR_TOTAL_RECEIVED_MESSAGES));
+		}
+		for (Future<Integer> reply : replies) {
+			Assert.assertEquals(Integer.valueOf(0), reply.get(5, TimeUnit.SECONDS));
+		}
+
+		try {
+			remoteContext.getReference("noSuchUnit").getAttributes().get(5, TimeUnit.SECONDS);
+			Assert.fail("Expected the query to fail");
+		} catch (ExecutionException e) {
+			// Expected
+		}
+		service.stop();
+		receiverSystem.shutdown();
+	}
+
 	@Ignore
 	@Test
 	public void startRemoteReceiver() throws Exception {
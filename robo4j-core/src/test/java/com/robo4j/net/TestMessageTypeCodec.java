@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.net;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Codec for the {@link TestMessageType}. Does not handle the reference.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class TestMessageTypeCodec implements MessageCodec<TestMessageType> {
+	public static final int TYPE_ID = MessageCodec.RESERVED_TYPE_IDS + 1;
+
+	@Override
+	public int getTypeId() {
+		return TYPE_ID;
+	}
+
+	@Override
+	public Class<TestMessageType> getMessageClass() {
+		return TestMessageType.class;
+	}
+
+	@Override
+	public void encode(TestMessageType message, DataOutput out) throws IOException {
+		out.writeInt(message.getNumber());
+		out.writeBoolean(message.getText() != null);
+		if (message.getText() != null) {
+			out.writeUTF(message.getText());
+		}
+	}
+
+	@Override
+	public TestMessageType decode(DataInput in) throws IOException {
+		int number = in.readInt();
+		String text = in.readBoolean() ? in.readUTF() : null;
+		return new TestMessageType(number, text, null);
+	}
+}
@@ -32,6 +32,7 @@ import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.configuration.ConfigurationBuilder;
+import com.robo4j.metrics.LatencyHistogram;
 
 /**
  * Test for the CounterUnit.
@@ -45,6 +46,8 @@ public class CounterUnitTests {
 	private static final AttributeDescriptor<Integer> NUMBER_OF_MESSAGES = new DefaultAttributeDescriptor<>(Integer.class,
 			"NumberOfReceivedMessages");
 	private static final AttributeDescriptor<Integer> COUNTER = new DefaultAttributeDescriptor<>(Integer.class, "Counter");
+	private static final AttributeDescriptor<LatencyHistogram.Snapshot> LATENESS = new DefaultAttributeDescriptor<>(
+			LatencyHistogram.Snapshot.class, CounterUnit.ATTRIBUTE_NAME_LATENESS);
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private static final AttributeDescriptor<ArrayList<Integer>> MESSAGES = new DefaultAttributeDescriptor<ArrayList<Integer>>(
@@ -70,6 +73,7 @@ public class CounterUnitTests {
 		Integer count = consumer.getAttribute(NUMBER_OF_MESSAGES).get();
 		Thread.sleep(2500);
 		Assert.assertEquals(count, consumer.getAttribute(NUMBER_OF_MESSAGES).get());
+		Assert.assertEquals((long) count, counter.getAttribute(LATENESS).get().getCount());
 		ArrayList<Integer> messages = consumer.getAttribute(MESSAGES).get();
 		Assert.assertNotEquals(0, messages.size());
 		Assert.assertNotEquals(0, (int) messages.get(messages.size() - 1));
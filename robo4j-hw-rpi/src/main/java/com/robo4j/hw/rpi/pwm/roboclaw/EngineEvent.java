@@ -1,21 +1,29 @@
 package com.robo4j.hw.rpi.pwm.roboclaw;
 
-import com.oracle.jrockit.jfr.*;
-import com.robo4j.math.jfr.JfrUtils;
-
-@EventDefinition(path = "coffe/engine/input", name = "Engines", description = "An event for engine changes.", stacktrace = false, thread = true) 
-@SuppressWarnings("deprecation")
-public class EngineEvent extends InstantEvent {
-
-    @ValueDefinition(name = "direction", description = "The steering direction (degrees[-180, 180]).") 
-    private float direction;
-
-    @ValueDefinition(name = "speed", description = "The speed [0,1].") 
-    private float speed;
-    
-    static {
-		JfrUtils.register(EngineEvent.class);
-    }
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An instant event for engine changes. Only use when
+ * {@link com.robo4j.jfr.JfrSupport#isAvailable()}.
+ */
+@Name("com.robo4j.hw.rpi.Engines")
+@Label("Engines")
+@Category({ "Robo4J", "Hardware" })
+@Description("An event for engine changes.")
+@StackTrace(false)
+public class EngineEvent extends jdk.jfr.Event {
+
+	@Label("Direction")
+	@Description("The steering direction (degrees[-180, 180]).")
+	private float direction;
+
+	@Label("Speed")
+	@Description("The speed [0,1].")
+	private float speed;
 
 	public float getDirection() {
 		return direction;
@@ -32,5 +40,5 @@ public class EngineEvent extends InstantEvent {
 	public void setSpeed(float speed) {
 		this.speed = speed;
 	}
-     
+
 }
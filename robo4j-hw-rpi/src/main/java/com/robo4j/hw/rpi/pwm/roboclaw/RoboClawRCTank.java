@@ -18,6 +18,7 @@ package com.robo4j.hw.rpi.pwm.roboclaw;
 
 import com.robo4j.hw.rpi.Motor;
 import com.robo4j.hw.rpi.Servo;
+import com.robo4j.jfr.JfrSupport;
 
 import java.io.IOException;
 import java.util.logging.Level;
@@ -38,7 +39,7 @@ import java.util.logging.Logger;
  */
 public class RoboClawRCTank implements Motor {
 	private final static float EPSILON = 0.05f;
-	private EngineEvent engineEvent = new EngineEvent();
+	private final static boolean JFR_AVAILABLE = JfrSupport.isAvailable();
 	private final Servo leftEngine;
 	private final Servo rightEngine;
 	private float speed;
@@ -124,15 +125,18 @@ public class RoboClawRCTank implements Motor {
 			leftEngine.setInput(forward * (float) (speed + rightComponent * speed));
 			rightEngine.setInput(forward * (float) (speed - rightComponent * speed));
 		}
-		emitEngineEvent();
+		if (JFR_AVAILABLE) {
+			emitEngineEvent();
+		}
 	}
 
-	@SuppressWarnings("deprecation")
 	private void emitEngineEvent() {
-		engineEvent.reset();
-		engineEvent.setDirection(direction);
-		engineEvent.setSpeed(speed);
-		engineEvent.commit();
+		EngineEvent engineEvent = new EngineEvent();
+		if (engineEvent.shouldCommit()) {
+			engineEvent.setDirection(direction);
+			engineEvent.setSpeed(speed);
+			engineEvent.commit();
+		}
 	}
 
 	private void internalUpdateEngines() {
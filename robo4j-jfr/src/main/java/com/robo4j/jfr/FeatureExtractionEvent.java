@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A pass extracting features from a 2D scan. This allows us to know how much
+ * time such a pass has taken.
+ * 
+ * <p>
+ * Only use when {@link JfrSupport#isAvailable()}.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Name("com.robo4j.math.FeatureExtraction")
+@Label("Feature Extraction")
+@Category({ "Robo4J", "Math" })
+@Description("An event for extracting features from a 2D scan.")
+@StackTrace(false)
+public class FeatureExtractionEvent extends jdk.jfr.Event {
+	@Label("Number of Points")
+	private int noOfPoints;
+
+	@Label("Angular Resolution")
+	private float angularResolution;
+
+	@Label("Number of Lines")
+	private int noOfLines;
+
+	@Label("Number of Corners")
+	private int noOfCorners;
+
+	public void setNoOfPoints(int noOfPoints) {
+		this.noOfPoints = noOfPoints;
+	}
+
+	public int getNoOfPoints() {
+		return noOfPoints;
+	}
+
+	public void setAngularResolution(float angularResolution) {
+		this.angularResolution = angularResolution;
+	}
+
+	public float getAngularResolution() {
+		return angularResolution;
+	}
+
+	public void setNoOfLines(int noOfLines) {
+		this.noOfLines = noOfLines;
+	}
+
+	public int getNoOfLines() {
+		return noOfLines;
+	}
+
+	public void setNoOfCorners(int noOfCorners) {
+		this.noOfCorners = noOfCorners;
+	}
+
+	public int getNoOfCorners() {
+		return noOfCorners;
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+/**
+ * Tells whether the JDK Flight Recorder event API is available. Robo4J is
+ * compiled for Java 8, and the jdk.jfr API is not available on all Java 8
+ * JVMs, nor in runtime images built without the jdk.jfr module. The event
+ * classes in this package extend jdk.jfr.Event, so they must only be loaded
+ * when this class says that it is safe to do so:
+ * 
+ * <pre>
+ * private static final boolean JFR_AVAILABLE = JfrSupport.isAvailable();
+ * ...
+ * if (JFR_AVAILABLE) {
+ * 	MessageDispatchEvent event = new MessageDispatchEvent();
+ * 	...
+ * }
+ * </pre>
+ * 
+ * On JVMs without JFR, the instrumentation is thereby reduced to checking a
+ * constant.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class JfrSupport {
+	private static final boolean AVAILABLE;
+
+	static {
+		boolean available;
+		try {
+			Class.forName("jdk.jfr.Event", false, JfrSupport.class.getClassLoader());
+			available = true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			available = false;
+		}
+		AVAILABLE = available;
+	}
+
+	private JfrSupport() {
+		// Not to be instantiated
+	}
+
+	/**
+	 * @return true if the jdk.jfr event API, and thereby the events in this
+	 *         package, can be used.
+	 */
+	public static boolean isAvailable() {
+		return AVAILABLE;
+	}
+}
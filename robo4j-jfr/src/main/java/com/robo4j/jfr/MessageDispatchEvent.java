@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The delivery of a message to a unit. The duration is the time spent in the
+ * onMessage method of the unit.
+ * 
+ * <p>
+ * Only use when {@link JfrSupport#isAvailable()}.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Name("com.robo4j.MessageDispatch")
+@Label("Message Dispatch")
+@Category({ "Robo4J", "Core" })
+@Description("The delivery of a message to a unit.")
+@StackTrace(false)
+public class MessageDispatchEvent extends jdk.jfr.Event {
+	@Label("Unit")
+	private String unitId;
+
+	@Label("Message Class")
+	private Class<?> messageClass;
+
+	public void setUnitId(String unitId) {
+		this.unitId = unitId;
+	}
+
+	public String getUnitId() {
+		return unitId;
+	}
+
+	public void setMessageClass(Class<?> messageClass) {
+		this.messageClass = messageClass;
+	}
+
+	public Class<?> getMessageClass() {
+		return messageClass;
+	}
+}
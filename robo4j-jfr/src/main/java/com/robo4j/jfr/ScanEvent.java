@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A full laser scan. The duration is the time from starting the scan until
+ * the result is sent.
+ * 
+ * <p>
+ * Only use when {@link JfrSupport#isAvailable()}.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Name("com.robo4j.math.Scan")
+@Label("Scan")
+@Category({ "Robo4J", "Math" })
+@Description("An event for a full scan.")
+@StackTrace(false)
+public class ScanEvent extends jdk.jfr.Event {
+	@ScanId
+	private int scanID;
+
+	@Label("Scan Left Right")
+	@Description("False if left->right, true if right->left.")
+	private boolean scanLeftRight;
+
+	@Label("Scan Info")
+	@Description("Textual information about the scan performed.")
+	private String scanInfo;
+
+	public ScanEvent(int scanID, String scanInfo) {
+		this.scanID = scanID;
+		this.scanInfo = scanInfo;
+	}
+
+	public void setScanLeftRight(boolean scanLeftRight) {
+		this.scanLeftRight = scanLeftRight;
+	}
+
+	public boolean isScanLeftRight() {
+		return scanLeftRight;
+	}
+
+	public void setScanID(int scanID) {
+		this.scanID = scanID;
+	}
+
+	public int getScanID() {
+		return scanID;
+	}
+
+	public void setScanInfo(String scanInfo) {
+		this.scanInfo = scanInfo;
+	}
+
+	public String getScanInfo() {
+		return scanInfo;
+	}
+}
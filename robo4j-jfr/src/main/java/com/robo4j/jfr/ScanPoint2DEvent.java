@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An instant event for a single scanned point, relative to the robot.
+ * 
+ * <p>
+ * Only use when {@link JfrSupport#isAvailable()}.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Name("com.robo4j.math.ScanPoint2D")
+@Label("Scan Point 2D")
+@Category({ "Robo4J", "Math" })
+@Description("An instant event for a scanned point relative to the robot.")
+@StackTrace(false)
+public class ScanPoint2DEvent extends jdk.jfr.Event {
+	@Label("X")
+	@Description("X value of the point.")
+	private float x;
+
+	@Label("Y")
+	@Description("Y value of the point.")
+	private float y;
+
+	@ScanId
+	@Description("The scan with which the point is associated.")
+	private int scanID;
+
+	public void setPoint(float x, float y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	public float getX() {
+		return x;
+	}
+
+	public float getY() {
+		return y;
+	}
+
+	public void setScanID(int scanID) {
+		this.scanID = scanID;
+	}
+
+	public int getScanID() {
+		return scanID;
+	}
+}
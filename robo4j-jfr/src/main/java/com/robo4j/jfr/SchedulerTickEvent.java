@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A tick of a fixed rate schedule. The duration is the time spent running the
+ * task.
+ * 
+ * <p>
+ * Only use when {@link JfrSupport#isAvailable()}.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Name("com.robo4j.SchedulerTick")
+@Label("Scheduler Tick")
+@Category({ "Robo4J", "Scheduler" })
+@Description("A tick of a fixed rate schedule.")
+@StackTrace(false)
+public class SchedulerTickEvent extends jdk.jfr.Event {
+	@Label("Lateness")
+	@Description("How late the tick fired, relative to the schedule.")
+	@Timespan(Timespan.NANOSECONDS)
+	private long lateness;
+
+	@Label("Period")
+	@Timespan(Timespan.NANOSECONDS)
+	private long period;
+
+	@Label("Catch Up Policy")
+	private String catchUpPolicy;
+
+	public void setLateness(long lateness) {
+		this.lateness = lateness;
+	}
+
+	public long getLateness() {
+		return lateness;
+	}
+
+	public void setPeriod(long period) {
+		this.period = period;
+	}
+
+	public long getPeriod() {
+		return period;
+	}
+
+	public void setCatchUpPolicy(String catchUpPolicy) {
+		this.catchUpPolicy = catchUpPolicy;
+	}
+
+	public String getCatchUpPolicy() {
+		return catchUpPolicy;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.math.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import com.robo4j.math.geometry.Point2f;
+import com.robo4j.math.geometry.ScanResult2D;
+import com.robo4j.math.geometry.impl.ScanResultImpl;
+import com.robo4j.net.MessageCodec;
+
+/**
+ * Codec for {@link ScanResult2D}, encoded as the id and resolution of the
+ * scan, followed by the range and angle of each point. Decoded as a
+ * {@link ScanResultImpl}.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class ScanResult2DCodec implements MessageCodec<ScanResult2D> {
+	public static final int TYPE_ID = 104;
+	private static final int BYTES_PER_POINT = 2 * Float.BYTES;
+	// Preallocated at most, when the size of the input is not known
+	private static final int MAX_INITIAL_POINTS = 1024;
+
+	@Override
+	public int getTypeId() {
+		return TYPE_ID;
+	}
+
+	@Override
+	public Class<ScanResult2D> getMessageClass() {
+		return ScanResult2D.class;
+	}
+
+	@Override
+	public void encode(ScanResult2D message, DataOutput out) throws IOException {
+		List<Point2f> points = message.getPoints();
+		out.writeInt(message.getScanID());
+		out.writeFloat(message.getAngularResolution());
+		out.writeInt(points.size());
+		for (Point2f point : points) {
+			out.writeFloat(point.getRange());
+			out.writeFloat(point.getAngle());
+		}
+	}
+
+	@Override
+	public ScanResult2D decode(DataInput in) throws IOException {
+		int scanID = in.readInt();
+		float angularResolution = in.readFloat();
+		int size = in.readInt();
+		// The size comes from the network, so check it before allocating
+		if (size < 0) {
+			throw new IOException("Invalid number of points in scan: " + size);
+		}
+		int capacity = Math.min(size, MAX_INITIAL_POINTS);
+		if (in instanceof InputStream) {
+			int available = ((InputStream) in).available();
+			if ((long) size * BYTES_PER_POINT > available) {
+				throw new IOException("Scan of " + size + " points truncated to " + available + " bytes");
+			}
+			capacity = size;
+		}
+		ScanResultImpl result = new ScanResultImpl(capacity, angularResolution, scanID, (point) -> true);
+		for (int i = 0; i < size; i++) {
+			result.addPoint(in.readFloat(), in.readFloat());
+		}
+		return result;
+	}
+}
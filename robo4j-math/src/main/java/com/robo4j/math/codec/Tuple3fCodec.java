@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.math.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.robo4j.math.geometry.Tuple3f;
+import com.robo4j.net.MessageCodec;
+
+/**
+ * Codec for {@link Tuple3f}, encoded as three floats.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class Tuple3fCodec implements MessageCodec<Tuple3f> {
+	public static final int TYPE_ID = 100;
+
+	@Override
+	public int getTypeId() {
+		return TYPE_ID;
+	}
+
+	@Override
+	public Class<Tuple3f> getMessageClass() {
+		return Tuple3f.class;
+	}
+
+	@Override
+	public void encode(Tuple3f message, DataOutput out) throws IOException {
+		out.writeFloat(message.x);
+		out.writeFloat(message.y);
+		out.writeFloat(message.z);
+	}
+
+	@Override
+	public Tuple3f decode(DataInput in) throws IOException {
+		return new Tuple3f(in.readFloat(), in.readFloat(), in.readFloat());
+	}
+}
@@ -21,6 +21,8 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
+import com.robo4j.jfr.FeatureExtractionEvent;
+import com.robo4j.jfr.JfrSupport;
 import com.robo4j.math.geometry.CurvaturePoint2f;
 import com.robo4j.math.geometry.Line2f;
 import com.robo4j.math.geometry.Point2f;
@@ -32,6 +34,8 @@ import com.robo4j.math.geometry.Point2f;
  * @author Miroslav Wengner (@miragemiko)
  */
 public class FeatureExtraction {
+	private static final boolean JFR_AVAILABLE = JfrSupport.isAvailable();
+
 	/**
 	 * The residual variance of the Lidar Lite (25 mm).
 	 */
@@ -136,9 +140,27 @@ public class FeatureExtraction {
 	}
 
 	public static FeatureSet getFeatures(List<Point2f> sample, float angularResolution) {
+		if (JFR_AVAILABLE) {
+			return extractFeaturesRecorded(sample, angularResolution);
+		}
 		return extractFeatures(sample, angularResolution);
 	}
 
+	private static FeatureSet extractFeaturesRecorded(List<Point2f> sample, float angularResolution) {
+		FeatureExtractionEvent event = new FeatureExtractionEvent();
+		event.begin();
+		FeatureSet result = extractFeatures(sample, angularResolution);
+		event.end();
+		if (event.shouldCommit()) {
+			event.setNoOfPoints(sample.size());
+			event.setAngularResolution(angularResolution);
+			event.setNoOfLines(result.getLines().size());
+			event.setNoOfCorners(result.getCorners().size());
+			event.commit();
+		}
+		return result;
+	}
+
 	private static FeatureSet extractFeatures(List<Point2f> sample, float angularResolution) {
 		List<List<Point2f>> segments = segment(sample, angularResolution);
 		List<CurvaturePoint2f> corners = new ArrayList<>();
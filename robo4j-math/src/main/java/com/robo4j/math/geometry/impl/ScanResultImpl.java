@@ -23,9 +23,10 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 
+import com.robo4j.jfr.JfrSupport;
+import com.robo4j.jfr.ScanPoint2DEvent;
 import com.robo4j.math.geometry.Point2f;
 import com.robo4j.math.geometry.ScanResult2D;
-import com.robo4j.math.jfr.ScanPoint2DEvent;
 
 /**
  * The implementation of a scan result. This particular implementation will emit
@@ -37,6 +38,7 @@ import com.robo4j.math.jfr.ScanPoint2DEvent;
 public class ScanResultImpl implements ScanResult2D {
 	private static final PointComparator POINT_COMPARATOR = new PointComparator();
 	private static final AtomicInteger SCANCOUNTER = new AtomicInteger(0);
+	private static final boolean JFR_AVAILABLE = JfrSupport.isAvailable();
 
 	private final List<Point2f> points;
 
@@ -49,7 +51,6 @@ public class ScanResultImpl implements ScanResult2D {
 	private Point2f farthestPoint;
 	private Point2f closestPoint;
 
-	private final ScanPoint2DEvent scanPointEvent = new ScanPoint2DEvent();
 	private final float angularResolution;
 	private final Predicate<Point2f> pointFilter;
 
@@ -58,8 +59,16 @@ public class ScanResultImpl implements ScanResult2D {
 	}
 
 	public ScanResultImpl(int size, float angularResolution, Predicate<Point2f> pointFilter) {
+		this(size, angularResolution, SCANCOUNTER.incrementAndGet(), pointFilter);
+	}
+
+	/**
+	 * Constructor for recreating a scan with a known id, for example one
+	 * received from another system.
+	 */
+	public ScanResultImpl(int size, float angularResolution, int scanID, Predicate<Point2f> pointFilter) {
 		this.pointFilter = pointFilter;
-		scanID = SCANCOUNTER.incrementAndGet();
+		this.scanID = scanID;
 		this.angularResolution = angularResolution;
 		points = new ArrayList<Point2f>(size);
 	}
@@ -89,16 +98,19 @@ public class ScanResultImpl implements ScanResult2D {
 			return;
 		}
 		points.add(p);
-		emitEvent(p);
+		if (JFR_AVAILABLE) {
+			emitEvent(p);
+		}
 		updateBoundaries(p);
 	}
 
-	@SuppressWarnings("deprecation")
 	private void emitEvent(Point2f p) {
-		scanPointEvent.reset();
-		scanPointEvent.setPoint(p);
-		scanPointEvent.setScanID(scanID);
-		scanPointEvent.commit();
+		ScanPoint2DEvent scanPointEvent = new ScanPoint2DEvent();
+		if (scanPointEvent.shouldCommit()) {
+			scanPointEvent.setPoint(p.getX(), p.getY());
+			scanPointEvent.setScanID(scanID);
+			scanPointEvent.commit();
+		}
 	}
 
 	private void updateBoundaries(Point2f p) {
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.math.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.robo4j.math.geometry.Point2f;
+import com.robo4j.math.geometry.ScanResult2D;
+import com.robo4j.math.geometry.Tuple3d;
+import com.robo4j.math.geometry.Tuple3f;
+import com.robo4j.math.geometry.Tuple3i;
+import com.robo4j.math.geometry.impl.ScanResultImpl;
+import com.robo4j.net.MessageCodec;
+import com.robo4j.net.MessageCodecRegistry;
+
+/**
+ * Tests for the message codecs of the math types, including a benchmark
+ * comparing them with Java serialization.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class MathCodecsTest {
+	private static final int BENCHMARK_WARMUP = 20_000;
+	private static final int BENCHMARK_ITERATIONS = 100_000;
+
+	/**
+	 * What a serializable version of Tuple3f looks like, for comparison.
+	 */
+	@SuppressWarnings("serial")
+	private static class SerializableTuple3f implements Serializable {
+		float x;
+		float y;
+		float z;
+
+		SerializableTuple3f(Tuple3f tuple) {
+			x = tuple.x;
+			y = tuple.y;
+			z = tuple.z;
+		}
+	}
+
+	/**
+	 * What a serializable version of a scan looks like, for comparison.
+	 */
+	@SuppressWarnings("serial")
+	private static class SerializableScan implements Serializable {
+		int scanID;
+		float angularResolution;
+		List<SerializablePoint> points = new ArrayList<>();
+
+		SerializableScan(ScanResult2D scan) {
+			scanID = scan.getScanID();
+			angularResolution = scan.getAngularResolution();
+			for (Point2f point : scan.getPoints()) {
+				points.add(new SerializablePoint(point));
+			}
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static class SerializablePoint implements Serializable {
+		float range;
+		float angle;
+
+		SerializablePoint(Point2f point) {
+			range = point.getRange();
+			angle = point.getAngle();
+		}
+	}
+
+	@Test
+	public void testServiceLoader() {
+		MessageCodecRegistry registry = new MessageCodecRegistry(getClass().getClassLoader());
+		Assert.assertTrue(registry.getEncoder(Tuple3f.class) instanceof Tuple3fCodec);
+		Assert.assertTrue(registry.getEncoder(Tuple3d.class) instanceof Tuple3dCodec);
+		Assert.assertTrue(registry.getEncoder(Tuple3i.class) instanceof Tuple3iCodec);
+		Assert.assertTrue(registry.getEncoder(Point2f.class) instanceof Point2fCodec);
+		MessageCodec<ScanResult2D> scanCodec = registry.getEncoder(ScanResultImpl.class);
+		Assert.assertTrue(scanCodec instanceof ScanResult2DCodec);
+	}
+
+	@Test
+	public void testTuples() throws IOException {
+		Tuple3f tuple3f = roundTrip(new Tuple3fCodec(), new Tuple3f(1.5f, -2.25f, 3e10f));
+		Assert.assertEquals(new Tuple3f(1.5f, -2.25f, 3e10f), tuple3f);
+		Tuple3d tuple3d = roundTrip(new Tuple3dCodec(), new Tuple3d(1.5, -2.25, Math.PI));
+		Assert.assertEquals(new Tuple3d(1.5, -2.25, Math.PI), tuple3d);
+		Tuple3i tuple3i = roundTrip(new Tuple3iCodec(), new Tuple3i(1, -2, Integer.MAX_VALUE));
+		Assert.assertEquals(new Tuple3i(1, -2, Integer.MAX_VALUE), tuple3i);
+	}
+
+	@Test
+	public void testPoint() throws IOException {
+		Point2f point = Point2f.fromPolar(2.5f, 0.75f);
+		Point2f decoded = roundTrip(new Point2fCodec(), point);
+		Assert.assertEquals(point.getRange(), decoded.getRange(), 0);
+		Assert.assertEquals(point.getAngle(), decoded.getAngle(), 0);
+		Assert.assertEquals(point.getX(), decoded.getX(), 0);
+		Assert.assertEquals(point.getY(), decoded.getY(), 0);
+	}
+
+	@Test
+	public void testScan() throws IOException {
+		ScanResultImpl scan = createScan(100);
+		ScanResult2D decoded = roundTrip(new ScanResult2DCodec(), scan);
+		Assert.assertEquals(scan.getScanID(), decoded.getScanID());
+		Assert.assertEquals(scan.getAngularResolution(), decoded.getAngularResolution(), 0);
+		Assert.assertEquals(scan.getPoints().size(), decoded.getPoints().size());
+		for (int i = 0; i < scan.getPoints().size(); i++) {
+			Assert.assertEquals(scan.getPoints().get(i).getRange(), decoded.getPoints().get(i).getRange(), 0);
+			Assert.assertEquals(scan.getPoints().get(i).getAngle(), decoded.getPoints().get(i).getAngle(), 0);
+		}
+		Assert.assertEquals(scan.getMaxX(), decoded.getMaxX(), 0);
+		Assert.assertEquals(scan.getNearestPoint().getRange(), decoded.getNearestPoint().getRange(), 0);
+	}
+
+	@Test
+	public void testScanWithInvalidSize() throws IOException {
+		byte[] encoded = encode(new ScanResult2DCodec(), createScan(10));
+		// The point count follows the id and the resolution
+		encoded[8] = 0x7f;
+		try {
+			new ScanResult2DCodec().decode(new DataInputStream(new ByteArrayInputStream(encoded)));
+			Assert.fail("Expected the scan to be rejected");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Ignore
+	@Test
+	public void benchmarkCodecs() throws Exception {
+		Tuple3f tuple = new Tuple3f(1.5f, -2.25f, 3.75f);
+		ScanResultImpl scan = createScan(360);
+		System.out.println(String.format("%-12s %8s %8s %8s %12s %12s %12s %12s", "Type", "Codec", "Ser.1st", "Ser.nth",
+				"Codec enc", "Codec dec", "Ser. enc", "Ser. dec"));
+		benchmark("Tuple3f", new Tuple3fCodec(), tuple, new SerializableTuple3f(tuple));
+		benchmark("Point2f", new Point2fCodec(), Point2f.fromPolar(2.5f, 0.75f),
+				new SerializablePoint(Point2f.fromPolar(2.5f, 0.75f)));
+		benchmark("Scan (360)", new ScanResult2DCodec(), scan, new SerializableScan(scan));
+	}
+
+	private static <T> void benchmark(String name, MessageCodec<T> codec, T message, Serializable serializable) throws Exception {
+		int codecSize = encode(codec, message).length;
+		int serializedFirstSize = serialize(serializable).length;
+		// In a long lived stream, like the one used by the message client,
+		// the class descriptors are only written once
+		ByteArrayOutputStream streamBytes = new ByteArrayOutputStream();
+		ObjectOutputStream stream = new ObjectOutputStream(streamBytes);
+		stream.writeObject(serializable);
+		stream.flush();
+		int before = streamBytes.size();
+		// An equal, but not identical, message
+		stream.writeObject(new ObjectInputStream(new ByteArrayInputStream(serialize(serializable))).readObject());
+		stream.flush();
+		int serializedNthSize = streamBytes.size() - before;
+
+		byte[] encoded = encode(codec, message);
+		byte[] serialized = serialize(serializable);
+		double codecEncode = time(() -> encode(codec, message));
+		double codecDecode = time(() -> codec.decode(new DataInputStream(new ByteArrayInputStream(encoded))));
+		double serializeEncode = time(() -> serialize(serializable));
+		double serializeDecode = time(() -> new ObjectInputStream(new ByteArrayInputStream(serialized)).readObject());
+		System.out.println(String.format("%-12s %8d %8d %8d %9.0f ns %9.0f ns %9.0f ns %9.0f ns", name, codecSize, serializedFirstSize,
+				serializedNthSize, codecEncode, codecDecode, serializeEncode, serializeDecode));
+	}
+
+	private interface BenchmarkTask {
+		Object run() throws Exception;
+	}
+
+	private static double time(BenchmarkTask task) throws Exception {
+		Object sink = null;
+		for (int i = 0; i < BENCHMARK_WARMUP; i++) {
+			sink = task.run();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+			sink = task.run();
+		}
+		long time = System.nanoTime() - start;
+		Assert.assertNotNull(sink);
+		return time / (double) BENCHMARK_ITERATIONS;
+	}
+
+	private static ScanResultImpl createScan(int numberOfPoints) {
+		ScanResultImpl scan = new ScanResultImpl(numberOfPoints, 0.5f, (point) -> true);
+		for (int i = 0; i < numberOfPoints; i++) {
+			scan.addPoint(1.0f + (i % 17) * 0.1f, (float) Math.toRadians(i * 0.5 - 90));
+		}
+		return scan;
+	}
+
+	private static <T> T roundTrip(MessageCodec<T> codec, T message) throws IOException {
+		return codec.decode(new DataInputStream(new ByteArrayInputStream(encode(codec, message))));
+	}
+
+	private static <T> byte[] encode(MessageCodec<T> codec, T message) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		codec.encode(message, new DataOutputStream(bytes));
+		return bytes.toByteArray();
+	}
+
+	private static byte[] serialize(Serializable object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		return bytes.toByteArray();
+	}
+}
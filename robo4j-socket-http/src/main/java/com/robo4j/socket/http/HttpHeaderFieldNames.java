@@ -55,6 +55,8 @@ public final class HttpHeaderFieldNames {
 
 	public static final String SERVER = "server";
 
+	public static final String TRANSFER_ENCODING = "transfer-encoding";
+
 	public static final String ROBO_UNIT_UID = "uid";
 
 }
@@ -22,9 +22,11 @@ import com.robo4j.logging.SimpleLoggingUtil;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.function.Consumer;
 
 /**
- * Handle OP_ACCEPT
+ * Handle OP_ACCEPT. Accepted channels are configured for non-blocking I/O and
+ * handed over to the channel consumer, typically one of the I/O reactors.
  *
  * @author Marcus Hirt (@hirt)
  * @author Miro Wengner (@miragemiko)
@@ -33,10 +35,12 @@ public class AcceptSelectionKeyHandler implements SelectionKeyHandler {
 
 	private final SelectionKey key;
 	private final int bufferCapacity;
+	private final Consumer<SocketChannel> channelConsumer;
 
-	public AcceptSelectionKeyHandler(SelectionKey key, int bufferCapacity) {
+	public AcceptSelectionKeyHandler(SelectionKey key, int bufferCapacity, Consumer<SocketChannel> channelConsumer) {
 		this.key = key;
 		this.bufferCapacity = bufferCapacity;
+		this.channelConsumer = channelConsumer;
 	}
 
 	@Override
@@ -44,9 +48,12 @@ public class AcceptSelectionKeyHandler implements SelectionKeyHandler {
 		try {
 			ServerSocketChannel serverChannel = (ServerSocketChannel) key.channel();
 			SocketChannel channel = serverChannel.accept();
+			if (channel == null) {
+				return key;
+			}
 			serverChannel.socket().setReceiveBufferSize(bufferCapacity);
 			channel.configureBlocking(false);
-			channel.register(key.selector(), SelectionKey.OP_READ);
+			channelConsumer.accept(channel);
 		} catch (Exception e) {
 			SimpleLoggingUtil.error(getClass(), "handle accept", e);
 		}
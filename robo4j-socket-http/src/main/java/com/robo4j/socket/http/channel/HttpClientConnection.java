@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2014, 2017, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.socket.http.channel;
+
+import com.robo4j.socket.http.message.HttpDecoratedRequest;
+import com.robo4j.socket.http.message.HttpDecoratedResponse;
+import com.robo4j.socket.http.util.HttpResponseParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * State of one pooled client connection to a http server. Attached to the
+ * selection key of the connection, and only ever touched by the thread of the
+ * {@link OutboundHttpReactor}.
+ *
+ * A connection carries one request at a time. Once the response is complete
+ * and the server allows it, the connection goes back to the idle connections
+ * of its host and is reused for the next request to the same host.
+ *
+ * <p>Internal implementation class.</p>
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miro Wengner (@miragemiko)
+ */
+final class HttpClientConnection {
+	/**
+	 * A request, encoded once, together with the host it goes to, as
+	 * host:port. The host name is only resolved when a new connection to it
+	 * is opened.
+	 */
+	static final class Exchange {
+		private final HttpDecoratedRequest request;
+		private final String host;
+		private final ByteBuffer encoded;
+		private boolean retried;
+
+		Exchange(HttpDecoratedRequest request, String host, ByteBuffer encoded) {
+			this.request = request;
+			this.host = host;
+			this.encoded = encoded;
+		}
+
+		HttpDecoratedRequest getRequest() {
+			return request;
+		}
+
+		String getHost() {
+			return host;
+		}
+
+		/**
+		 * A request which failed on a reused connection before any byte of
+		 * the response arrived is sent once more, on another connection. The
+		 * server may just have closed the idle connection.
+		 *
+		 * @return true if the request may be sent again.
+		 */
+		boolean retry() {
+			if (retried) {
+				return false;
+			}
+			retried = true;
+			return true;
+		}
+	}
+
+	private final String host;
+	private final SocketChannel channel;
+	private final HttpResponseParser parser = new HttpResponseParser();
+	private SelectionKey key;
+	private Exchange exchange;
+	private ByteBuffer writeBuffer;
+	private boolean reused;
+	private long lastActivity = System.nanoTime();
+
+	HttpClientConnection(String host, SocketChannel channel) {
+		this.host = host;
+		this.channel = channel;
+	}
+
+	/**
+	 * @return the host of the connection, as host:port.
+	 */
+	String getHost() {
+		return host;
+	}
+
+	SocketChannel getChannel() {
+		return channel;
+	}
+
+	SelectionKey getKey() {
+		return key;
+	}
+
+	void setKey(SelectionKey key) {
+		this.key = key;
+	}
+
+	Exchange getExchange() {
+		return exchange;
+	}
+
+	/**
+	 * Starts the exchange on this connection. The request is written once the
+	 * channel is connected and writable.
+	 */
+	void startExchange(Exchange exchange) {
+		this.exchange = exchange;
+		this.writeBuffer = exchange.encoded.duplicate();
+		parser.reset();
+	}
+
+	/**
+	 * Ends the current exchange, successful or not.
+	 *
+	 * @return the exchange which has been ended, or null if there was none.
+	 */
+	Exchange endExchange() {
+		final Exchange result = exchange;
+		exchange = null;
+		writeBuffer = null;
+		reused = true;
+		touch();
+		return result;
+	}
+
+	boolean isBusy() {
+		return exchange != null;
+	}
+
+	/**
+	 * @return true if the connection has carried requests before the current
+	 *         one.
+	 */
+	boolean isReused() {
+		return reused;
+	}
+
+	/**
+	 * @return true if no byte of the response to the current request has been
+	 *         received.
+	 */
+	boolean isResponsePending() {
+		return parser.isIdle();
+	}
+
+	/**
+	 * Writes as much of the request as the channel accepts.
+	 *
+	 * @return true if the whole request has been written.
+	 */
+	boolean write() throws IOException {
+		while (writeBuffer.hasRemaining()) {
+			if (channel.write(writeBuffer) == 0) {
+				return false;
+			}
+		}
+		touch();
+		return true;
+	}
+
+	/**
+	 * Reads what is available from the channel into the response.
+	 *
+	 * @param readBuffer
+	 *            the buffer to read into, shared by all connections of the
+	 *            reactor. Nothing is left in it after the call.
+	 * @return true if the response is complete.
+	 */
+	boolean read(ByteBuffer readBuffer) throws IOException {
+		readBuffer.clear();
+		final int count = channel.read(readBuffer);
+		if (count < 0) {
+			if (parser.parseEndOfStream()) {
+				return true;
+			}
+			throw new IOException("connection closed by server");
+		}
+		touch();
+		readBuffer.flip();
+		final boolean complete = parser.parse(readBuffer);
+		if (complete && readBuffer.hasRemaining()) {
+			throw new IOException("unexpected bytes after the response");
+		}
+		return complete;
+	}
+
+	/**
+	 * @return true if the connection can carry the next request.
+	 */
+	boolean isKeepAlive() {
+		return parser.isKeepAlive();
+	}
+
+	HttpDecoratedResponse toDecoratedResponse() {
+		final HttpDecoratedResponse result = parser.toDecoratedResponse();
+		result.addCallbacks(exchange.getRequest().getCallbacks());
+		return result;
+	}
+
+	boolean isIdle(long now, long keepAliveTimeoutNanos) {
+		return exchange == null && now - lastActivity >= keepAliveTimeoutNanos;
+	}
+
+	private void touch() {
+		lastActivity = System.nanoTime();
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2014, 2017, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.robo4j.socket.http.channel;
+
+import com.robo4j.socket.http.HttpHeaderFieldNames;
+import com.robo4j.socket.http.HttpHeaderFieldValues;
+import com.robo4j.socket.http.HttpVersion;
+import com.robo4j.socket.http.enums.StatusCode;
+import com.robo4j.socket.http.message.HttpDecoratedRequest;
+import com.robo4j.socket.http.request.HttpResponseProcess;
+import com.robo4j.socket.http.request.HttpResponseStream;
+import com.robo4j.socket.http.util.ByteBufferPool;
+import com.robo4j.socket.http.util.HttpRequestParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * State of one persistent (keep-alive) connection to the http server. Attached
+ * to the selection key of the connection, and only ever touched by the
+ * selector thread.
+ *
+ * The connection owns its read buffer and response writer, so they are reused
+ * for all the requests on the connection. Requests are parsed incrementally as
+ * the bytes arrive, so a request may span any number of reads, and pipelined
+ * requests are taken out of the read buffer one at a time. Their responses are
+ * queued and written in the order the requests arrived.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miro Wengner (@miragemiko)
+ */
+final class HttpConnection {
+	static final class PendingResponse {
+		private final CompletableFuture<HttpResponseProcess> process;
+		private final boolean keepAlive;
+
+		PendingResponse(CompletableFuture<HttpResponseProcess> process, boolean keepAlive) {
+			this.process = process;
+			this.keepAlive = keepAlive;
+		}
+
+		/**
+		 * @return true if the request has been processed, and the response
+		 *         can be written.
+		 */
+		boolean isDone() {
+			return process.isDone();
+		}
+
+		HttpResponseProcess getProcess() {
+			return process.join();
+		}
+
+		boolean isKeepAlive() {
+			return keepAlive;
+		}
+	}
+
+	private final Deque<PendingResponse> responses = new ArrayDeque<>();
+	private final ByteBuffer readBuffer;
+	private final HttpRequestParser parser = new HttpRequestParser();
+	private final HttpResponseWriter responseWriter;
+	private boolean writing;
+	private long lastActivity = System.nanoTime();
+
+	HttpConnection(int bufferCapacity, ByteBufferPool bufferPool) {
+		readBuffer = ByteBuffer.allocate(bufferCapacity);
+		responseWriter = new HttpResponseWriter(bufferPool);
+	}
+
+	/**
+	 * Reads what is available from the channel.
+	 *
+	 * @return the number of bytes read, -1 if the client closed the
+	 *         connection.
+	 */
+	int read(SocketChannel channel) throws IOException {
+		int count = channel.read(readBuffer);
+		if (count > 0) {
+			touch();
+		}
+		return count;
+	}
+
+	/**
+	 * Parses what has been read so far.
+	 *
+	 * @return the next request, or null if no complete request has been
+	 *         received yet.
+	 */
+	HttpDecoratedRequest pollRequest() {
+		final boolean complete;
+		readBuffer.flip();
+		try {
+			complete = parser.parse(readBuffer);
+		} finally {
+			// Keep what belongs to the next, pipelined, request
+			readBuffer.compact();
+		}
+		if (!complete) {
+			return null;
+		}
+		final HttpDecoratedRequest result = parser.toDecoratedRequest();
+		parser.reset();
+		return result;
+	}
+
+	/**
+	 * Queues the response to a request which may still be processed. The
+	 * responses are written in the order they were added, regardless of the
+	 * order in which they complete.
+	 */
+	void addResponse(CompletableFuture<HttpResponseProcess> process, boolean keepAlive) {
+		responses.add(new PendingResponse(process, keepAlive));
+	}
+
+	PendingResponse peekResponse() {
+		return responses.peek();
+	}
+
+	boolean hasPendingResponses() {
+		return !responses.isEmpty();
+	}
+
+	/**
+	 * Prepares the response to the pending response at the head of the queue
+	 * for writing.
+	 */
+	void startWriting(StatusCode code, String connection, String unitId, Object body) {
+		responseWriter.start(code, connection, unitId, body);
+		writing = true;
+	}
+
+	/**
+	 * Prepares the streaming response to the pending response at the head of
+	 * the queue for writing.
+	 */
+	void startStreaming(StatusCode code, String connection, String unitId, HttpResponseStream stream) {
+		responseWriter.startStream(code, connection, unitId, stream);
+		writing = true;
+	}
+
+	/**
+	 * @return true if the response being written is a stream, which has
+	 *         nothing more to send for now.
+	 */
+	boolean isWaitingForFrames() {
+		return writing && responseWriter.isWaitingForFrames();
+	}
+
+	/**
+	 * Called when the connection is closed, to end a stream being written.
+	 */
+	void close() {
+		if (writing) {
+			responseWriter.closeStream();
+		}
+	}
+
+	boolean isWriting() {
+		return writing;
+	}
+
+	/**
+	 * Writes as much of the current response as the channel accepts.
+	 *
+	 * @return true if the whole response has been written.
+	 */
+	boolean write(SocketChannel channel) throws IOException {
+		if (!responseWriter.write(channel)) {
+			return false;
+		}
+		touch();
+		return true;
+	}
+
+	/**
+	 * Removes the response that has just been written.
+	 *
+	 * @return the written response.
+	 */
+	PendingResponse finishWriting() {
+		writing = false;
+		responseWriter.finish();
+		return responses.poll();
+	}
+
+	boolean isIdle(long nowNanos, long timeoutNanos) {
+		return responses.isEmpty() && nowNanos - lastActivity > timeoutNanos;
+	}
+
+	private void touch() {
+		lastActivity = System.nanoTime();
+	}
+
+	/**
+	 * @return true if the connection should be kept open after responding
+	 *         to the request.
+	 */
+	static boolean isKeepAlive(HttpDecoratedRequest request) {
+		String connection = request.getHeaderValue(HttpHeaderFieldNames.CONNECTION);
+		if (connection != null) {
+			if (connection.equalsIgnoreCase(HttpHeaderFieldValues.CONNECTION_CLOSE)) {
+				return false;
+			}
+			if (connection.equalsIgnoreCase(HttpHeaderFieldValues.CONNECTION_KEEP_ALIVE)) {
+				return true;
+			}
+		}
+		// Persistent by default from HTTP/1.1
+		return request.getDenominator() != null && HttpVersion.HTTP_1_1.getValue().equals(request.getDenominator().getVersion());
+	}
+}
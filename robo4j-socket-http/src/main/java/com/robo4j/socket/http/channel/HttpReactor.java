@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2014, 2017, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.robo4j.socket.http.channel;
+
+import com.robo4j.RoboContext;
+import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.socket.http.units.CodecRegistry;
+import com.robo4j.socket.http.units.ServerContext;
+import com.robo4j.socket.http.util.ByteBufferPool;
+import com.robo4j.socket.http.util.ChannelUtils;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static com.robo4j.socket.http.util.ChannelUtils.handleSelectorHandler;
+
+/**
+ * One I/O reactor of the HTTP server. Owns a selector, and all the state of
+ * the connections registered with it, which is only ever touched by the
+ * reactor thread. Other threads talk to the reactor through queues: the
+ * acceptor hands over new connections, and the request pool hands back the
+ * keys of connections which have a response ready.
+ *
+ * <p>Internal implementation class.</p>
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miro Wengner (@miragemiko)
+ */
+final class HttpReactor implements Runnable {
+	private static final int MAX_POOLED_BUFFERS = 64;
+
+	private final RoboContext context;
+	private final ServerContext serverContext;
+	private final CodecRegistry codecRegistry;
+	private final Executor requestExecutor;
+	private final int bufferCapacity;
+	// Milliseconds, 0 or less for no idle timeout
+	private final long keepAliveTimeout;
+	private final Selector selector;
+	private final ByteBufferPool bufferPool;
+	private final Queue<SocketChannel> acceptedChannels = new ConcurrentLinkedQueue<>();
+	// Keys with completed responses, written by the reactor thread
+	private final Queue<SelectionKey> respondedKeys = new ConcurrentLinkedQueue<>();
+	private volatile boolean active = true;
+
+	HttpReactor(RoboContext context, ServerContext serverContext, CodecRegistry codecRegistry,
+			Executor requestExecutor, int bufferCapacity, long keepAliveTimeout) throws IOException {
+		this.context = context;
+		this.serverContext = serverContext;
+		this.codecRegistry = codecRegistry;
+		this.requestExecutor = requestExecutor;
+		this.bufferCapacity = bufferCapacity;
+		this.keepAliveTimeout = keepAliveTimeout;
+		this.selector = Selector.open();
+		this.bufferPool = new ByteBufferPool(bufferCapacity, MAX_POOLED_BUFFERS);
+	}
+
+	/**
+	 * Hands a newly accepted connection over to this reactor. May be called
+	 * from any thread.
+	 */
+	void register(SocketChannel channel) {
+		acceptedChannels.offer(channel);
+		selector.wakeup();
+	}
+
+	void stop() {
+		active = false;
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		// Connections are never closed for being idle when there is no timeout,
+		// so there is nothing to wake up for either
+		final boolean idleTimeout = keepAliveTimeout > 0;
+		final long selectTimeout = idleTimeout ? keepAliveTimeout : 0;
+		final long keepAliveTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(keepAliveTimeout);
+		long nextIdleCheck = System.nanoTime() + keepAliveTimeoutNanos;
+		try {
+			while (active) {
+				if (selector.select(selectTimeout) > 0) {
+					Iterator<SelectionKey> selectedIterator = selector.selectedKeys().iterator();
+					while (selectedIterator.hasNext()) {
+						final SelectionKey selectedKey = selectedIterator.next();
+						selectedIterator.remove();
+						handleSelectedKey(selectedKey);
+					}
+				}
+				registerAcceptedChannels();
+				writeResponses();
+
+				long now = System.nanoTime();
+				if (idleTimeout && now - nextIdleCheck >= 0) {
+					closeIdleConnections(now, keepAliveTimeoutNanos);
+					nextIdleCheck = now + keepAliveTimeoutNanos;
+				}
+			}
+		} catch (IOException e) {
+			SimpleLoggingUtil.error(getClass(), "reactor problem: ", e);
+		} finally {
+			closeAllConnections();
+		}
+	}
+
+	private void handleSelectedKey(SelectionKey selectedKey) {
+		if (!selectedKey.isValid()) {
+			return;
+		}
+		try {
+			if (selectedKey.isReadable()) {
+				handleSelectorHandler(new ReadSelectionKeyHandler(context, serverContext, codecRegistry, selectedKey,
+						requestExecutor, this::responseReady));
+			}
+			if (selectedKey.isValid() && selectedKey.isWritable()) {
+				handleSelectorHandler(new WriteSelectionKeyHandler(context, serverContext, selectedKey));
+			}
+		} catch (RuntimeException e) {
+			// A broken connection must not take the reactor down with it
+			SimpleLoggingUtil.error(getClass(), "connection problem: " + e.getMessage());
+			closeConnection(selectedKey);
+		}
+	}
+
+	/**
+	 * Called from the request pool when the response to a request on the
+	 * connection of the key is ready.
+	 */
+	private void responseReady(SelectionKey selectionKey) {
+		respondedKeys.offer(selectionKey);
+		selector.wakeup();
+	}
+
+	private void registerAcceptedChannels() {
+		SocketChannel channel;
+		while ((channel = acceptedChannels.poll()) != null) {
+			try {
+				channel.register(selector, SelectionKey.OP_READ, new HttpConnection(bufferCapacity, bufferPool));
+			} catch (IOException e) {
+				SimpleLoggingUtil.error(getClass(), "register connection problem: " + e.getMessage());
+				closeChannel(channel);
+			}
+		}
+	}
+
+	private void writeResponses() {
+		SelectionKey respondedKey;
+		while ((respondedKey = respondedKeys.poll()) != null) {
+			if (!respondedKey.isValid()) {
+				continue;
+			}
+			try {
+				handleSelectorHandler(new WriteSelectionKeyHandler(context, serverContext, respondedKey));
+			} catch (RuntimeException e) {
+				SimpleLoggingUtil.error(getClass(), "connection problem: " + e.getMessage());
+				closeConnection(respondedKey);
+			}
+		}
+	}
+
+	private void closeIdleConnections(long now, long keepAliveTimeoutNanos) {
+		for (SelectionKey selectionKey : selector.keys()) {
+			Object attachment = selectionKey.attachment();
+			if (selectionKey.isValid() && attachment instanceof HttpConnection
+					&& ((HttpConnection) attachment).isIdle(now, keepAliveTimeoutNanos)) {
+				closeConnection(selectionKey);
+			}
+		}
+	}
+
+	private void closeAllConnections() {
+		SocketChannel channel;
+		while ((channel = acceptedChannels.poll()) != null) {
+			closeChannel(channel);
+		}
+		try {
+			for (SelectionKey selectionKey : selector.keys()) {
+				closeConnection(selectionKey);
+			}
+			selector.close();
+		} catch (IOException e) {
+			SimpleLoggingUtil.error(getClass(), "reactor selector close problem: ", e);
+		}
+	}
+
+	/**
+	 * Closes the connection of the key, ending a response stream being written
+	 * on it.
+	 */
+	static void closeConnection(SelectionKey selectionKey) {
+		final Object attachment = selectionKey.attachment();
+		if (attachment instanceof HttpConnection) {
+			((HttpConnection) attachment).close();
+		}
+		ChannelUtils.closeSelectionKey(selectionKey);
+	}
+
+	private static void closeChannel(SocketChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			SimpleLoggingUtil.debug(HttpReactor.class, "close channel", e);
+		}
+	}
+}
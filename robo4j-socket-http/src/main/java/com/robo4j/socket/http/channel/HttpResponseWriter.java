@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2014, 2017, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.robo4j.socket.http.channel;
+
+import com.robo4j.socket.http.HttpHeaderFieldNames;
+import com.robo4j.socket.http.HttpHeaderFieldValues;
+import com.robo4j.socket.http.HttpVersion;
+import com.robo4j.socket.http.SocketException;
+import com.robo4j.socket.http.enums.StatusCode;
+import com.robo4j.socket.http.request.HttpResponseStream;
+import com.robo4j.socket.http.util.ByteBufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes HTTP responses without building them as strings first. The status
+ * line and the headers are encoded straight into a pooled direct buffer, and
+ * written together with the body in one gathering write. Text bodies are
+ * encoded as UTF-8 into a second pooled buffer, so the content length is the
+ * byte count; binary bodies are written as they are.
+ *
+ * A {@link HttpResponseStream} is written with chunked transfer encoding, one
+ * chunk per frame, taking the frames from the stream as they arrive. The
+ * pooled header buffer is reused for the head of every chunk.
+ *
+ * <p>Internal implementation class. Not thread safe, used by the reactor
+ * thread owning the connection.</p>
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miro Wengner (@miragemiko)
+ */
+final class HttpResponseWriter {
+	private static final byte[] EMPTY = new byte[0];
+	private static final byte CR = '\r';
+	private static final byte LF = '\n';
+	private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CHUNK_END = { CR, LF };
+	private static final byte[] PART_END = { CR, LF, CR, LF };
+	private static final String BOUNDARY_DELIMITER = "--";
+	private static final String LAST_CHUNK = "0\r\n\r\n";
+
+	private final ByteBufferPool pool;
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	// Head, body and tail (only used by chunks)
+	private final ByteBuffer[] buffers = new ByteBuffer[3];
+	private ByteBuffer headerBuffer;
+	private ByteBuffer pooledBodyBuffer;
+	private HttpResponseStream stream;
+	private boolean streamEnded;
+
+	HttpResponseWriter(ByteBufferPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Encodes a response, ready to be written.
+	 *
+	 * @param code
+	 *            the status code.
+	 * @param connection
+	 *            the value of the connection header.
+	 * @param unitId
+	 *            the value of the robo unit header, or null for none.
+	 * @param body
+	 *            the body, a byte[], a ByteBuffer or anything else, which is
+	 *            sent as its string value. May be null.
+	 */
+	void start(StatusCode code, String connection, String unitId, Object body) {
+		final ByteBuffer bodyBuffer = encodeBody(body);
+		headerBuffer = pool.acquire();
+		putAscii(HttpVersion.HTTP_1_1.getValue());
+		headerBuffer.put((byte) ' ');
+		putDecimal(code.getCode());
+		headerBuffer.put((byte) ' ');
+		putAscii(code.getReasonPhrase());
+		putLineEnd();
+		if (unitId != null) {
+			putHeader(HttpHeaderFieldNames.ROBO_UNIT_UID, unitId);
+		}
+		putHeader(HttpHeaderFieldNames.CONNECTION, connection);
+		putAscii(HttpHeaderFieldNames.CONTENT_LENGTH);
+		putAscii(": ");
+		putDecimal(bodyBuffer.remaining());
+		putLineEnd();
+		putLineEnd();
+		headerBuffer.flip();
+		buffers[0] = headerBuffer;
+		buffers[1] = bodyBuffer;
+		buffers[2] = ByteBuffer.wrap(EMPTY);
+	}
+
+	/**
+	 * Encodes the head of a streaming response, ready to be written. The
+	 * frames follow as the stream provides them.
+	 *
+	 * @param code
+	 *            the status code.
+	 * @param connection
+	 *            the value of the connection header.
+	 * @param unitId
+	 *            the value of the robo unit header, or null for none.
+	 * @param stream
+	 *            the stream providing the frames.
+	 */
+	void startStream(StatusCode code, String connection, String unitId, HttpResponseStream stream) {
+		this.stream = stream;
+		this.streamEnded = false;
+		headerBuffer = pool.acquire();
+		putAscii(HttpVersion.HTTP_1_1.getValue());
+		headerBuffer.put((byte) ' ');
+		putDecimal(code.getCode());
+		headerBuffer.put((byte) ' ');
+		putAscii(code.getReasonPhrase());
+		putLineEnd();
+		if (unitId != null) {
+			putHeader(HttpHeaderFieldNames.ROBO_UNIT_UID, unitId);
+		}
+		putHeader(HttpHeaderFieldNames.CONNECTION, connection);
+		putHeader(HttpHeaderFieldNames.CONTENT_TYPE, stream.getContentType());
+		putHeader(HttpHeaderFieldNames.CACHE_CONTROL, HttpHeaderFieldValues.NO_CACHE);
+		putHeader(HttpHeaderFieldNames.TRANSFER_ENCODING, HttpHeaderFieldValues.TRANSFER_ENCODING_CHUNKED);
+		putLineEnd();
+		headerBuffer.flip();
+		buffers[0] = headerBuffer;
+		buffers[1] = ByteBuffer.wrap(EMPTY);
+		buffers[2] = ByteBuffer.wrap(EMPTY);
+	}
+
+	/**
+	 * Writes as much of the current response as the channel accepts.
+	 *
+	 * A stream is written up to the last frame available.
+	 *
+	 * @return true if the whole response has been written.
+	 */
+	boolean write(GatheringByteChannel channel) throws IOException {
+		while (true) {
+			while (buffers[2].hasRemaining() || buffers[1].hasRemaining() || buffers[0].hasRemaining()) {
+				if (channel.write(buffers) == 0) {
+					return false;
+				}
+			}
+			if (stream == null || streamEnded || !nextChunk()) {
+				return stream == null || streamEnded;
+			}
+		}
+	}
+
+	/**
+	 * @return true if all of the stream written so far has been sent, and the
+	 *         stream has no frame to send next.
+	 */
+	boolean isWaitingForFrames() {
+		return stream != null && !streamEnded && !buffers[0].hasRemaining() && !buffers[1].hasRemaining()
+				&& !buffers[2].hasRemaining();
+	}
+
+	/**
+	 * Ends the stream being written, if any, so that its producer stops
+	 * offering frames. Called when the connection is closed.
+	 */
+	void closeStream() {
+		if (stream != null) {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Returns the buffers of the written response to the pool.
+	 */
+	void finish() {
+		pool.release(headerBuffer);
+		pool.release(pooledBodyBuffer);
+		headerBuffer = null;
+		pooledBodyBuffer = null;
+		buffers[0] = null;
+		buffers[1] = null;
+		buffers[2] = null;
+		stream = null;
+	}
+
+	/**
+	 * Encodes the next frame of the stream as a chunk, or the end of the
+	 * stream once it is closed and all frames have been sent.
+	 *
+	 * @return false if there is nothing to send yet.
+	 */
+	private boolean nextChunk() {
+		final Object frame = stream.poll();
+		if (frame == null && !stream.isDrained()) {
+			return false;
+		}
+		pool.release(pooledBodyBuffer);
+		pooledBodyBuffer = null;
+		headerBuffer.clear();
+		if (frame == null) {
+			if (stream.isMultipart()) {
+				final int closeLength = 2 * BOUNDARY_DELIMITER.length() + HttpResponseStream.BOUNDARY.length() + 2;
+				putHex(closeLength);
+				putLineEnd();
+				putAscii(BOUNDARY_DELIMITER);
+				putAscii(HttpResponseStream.BOUNDARY);
+				putAscii(BOUNDARY_DELIMITER);
+				putLineEnd();
+				putLineEnd();
+			}
+			putAscii(LAST_CHUNK);
+			headerBuffer.flip();
+			buffers[0] = headerBuffer;
+			buffers[1] = ByteBuffer.wrap(EMPTY);
+			buffers[2] = ByteBuffer.wrap(EMPTY);
+			streamEnded = true;
+			return true;
+		}
+		final ByteBuffer bodyBuffer = encodeBody(frame);
+		final int length = bodyBuffer.remaining();
+		if (length == 0 && !stream.isMultipart()) {
+			// An empty chunk would end the stream
+			return nextChunk();
+		}
+		if (stream.isMultipart()) {
+			final String partContentType = stream.getPartContentType();
+			final int partHeadLength = BOUNDARY_DELIMITER.length() + HttpResponseStream.BOUNDARY.length() + 2
+					+ HttpHeaderFieldNames.CONTENT_TYPE.length() + 2 + partContentType.length() + 2
+					+ HttpHeaderFieldNames.CONTENT_LENGTH.length() + 2 + decimalLength(length) + 2 + 2;
+			putHex(partHeadLength + length + 2);
+			putLineEnd();
+			putAscii(BOUNDARY_DELIMITER);
+			putAscii(HttpResponseStream.BOUNDARY);
+			putLineEnd();
+			putHeader(HttpHeaderFieldNames.CONTENT_TYPE, partContentType);
+			putAscii(HttpHeaderFieldNames.CONTENT_LENGTH);
+			putAscii(": ");
+			putDecimal(length);
+			putLineEnd();
+			putLineEnd();
+			buffers[2] = ByteBuffer.wrap(PART_END);
+		} else {
+			putHex(length);
+			putLineEnd();
+			buffers[2] = ByteBuffer.wrap(CHUNK_END);
+		}
+		headerBuffer.flip();
+		buffers[0] = headerBuffer;
+		buffers[1] = bodyBuffer;
+		return true;
+	}
+
+	private ByteBuffer encodeBody(Object body) {
+		if (body == null) {
+			return ByteBuffer.wrap(EMPTY);
+		}
+		if (body instanceof byte[]) {
+			return ByteBuffer.wrap((byte[]) body);
+		}
+		if (body instanceof ByteBuffer) {
+			return ((ByteBuffer) body).duplicate();
+		}
+		final CharBuffer text = CharBuffer.wrap(body.toString());
+		pooledBodyBuffer = pool.acquire();
+		encoder.reset();
+		CoderResult result = encoder.encode(text, pooledBodyBuffer, true);
+		if (!result.isOverflow()) {
+			result = encoder.flush(pooledBodyBuffer);
+		}
+		if (result.isOverflow()) {
+			// Too large for a pooled buffer
+			pool.release(pooledBodyBuffer);
+			pooledBodyBuffer = null;
+			return ByteBuffer.wrap(body.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		pooledBodyBuffer.flip();
+		return pooledBodyBuffer;
+	}
+
+	private void putHeader(String name, String value) {
+		putAscii(name);
+		putAscii(": ");
+		putAscii(value);
+		putLineEnd();
+	}
+
+	private void putLineEnd() {
+		ensureRemaining(2);
+		headerBuffer.put(CR).put(LF);
+	}
+
+	// Header names and values are ASCII by definition
+	private void putAscii(String value) {
+		ensureRemaining(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			headerBuffer.put((byte) value.charAt(i));
+		}
+	}
+
+	private void putDecimal(int value) {
+		if (value >= 10) {
+			putDecimal(value / 10);
+		}
+		ensureRemaining(1);
+		headerBuffer.put((byte) ('0' + value % 10));
+	}
+
+	private void putHex(int value) {
+		if (value >= 16) {
+			putHex(value >>> 4);
+		}
+		ensureRemaining(1);
+		headerBuffer.put(HEX_DIGITS[value & 0xF]);
+	}
+
+	private static int decimalLength(int value) {
+		int result = 1;
+		while (value >= 10) {
+			value /= 10;
+			result++;
+		}
+		return result;
+	}
+
+	private void ensureRemaining(int length) {
+		if (headerBuffer.remaining() < length) {
+			throw new SocketException("response header too large");
+		}
+	}
+}
@@ -19,36 +19,58 @@ package com.robo4j.socket.http.channel;
 
 import com.robo4j.RoboContext;
 import com.robo4j.logging.SimpleLoggingUtil;
-import com.robo4j.socket.http.request.HttpResponseProcess;
+import com.robo4j.scheduler.RoboThreadFactory;
+import com.robo4j.socket.http.SocketException;
 import com.robo4j.socket.http.units.CodecRegistry;
 import com.robo4j.socket.http.units.ServerContext;
 import com.robo4j.socket.http.util.ChannelUtils;
 
 import java.io.IOException;
 import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import static com.robo4j.socket.http.util.ChannelUtils.handleSelectorHandler;
-import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_CODEC_REGISTRY;
+import static com.robo4j.socket.http.util.RoboHttpUtils.DEFAULT_KEEP_ALIVE_TIMEOUT;
+import static com.robo4j.socket.http.util.RoboHttpUtils.DEFAULT_REACTOR_COUNT;
+import static com.robo4j.socket.http.util.RoboHttpUtils.DEFAULT_REQUEST_POOL_SIZE;
 import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_BUFFER_CAPACITY;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_CODEC_REGISTRY;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_KEEP_ALIVE_TIMEOUT;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_REACTOR_COUNT;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_REQUEST_POOL_SIZE;
 
 /**
- * Inbound context co
+ * Inbound context. One acceptor thread accepts the connections and hands them
+ * out round-robin to a configurable number of {@link HttpReactor}s, each with
+ * its own selector and thread, which do all the I/O for their connections.
+ * Accepted connections stay open for as long as the client keeps them alive,
+ * and are closed after the configured keep alive timeout without any traffic.
+ *
+ * Requests are processed on a separate request pool, so a slow request does
+ * not hold up any reactor.
  *
  * @author Marcus Hirt (@hirt)
  * @author Miro Wengner (@miragemiko)
  */
 public class InboundHttpSocketChannelHandler implements ChannelHandler {
+	private static final String NAME_REQUEST_POOL = "Robo4J HTTP Request";
+	private static final String NAME_ACCEPTOR = "Robo4J HTTP Acceptor";
+	private static final String NAME_REACTOR_POOL = "Robo4J HTTP Reactor";
 
 	private final RoboContext context;
 	private final ServerContext serverContext;
-	private final Map<SelectionKey, HttpResponseProcess> outBuffers = new ConcurrentHashMap<>();
-	private ServerSocketChannel socketChannel;
-	private boolean active;
+	private volatile ServerSocketChannel socketChannel;
+	private volatile Selector selector;
+	private volatile boolean active;
+	private volatile ExecutorService requestExecutor;
+	private volatile HttpReactor[] reactors;
+	private int nextReactor;
 
 	public InboundHttpSocketChannelHandler(RoboContext context, ServerContext serverContext) {
 		this.context = context;
@@ -59,55 +81,93 @@ public class InboundHttpSocketChannelHandler implements ChannelHandler {
 	public void start() {
 		if (!active) {
 			active = true;
-			context.getScheduler().execute(() -> initSocketChannel(serverContext));
+			requestExecutor = Executors.newFixedThreadPool(
+					getIntProperty(PROPERTY_REQUEST_POOL_SIZE, DEFAULT_REQUEST_POOL_SIZE),
+					new RoboThreadFactory(new ThreadGroup(NAME_REQUEST_POOL), NAME_REQUEST_POOL, true));
+			reactors = startReactors();
+			new RoboThreadFactory(new ThreadGroup(NAME_ACCEPTOR), NAME_ACCEPTOR, true)
+					.newThread(() -> initSocketChannel(serverContext)).start();
 		}
 	}
 
 	@Override
 	public void stop() {
+		if (!active) {
+			return;
+		}
+		active = false;
+		// The acceptor closes the server socket channel once it sees the flag
+		Selector currentSelector = selector;
+		if (currentSelector != null) {
+			currentSelector.wakeup();
+		}
+		for (HttpReactor reactor : reactors) {
+			reactor.stop();
+		}
+		requestExecutor.shutdown();
+	}
+
+	private HttpReactor[] startReactors() {
+		final CodecRegistry codecRegistry = serverContext.getPropertySafe(CodecRegistry.class, PROPERTY_CODEC_REGISTRY);
+		final int bufferCapacity = serverContext.getPropertySafe(Integer.class, PROPERTY_BUFFER_CAPACITY);
+		final int keepAliveTimeout = getIntProperty(PROPERTY_KEEP_ALIVE_TIMEOUT, DEFAULT_KEEP_ALIVE_TIMEOUT);
+		final HttpReactor[] result = new HttpReactor[Math.max(1, getIntProperty(PROPERTY_REACTOR_COUNT, DEFAULT_REACTOR_COUNT))];
+		final ThreadFactory threadFactory = new RoboThreadFactory(new ThreadGroup(NAME_REACTOR_POOL), NAME_REACTOR_POOL, true);
 		try {
-			if (socketChannel != null && socketChannel.isOpen()) {
-				active = false;
-				socketChannel.close();
+			for (int i = 0; i < result.length; i++) {
+				result[i] = new HttpReactor(context, serverContext, codecRegistry, requestExecutor, bufferCapacity,
+						keepAliveTimeout);
+				threadFactory.newThread(result[i]).start();
 			}
 		} catch (IOException e) {
-			SimpleLoggingUtil.error(getClass(), "server stop problem: ", e);
+			for (HttpReactor reactor : result) {
+				if (reactor != null) {
+					reactor.stop();
+				}
+			}
+			throw new SocketException("start reactors", e);
 		}
+		return result;
 	}
 
 	private void initSocketChannel(ServerContext serverContext) {
 		socketChannel = ChannelUtils.initServerSocketChannel(serverContext);
 		final SelectionKey key = ChannelUtils.registerSelectionKey(socketChannel);
-
-		final CodecRegistry codecRegistry = serverContext.getPropertySafe(CodecRegistry.class, PROPERTY_CODEC_REGISTRY);
+		selector = key.selector();
 		final int bufferCapacity = serverContext.getPropertySafe(Integer.class, PROPERTY_BUFFER_CAPACITY);
 
 		while (active) {
-			int channelReady = ChannelUtils.getReadyChannelBySelectionKey(key);
-			if (channelReady == 0) {
+			// Only woken up by new connections, or by stop
+			if (ChannelUtils.getReadyChannelBySelectionKey(key) == 0) {
 				continue;
 			}
-
-			Set<SelectionKey> selectedKeys = key.selector().selectedKeys();
-			Iterator<SelectionKey> selectedIterator = selectedKeys.iterator();
-
+			Iterator<SelectionKey> selectedIterator = selector.selectedKeys().iterator();
 			while (selectedIterator.hasNext()) {
 				final SelectionKey selectedKey = selectedIterator.next();
-
 				selectedIterator.remove();
-
-				if (selectedKey.isAcceptable()) {
-					handleSelectorHandler(new AcceptSelectionKeyHandler(selectedKey, bufferCapacity));
-				} else if (selectedKey.isConnectable()) {
-					handleSelectorHandler(new ConnectSelectionKeyHandler(selectedKey));
-				} else if (selectedKey.isReadable()) {
-					handleSelectorHandler(new ReadSelectionKeyHandler(context, serverContext, codecRegistry, outBuffers, selectedKey));
-				} else if (selectedKey.isWritable()) {
-					handleSelectorHandler(new WriteSelectionKeyHandler(context, serverContext, outBuffers, selectedKey));
+				if (selectedKey.isValid() && selectedKey.isAcceptable()) {
+					handleSelectorHandler(new AcceptSelectionKeyHandler(selectedKey, bufferCapacity, this::dispatch));
 				}
 			}
 		}
+		try {
+			socketChannel.close();
+			selector.close();
+		} catch (IOException e) {
+			SimpleLoggingUtil.error(getClass(), "server selector close problem: ", e);
+		}
 	}
 
+	// Only called from the acceptor thread
+	private void dispatch(SocketChannel channel) {
+		final HttpReactor[] currentReactors = reactors;
+		currentReactors[nextReactor].register(channel);
+		nextReactor = (nextReactor + 1) % currentReactors.length;
+	}
+
+	private int getIntProperty(String name, int defaultValue) {
+		final Integer value = serverContext.getPropertySafe(Integer.class, name);
+		return value == null ? defaultValue : value;
+	}
 
 }
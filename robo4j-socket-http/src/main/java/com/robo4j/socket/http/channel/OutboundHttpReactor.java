@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2014, 2017, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.socket.http.channel;
+
+import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.scheduler.RoboThreadFactory;
+import com.robo4j.socket.http.SocketException;
+import com.robo4j.socket.http.message.HttpDecoratedRequest;
+import com.robo4j.socket.http.message.HttpDecoratedResponse;
+import com.robo4j.socket.http.util.ChannelBufferUtils;
+import com.robo4j.socket.http.util.HttpMessageBuilder;
+import com.robo4j.socket.http.util.RoboHttpUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Outbound context of the http client. A single thread does all the I/O on
+ * one selector. Connections are pooled per host, kept alive between requests
+ * for as long as the server allows and closed after the keep alive timeout
+ * without any traffic.
+ *
+ * At most the configured number of requests are in flight at any time, and at
+ * most the configured number of connections are open to each host. Requests
+ * beyond that wait for a free connection. If too many requests are waiting,
+ * the oldest one is dropped.
+ *
+ * Responses are handed to the response listener on the reactor thread, so the
+ * listener must not block.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miro Wengner (@miragemiko)
+ */
+public class OutboundHttpReactor implements ChannelHandler {
+	private static final String NAME_CLIENT_REACTOR = "Robo4J HTTP Client Reactor";
+	private static final int MAX_WAITING_REQUESTS = 1024;
+
+	/**
+	 * Connections to one host, only touched by the reactor thread.
+	 */
+	private static final class HostPool {
+		private final Deque<HttpClientConnection> idleConnections = new ArrayDeque<>();
+		private int openConnections;
+	}
+
+	private final Consumer<HttpDecoratedResponse> responseListener;
+	private final int maxInFlight;
+	private final int maxConnectionsPerHost;
+	private final int bufferCapacity;
+	// Milliseconds, 0 or less for no idle timeout
+	private final long keepAliveTimeout;
+	private final Queue<HttpClientConnection.Exchange> submittedExchanges = new ConcurrentLinkedQueue<>();
+	// The state below is only touched by the reactor thread
+	private final Deque<HttpClientConnection.Exchange> waitingExchanges = new ArrayDeque<>();
+	// Keyed by host:port
+	private final Map<String, HostPool> hostPools = new HashMap<>();
+	private int inFlight;
+	private volatile Selector selector;
+	private volatile boolean active;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param responseListener
+	 *            receives all responses, called on the reactor thread.
+	 * @param maxInFlight
+	 *            the maximum number of requests sent, but not yet responded
+	 *            to.
+	 * @param maxConnectionsPerHost
+	 *            the maximum number of connections open to the same host.
+	 * @param bufferCapacity
+	 *            the capacity of the read buffer.
+	 * @param keepAliveTimeout
+	 *            the time in milliseconds an idle connection is kept open, 0
+	 *            or less to keep it open until the server closes it.
+	 */
+	public OutboundHttpReactor(Consumer<HttpDecoratedResponse> responseListener, int maxInFlight,
+			int maxConnectionsPerHost, int bufferCapacity, long keepAliveTimeout) {
+		this.responseListener = responseListener;
+		this.maxInFlight = Math.max(1, maxInFlight);
+		this.maxConnectionsPerHost = Math.max(1, maxConnectionsPerHost);
+		this.bufferCapacity = bufferCapacity;
+		this.keepAliveTimeout = keepAliveTimeout;
+	}
+
+	@Override
+	public void start() {
+		if (!active) {
+			try {
+				selector = Selector.open();
+			} catch (IOException e) {
+				throw new SocketException("open selector", e);
+			}
+			active = true;
+			new RoboThreadFactory(new ThreadGroup(NAME_CLIENT_REACTOR), NAME_CLIENT_REACTOR, true).newThread(this::run)
+					.start();
+		}
+	}
+
+	@Override
+	public void stop() {
+		if (active) {
+			active = false;
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Queues the request to be sent. May be called from any thread.
+	 *
+	 * @param request
+	 *            request with host and port set.
+	 */
+	public void send(HttpDecoratedRequest request) {
+		if (!active) {
+			SimpleLoggingUtil.error(getClass(), "client not started, dropping request: " + request);
+			return;
+		}
+		// Resolving the host may block, so it is left to the reactor
+		final String host = RoboHttpUtils.createHost(request.getHost(), request.getPort());
+		submittedExchanges.offer(new HttpClientConnection.Exchange(request, host, encodeRequest(request)));
+		selector.wakeup();
+	}
+
+	private static ByteBuffer encodeRequest(HttpDecoratedRequest request) {
+		final HttpMessageBuilder builder = HttpMessageBuilder.Build().setDenominator(request.getDenominator())
+				.addHeaderElements(request.getHeader());
+		final String message = request.getMessage() == null ? builder.build() : builder.build(request.getMessage());
+		return ChannelBufferUtils.getByteBufferByString(message);
+	}
+
+	private void run() {
+		final ByteBuffer readBuffer = ByteBuffer.allocateDirect(bufferCapacity);
+		// Without a timeout, idle connections are only closed by the server,
+		// and the selector only wakes up for I/O and new requests
+		final boolean idleTimeout = keepAliveTimeout > 0;
+		final long selectTimeout = idleTimeout ? keepAliveTimeout : 0;
+		final long keepAliveTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(keepAliveTimeout);
+		long nextIdleCheck = System.nanoTime() + keepAliveTimeoutNanos;
+		try {
+			while (active) {
+				if (selector.select(selectTimeout) > 0) {
+					Iterator<SelectionKey> selectedIterator = selector.selectedKeys().iterator();
+					while (selectedIterator.hasNext()) {
+						final SelectionKey selectedKey = selectedIterator.next();
+						selectedIterator.remove();
+						handleSelectedKey(selectedKey, readBuffer);
+					}
+				}
+				takeSubmittedExchanges();
+				dispatchWaitingExchanges();
+
+				long now = System.nanoTime();
+				if (idleTimeout && now - nextIdleCheck >= 0) {
+					closeIdleConnections(now, keepAliveTimeoutNanos);
+					nextIdleCheck = now + keepAliveTimeoutNanos;
+				}
+			}
+		} catch (IOException e) {
+			SimpleLoggingUtil.error(getClass(), "client reactor problem: ", e);
+		} finally {
+			closeAllConnections();
+		}
+	}
+
+	private void handleSelectedKey(SelectionKey selectedKey, ByteBuffer readBuffer) {
+		final HttpClientConnection connection = (HttpClientConnection) selectedKey.attachment();
+		if (!selectedKey.isValid()) {
+			return;
+		}
+		try {
+			if (selectedKey.isConnectable()) {
+				connection.getChannel().finishConnect();
+				selectedKey.interestOps(SelectionKey.OP_WRITE);
+			} else if (selectedKey.isWritable()) {
+				if (connection.write()) {
+					selectedKey.interestOps(SelectionKey.OP_READ);
+				}
+			} else if (selectedKey.isReadable()) {
+				if (!connection.isBusy()) {
+					// Only the end of the stream is expected on an idle connection
+					closeConnection(connection);
+				} else if (connection.read(readBuffer)) {
+					completeExchange(connection);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			failExchange(connection, e);
+		}
+	}
+
+	private void takeSubmittedExchanges() {
+		HttpClientConnection.Exchange exchange;
+		while ((exchange = submittedExchanges.poll()) != null) {
+			if (waitingExchanges.size() >= MAX_WAITING_REQUESTS) {
+				final HttpClientConnection.Exchange dropped = waitingExchanges.poll();
+				SimpleLoggingUtil.error(getClass(), "too many waiting requests, dropping: " + dropped.getRequest());
+			}
+			waitingExchanges.add(exchange);
+		}
+	}
+
+	/**
+	 * Starts the waiting requests, oldest first, as long as requests may be
+	 * sent. Requests to a host without a free connection keep waiting, and do
+	 * not hold up the requests to other hosts.
+	 */
+	private void dispatchWaitingExchanges() {
+		final Iterator<HttpClientConnection.Exchange> iterator = waitingExchanges.iterator();
+		while (inFlight < maxInFlight && iterator.hasNext()) {
+			final HttpClientConnection.Exchange exchange = iterator.next();
+			final HostPool hostPool = hostPools.computeIfAbsent(exchange.getHost(), h -> new HostPool());
+			HttpClientConnection connection = hostPool.idleConnections.pollLast();
+			if (connection == null) {
+				if (hostPool.openConnections >= maxConnectionsPerHost) {
+					continue;
+				}
+				connection = openConnection(exchange, hostPool);
+				if (connection == null) {
+					iterator.remove();
+					continue;
+				}
+			} else {
+				connection.getKey().interestOps(SelectionKey.OP_WRITE);
+			}
+			iterator.remove();
+			connection.startExchange(exchange);
+			inFlight++;
+		}
+	}
+
+	/**
+	 * Opens a new connection for the exchange. This is the only place the
+	 * host name is resolved, so requests on pooled connections never wait for
+	 * a lookup.
+	 */
+	private HttpClientConnection openConnection(HttpClientConnection.Exchange exchange, HostPool hostPool) {
+		final HttpDecoratedRequest request = exchange.getRequest();
+		SocketChannel channel = null;
+		try {
+			final InetSocketAddress address = new InetSocketAddress(request.getHost(), request.getPort());
+			if (address.isUnresolved()) {
+				throw new IOException("unknown host: " + request.getHost());
+			}
+			channel = SocketChannel.open();
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			final HttpClientConnection result = new HttpClientConnection(exchange.getHost(), channel);
+			final int ops = channel.connect(address) ? SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT;
+			result.setKey(channel.register(selector, ops, result));
+			hostPool.openConnections++;
+			return result;
+		} catch (IOException | RuntimeException e) {
+			SimpleLoggingUtil.error(getClass(),
+					String.format("not available: %s, no worry I continue sending. Error: %s", exchange.getHost(), e));
+			closeChannel(channel);
+			return null;
+		}
+	}
+
+	private void completeExchange(HttpClientConnection connection) {
+		final HttpDecoratedResponse response = connection.toDecoratedResponse();
+		final boolean keepAlive = connection.isKeepAlive();
+		connection.endExchange();
+		inFlight--;
+		if (keepAlive) {
+			// Stays registered for reading, to notice when the server closes it
+			hostPools.get(connection.getHost()).idleConnections.add(connection);
+		} else {
+			closeConnection(connection);
+		}
+		try {
+			responseListener.accept(response);
+		} catch (RuntimeException e) {
+			SimpleLoggingUtil.error(getClass(), "response listener problem: ", e);
+		}
+	}
+
+	private void failExchange(HttpClientConnection connection, Exception e) {
+		final boolean responsePending = connection.isBusy() && connection.isResponsePending();
+		final boolean reused = connection.isReused();
+		final HttpClientConnection.Exchange exchange = connection.isBusy() ? connection.endExchange() : null;
+		closeConnection(connection);
+		if (exchange == null) {
+			return;
+		}
+		inFlight--;
+		if (reused && responsePending && exchange.retry()) {
+			waitingExchanges.addFirst(exchange);
+		} else {
+			SimpleLoggingUtil.error(getClass(), String.format("not available: %s, no worry I continue sending. Error: %s",
+					exchange.getHost(), e));
+		}
+	}
+
+	private void closeConnection(HttpClientConnection connection) {
+		final HostPool hostPool = hostPools.get(connection.getHost());
+		if (connection.getKey().isValid() || connection.getChannel().isOpen()) {
+			hostPool.openConnections--;
+			hostPool.idleConnections.remove(connection);
+		}
+		connection.getKey().cancel();
+		closeChannel(connection.getChannel());
+	}
+
+	private void closeIdleConnections(long now, long keepAliveTimeoutNanos) {
+		for (HostPool hostPool : hostPools.values()) {
+			final Iterator<HttpClientConnection> iterator = hostPool.idleConnections.iterator();
+			while (iterator.hasNext()) {
+				final HttpClientConnection connection = iterator.next();
+				if (connection.isIdle(now, keepAliveTimeoutNanos)) {
+					iterator.remove();
+					closeConnection(connection);
+				}
+			}
+		}
+	}
+
+	private void closeAllConnections() {
+		try {
+			for (SelectionKey selectionKey : selector.keys()) {
+				selectionKey.cancel();
+				closeChannel((SocketChannel) selectionKey.channel());
+			}
+			selector.close();
+		} catch (IOException e) {
+			SimpleLoggingUtil.error(getClass(), "client reactor selector close problem: ", e);
+		}
+		hostPools.clear();
+		waitingExchanges.clear();
+		submittedExchanges.clear();
+		inFlight = 0;
+	}
+
+	private static void closeChannel(SocketChannel channel) {
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			SimpleLoggingUtil.debug(OutboundHttpReactor.class, "close channel", e);
+		}
+	}
+}
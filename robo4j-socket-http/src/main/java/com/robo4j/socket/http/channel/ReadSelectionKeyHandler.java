@@ -18,83 +18,146 @@
 package com.robo4j.socket.http.channel;
 
 import com.robo4j.RoboContext;
+import com.robo4j.jfr.HttpRequestEvent;
+import com.robo4j.jfr.JfrSupport;
+import com.robo4j.logging.SimpleLoggingUtil;
 import com.robo4j.socket.http.SocketException;
+import com.robo4j.socket.http.enums.StatusCode;
 import com.robo4j.socket.http.message.HttpDecoratedRequest;
 import com.robo4j.socket.http.request.HttpResponseProcess;
+import com.robo4j.socket.http.request.HttpResponseProcessBuilder;
+import com.robo4j.socket.http.request.HttpResponseStream;
 import com.robo4j.socket.http.request.RoboRequestCallable;
 import com.robo4j.socket.http.request.RoboRequestFactory;
 import com.robo4j.socket.http.units.CodecRegistry;
+import com.robo4j.socket.http.units.PathHttpMethod;
 import com.robo4j.socket.http.units.ServerContext;
-import com.robo4j.socket.http.util.ChannelRequestBuffer;
 
 import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
-import java.util.Map;
-import java.util.concurrent.Future;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 /**
- * Reading TPC/IP Socket protocol handler
+ * Reading TPC/IP Socket protocol handler. Reads into the buffer of the
+ * {@link HttpConnection} attached to the key, and hands every complete request
+ * found there over to the request executor. The selector thread never waits
+ * for a request to be processed; once a response is ready, the key is passed
+ * to the response listener, which schedules the write on the selector thread.
+ * A streaming response passes the key on again for every frame.
  *
  *
  * @author Marcus Hirt (@hirt)
  * @author Miro Wengner (@miragemiko)
  */
 public class ReadSelectionKeyHandler implements SelectionKeyHandler {
+	private static final boolean JFR_AVAILABLE = JfrSupport.isAvailable();
 
 	private final RoboContext context;
 	private final ServerContext serverContext;
 	@Deprecated  // FIXME: 2/18/18 codecRegistry are in context
 	private final CodecRegistry codecRegistry;
-	private final Map<SelectionKey, HttpResponseProcess> outBuffers;
 	private final SelectionKey key;
-	private final Lock lock = new ReentrantLock();
-	private final ChannelRequestBuffer channelRequestBuffer = new ChannelRequestBuffer();
+	private final Executor requestExecutor;
+	private final Consumer<SelectionKey> responseListener;
 
 	public ReadSelectionKeyHandler(RoboContext context, ServerContext serverContext, CodecRegistry codecRegistry,
-								   Map<SelectionKey, HttpResponseProcess> outBuffers, SelectionKey key) {
+								   SelectionKey key, Executor requestExecutor, Consumer<SelectionKey> responseListener) {
 		this.context = context;
 		this.serverContext = serverContext;
 		this.codecRegistry = codecRegistry;
-		this.outBuffers = outBuffers;
 		this.key = key;
+		this.requestExecutor = requestExecutor;
+		this.responseListener = responseListener;
 	}
 
 	@Override
 	public SelectionKey handle() {
-		SocketChannel channel = (SocketChannel) key.channel();
-		lock.lock();
+		final SocketChannel channel = (SocketChannel) key.channel();
+		final HttpConnection connection = (HttpConnection) key.attachment();
 		try {
-			final HttpDecoratedRequest decoratedRequest = channelRequestBuffer.getHttpDecoratedRequestByChannel(channel);
-			final RoboRequestFactory factory = new RoboRequestFactory(codecRegistry);
-			final RoboRequestCallable callable = new RoboRequestCallable(context, serverContext, decoratedRequest, factory);
-			final Future<HttpResponseProcess> futureResult = context.getScheduler().submit(callable);
-			final HttpResponseProcess result = extractRoboResponseProcess(futureResult);
-			outBuffers.put(key, result);
-			registerSelectionKey(channel);
+			if (connection.read(channel) < 0) {
+				HttpReactor.closeConnection(key);
+				return key;
+			}
+			HttpDecoratedRequest decoratedRequest;
+			while ((decoratedRequest = connection.pollRequest()) != null) {
+				final boolean keepAlive = HttpConnection.isKeepAlive(decoratedRequest);
+				connection.addResponse(handleRequest(decoratedRequest), keepAlive);
+				if (!keepAlive) {
+					// Anything after this request is never answered
+					break;
+				}
+			}
+			if (connection.hasPendingResponses()) {
+				// No more reading until the responses have been written,
+				// the response listener takes it from here
+				key.interestOps(0);
+			}
 			return key;
 		} catch (IOException e){
 			throw new SocketException(e.getMessage());
-		}finally {
-			lock.unlock();
 		}
 	}
 
-	private HttpResponseProcess extractRoboResponseProcess(Future<HttpResponseProcess> future) {
-		try {
-			return future.get();
-		} catch (Exception e) {
-			throw new SocketException("extract robo response", e);
+	private CompletableFuture<HttpResponseProcess> handleRequest(HttpDecoratedRequest decoratedRequest) {
+		final RoboRequestFactory factory = new RoboRequestFactory(codecRegistry);
+		final RoboRequestCallable callable = new RoboRequestCallable(context, serverContext, decoratedRequest, factory);
+		final HttpRequestEvent event = JFR_AVAILABLE ? new HttpRequestEvent() : null;
+		if (event != null) {
+			event.begin();
 		}
+		final CompletableFuture<HttpResponseProcess> result = CompletableFuture
+				.supplyAsync(() -> process(callable), requestExecutor)
+				.exceptionally(e -> createErrorResponse(decoratedRequest, e));
+		result.whenComplete((process, e) -> {
+			if (event != null) {
+				commitEvent(event, decoratedRequest, process);
+			}
+			if (process != null && process.getResult() instanceof HttpResponseStream) {
+				// Every frame offered to the stream schedules the next write
+				((HttpResponseStream) process.getResult()).setFrameListener(() -> responseListener.accept(key));
+			}
+			responseListener.accept(key);
+		});
+		return result;
 	}
 
-	private void registerSelectionKey(SocketChannel channel) {
+	private HttpResponseProcess process(RoboRequestCallable callable) {
 		try {
-			channel.register(key.selector(), SelectionKey.OP_WRITE);
+			return callable.call();
 		} catch (Exception e) {
-			throw new SocketException("register selection key", e);
+			throw new CompletionException(e);
+		}
+	}
+
+	private HttpResponseProcess createErrorResponse(HttpDecoratedRequest decoratedRequest, Throwable e) {
+		SimpleLoggingUtil.error(getClass(), "request processing failed: " + decoratedRequest.getPathMethod(), e);
+		final PathHttpMethod pathMethod = decoratedRequest.getPathMethod();
+		final HttpResponseProcessBuilder builder = HttpResponseProcessBuilder.Builder()
+				.setCode(StatusCode.INTERNAL_SERVER_ERROR);
+		if (pathMethod != null) {
+			builder.setPath(pathMethod.getPath()).setMethod(pathMethod.getMethod());
+		}
+		return builder.build();
+	}
+
+	private static void commitEvent(HttpRequestEvent event, HttpDecoratedRequest decoratedRequest,
+			HttpResponseProcess result) {
+		event.end();
+		if (event.shouldCommit()) {
+			PathHttpMethod pathMethod = decoratedRequest.getPathMethod();
+			if (pathMethod != null) {
+				event.setMethod(String.valueOf(pathMethod.getMethod()));
+				event.setPath(pathMethod.getPath());
+			}
+			if (result != null && result.getCode() != null) {
+				event.setStatusCode(result.getCode().getCode());
+			}
+			event.commit();
 		}
 	}
 }
@@ -19,27 +19,29 @@ package com.robo4j.socket.http.channel;
 
 import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
-import com.robo4j.socket.http.HttpHeaderFieldNames;
-import com.robo4j.socket.http.HttpVersion;
+import com.robo4j.socket.http.HttpHeaderFieldValues;
+import com.robo4j.socket.http.HttpMethod;
 import com.robo4j.socket.http.SocketException;
 import com.robo4j.socket.http.enums.StatusCode;
-import com.robo4j.socket.http.message.HttpDenominator;
-import com.robo4j.socket.http.message.HttpResponseDenominator;
 import com.robo4j.socket.http.request.HttpResponseProcess;
+import com.robo4j.socket.http.request.HttpResponseStream;
 import com.robo4j.socket.http.units.PathHttpMethod;
 import com.robo4j.socket.http.units.ServerContext;
 import com.robo4j.socket.http.units.ServerPathConfig;
-import com.robo4j.socket.http.util.ChannelBufferUtils;
 import com.robo4j.socket.http.util.ChannelUtils;
-import com.robo4j.socket.http.util.HttpMessageBuilder;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
-import java.util.Map;
 
 /**
+ * Writes the pending responses of the {@link HttpConnection} attached to the
+ * key, in the order the requests arrived. Stops at the first response which is
+ * still being processed; it will be called again once that one is ready. The
+ * connection is closed after a response to a request that did not ask to keep
+ * it alive, otherwise it goes back to reading. A streaming response is written
+ * frame by frame, as the stream provides them.
+ *
  * @author Marcus Hirt (@hirt)
  * @author Miro Wengner (@miragemiko)
  */
@@ -47,85 +49,93 @@ public class WriteSelectionKeyHandler implements SelectionKeyHandler {
 
 	private final RoboContext context;
 	private final ServerContext serverContext;
-	private final Map<SelectionKey, HttpResponseProcess> outBuffers;
 	private final SelectionKey key;
 
-	public WriteSelectionKeyHandler(RoboContext context, ServerContext serverContext,
-                                    Map<SelectionKey, HttpResponseProcess> outBuffers, SelectionKey key) {
+	public WriteSelectionKeyHandler(RoboContext context, ServerContext serverContext, SelectionKey key) {
 		this.context = context;
 		this.serverContext = serverContext;
-		this.outBuffers = outBuffers;
 		this.key = key;
 	}
 
-
-
 	@Override
 	public SelectionKey handle() {
-		SocketChannel channel = (SocketChannel) key.channel();
-
-		final HttpResponseProcess responseProcess = outBuffers.get(key);
-
-		ByteBuffer buffer;
-		if (responseProcess.getMethod() != null) {
-			switch (responseProcess.getMethod()) {
-			case GET:
-				String getResponse;
-				if (responseProcess.getResult() != null && responseProcess.getCode().equals(StatusCode.OK)) {
-					// FIXME: 2/18/18 (miro) put abstraction
-					String responseMessage = responseProcess.getResult().toString();
-					HttpDenominator denominator = new HttpResponseDenominator(responseProcess.getCode(),
-							HttpVersion.HTTP_1_1);
-					getResponse = HttpMessageBuilder.Build().setDenominator(denominator)
-							.addHeaderElement(HttpHeaderFieldNames.ROBO_UNIT_UID, context.getId())
-							.addHeaderElement(HttpHeaderFieldNames.CONTENT_LENGTH,
-									String.valueOf(responseMessage.length()))
-							.build(responseMessage);
-				} else {
-					HttpDenominator denominator = new HttpResponseDenominator(responseProcess.getCode(),
-							HttpVersion.HTTP_1_1);
-					getResponse = HttpMessageBuilder.Build().setDenominator(denominator).build();
+		final SocketChannel channel = (SocketChannel) key.channel();
+		final HttpConnection connection = (HttpConnection) key.attachment();
+		try {
+			while (connection.hasPendingResponses()) {
+				final HttpConnection.PendingResponse pending = connection.peekResponse();
+				if (!pending.isDone()) {
+					key.interestOps(0);
+					return key;
+				}
+				if (!connection.isWriting()) {
+					startResponse(connection, pending.getProcess(), pending.isKeepAlive());
+				}
+				if (!connection.write(channel)) {
+					if (connection.isWaitingForFrames()) {
+						// Called again by the stream once it has the next
+						// frame, reading only notices the viewer leaving
+						key.interestOps(SelectionKey.OP_READ);
+					} else {
+						// The socket buffer is full, continue when writable again
+						key.interestOps(SelectionKey.OP_WRITE);
+					}
+					return key;
 				}
-				buffer = ChannelBufferUtils.getByteBufferByString(getResponse);
-				ChannelUtils.handleWriteChannelAndBuffer("get write", channel, buffer);
-				break;
-			case POST:
-				HttpDenominator denominator = new HttpResponseDenominator(responseProcess.getCode(),
-						HttpVersion.HTTP_1_1);
-				String postResponse = HttpMessageBuilder.Build().setDenominator(denominator)
-						.build();
-				if (responseProcess.getResult() != null && responseProcess.getCode().equals(StatusCode.ACCEPTED)) {
-					buffer = ChannelBufferUtils.getByteBufferByString(postResponse);
-					ChannelUtils.handleWriteChannelAndBuffer("post write", channel, buffer);
+				connection.finishWriting();
+				final HttpResponseProcess responseProcess = pending.getProcess();
+				if (responseProcess.getMethod() == HttpMethod.POST && responseProcess.getResult() != null
+						&& StatusCode.ACCEPTED.equals(responseProcess.getCode())) {
 					sendMessageToTargetRoboReference(responseProcess);
-				} else {
-					buffer = ChannelBufferUtils.getByteBufferByString(postResponse);
-					ChannelUtils.handleWriteChannelAndBuffer("post write", channel, buffer);
 				}
-			default:
-				break;
-			}
-		} else {
-			HttpDenominator denominator = new HttpResponseDenominator(StatusCode.BAD_REQUEST, HttpVersion.HTTP_1_1);
-			String badResponse = HttpMessageBuilder.Build().setDenominator(denominator).build();
-			buffer = ChannelBufferUtils.getByteBufferByString(badResponse);
-			try {
-				ChannelUtils.writeBuffer(channel, buffer);
-			} catch (Exception e) {
-				throw new SocketException("post write", e);
+				if (!pending.isKeepAlive()) {
+					ChannelUtils.closeSelectionKey(key);
+					return key;
+				}
 			}
-			buffer.clear();
-		}
-
-		try {
-			key.cancel();
-			key.channel().close();
+			key.interestOps(SelectionKey.OP_READ);
 		} catch (IOException e) {
 			throw new SocketException(e.getMessage());
 		}
 		return key;
 	}
 
+	/**
+	 * Every response carries a content length, so that a persistent connection
+	 * can tell where the response ends. The body of a successful GET is sent
+	 * as is when it is binary (byte[] or ByteBuffer), otherwise as UTF-8 text.
+	 */
+	private void startResponse(HttpConnection connection, HttpResponseProcess responseProcess, boolean keepAlive) {
+		final String connectionValue = keepAlive ? HttpHeaderFieldValues.CONNECTION_KEEP_ALIVE
+				: HttpHeaderFieldValues.CONNECTION_CLOSE;
+		if (responseProcess.getMethod() == null) {
+			connection.startWriting(responseProcess.getCode() == null ? StatusCode.BAD_REQUEST
+					: responseProcess.getCode(), connectionValue, null, null);
+			return;
+		}
+		switch (responseProcess.getMethod()) {
+		case GET:
+			if (responseProcess.getResult() instanceof HttpResponseStream
+					&& responseProcess.getCode().equals(StatusCode.OK)) {
+				connection.startStreaming(responseProcess.getCode(), connectionValue, context.getId(),
+						(HttpResponseStream) responseProcess.getResult());
+			} else if (responseProcess.getResult() != null && responseProcess.getCode().equals(StatusCode.OK)) {
+				connection.startWriting(responseProcess.getCode(), connectionValue, context.getId(),
+						responseProcess.getResult());
+			} else {
+				connection.startWriting(responseProcess.getCode(), connectionValue, null, null);
+			}
+			break;
+		case POST:
+			connection.startWriting(responseProcess.getCode(), connectionValue, null, null);
+			break;
+		default:
+			// Nothing else is supported, but the client still needs an
+			// answer to keep the connection in step
+			connection.startWriting(StatusCode.BAD_REQUEST, connectionValue, null, null);
+		}
+	}
+
 	private void sendMessageToTargetRoboReference(HttpResponseProcess process) {
 		final ServerPathConfig pathConfig = serverContext.getPathConfig(new PathHttpMethod(process.getPath(), process.getMethod()));
 		if (pathConfig.getRoboUnit() != null
@@ -1,11 +1,13 @@
 package com.robo4j.socket.http.codec;
 
-import com.robo4j.socket.http.json.JsonDocument;
-import com.robo4j.socket.http.json.JsonReader;
+import com.robo4j.socket.http.json.JsonPullReader;
 import com.robo4j.socket.http.units.SocketDecoder;
 import com.robo4j.socket.http.units.SocketEncoder;
 import com.robo4j.socket.http.util.ReflectUtils;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * AbstractHttpMessageCodec decodes appropriate class instance into JSON string
  *
@@ -17,6 +19,8 @@ public abstract class AbstractHttpMessageCodec<T> implements SocketDecoder<Strin
 
 	protected AbstractHttpMessageCodec(Class<T> clazz) {
 		this.clazz = clazz;
+		// binds the accessors once, when the codec registry is loaded
+		ReflectUtils.getFieldsTypeMap(clazz);
 	}
 
 	@Override
@@ -31,9 +35,18 @@ public abstract class AbstractHttpMessageCodec<T> implements SocketDecoder<Strin
 
 	@Override
 	public T decode(String json) {
-		JsonReader jsonReader = new JsonReader(json);
-		JsonDocument document = jsonReader.read();
-		return ReflectUtils.createInstanceByClazzAndDescriptorAndJsonDocument(clazz, document);
+		return decode(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * decodes the UTF-8 JSON between the position and the limit of the buffer
+	 *
+	 * @param json
+	 *            buffer with the JSON message, the buffer is not modified
+	 * @return decoded instance
+	 */
+	public T decode(ByteBuffer json) {
+		return ReflectUtils.createInstanceByClazzAndJsonReader(clazz, new JsonPullReader(json));
 	}
 
 	@Override
@@ -1,9 +1,12 @@
 package com.robo4j.socket.http.dto;
 
+import com.robo4j.socket.http.util.AccessorUtils;
 import com.robo4j.socket.http.util.TypeCollection;
 
 import java.lang.reflect.Method;
 import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * @author Marcus Hirt (@hirt)
@@ -15,6 +18,8 @@ public class ClassGetSetDTO {
     private final TypeCollection collection;
     private final Method getMethod;
     private final Method setMethod;
+    private final Function<Object, Object> getter;
+    private final BiConsumer<Object, Object> setter;
 
     public ClassGetSetDTO(String name, Class<?> valueClass, Method getMethod, Method setMethod) {
         this(name, valueClass, null, getMethod, setMethod);
@@ -26,6 +31,8 @@ public class ClassGetSetDTO {
         this.collection = collection;
         this.getMethod = getMethod;
         this.setMethod = setMethod;
+        this.getter = AccessorUtils.createGetter(getMethod);
+        this.setter = AccessorUtils.createSetter(setMethod);
     }
 
     public Class<?> getValueClass() {
@@ -48,6 +55,22 @@ public class ClassGetSetDTO {
         return setMethod;
     }
 
+    /**
+     * @param obj instance to read from
+     * @return value returned by the bound getter
+     */
+    public Object getValue(Object obj) {
+        return getter.apply(obj);
+    }
+
+    /**
+     * @param obj instance to write to
+     * @param value value passed to the bound setter
+     */
+    public void setValue(Object obj, Object value) {
+        setter.accept(obj, value);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
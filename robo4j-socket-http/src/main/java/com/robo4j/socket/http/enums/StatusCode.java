@@ -32,6 +32,7 @@ public enum StatusCode {
     BAD_REQUEST         (400, "Bad Request"),
     NOT_FOUND           (404, "Not Found"),
     NOT_ACCEPTABLE      (406, "Not Acceptable"),
+    INTERNAL_SERVER_ERROR (500, "Internal Server Error"),
     NOT_IMPLEMENTED     (501, "Not Implemented");
     //@formatter:on
 
@@ -0,0 +1,542 @@
+package com.robo4j.socket.http.json;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pull style JSON reader working directly on the UTF-8 bytes of a
+ * {@link ByteBuffer}. The caller asks for the next token and consumes it with
+ * the matching method, no {@link JsonDocument} tree is built.
+ *
+ * The bytes between the position and the limit of the buffer are read, the
+ * position and the limit of the buffer are not changed. Object names are
+ * shared between readers, so the same field names do not create new strings
+ * for every message.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class JsonPullReader {
+
+	private static final int SCOPE_EMPTY_DOCUMENT = 0;
+	private static final int SCOPE_NONEMPTY_DOCUMENT = 1;
+	private static final int SCOPE_EMPTY_OBJECT = 2;
+	private static final int SCOPE_NONEMPTY_OBJECT = 3;
+	private static final int SCOPE_DANGLING_NAME = 4;
+	private static final int SCOPE_EMPTY_ARRAY = 5;
+	private static final int SCOPE_NONEMPTY_ARRAY = 6;
+
+	private static final int END_OF_INPUT = -1;
+	private static final int MAX_LONG_DIGITS = 18;
+	private static final int NAME_CACHE_SIZE = 256;
+	private static final String[] NAME_CACHE = new String[NAME_CACHE_SIZE];
+
+	private final ByteBuffer buffer;
+	private final int limit;
+	private int position;
+	private int[] scopes = new int[16];
+	private int depth;
+	private JsonToken peeked;
+	private char[] chars = new char[64];
+	private byte[] bytes;
+
+	public JsonPullReader(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.position = buffer.position();
+		this.limit = buffer.limit();
+		scopes[depth++] = SCOPE_EMPTY_DOCUMENT;
+	}
+
+	/**
+	 * @return the type of the next token without consuming it
+	 */
+	public JsonToken peek() {
+		if (peeked == null) {
+			peeked = doPeek();
+		}
+		return peeked;
+	}
+
+	/**
+	 * @return true if the current object or array has another element
+	 */
+	public boolean hasNext() {
+		final JsonToken token = peek();
+		return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+	}
+
+	public void beginObject() {
+		expect(JsonToken.BEGIN_OBJECT);
+		push(SCOPE_EMPTY_OBJECT);
+	}
+
+	public void endObject() {
+		expect(JsonToken.END_OBJECT);
+		depth--;
+	}
+
+	public void beginArray() {
+		expect(JsonToken.BEGIN_ARRAY);
+		push(SCOPE_EMPTY_ARRAY);
+	}
+
+	public void endArray() {
+		expect(JsonToken.END_ARRAY);
+		depth--;
+	}
+
+	public String nextName() {
+		expect(JsonToken.NAME);
+		return toName(readChars());
+	}
+
+	/**
+	 * @return the string value, numbers and booleans are returned as written
+	 */
+	public String nextString() {
+		final JsonToken token = peek();
+		peeked = null;
+		switch (token) {
+		case STRING:
+			return readString();
+		case NUMBER:
+			final int start = position;
+			skipNumber();
+			return asciiString(start, position);
+		case BOOLEAN:
+			return String.valueOf(readBoolean());
+		default:
+			throw unexpectedToken(JsonToken.STRING, token);
+		}
+	}
+
+	public boolean nextBoolean() {
+		expect(JsonToken.BOOLEAN);
+		return readBoolean();
+	}
+
+	public void nextNull() {
+		expect(JsonToken.NULL);
+		readLiteral("null");
+	}
+
+	public int nextInt() {
+		final long result = nextLong();
+		if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE) {
+			throw new JsonException("int out of range: " + result);
+		}
+		return (int) result;
+	}
+
+	public long nextLong() {
+		expect(JsonToken.NUMBER);
+		final int start = position;
+		if (skipNumber()) {
+			throw new JsonException("not an integer: " + asciiString(start, position));
+		}
+		return parseLong(start, position);
+	}
+
+	public double nextDouble() {
+		expect(JsonToken.NUMBER);
+		final int start = position;
+		if (skipNumber() || position - start > MAX_LONG_DIGITS) {
+			return Double.parseDouble(asciiString(start, position));
+		}
+		return parseLong(start, position);
+	}
+
+	/**
+	 * @return the number as {@link Integer} or {@link Long} when it has no
+	 *         fraction or exponent, otherwise as {@link Double}
+	 */
+	public Number nextNumber() {
+		expect(JsonToken.NUMBER);
+		final int start = position;
+		if (skipNumber()) {
+			return Double.valueOf(asciiString(start, position));
+		}
+		final long result = parseLong(start, position);
+		if (result >= Integer.MIN_VALUE && result <= Integer.MAX_VALUE) {
+			return (int) result;
+		}
+		return result;
+	}
+
+	/**
+	 * Skips the next value, including all nested objects and arrays.
+	 */
+	public void skipValue() {
+		int count = 0;
+		do {
+			final JsonToken token = peek();
+			switch (token) {
+			case BEGIN_OBJECT:
+				beginObject();
+				count++;
+				break;
+			case BEGIN_ARRAY:
+				beginArray();
+				count++;
+				break;
+			case END_OBJECT:
+				endObject();
+				count--;
+				break;
+			case END_ARRAY:
+				endArray();
+				count--;
+				break;
+			case NAME:
+			case STRING:
+				peeked = null;
+				readChars();
+				break;
+			case NUMBER:
+				peeked = null;
+				skipNumber();
+				break;
+			case BOOLEAN:
+				nextBoolean();
+				break;
+			case NULL:
+				nextNull();
+				break;
+			default:
+				throw new JsonException("nothing to skip: " + token);
+			}
+		} while (count > 0);
+	}
+
+	private JsonToken doPeek() {
+		final int scope = scopes[depth - 1];
+		final int c;
+		switch (scope) {
+		case SCOPE_EMPTY_DOCUMENT:
+			scopes[depth - 1] = SCOPE_NONEMPTY_DOCUMENT;
+			return peekValue();
+		case SCOPE_NONEMPTY_DOCUMENT:
+			c = nextNonWhiteSpace();
+			if (c != END_OF_INPUT) {
+				throw unexpectedCharacter(c);
+			}
+			return JsonToken.END_DOCUMENT;
+		case SCOPE_EMPTY_ARRAY:
+			scopes[depth - 1] = SCOPE_NONEMPTY_ARRAY;
+			if (nextNonWhiteSpace() == ']') {
+				position++;
+				return JsonToken.END_ARRAY;
+			}
+			return peekValue();
+		case SCOPE_NONEMPTY_ARRAY:
+			c = consumeNonWhiteSpace();
+			if (c == ']') {
+				return JsonToken.END_ARRAY;
+			}
+			if (c != ',') {
+				throw unexpectedCharacter(c);
+			}
+			return peekValue();
+		case SCOPE_EMPTY_OBJECT:
+		case SCOPE_NONEMPTY_OBJECT:
+			int next = consumeNonWhiteSpace();
+			if (next == '}') {
+				return JsonToken.END_OBJECT;
+			}
+			if (scope == SCOPE_NONEMPTY_OBJECT) {
+				if (next != ',') {
+					throw unexpectedCharacter(next);
+				}
+				next = consumeNonWhiteSpace();
+			}
+			if (next != '"') {
+				throw unexpectedCharacter(next);
+			}
+			scopes[depth - 1] = SCOPE_DANGLING_NAME;
+			return JsonToken.NAME;
+		case SCOPE_DANGLING_NAME:
+			c = consumeNonWhiteSpace();
+			if (c != ':') {
+				throw unexpectedCharacter(c);
+			}
+			scopes[depth - 1] = SCOPE_NONEMPTY_OBJECT;
+			return peekValue();
+		default:
+			throw new IllegalStateException("not allowed scope: " + scope);
+		}
+	}
+
+	/**
+	 * brackets and the opening quotation mark are consumed, literals and
+	 * numbers are left in place
+	 */
+	private JsonToken peekValue() {
+		final int c = nextNonWhiteSpace();
+		switch (c) {
+		case '{':
+			position++;
+			return JsonToken.BEGIN_OBJECT;
+		case '[':
+			position++;
+			return JsonToken.BEGIN_ARRAY;
+		case '"':
+			position++;
+			return JsonToken.STRING;
+		case 't':
+		case 'f':
+			return JsonToken.BOOLEAN;
+		case 'n':
+			return JsonToken.NULL;
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				return JsonToken.NUMBER;
+			}
+			throw unexpectedCharacter(c);
+		}
+	}
+
+	private void expect(JsonToken expected) {
+		final JsonToken token = peek();
+		if (token != expected) {
+			throw unexpectedToken(expected, token);
+		}
+		peeked = null;
+	}
+
+	private void push(int scope) {
+		if (depth == scopes.length) {
+			scopes = Arrays.copyOf(scopes, depth * 2);
+		}
+		scopes[depth++] = scope;
+	}
+
+	private int nextNonWhiteSpace() {
+		while (position < limit) {
+			final byte b = buffer.get(position);
+			if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+				return b & 0xFF;
+			}
+			position++;
+		}
+		return END_OF_INPUT;
+	}
+
+	private int consumeNonWhiteSpace() {
+		final int result = nextNonWhiteSpace();
+		if (result == END_OF_INPUT) {
+			throw new JsonException("unexpected end of input");
+		}
+		position++;
+		return result;
+	}
+
+	/**
+	 * decodes the string after the opening quotation mark into the chars
+	 * buffer
+	 *
+	 * @return number of decoded chars
+	 */
+	private int readChars() {
+		int length = 0;
+		while (true) {
+			final int b = readByte();
+			if (b == '"') {
+				return length;
+			}
+			if (length + 2 > chars.length) {
+				chars = Arrays.copyOf(chars, chars.length * 2);
+			}
+			if (b == '\\') {
+				chars[length++] = readEscape();
+			} else if (b >= 0) {
+				chars[length++] = (char) b;
+			} else if ((b & 0xE0) == 0xC0) {
+				chars[length++] = (char) (((b & 0x1F) << 6) | readContinuation());
+			} else if ((b & 0xF0) == 0xE0) {
+				chars[length++] = (char) (((b & 0x0F) << 12) | (readContinuation() << 6) | readContinuation());
+			} else if ((b & 0xF8) == 0xF0) {
+				final int codePoint = ((b & 0x07) << 18) | (readContinuation() << 12) | (readContinuation() << 6)
+						| readContinuation();
+				chars[length++] = Character.highSurrogate(codePoint);
+				chars[length++] = Character.lowSurrogate(codePoint);
+			} else {
+				throw new JsonException("malformed utf-8 at: " + (position - 1));
+			}
+		}
+	}
+
+	/**
+	 * strings without escapes and non ASCII characters, like Base64 images, are
+	 * copied in bulk
+	 */
+	private String readString() {
+		final int start = position;
+		for (int i = start; i < limit; i++) {
+			final byte b = buffer.get(i);
+			if (b == '"') {
+				position = i + 1;
+				return asciiBytesToString(start, i - start);
+			}
+			if (b < 0x20 || b == '\\') {
+				break;
+			}
+		}
+		final int length = readChars();
+		return new String(chars, 0, length);
+	}
+
+	private String asciiBytesToString(int start, int length) {
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.ISO_8859_1);
+		}
+		if (bytes == null || bytes.length < length) {
+			bytes = new byte[Math.max(length, chars.length)];
+		}
+		final ByteBuffer source = buffer.duplicate();
+		source.position(start);
+		source.get(bytes, 0, length);
+		return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+	}
+
+	private char readEscape() {
+		final int c = readByte();
+		switch (c) {
+		case '"':
+		case '\\':
+		case '/':
+			return (char) c;
+		case 'b':
+			return '\b';
+		case 'f':
+			return '\f';
+		case 'n':
+			return '\n';
+		case 'r':
+			return '\r';
+		case 't':
+			return '\t';
+		case 'u':
+			int result = 0;
+			for (int i = 0; i < 4; i++) {
+				final int digit = Character.digit(readByte(), 16);
+				if (digit < 0) {
+					throw new JsonException("wrong unicode escape at: " + (position - 1));
+				}
+				result = (result << 4) | digit;
+			}
+			return (char) result;
+		default:
+			throw unexpectedCharacter(c);
+		}
+	}
+
+	private int readContinuation() {
+		final int b = readByte();
+		if ((b & 0xC0) != 0x80) {
+			throw new JsonException("malformed utf-8 at: " + (position - 1));
+		}
+		return b & 0x3F;
+	}
+
+	private int readByte() {
+		if (position >= limit) {
+			throw new JsonException("unexpected end of input");
+		}
+		return buffer.get(position++);
+	}
+
+	private boolean readBoolean() {
+		if (buffer.get(position) == 't') {
+			readLiteral("true");
+			return true;
+		}
+		readLiteral("false");
+		return false;
+	}
+
+	private void readLiteral(String literal) {
+		for (int i = 0; i < literal.length(); i++) {
+			final int c = readByte();
+			if (c != literal.charAt(i)) {
+				throw unexpectedCharacter(c);
+			}
+		}
+	}
+
+	/**
+	 * @return true if the number has a fraction or an exponent
+	 */
+	private boolean skipNumber() {
+		boolean decimal = false;
+		while (position < limit) {
+			final byte b = buffer.get(position);
+			if (b == '.' || b == 'e' || b == 'E') {
+				decimal = true;
+			} else if ((b < '0' || b > '9') && b != '-' && b != '+') {
+				break;
+			}
+			position++;
+		}
+		return decimal;
+	}
+
+	private long parseLong(int start, int end) {
+		final boolean negative = buffer.get(start) == '-';
+		final int first = negative ? start + 1 : start;
+		if (first == end || end - first > MAX_LONG_DIGITS) {
+			try {
+				return Long.parseLong(asciiString(start, end));
+			} catch (NumberFormatException e) {
+				throw new JsonException("wrong number: " + asciiString(start, end), e);
+			}
+		}
+		long result = 0;
+		for (int i = first; i < end; i++) {
+			final int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				throw new JsonException("wrong number: " + asciiString(start, end));
+			}
+			result = result * 10 + digit;
+		}
+		return negative ? -result : result;
+	}
+
+	private String asciiString(int start, int end) {
+		final char[] result = new char[end - start];
+		for (int i = start; i < end; i++) {
+			result[i - start] = (char) buffer.get(i);
+		}
+		return new String(result);
+	}
+
+	private String toName(int length) {
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + chars[i];
+		}
+		final int index = (hash ^ (hash >>> 16)) & (NAME_CACHE_SIZE - 1);
+		final String cached = NAME_CACHE[index];
+		if (cached != null && cached.length() == length) {
+			boolean same = true;
+			for (int i = 0; i < length && same; i++) {
+				same = cached.charAt(i) == chars[i];
+			}
+			if (same) {
+				return cached;
+			}
+		}
+		// racing readers at worst replace each other's entry
+		final String result = new String(chars, 0, length);
+		NAME_CACHE[index] = result;
+		return result;
+	}
+
+	private JsonException unexpectedToken(JsonToken expected, JsonToken actual) {
+		return new JsonException("expected: " + expected + " but was: " + actual + " at: " + position);
+	}
+
+	private JsonException unexpectedCharacter(int c) {
+		return new JsonException("unexpected character: " + (char) c + " at: " + position);
+	}
+}
@@ -3,9 +3,6 @@ package com.robo4j.socket.http.json;
 import com.robo4j.socket.http.util.RoboReflectException;
 import com.robo4j.util.StringConstants;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.Stack;
 
 /**
@@ -20,7 +17,6 @@ public class JsonReader {
 	private static final char NEW_LINE_UNIX = '\n';
 	private static final char NEW_LINE_MAC = '\r';
 	private static final char NEW_TAB = '\t';
-	private static final char NEW_SPACE = '\u0020';
 	private static final char SPACE = ' ';
 	private static final char QUOTATION_MARK = '\u0022';
 	private static final char COMMA = '\u002C';
@@ -38,21 +34,8 @@ public class JsonReader {
 	private static final char CHARACTER_E = 'e';
 	private static final char CHARACTER_MINUS = '-';
 	private static final char CHARACTER_0 = '0';
-	private static final char CHARACTER_1 = '1';
-	private static final char CHARACTER_2 = '2';
-	private static final char CHARACTER_3 = '3';
-	private static final char CHARACTER_4 = '4';
-	private static final char CHARACTER_5 = '5';
-	private static final char CHARACTER_6 = '6';
-	private static final char CHARACTER_7 = '7';
-	private static final char CHARACTER_8 = '8';
 	private static final char CHARACTER_9 = '9';
 
-	private static final Set<Character> WHITE_SPACE_SET = new HashSet<>(
-			Arrays.asList(SPACE, NEW_LINE_MAC, NEW_LINE_UNIX, NEW_SPACE, NEW_TAB));
-	private static final Set<Character> NUMBER_SET = new HashSet<>(Arrays.asList(CHARACTER_MINUS, CHARACTER_0, CHARACTER_1, CHARACTER_2,
-			CHARACTER_3, CHARACTER_4, CHARACTER_5, CHARACTER_6, CHARACTER_7, CHARACTER_8, CHARACTER_9, DOT));
-
 	private final char[] jsonChars;
 	private ReadType currentRead;
 	private Stack<JsonDocumentWrapper> stack = new Stack<>();
@@ -167,12 +150,20 @@ public class JsonReader {
 	 */
 	private char getCharSkipWhiteSpace() {
 		char result = jsonChars[index];
-		while (WHITE_SPACE_SET.contains(result)) {
+		while (isWhiteSpace(result)) {
 			result = jsonChars[++index];
 		}
 		return result;
 	}
 
+	private static boolean isWhiteSpace(char c) {
+		return c == SPACE || c == NEW_LINE_MAC || c == NEW_LINE_UNIX || c == NEW_TAB;
+	}
+
+	private static boolean isNumberChar(char c) {
+		return (c >= CHARACTER_0 && c <= CHARACTER_9) || c == CHARACTER_MINUS || c == DOT;
+	}
+
 	private ReadType getInitialReadType(char activeChar) {
 		switch (activeChar) {
 		case CURLY_BRACKET_LEFT:
@@ -244,7 +235,7 @@ public class JsonReader {
 			currentRead = ReadType.END_VALUE;
 			break;
 		default:
-			if (NUMBER_SET.contains(activeChar)) {
+			if (isNumberChar(activeChar)) {
 				currentValue = readNumber(activeChar);
 				currentRead = ReadType.END_VALUE;
 				break;
@@ -334,7 +325,7 @@ public class JsonReader {
 				isInteger = false;
 			}
 			activeCharacter = jsonChars[++index];
-		} while (NUMBER_SET.contains(activeCharacter));
+		} while (isNumberChar(activeCharacter));
 		--index;
 		if (isInteger) {
 			return Integer.valueOf(sb.toString());
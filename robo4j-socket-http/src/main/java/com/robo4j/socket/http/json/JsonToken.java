@@ -0,0 +1,11 @@
+package com.robo4j.socket.http.json;
+
+/**
+ * tokens returned by the {@link JsonPullReader}
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public enum JsonToken {
+	BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+}
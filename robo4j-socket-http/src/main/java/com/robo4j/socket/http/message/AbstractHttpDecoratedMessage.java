@@ -20,6 +20,7 @@ package com.robo4j.socket.http.message;
 import com.robo4j.socket.http.HttpHeaderFieldNames;
 import com.robo4j.socket.http.util.HttpHeaderBuilder;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -103,7 +104,8 @@ public abstract class AbstractHttpDecoratedMessage implements HttpMessage {
 
 	public void addMessage(String message) {
 		this.message = this.message == null ? message : this.message.concat(message);
-		addHeaderElement(HttpHeaderFieldNames.CONTENT_LENGTH, String.valueOf(message.length()));
+		addHeaderElement(HttpHeaderFieldNames.CONTENT_LENGTH,
+				String.valueOf(this.message.getBytes(StandardCharsets.UTF_8).length));
 	}
 
 	public void addCallbacks(List<String> callbacks) {
@@ -21,6 +21,8 @@ import com.robo4j.socket.http.HttpHeaderFieldNames;
 import com.robo4j.socket.http.units.PathHttpMethod;
 import com.robo4j.socket.http.util.RoboHttpUtils;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Objects;
 
@@ -38,6 +40,8 @@ public final class HttpDecoratedRequest extends AbstractHttpDecoratedMessage {
 	private final HttpRequestDenominator denominator;
 	private String host;
 	private Integer port;
+	private ByteBuffer body;
+	private String bodyMessage;
 
 	public HttpDecoratedRequest(){
 		super();
@@ -79,6 +83,38 @@ public final class HttpDecoratedRequest extends AbstractHttpDecoratedMessage {
 		this.port = port;
 	}
 
+	/**
+	 *
+	 * @return read only view of the received body, null if the request was
+	 *         not read from a channel
+	 */
+	public ByteBuffer getBody() {
+		return body == null ? null : body.duplicate();
+	}
+
+	public void setBody(ByteBuffer body) {
+		this.body = body;
+		this.bodyMessage = null;
+	}
+
+	/**
+	 * The received body is only decoded (as UTF-8) on the first call, so
+	 * requests that are never looked at as a string don't pay for it.
+	 *
+	 * @return the message, or the received body as a string
+	 */
+	@Override
+	public String getMessage() {
+		final String message = super.getMessage();
+		if (message != null || body == null) {
+			return message;
+		}
+		if (bodyMessage == null) {
+			bodyMessage = StandardCharsets.UTF_8.decode(body.duplicate()).toString();
+		}
+		return bodyMessage;
+	}
+
 	public void addHostHeader(){
 		Objects.requireNonNull(host, "host is required");
 		Objects.requireNonNull(port, "port is required");
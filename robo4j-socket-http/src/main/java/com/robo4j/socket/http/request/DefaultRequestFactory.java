@@ -20,6 +20,8 @@ import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
 import com.robo4j.socket.http.units.ServerPathConfig;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Marcus Hirt (@hirt)
  * @author Miro Wengner (@miragemiko)
@@ -33,4 +35,6 @@ public interface DefaultRequestFactory<ResponseType> {
 	ResponseType processServerGet(ServerPathConfig pathConfig);
 
 	ResponseType processPost(RoboReference<?> unitReference, String message);
+
+	ResponseType processPost(RoboReference<?> unitReference, ByteBuffer message);
 }
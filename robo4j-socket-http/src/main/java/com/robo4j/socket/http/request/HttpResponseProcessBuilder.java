@@ -37,7 +37,7 @@ public class HttpResponseProcessBuilder {
 	private HttpResponseProcessBuilder() {
 	}
 
-	static HttpResponseProcessBuilder Builder() {
+	public static HttpResponseProcessBuilder Builder() {
 		return new HttpResponseProcessBuilder();
 	}
 
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.robo4j.socket.http.request;
+
+import com.robo4j.AttributeDescriptor;
+import com.robo4j.DefaultAttributeDescriptor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+/**
+ * Body of a streaming response. The response is sent with chunked transfer
+ * encoding, and every frame offered to the stream is sent as soon as the
+ * connection is ready for it, either as a chunk of its own, or as a part of a
+ * multipart/x-mixed-replace response (e.g. MJPEG), which makes a browser
+ * replace the previous frame with the next.
+ *
+ * A unit streams by answering {@link #DESCRIPTOR_STREAM} with a new stream,
+ * and by listing {@link #DESCRIPTOR_STREAM_CONTENT_TYPE} among its known
+ * attributes; a GET request to such a unit gets a new stream for its
+ * connection. Frames
+ * are byte[], {@link java.nio.ByteBuffer} or anything else, which is sent as
+ * its UTF-8 encoded string value.
+ *
+ * At most the given number of frames are queued. When a viewer is too slow,
+ * the oldest frames are dropped, so the viewer always gets the latest ones.
+ * The stream is closed when the connection goes away, or when the producer
+ * closes it; a stream with a single frame, which is then closed, is a long
+ * poll.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miro Wengner (@miragemiko)
+ */
+public final class HttpResponseStream {
+	public static final String CONTENT_TYPE_MULTIPART = "multipart/x-mixed-replace";
+	public static final String BOUNDARY = "robo4jframe";
+	public static final int DEFAULT_MAX_QUEUED_FRAMES = 2;
+	/**
+	 * Opens a new stream for one viewer. Only read by the http server, for the
+	 * connection the stream is written to. It must not be a known attribute
+	 * of the unit, since reading all attributes would then open streams
+	 * nobody ever closes.
+	 */
+	public static final AttributeDescriptor<HttpResponseStream> DESCRIPTOR_STREAM = DefaultAttributeDescriptor
+			.create(HttpResponseStream.class, "stream");
+	/**
+	 * The content type of the streams of a unit. Known attribute of every
+	 * streaming unit, which is how the http server tells them apart.
+	 */
+	public static final AttributeDescriptor<String> DESCRIPTOR_STREAM_CONTENT_TYPE = DefaultAttributeDescriptor
+			.create(String.class, "streamContentType");
+
+	private final String contentType;
+	private final String partContentType;
+	private final int maxQueuedFrames;
+	private final Deque<Object> frames = new ArrayDeque<>();
+	private volatile boolean closed;
+	private volatile Runnable frameListener;
+	private int droppedFrames;
+
+	private HttpResponseStream(String contentType, String partContentType, int maxQueuedFrames) {
+		if (maxQueuedFrames <= 0) {
+			throw new IllegalArgumentException("maxQueuedFrames: " + maxQueuedFrames);
+		}
+		this.contentType = contentType;
+		this.partContentType = partContentType;
+		this.maxQueuedFrames = maxQueuedFrames;
+	}
+
+	/**
+	 * @param contentType
+	 *            the content type of the whole response, e.g.
+	 *            application/json.
+	 * @param maxQueuedFrames
+	 *            the maximum number of frames waiting to be sent.
+	 * @return a stream sending every frame as a chunk.
+	 */
+	public static HttpResponseStream chunked(String contentType, int maxQueuedFrames) {
+		return new HttpResponseStream(Objects.requireNonNull(contentType), null, maxQueuedFrames);
+	}
+
+	/**
+	 * @param partContentType
+	 *            the content type of every frame, e.g. image/jpeg.
+	 * @param maxQueuedFrames
+	 *            the maximum number of frames waiting to be sent.
+	 * @return a stream sending every frame as a part replacing the previous
+	 *         one.
+	 */
+	public static HttpResponseStream multipart(String partContentType, int maxQueuedFrames) {
+		return new HttpResponseStream(CONTENT_TYPE_MULTIPART + ";boundary=" + BOUNDARY,
+				Objects.requireNonNull(partContentType), maxQueuedFrames);
+	}
+
+	/**
+	 * Queues the frame to be sent, dropping the oldest queued frame if the
+	 * queue is full. May be called from any thread.
+	 *
+	 * @param frame
+	 *            the frame.
+	 * @return false if the stream is closed, and will not send anything
+	 *         anymore.
+	 */
+	public boolean offer(Object frame) {
+		Objects.requireNonNull(frame);
+		if (closed) {
+			return false;
+		}
+		synchronized (frames) {
+			if (frames.size() >= maxQueuedFrames) {
+				frames.poll();
+				droppedFrames++;
+			}
+			frames.add(frame);
+		}
+		notifyListener();
+		return true;
+	}
+
+	/**
+	 * Ends the stream once the queued frames have been sent. May be called
+	 * from any thread.
+	 */
+	public void close() {
+		if (!closed) {
+			closed = true;
+			notifyListener();
+		}
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * @return the number of frames dropped because the viewer was too slow.
+	 */
+	public int getDroppedFrames() {
+		synchronized (frames) {
+			return droppedFrames;
+		}
+	}
+
+	/**
+	 * @return the next frame to send, or null if none is queued.
+	 */
+	public Object poll() {
+		synchronized (frames) {
+			return frames.poll();
+		}
+	}
+
+	/**
+	 * @return true if the stream is closed and all frames have been taken.
+	 */
+	public boolean isDrained() {
+		if (!closed) {
+			return false;
+		}
+		synchronized (frames) {
+			return frames.isEmpty();
+		}
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * @return the content type of the parts, or null if the frames are sent
+	 *         as plain chunks.
+	 */
+	public String getPartContentType() {
+		return partContentType;
+	}
+
+	public boolean isMultipart() {
+		return partContentType != null;
+	}
+
+	/**
+	 * Sets the listener which is told when there is something to send. Set by
+	 * the server once the stream is bound to a connection.
+	 *
+	 * @param frameListener
+	 *            the listener, called on the thread offering the frame.
+	 */
+	public void setFrameListener(Runnable frameListener) {
+		this.frameListener = frameListener;
+		notifyListener();
+	}
+
+	private void notifyListener() {
+		final Runnable listener = frameListener;
+		if (listener != null) {
+			listener.run();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "HttpResponseStream{" + "contentType='" + contentType + '\'' + ", closed=" + closed + '}';
+	}
+}
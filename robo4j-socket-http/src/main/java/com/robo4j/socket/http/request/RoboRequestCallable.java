@@ -39,6 +39,10 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static com.robo4j.util.Utf8Constant.UTF8_SOLIDUS;
 
@@ -47,6 +51,8 @@ import static com.robo4j.util.Utf8Constant.UTF8_SOLIDUS;
  * @author Miro Wengner (@miragemiko)
  */
 public class RoboRequestCallable implements Callable<HttpResponseProcess> {
+	// Opening a stream is cheap, but must not hold up a request thread
+	private static final long STREAM_TIMEOUT_MILLIS = 5000;
 
 	private final RoboContext context;
 	private final ServerContext serverContext;
@@ -88,10 +94,17 @@ public class RoboRequestCallable implements Callable<HttpResponseProcess> {
 							.getDenominator();
 					final Set<String> requestAttributes = denominator.getAttributes()
 							.get(HttpPathUtils.ATTRIBUTES_PATH_VALUE);
-					if (requestAttributes == null) {
+					if (requestAttributes == null && pathConfig.isStreaming()) {
+						// Streaming units provide a new stream for every viewer
+						unitDescription = openStream(pathConfig.getRoboUnit());
+						if (unitDescription == null) {
+							resultBuilder.setCode(StatusCode.INTERNAL_SERVER_ERROR);
+							break;
+						}
+					} else if (requestAttributes == null) {
 							unitDescription = factory.processGet(pathConfig);
 					} else if (requestAttributes.isEmpty()) {
-						RoboReference<?> unit = context.getReference(pathConfig.getRoboUnit().getId());
+						RoboReference<?> unit = pathConfig.getRoboUnit();
 
 						PathAttributeListDTO pathAttributes = new PathAttributeListDTO();
 						unit.getKnownAttributes().forEach(a -> {
@@ -102,7 +115,7 @@ public class RoboRequestCallable implements Callable<HttpResponseProcess> {
 						});
 						unitDescription = ReflectUtils.createJson(pathAttributes);
 					} else {
-						RoboReference<?> unit = context.getReference(pathConfig.getRoboUnit().getId());
+						RoboReference<?> unit = pathConfig.getRoboUnit();
 
 						List<PathAttributeDTO> attributes = new ArrayList<>();
 						for (AttributeDescriptor attr : unit.getKnownAttributes()) {
@@ -132,7 +145,9 @@ public class RoboRequestCallable implements Callable<HttpResponseProcess> {
 					resultBuilder.setCode(StatusCode.BAD_REQUEST);
 				} else {
 					resultBuilder.setTarget(pathConfig.getRoboUnit().getId());
-					Object respObj = factory.processPost(pathConfig.getRoboUnit(), decoratedRequest.getMessage());
+					Object respObj = decoratedRequest.getBody() == null
+							? factory.processPost(pathConfig.getRoboUnit(), decoratedRequest.getMessage())
+							: factory.processPost(pathConfig.getRoboUnit(), decoratedRequest.getBody());
 					if (respObj == null) {
 						resultBuilder.setCode(StatusCode.BAD_REQUEST);
 					} else {
@@ -151,6 +166,27 @@ public class RoboRequestCallable implements Callable<HttpResponseProcess> {
 		return resultBuilder.build();
 	}
 
+	/**
+	 * @return a new stream of the unit, or null if the unit did not provide
+	 *         one in time.
+	 */
+	private static HttpResponseStream openStream(RoboReference<?> unit) throws InterruptedException, ExecutionException {
+		final Future<HttpResponseStream> future = unit.getAttribute(HttpResponseStream.DESCRIPTOR_STREAM);
+		try {
+			return future.get(STREAM_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			SimpleLoggingUtil.error(RoboRequestCallable.class, "no stream from unit: " + unit.getId());
+			if (!future.cancel(false)) {
+				// Provided just now, but there is no one to view it
+				final HttpResponseStream stream = future.get();
+				if (stream != null) {
+					stream.close();
+				}
+			}
+			return null;
+		}
+	}
+
 	private boolean isValidPath(ServerPathConfig pathConfig) {
 		return pathConfig != null && decoratedRequest.getPathMethod() != null
 				&& decoratedRequest.getPathMethod().getMethod().equals(pathConfig.getMethod());
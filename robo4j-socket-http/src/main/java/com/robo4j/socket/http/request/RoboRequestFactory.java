@@ -23,6 +23,7 @@ import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
 import com.robo4j.logging.SimpleLoggingUtil;
 import com.robo4j.socket.http.HttpMethod;
+import com.robo4j.socket.http.codec.AbstractHttpMessageCodec;
 import com.robo4j.socket.http.dto.ResponseAttributeDTO;
 import com.robo4j.socket.http.dto.ResponseDecoderUnitDTO;
 import com.robo4j.socket.http.dto.ResponseUnitDTO;
@@ -33,6 +34,8 @@ import com.robo4j.socket.http.units.SocketDecoder;
 import com.robo4j.socket.http.util.JsonUtil;
 import com.robo4j.socket.http.util.ReflectUtils;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -141,4 +144,23 @@ public class RoboRequestFactory implements DefaultRequestFactory<Object> {
 		return decoder != null ? decoder.decode(message) : null;
 	}
 
+	/**
+	 * JSON codecs decode the received bytes directly, other decoders get the
+	 * message as string
+	 *
+	 * @param unitReference
+	 *            desired unit
+	 * @param message
+	 *            UTF-8 encoded message
+	 * @return processed object
+	 */
+	@Override
+	public Object processPost(final RoboReference<?> unitReference, final ByteBuffer message) {
+		final SocketDecoder<?, ?> decoder = codecRegistry.getDecoder(unitReference.getMessageType());
+		if (decoder instanceof AbstractHttpMessageCodec) {
+			return ((AbstractHttpMessageCodec<?>) decoder).decode(message);
+		}
+		return processPost(unitReference, StandardCharsets.UTF_8.decode(message).toString());
+	}
+
 }
@@ -18,6 +18,7 @@
 package com.robo4j.socket.http.units;
 
 import com.robo4j.ConfigurationException;
+import com.robo4j.ReferenceHandle;
 import com.robo4j.RoboContext;
 import com.robo4j.RoboUnit;
 import com.robo4j.configuration.Configuration;
@@ -43,6 +44,7 @@ public abstract class AbstractClientCodecUnit extends RoboUnit<ClientMessageWrap
 
 	final ClientContext clientContext = new ClientContext();
 	protected String target;
+	protected ReferenceHandle<Object> targetReference;
 
 	AbstractClientCodecUnit(Class<ClientMessageWrapper> messageType, RoboContext context, String id) {
 		super(messageType, context, id);
@@ -52,6 +54,7 @@ public abstract class AbstractClientCodecUnit extends RoboUnit<ClientMessageWrap
 	protected void onInitialization(Configuration configuration) throws ConfigurationException {
 		target = configuration.getString(PROPERTY_TARGET, null);
 		Objects.requireNonNull(target, "empty target");
+		targetReference = getContext().getReferenceHandle(target);
 
 		final List<HttpPathMethodDTO> paths = JsonUtil.readPathConfig(HttpPathMethodDTO.class,
 				configuration.getString(PROPERTY_UNIT_PATHS_CONFIG, null));
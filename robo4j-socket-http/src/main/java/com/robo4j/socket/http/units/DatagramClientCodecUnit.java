@@ -53,7 +53,7 @@ public class DatagramClientCodecUnit extends AbstractClientCodecUnit {
         final DatagramDecoratedRequest request = new DatagramDecoratedRequest(denominator);
         request.addMessage(encodedMessage.getBytes());
 
-        getContext().getReference(target).sendMessage(request);
+        targetReference.sendMessage(request);
     }
 
     @SuppressWarnings("unchecked")
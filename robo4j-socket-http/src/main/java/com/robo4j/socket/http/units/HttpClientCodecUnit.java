@@ -37,7 +37,7 @@ public final class HttpClientCodecUnit extends AbstractClientCodecUnit {
 		request.addMessage(encodedMessage);
 
 		request.addCallbacks(pathConfig.getCallbacks());
-		getContext().getReference(target).sendMessage(request);
+		targetReference.sendMessage(request);
 	}
 
 	private String processMessage(Class<?> clazz, Object message) {
@@ -19,27 +19,32 @@ package com.robo4j.socket.http.units;
 
 import com.robo4j.ConfigurationException;
 import com.robo4j.CriticalSectionTrait;
+import com.robo4j.LifecycleState;
+import com.robo4j.ReferenceHandle;
 import com.robo4j.RoboContext;
 import com.robo4j.RoboUnit;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.logging.SimpleLoggingUtil;
 import com.robo4j.socket.http.ProtocolType;
-import com.robo4j.socket.http.channel.OutboundHttpSocketChannelHandler;
+import com.robo4j.socket.http.channel.OutboundHttpReactor;
 import com.robo4j.socket.http.enums.StatusCode;
 import com.robo4j.socket.http.message.HttpDecoratedRequest;
 import com.robo4j.socket.http.message.HttpDecoratedResponse;
+import com.robo4j.socket.http.util.RoboHttpUtils;
 
-import java.net.InetSocketAddress;
-import java.nio.channels.SocketChannel;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static com.robo4j.socket.http.util.ChannelBufferUtils.INIT_BUFFER_CAPACITY;
 import static com.robo4j.socket.http.util.RoboHttpUtils.HTTP_PROPERTY_PROTOCOL;
 import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_BUFFER_CAPACITY;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_CONNECTIONS_PER_HOST;
 import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_HOST;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_KEEP_ALIVE_TIMEOUT;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_MAX_IN_FLIGHT;
 import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_SOCKET_PORT;
 
 /**
@@ -48,6 +53,10 @@ import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_SOCKET_PORT;
  * necessary information and HttpClientDecorator unit is only implementation
  * detail.
  *
+ * Requests are handed to an {@link OutboundHttpReactor}, which keeps the
+ * connections to each host alive and sends the requests without blocking the
+ * unit. Responses are delivered to the callbacks of the request.
+ *
  * @author Marcus Hirt (@hirt)
  * @author Miro Wengner (@miragemiko)
  */
@@ -58,9 +67,13 @@ public class HttpClientUnit extends RoboUnit<HttpDecoratedRequest> {
 			StatusCode.ACCEPTED);
 	private volatile String host;
 	private volatile Integer port;
-	private Integer bufferCapacity;
+	private final Map<String, ReferenceHandle<Object>> callbackReferences = new ConcurrentHashMap<>();
+	private int bufferCapacity;
+	private int maxInFlight;
+	private int connectionsPerHost;
+	private int keepAliveTimeout;
 	private ProtocolType protocol;
-	private Lock lock = new ReentrantLock();
+	private volatile OutboundHttpReactor reactor;
 
 	public HttpClientUnit(RoboContext context, String id) {
 		super(HttpDecoratedRequest.class, context, id);
@@ -68,7 +81,11 @@ public class HttpClientUnit extends RoboUnit<HttpDecoratedRequest> {
 
 	@Override
 	protected void onInitialization(Configuration configuration) throws ConfigurationException {
-		bufferCapacity = configuration.getInteger(PROPERTY_BUFFER_CAPACITY, null);
+		bufferCapacity = configuration.getInteger(PROPERTY_BUFFER_CAPACITY, INIT_BUFFER_CAPACITY);
+		maxInFlight = configuration.getInteger(PROPERTY_MAX_IN_FLIGHT, RoboHttpUtils.DEFAULT_MAX_IN_FLIGHT);
+		connectionsPerHost = configuration.getInteger(PROPERTY_CONNECTIONS_PER_HOST,
+				RoboHttpUtils.DEFAULT_CONNECTIONS_PER_HOST);
+		keepAliveTimeout = configuration.getInteger(PROPERTY_KEEP_ALIVE_TIMEOUT, RoboHttpUtils.DEFAULT_KEEP_ALIVE_TIMEOUT);
 		protocol = ProtocolType.valueOf(configuration.getString(HTTP_PROPERTY_PROTOCOL, "HTTP"));
 		host = configuration.getString(PROPERTY_HOST, null);
 		port = configuration.getInteger(PROPERTY_SOCKET_PORT, null);
@@ -78,6 +95,24 @@ public class HttpClientUnit extends RoboUnit<HttpDecoratedRequest> {
 		}
 	}
 
+	@Override
+	public void start() {
+		setState(LifecycleState.STARTING);
+		reactor = new OutboundHttpReactor(this::processResponse, maxInFlight, connectionsPerHost, bufferCapacity,
+				keepAliveTimeout);
+		reactor.start();
+		setState(LifecycleState.STARTED);
+	}
+
+	@Override
+	public void stop() {
+		setState(LifecycleState.STOPPING);
+		if (reactor != null) {
+			reactor.stop();
+		}
+		setState(LifecycleState.STOPPED);
+	}
+
 	@Override
 	public void onMessage(HttpDecoratedRequest message) {
 		final HttpDecoratedRequest request = adjustRequest(message);
@@ -85,51 +120,47 @@ public class HttpClientUnit extends RoboUnit<HttpDecoratedRequest> {
 			SimpleLoggingUtil.info(getClass(), String.format("recofigured host: %s, port: %d", message.getHost(), message.getPort()));
 			return;
 		}
-		final InetSocketAddress address = new InetSocketAddress(request.getHost(), request.getPort());
-		try (SocketChannel channel = SocketChannel.open(address)) {
-			if (bufferCapacity != null) {
-				channel.socket().setSendBufferSize(bufferCapacity);
-			}
-
-			final HttpDecoratedResponse decoratedResponse = processRequestByChannel(channel, request);
-
-			if (decoratedResponse != null && PROCESS_RESPONSES_STATUSES.contains(decoratedResponse.getCode())) {
-				if (!decoratedResponse.getCallbacks().isEmpty()) {
-					sendMessageToCallbacks(decoratedResponse.getCallbacks(), decoratedResponse.getMessage());
-				}
-			} else {
-				SimpleLoggingUtil.error(getClass(),
-						String.format("no callback or wrong response: %s", decoratedResponse));
-			}
-
-		} catch (Exception e) {
-			SimpleLoggingUtil.error(getClass(),
-					String.format("not available: %s, no worry I continue sending. Error: %s", address, e));
+		final OutboundHttpReactor currentReactor = reactor;
+		if (currentReactor == null) {
+			SimpleLoggingUtil.error(getClass(), "client not started, dropping request: " + request);
+			return;
 		}
+		currentReactor.send(request);
 	}
 
-	private HttpDecoratedResponse processRequestByChannel(SocketChannel byteChannel,
-														  HttpDecoratedRequest message){
-		try (OutboundHttpSocketChannelHandler handler = new OutboundHttpSocketChannelHandler(byteChannel, message)){
-			handler.start();
-			return handler.getDecoratedResponse();
+	/**
+	 * Called on the reactor thread for every response.
+	 */
+	private void processResponse(HttpDecoratedResponse decoratedResponse) {
+		if (PROCESS_RESPONSES_STATUSES.contains(decoratedResponse.getCode())) {
+			if (!decoratedResponse.getCallbacks().isEmpty()) {
+				sendMessageToCallbacks(decoratedResponse.getCallbacks(), decoratedResponse.getMessage());
+			}
+		} else {
+			SimpleLoggingUtil.error(getClass(), String.format("no callback or wrong response: %s", decoratedResponse));
 		}
 	}
 
+	/**
+	 * A host or port in the request replaces the configured one, also for the
+	 * following requests without. The request itself always ends up with the
+	 * host and port it is sent to.
+	 */
 	private HttpDecoratedRequest adjustRequest(HttpDecoratedRequest request) {
-		lock.lock();
-		try {
-			if(request.getHost() != null && !request.getHost().isEmpty()){
-				host = request.getHost();
-			}
-			if(request.getPort() != null){
-				port = request.getPort();
-			}
-		}finally {
-			lock.unlock();
+		String requestHost = request.getHost();
+		if (requestHost != null && !requestHost.isEmpty()) {
+			host = requestHost;
+		} else {
+			requestHost = host;
+		}
+		Integer requestPort = request.getPort();
+		if (requestPort != null) {
+			port = requestPort;
+		} else {
+			requestPort = port;
 		}
-		request.setHost(host);
-		request.setPort(port);
+		request.setHost(requestHost);
+		request.setPort(requestPort);
 		request.addHostHeader();
 		return request;
 	}
@@ -139,7 +170,7 @@ public class HttpClientUnit extends RoboUnit<HttpDecoratedRequest> {
 	}
 
 	private void sendMessageToCallback(String callback, Object message) {
-		getContext().getReference(callback).sendMessage(message);
+		callbackReferences.computeIfAbsent(callback, getContext()::getReferenceHandle).sendMessage(message);
 	}
 
 }
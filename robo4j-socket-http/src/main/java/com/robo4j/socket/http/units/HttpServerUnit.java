@@ -42,6 +42,9 @@ import static com.robo4j.socket.http.util.ChannelBufferUtils.INIT_BUFFER_CAPACIT
 import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_BUFFER_CAPACITY;
 import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_CODEC_PACKAGES;
 import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_CODEC_REGISTRY;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_KEEP_ALIVE_TIMEOUT;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_REACTOR_COUNT;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_REQUEST_POOL_SIZE;
 import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_SOCKET_PORT;
 import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_UNIT_PATHS_CONFIG;
 
@@ -88,6 +91,12 @@ public class HttpServerUnit extends RoboUnit<Object> {
 
 		serverContext.putProperty(PROPERTY_BUFFER_CAPACITY, bufferCapacity);
 		serverContext.putProperty(PROPERTY_SOCKET_PORT, serverPort);
+		serverContext.putProperty(PROPERTY_KEEP_ALIVE_TIMEOUT,
+				configuration.getInteger(PROPERTY_KEEP_ALIVE_TIMEOUT, RoboHttpUtils.DEFAULT_KEEP_ALIVE_TIMEOUT));
+		serverContext.putProperty(PROPERTY_REQUEST_POOL_SIZE,
+				configuration.getInteger(PROPERTY_REQUEST_POOL_SIZE, RoboHttpUtils.DEFAULT_REQUEST_POOL_SIZE));
+		serverContext.putProperty(PROPERTY_REACTOR_COUNT,
+				configuration.getInteger(PROPERTY_REACTOR_COUNT, RoboHttpUtils.DEFAULT_REACTOR_COUNT));
 
 		String packages = configuration.getString(PROPERTY_CODEC_PACKAGES, null);
 
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2014, 2017, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.socket.http.units;
+
+import com.robo4j.AttributeDescriptor;
+import com.robo4j.ConfigurationException;
+import com.robo4j.DefaultAttributeDescriptor;
+import com.robo4j.RoboContext;
+import com.robo4j.RoboUnit;
+import com.robo4j.configuration.Configuration;
+import com.robo4j.socket.http.request.HttpResponseStream;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Streams the messages it receives to every HTTP connection viewing it,
+ * e.g. the images of a camera as MJPEG to a browser. A GET request to the unit
+ * through the {@link HttpServerUnit} keeps the connection open and gets every
+ * following message as a frame, instead of one request per frame.
+ *
+ * Messages are sent as they are if byte[] or ByteBuffer, otherwise as their
+ * string value, see {@link #toFrame(Object)}. Every viewer has its own small
+ * frame queue; a slow viewer skips frames rather than holding up the others.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miro Wengner (@miragemiko)
+ */
+public class HttpStreamUnit extends RoboUnit<Object> {
+	public static final String PROPERTY_CONTENT_TYPE = "contentType";
+	public static final String PROPERTY_MULTIPART = "multipart";
+	public static final String PROPERTY_MAX_QUEUED_FRAMES = "maxQueuedFrames";
+	public static final String ATTR_VIEWERS = "viewers";
+	public static final AttributeDescriptor<Integer> DESCRIPTOR_VIEWERS = DefaultAttributeDescriptor
+			.create(Integer.class, ATTR_VIEWERS);
+	// Not the stream itself, see HttpResponseStream.DESCRIPTOR_STREAM
+	public static final Collection<AttributeDescriptor<?>> KNOWN_ATTRIBUTES = Arrays
+			.asList(HttpResponseStream.DESCRIPTOR_STREAM_CONTENT_TYPE, DESCRIPTOR_VIEWERS);
+
+	private final List<HttpResponseStream> streams = new CopyOnWriteArrayList<>();
+	private String contentType;
+	private boolean multipart;
+	private int maxQueuedFrames;
+
+	public HttpStreamUnit(RoboContext context, String id) {
+		super(Object.class, context, id);
+	}
+
+	@Override
+	protected void onInitialization(Configuration configuration) throws ConfigurationException {
+		contentType = configuration.getString(PROPERTY_CONTENT_TYPE, "image/jpeg");
+		multipart = configuration.getBoolean(PROPERTY_MULTIPART, true);
+		maxQueuedFrames = configuration.getInteger(PROPERTY_MAX_QUEUED_FRAMES,
+				HttpResponseStream.DEFAULT_MAX_QUEUED_FRAMES);
+	}
+
+	@Override
+	public void onMessage(Object message) {
+		final Object frame = toFrame(message);
+		if (frame == null) {
+			return;
+		}
+		for (HttpResponseStream stream : streams) {
+			if (!stream.offer(frame)) {
+				// The viewer has gone
+				streams.remove(stream);
+			}
+		}
+	}
+
+	@Override
+	public void stop() {
+		streams.forEach(HttpResponseStream::close);
+		streams.clear();
+	}
+
+	@Override
+	public Collection<AttributeDescriptor<?>> getKnownAttributes() {
+		return KNOWN_ATTRIBUTES;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected <R> R onGetAttribute(AttributeDescriptor<R> descriptor) {
+		if (isDescriptor(descriptor, HttpResponseStream.DESCRIPTOR_STREAM)) {
+			final HttpResponseStream stream = multipart ? HttpResponseStream.multipart(contentType, maxQueuedFrames)
+					: HttpResponseStream.chunked(contentType, maxQueuedFrames);
+			streams.add(stream);
+			return (R) stream;
+		}
+		if (isDescriptor(descriptor, HttpResponseStream.DESCRIPTOR_STREAM_CONTENT_TYPE)) {
+			return (R) (multipart ? HttpResponseStream.CONTENT_TYPE_MULTIPART : contentType);
+		}
+		if (descriptor.getAttributeName().equals(ATTR_VIEWERS) && descriptor.getAttributeType() == Integer.class) {
+			return (R) Integer.valueOf(streams.size());
+		}
+		return super.onGetAttribute(descriptor);
+	}
+
+	private static boolean isDescriptor(AttributeDescriptor<?> descriptor, AttributeDescriptor<?> expected) {
+		return descriptor.getAttributeName().equals(expected.getAttributeName())
+				&& descriptor.getAttributeType() == expected.getAttributeType();
+	}
+
+	/**
+	 * Converts a received message to the frame sent to the viewers.
+	 * Subclasses may override it to extract the frame from their message
+	 * type.
+	 *
+	 * @param message
+	 *            the received message.
+	 * @return the frame, or null to skip the message.
+	 */
+	protected Object toFrame(Object message) {
+		return message;
+	}
+}
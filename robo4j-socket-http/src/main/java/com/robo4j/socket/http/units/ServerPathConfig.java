@@ -1,7 +1,9 @@
 package com.robo4j.socket.http.units;
 
+import com.robo4j.AttributeDescriptor;
 import com.robo4j.RoboReference;
 import com.robo4j.socket.http.HttpMethod;
+import com.robo4j.socket.http.request.HttpResponseStream;
 
 import java.util.Collections;
 import java.util.List;
@@ -19,6 +21,8 @@ public final class ServerPathConfig {
 	private final RoboReference<Object> roboUnit;
 	private final HttpMethod method;
 	private final List<String> filters;
+	// Looked up on first use, the known attributes of a unit do not change
+	private volatile Boolean streaming;
 
 	public ServerPathConfig(String path, RoboReference<Object> roboUnit, HttpMethod method) {
 		this.path = path;
@@ -46,6 +50,26 @@ public final class ServerPathConfig {
 		return method;
 	}
 
+	/**
+	 * @return true if the unit provides a {@link HttpResponseStream} to every
+	 *         viewer, see {@link HttpResponseStream#DESCRIPTOR_STREAM}.
+	 */
+	public boolean isStreaming() {
+		Boolean result = streaming;
+		if (result == null) {
+			result = Boolean.FALSE;
+			for (AttributeDescriptor<?> descriptor : roboUnit.getKnownAttributes()) {
+				if (descriptor.getAttributeName().equals(HttpResponseStream.DESCRIPTOR_STREAM_CONTENT_TYPE.getAttributeName())
+						&& descriptor.getAttributeType() == String.class) {
+					result = Boolean.TRUE;
+					break;
+				}
+			}
+			streaming = result;
+		}
+		return result;
+	}
+
 	public List<String> getFilters() {
 		return Collections.unmodifiableList(filters);
 	}
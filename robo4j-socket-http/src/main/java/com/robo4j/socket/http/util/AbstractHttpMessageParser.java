@@ -0,0 +1,489 @@
+/*
+ * Copyright (c) 2014, 2017, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.socket.http.util;
+
+import com.robo4j.socket.http.HttpHeaderFieldNames;
+import com.robo4j.socket.http.HttpHeaderFieldValues;
+import com.robo4j.socket.http.HttpVersion;
+import com.robo4j.socket.http.SocketException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Incremental HTTP/1.1 message parser, working directly on the bytes of a
+ * {@link ByteBuffer}. A message may arrive in any number of pieces: the parser
+ * keeps its state between calls to {@link #parse(ByteBuffer)}, and never
+ * consumes bytes beyond the end of the current message, so pipelined messages
+ * stay in the buffer for the next round.
+ *
+ * <p>
+ * The body is framed by the content length, by chunked transfer encoding, or,
+ * where the subclass allows it, by the end of the stream. Common header names
+ * and values are mapped to shared constants rather than allocating new
+ * strings, and the body is available as a buffer.
+ * </p>
+ *
+ * <p>
+ * Internal implementation class.
+ * </p>
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miro Wengner (@miragemiko)
+ */
+abstract class AbstractHttpMessageParser {
+	/**
+	 * Maximum size of the first line, and of every header line.
+	 */
+	public static final int MAX_LINE_SIZE = 8 * 1024;
+	/**
+	 * Maximum size of the first line and the headers together.
+	 */
+	public static final int MAX_HEADER_SIZE = 64 * 1024;
+	/**
+	 * Maximum size of the body.
+	 */
+	public static final int MAX_BODY_SIZE = 1024 * 1024;
+
+	static final byte SP = ' ';
+	private static final byte CR = '\r';
+	private static final byte LF = '\n';
+	private static final byte COLON = ':';
+	private static final byte SEMICOLON = ';';
+	private static final int INITIAL_LINE_SIZE = 256;
+	private static final int INITIAL_BODY_SIZE = 1024;
+	private static final HttpVersion[] VERSIONS = HttpVersion.values();
+	private static final String[] COMMON_NAMES = { HttpHeaderFieldNames.HOST, HttpHeaderFieldNames.CONTENT_LENGTH,
+			HttpHeaderFieldNames.CONTENT_TYPE, HttpHeaderFieldNames.CONNECTION, HttpHeaderFieldNames.ACCEPT,
+			HttpHeaderFieldNames.ACCEPT_CHARSET, HttpHeaderFieldNames.ACCEPT_ENCODING,
+			HttpHeaderFieldNames.ACCEPT_LANGUAGE, HttpHeaderFieldNames.CACHE_CONTROL,
+			HttpHeaderFieldNames.CONTENT_ENCODING, HttpHeaderFieldNames.USER_AGENT, HttpHeaderFieldNames.ORIGIN,
+			HttpHeaderFieldNames.DATE, HttpHeaderFieldNames.SERVER, HttpHeaderFieldNames.TRANSFER_ENCODING,
+			HttpHeaderFieldNames.ROBO_UNIT_UID };
+	private static final String[] COMMON_VALUES = { HttpHeaderFieldValues.CONNECTION_KEEP_ALIVE,
+			HttpHeaderFieldValues.CONNECTION_CLOSE, HttpHeaderFieldValues.TRANSFER_ENCODING_CHUNKED };
+
+	private enum State {
+		FIRST_LINE, HEADER_LINE, BODY, BODY_UNTIL_CLOSE, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILER, COMPLETE
+	}
+
+	private State state = State.FIRST_LINE;
+	private byte[] line = new byte[INITIAL_LINE_SIZE];
+	private int lineLength;
+	private int headerSize;
+	private Map<String, String> headers = new LinkedHashMap<>();
+	private int contentLength = -1;
+	private boolean chunked;
+	private int bodyRemaining;
+	private ByteBuffer body;
+
+	/**
+	 * Consumes bytes from the buffer until the current message is complete, or
+	 * the buffer has no more bytes.
+	 *
+	 * @param buffer
+	 *            buffer in read mode. The position is advanced past the
+	 *            consumed bytes.
+	 * @return true if the message is complete.
+	 * @throws SocketException
+	 *             if the message is malformed or exceeds the size limits.
+	 */
+	public boolean parse(ByteBuffer buffer) {
+		while (state != State.COMPLETE && buffer.hasRemaining()) {
+			switch (state) {
+			case BODY:
+			case CHUNK_DATA:
+				readBody(buffer);
+				break;
+			case BODY_UNTIL_CLOSE:
+				ensureBodyCapacity(buffer.remaining());
+				body.put(buffer);
+				break;
+			default:
+				if (readLine(buffer)) {
+					handleLine();
+				}
+				break;
+			}
+		}
+		return state == State.COMPLETE;
+	}
+
+	/**
+	 * Tells the parser that the peer closed the stream.
+	 *
+	 * @return true if the message is complete, which is the case for a body
+	 *         delimited by the end of the stream.
+	 */
+	public boolean parseEndOfStream() {
+		if (state == State.BODY_UNTIL_CLOSE) {
+			state = State.COMPLETE;
+		}
+		return state == State.COMPLETE;
+	}
+
+	public boolean isComplete() {
+		return state == State.COMPLETE;
+	}
+
+	/**
+	 * @return true if no byte of the next message has been consumed yet.
+	 */
+	public boolean isIdle() {
+		return state == State.FIRST_LINE && lineLength == 0;
+	}
+
+	/**
+	 * @return true if the body is delimited by the end of the stream, so the
+	 *         connection can not carry another message.
+	 */
+	public boolean isBodyUntilClose() {
+		return state == State.BODY_UNTIL_CLOSE || (state == State.COMPLETE && contentLength < 0 && !chunked
+				&& body != null);
+	}
+
+	/**
+	 * @return the headers, keyed by lower case names.
+	 */
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * @return the content length, or -1 if the message did not have one.
+	 */
+	public int getContentLength() {
+		return contentLength;
+	}
+
+	/**
+	 * @return a read only view of the body, empty if there is none.
+	 */
+	public ByteBuffer getBody() {
+		if (body == null) {
+			return ByteBuffer.allocate(0);
+		}
+		ByteBuffer result = body.asReadOnlyBuffer();
+		result.flip();
+		return result;
+	}
+
+	/**
+	 * Makes the parser ready for the next message. The line buffer is kept.
+	 */
+	public void reset() {
+		state = State.FIRST_LINE;
+		lineLength = 0;
+		headerSize = 0;
+		headers = new LinkedHashMap<>();
+		contentLength = -1;
+		chunked = false;
+		bodyRemaining = 0;
+		body = null;
+		resetFirstLine();
+	}
+
+	/**
+	 * Parses the first line, available through {@link #lineLength()} and the
+	 * other line helpers.
+	 */
+	abstract void parseFirstLine();
+
+	abstract void resetFirstLine();
+
+	/**
+	 * @return true if a message without content length and transfer encoding
+	 *         has a body delimited by the end of the stream.
+	 */
+	abstract boolean hasBodyUntilClose();
+
+	int getHeaderSize() {
+		return headerSize;
+	}
+
+	boolean hasBody() {
+		return body != null;
+	}
+
+	/**
+	 * @return the body decoded as UTF-8.
+	 */
+	String getBodyString() {
+		return new String(body.array(), 0, body.position(), StandardCharsets.UTF_8);
+	}
+
+	int lineLength() {
+		return lineLength;
+	}
+
+	String lineString(int start, int end) {
+		return new String(line, start, end - start, StandardCharsets.UTF_8);
+	}
+
+	byte lineByte(int index) {
+		return line[index];
+	}
+
+	HttpVersion matchVersion(int start, int end) {
+		for (HttpVersion candidate : VERSIONS) {
+			if (equalsAscii(candidate.getValue(), start, end, false)) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	boolean equalsAscii(String value, int start, int end, boolean ignoreCase) {
+		if (value.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			int b = line[start + i];
+			if (ignoreCase && b >= 'A' && b <= 'Z') {
+				b += 'a' - 'A';
+			}
+			if (b != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	int indexOf(byte value, int from) {
+		for (int i = from; i < lineLength; i++) {
+			if (line[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean readLine(ByteBuffer buffer) {
+		final boolean header = state == State.FIRST_LINE || state == State.HEADER_LINE;
+		while (buffer.hasRemaining()) {
+			final byte b = buffer.get();
+			if (header) {
+				headerSize++;
+			}
+			if (b == LF) {
+				if (lineLength > 0 && line[lineLength - 1] == CR) {
+					lineLength--;
+				}
+				checkHeaderSize();
+				return true;
+			}
+			if (lineLength == line.length) {
+				if (lineLength >= MAX_LINE_SIZE) {
+					throw new SocketException("line too long");
+				}
+				line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_LINE_SIZE));
+			}
+			line[lineLength++] = b;
+		}
+		checkHeaderSize();
+		return false;
+	}
+
+	private void checkHeaderSize() {
+		if (headerSize > MAX_HEADER_SIZE) {
+			throw new SocketException("header too large");
+		}
+	}
+
+	private void handleLine() {
+		switch (state) {
+		case FIRST_LINE:
+			// Robust implementations ignore empty lines before the first line
+			if (lineLength > 0) {
+				parseFirstLine();
+				state = State.HEADER_LINE;
+			} else {
+				headerSize = 0;
+			}
+			break;
+		case HEADER_LINE:
+			if (lineLength == 0) {
+				startBody();
+			} else {
+				parseHeaderLine();
+			}
+			break;
+		case CHUNK_SIZE:
+			final int chunkSize = parseChunkSize();
+			if (chunkSize == 0) {
+				state = State.TRAILER;
+			} else {
+				ensureBodyCapacity(chunkSize);
+				bodyRemaining = chunkSize;
+				state = State.CHUNK_DATA;
+			}
+			break;
+		case CHUNK_END:
+			if (lineLength != 0) {
+				throw new SocketException("invalid chunk end");
+			}
+			state = State.CHUNK_SIZE;
+			break;
+		case TRAILER:
+			// trailing headers are not used
+			if (lineLength == 0) {
+				state = State.COMPLETE;
+			}
+			break;
+		default:
+			throw new IllegalStateException("not allowed state: " + state);
+		}
+		lineLength = 0;
+	}
+
+	private void startBody() {
+		if (chunked) {
+			body = ByteBuffer.allocate(INITIAL_BODY_SIZE);
+			state = State.CHUNK_SIZE;
+		} else if (contentLength > 0) {
+			body = ByteBuffer.allocate(contentLength);
+			bodyRemaining = contentLength;
+			state = State.BODY;
+		} else if (contentLength == 0) {
+			body = ByteBuffer.allocate(0);
+			state = State.COMPLETE;
+		} else if (hasBodyUntilClose()) {
+			body = ByteBuffer.allocate(INITIAL_BODY_SIZE);
+			state = State.BODY_UNTIL_CLOSE;
+		} else {
+			state = State.COMPLETE;
+		}
+	}
+
+	private void parseHeaderLine() {
+		final int colon = indexOf(COLON, 0);
+		if (colon <= 0) {
+			throw new SocketException("invalid header line: " + new String(line, 0, lineLength, StandardCharsets.US_ASCII));
+		}
+		int valueStart = colon + 1;
+		int valueEnd = lineLength;
+		while (valueStart < valueEnd && isWhitespace(line[valueStart])) {
+			valueStart++;
+		}
+		while (valueEnd > valueStart && isWhitespace(line[valueEnd - 1])) {
+			valueEnd--;
+		}
+		final String name = matchName(colon);
+		final String value = matchValue(valueStart, valueEnd);
+		headers.put(name, value);
+		if (HttpHeaderFieldNames.CONTENT_LENGTH.equals(name)) {
+			contentLength = parseContentLength(valueStart, valueEnd);
+		} else if (HttpHeaderFieldNames.TRANSFER_ENCODING.equals(name)) {
+			chunked = value.toLowerCase().endsWith(HttpHeaderFieldValues.TRANSFER_ENCODING_CHUNKED);
+		}
+	}
+
+	private void readBody(ByteBuffer buffer) {
+		final int count = Math.min(buffer.remaining(), bodyRemaining);
+		final int limit = buffer.limit();
+		buffer.limit(buffer.position() + count);
+		body.put(buffer);
+		buffer.limit(limit);
+		bodyRemaining -= count;
+		if (bodyRemaining == 0) {
+			state = state == State.BODY ? State.COMPLETE : State.CHUNK_END;
+		}
+	}
+
+	private void ensureBodyCapacity(int count) {
+		if (body.remaining() >= count) {
+			return;
+		}
+		final long required = (long) body.position() + count;
+		if (required > MAX_BODY_SIZE) {
+			throw new SocketException("body too large");
+		}
+		final ByteBuffer grown = ByteBuffer
+				.allocate((int) Math.min(MAX_BODY_SIZE, Math.max(required, body.capacity() * 2L)));
+		body.flip();
+		grown.put(body);
+		body = grown;
+	}
+
+	private int parseContentLength(int start, int end) {
+		if (start == end) {
+			throw new SocketException("invalid content length");
+		}
+		long result = 0;
+		for (int i = start; i < end; i++) {
+			final byte b = line[i];
+			if (b < '0' || b > '9') {
+				throw new SocketException("invalid content length");
+			}
+			result = result * 10 + (b - '0');
+			if (result > MAX_BODY_SIZE) {
+				throw new SocketException("body too large");
+			}
+		}
+		return (int) result;
+	}
+
+	private int parseChunkSize() {
+		int end = indexOf(SEMICOLON, 0);
+		if (end < 0) {
+			end = lineLength;
+		}
+		while (end > 0 && isWhitespace(line[end - 1])) {
+			end--;
+		}
+		if (end == 0) {
+			throw new SocketException("invalid chunk size");
+		}
+		long result = 0;
+		for (int i = 0; i < end; i++) {
+			final int digit = Character.digit(line[i], 16);
+			if (digit < 0) {
+				throw new SocketException("invalid chunk size");
+			}
+			result = (result << 4) + digit;
+			if (result > MAX_BODY_SIZE) {
+				throw new SocketException("body too large");
+			}
+		}
+		return (int) result;
+	}
+
+	private String matchName(int end) {
+		for (String candidate : COMMON_NAMES) {
+			if (equalsAscii(candidate, 0, end, true)) {
+				return candidate;
+			}
+		}
+		return new String(line, 0, end, StandardCharsets.US_ASCII).toLowerCase();
+	}
+
+	private String matchValue(int start, int end) {
+		for (String candidate : COMMON_VALUES) {
+			if (equalsAscii(candidate, start, end, false)) {
+				return candidate;
+			}
+		}
+		return new String(line, start, end - start, StandardCharsets.UTF_8);
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == SP || b == '\t';
+	}
+}
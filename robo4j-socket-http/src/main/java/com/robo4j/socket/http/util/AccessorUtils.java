@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014, 2017, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.robo4j.socket.http.util;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Binds getters, setters and no-argument constructors to functional
+ * interfaces through the {@link LambdaMetafactory}, so they are called like
+ * any other lambda instead of through {@link Method#invoke(Object, Object...)}.
+ * Classes that are not public, or not visible from the class loader of this
+ * class, fall back to reflection.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class AccessorUtils {
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private AccessorUtils() {
+		// no instances
+	}
+
+	@SuppressWarnings("unchecked")
+	public static Function<Object, Object> createGetter(Method method) {
+		final Class<?> clazz = method.getDeclaringClass();
+		if (isBindable(clazz)) {
+			try {
+				final CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply",
+						MethodType.methodType(Function.class), MethodType.methodType(Object.class, Object.class),
+						LOOKUP.unreflect(method), MethodType.methodType(wrap(method.getReturnType()), clazz));
+				return (Function<Object, Object>) site.getTarget().invoke();
+			} catch (Throwable e) {
+				// not accessible, reflection is used
+			}
+		}
+		return obj -> invoke(method, obj);
+	}
+
+	@SuppressWarnings("unchecked")
+	public static BiConsumer<Object, Object> createSetter(Method method) {
+		final Class<?> clazz = method.getDeclaringClass();
+		if (isBindable(clazz) && method.getParameterCount() == 1) {
+			try {
+				final CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+						MethodType.methodType(BiConsumer.class),
+						MethodType.methodType(void.class, Object.class, Object.class), LOOKUP.unreflect(method),
+						MethodType.methodType(void.class, clazz, wrap(method.getParameterTypes()[0])));
+				return (BiConsumer<Object, Object>) site.getTarget().invoke();
+			} catch (Throwable e) {
+				// not accessible, reflection is used
+			}
+		}
+		return (obj, value) -> invoke(method, obj, value);
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> Supplier<T> createConstructor(Class<T> clazz) {
+		if (isBindable(clazz)) {
+			try {
+				final MethodHandle constructor = LOOKUP.findConstructor(clazz, MethodType.methodType(void.class));
+				final CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get",
+						MethodType.methodType(Supplier.class), MethodType.methodType(Object.class), constructor,
+						MethodType.methodType(clazz));
+				return (Supplier<T>) site.getTarget().invoke();
+			} catch (Throwable e) {
+				// not accessible, reflection is used
+			}
+		}
+		return () -> {
+			try {
+				return clazz.getDeclaredConstructor().newInstance();
+			} catch (InvocationTargetException e) {
+				throw new RoboReflectException("create instance: " + clazz, e.getCause());
+			} catch (NoSuchMethodException e) {
+				throw new RoboReflectException("no default constructor: " + clazz, e);
+			} catch (ReflectiveOperationException e) {
+				throw new RoboReflectException("create instance: " + clazz, e);
+			}
+		};
+	}
+
+	private static boolean isBindable(Class<?> clazz) {
+		if (!Modifier.isPublic(clazz.getModifiers())) {
+			return false;
+		}
+		try {
+			return Class.forName(clazz.getName(), false, AccessorUtils.class.getClassLoader()) == clazz;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	private static Class<?> wrap(Class<?> clazz) {
+		return MethodType.methodType(clazz).wrap().returnType();
+	}
+
+	private static Object invoke(Method method, Object obj, Object... args) {
+		try {
+			return method.invoke(obj, args);
+		} catch (Exception e) {
+			throw new RoboReflectException("invoke: " + method, e);
+		}
+	}
+}
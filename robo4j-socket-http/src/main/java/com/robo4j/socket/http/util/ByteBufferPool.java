@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2014, 2017, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.robo4j.socket.http.util;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct {@link ByteBuffer}s of the same size. Direct buffers are
+ * expensive to allocate and release, but can be handed to the socket without
+ * an intermediate copy, so they are worth keeping around. At most the maximum
+ * number of buffers are kept, anything released beyond that is left to the
+ * garbage collector.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miro Wengner (@miragemiko)
+ */
+public final class ByteBufferPool {
+	private final int bufferSize;
+	private final int maxPooled;
+	private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param bufferSize
+	 *            the capacity of the buffers in the pool.
+	 * @param maxPooled
+	 *            the maximum number of released buffers to keep.
+	 */
+	public ByteBufferPool(int bufferSize, int maxPooled) {
+		if (bufferSize <= 0 || maxPooled < 0) {
+			throw new IllegalArgumentException("bufferSize: " + bufferSize + ", maxPooled: " + maxPooled);
+		}
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * @return a cleared direct buffer with the capacity of the pool, reused if
+	 *         one is available.
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = buffers.poll();
+		if (buffer == null) {
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+		pooled.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer to the pool. Buffers not acquired from a pool of this
+	 * size are ignored.
+	 *
+	 * @param buffer
+	 *            the buffer no longer used.
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize) {
+			return;
+		}
+		if (pooled.incrementAndGet() > maxPooled) {
+			pooled.decrementAndGet();
+			return;
+		}
+		buffers.offer(buffer);
+	}
+
+	/**
+	 * @return the capacity of the buffers in the pool.
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * @return the number of buffers currently available for reuse.
+	 */
+	public int getPooledCount() {
+		return pooled.get();
+	}
+}
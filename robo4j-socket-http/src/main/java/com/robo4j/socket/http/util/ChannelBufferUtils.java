@@ -27,6 +27,7 @@ import com.robo4j.socket.http.message.HttpRequestDenominator;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -82,10 +83,8 @@ public final class ChannelBufferUtils {
 	 * @return byte buffer
 	 */
 	public static ByteBuffer getByteBufferByString(String message) {
-		ByteBuffer result = ByteBuffer.allocate(message.length());
-		result.put(message.getBytes());
-		result.flip();
-		return result;
+		// Sized by the encoded bytes, not by the number of chars
+		return ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8));
 	}
 
 	/**
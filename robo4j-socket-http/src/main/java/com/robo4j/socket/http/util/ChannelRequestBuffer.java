@@ -28,7 +28,7 @@ import java.nio.channels.ByteChannel;
 import java.util.HashMap;
 
 /**
- * ChannelRequestBuffer
+ * ChannelRequestBuffer reads one request from a blocking channel
  *
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
@@ -42,19 +42,18 @@ public class ChannelRequestBuffer {
 	}
 
 	public HttpDecoratedRequest getHttpDecoratedRequestByChannel(ByteChannel channel) throws IOException {
-		final StringBuilder sbBasic = new StringBuilder();
-		int readBytes = channel.read(requestBuffer);
-		if (readBytes != ChannelBufferUtils.BUFFER_MARK_END) {
+		final HttpRequestParser parser = new HttpRequestParser();
+		requestBuffer.clear();
+		// The request may arrive in any number of pieces
+		while (channel.read(requestBuffer) != ChannelBufferUtils.BUFFER_MARK_END) {
 			requestBuffer.flip();
-			ChannelBufferUtils.addToStringBuilder(sbBasic, requestBuffer, readBytes);
-			final HttpDecoratedRequest result = ChannelBufferUtils
-					.extractDecoratedRequestByStringMessage(sbBasic.toString());
-			ChannelBufferUtils.readChannelBuffer(result, channel, requestBuffer, readBytes);
+			final boolean complete = parser.parse(requestBuffer);
 			requestBuffer.clear();
-			return result;
-		} else {
-			return new HttpDecoratedRequest(new HashMap<>(),
-					new HttpRequestDenominator(HttpMethod.GET, HttpVersion.HTTP_1_1));
+			if (complete) {
+				return parser.toDecoratedRequest();
+			}
 		}
+		return new HttpDecoratedRequest(new HashMap<>(),
+				new HttpRequestDenominator(HttpMethod.GET, HttpVersion.HTTP_1_1));
 	}
 }
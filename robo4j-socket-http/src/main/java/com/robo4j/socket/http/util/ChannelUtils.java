@@ -188,4 +188,19 @@ public final class ChannelUtils {
 		handler.handle();
 	}
 
+	/**
+	 * cancels the key and closes its channel
+	 *
+	 * @param key
+	 *            selection key
+	 */
+	public static void closeSelectionKey(SelectionKey key) {
+		key.cancel();
+		try {
+			key.channel().close();
+		} catch (IOException e) {
+			SimpleLoggingUtil.debug(ChannelUtils.class, "close selection key", e);
+		}
+	}
+
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2014, 2017, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.socket.http.util;
+
+import com.robo4j.socket.http.HttpMethod;
+import com.robo4j.socket.http.HttpVersion;
+import com.robo4j.socket.http.SocketException;
+import com.robo4j.socket.http.message.HttpDecoratedRequest;
+import com.robo4j.socket.http.message.HttpRequestDenominator;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental HTTP/1.1 request parser, working directly on the bytes of a
+ * {@link java.nio.ByteBuffer}. A request may arrive in any number of pieces:
+ * the parser keeps its state between calls to
+ * {@link #parse(java.nio.ByteBuffer)}, and never consumes bytes beyond the end
+ * of the current request, so pipelined requests stay in the buffer for the
+ * next round.
+ *
+ * <p>
+ * Not thread safe. One parser per connection, reused for every request on it
+ * after a {@link #reset()}.
+ * </p>
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miro Wengner (@miragemiko)
+ */
+public final class HttpRequestParser extends AbstractHttpMessageParser {
+	private static final HttpMethod[] METHODS = HttpMethod.values();
+
+	private HttpMethod method;
+	private String path;
+	private HttpVersion version;
+
+	public HttpMethod getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return the request target, including any query.
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	public HttpVersion getVersion() {
+		return version;
+	}
+
+	/**
+	 * Creates the request the rest of the server works with from the parsed
+	 * request.
+	 *
+	 * @return the decorated request.
+	 */
+	public HttpDecoratedRequest toDecoratedRequest() {
+		final HttpRequestDenominator denominator;
+		final int query = path.indexOf(HttpPathUtils.DELIMITER_PATH_ATTRIBUTES);
+		if (query >= 0) {
+			denominator = new HttpRequestDenominator(method, path.substring(0, query), version,
+					HttpPathUtils.extractAttributesByPath(path));
+		} else {
+			denominator = new HttpRequestDenominator(method, path, version);
+		}
+		final HttpDecoratedRequest result = new HttpDecoratedRequest(getHeaders(), denominator);
+		if (hasBody()) {
+			// The message string is only decoded if someone asks for it
+			final ByteBuffer body = getBody();
+			result.setLength(getHeaderSize() + body.remaining());
+			result.setBody(body);
+		}
+		return result;
+	}
+
+	@Override
+	void parseFirstLine() {
+		final int methodEnd = indexOf(SP, 0);
+		final int pathEnd = methodEnd < 0 ? -1 : indexOf(SP, methodEnd + 1);
+		if (pathEnd < 0) {
+			throw new SocketException("invalid request line: " + lineString(0, lineLength()));
+		}
+		method = matchMethod(methodEnd);
+		path = lineString(methodEnd + 1, pathEnd);
+		version = matchVersion(pathEnd + 1, lineLength());
+		if (version == null) {
+			throw new SocketException("unsupported http version: " + lineString(pathEnd + 1, lineLength()));
+		}
+	}
+
+	@Override
+	void resetFirstLine() {
+		method = null;
+		path = null;
+		version = null;
+	}
+
+	@Override
+	boolean hasBodyUntilClose() {
+		return false;
+	}
+
+	private HttpMethod matchMethod(int end) {
+		for (HttpMethod candidate : METHODS) {
+			if (equalsAscii(candidate.getName(), 0, end, false)) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+}
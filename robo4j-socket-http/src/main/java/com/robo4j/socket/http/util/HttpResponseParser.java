@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014, 2017, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.socket.http.util;
+
+import com.robo4j.socket.http.HttpHeaderFieldNames;
+import com.robo4j.socket.http.HttpHeaderFieldValues;
+import com.robo4j.socket.http.HttpVersion;
+import com.robo4j.socket.http.SocketException;
+import com.robo4j.socket.http.enums.StatusCode;
+import com.robo4j.socket.http.message.HttpDecoratedResponse;
+import com.robo4j.socket.http.message.HttpResponseDenominator;
+
+/**
+ * Incremental HTTP/1.1 response parser, the client side counterpart of the
+ * {@link HttpRequestParser}. Responses without content length and transfer
+ * encoding are read until the server closes the connection, see
+ * {@link #parseEndOfStream()}.
+ *
+ * <p>
+ * Not thread safe. One parser per connection, reused for every response on it
+ * after a {@link #reset()}.
+ * </p>
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miro Wengner (@miragemiko)
+ */
+public final class HttpResponseParser extends AbstractHttpMessageParser {
+	private static final int NO_STATUS = -1;
+
+	private HttpVersion version;
+	private int statusCode = NO_STATUS;
+
+	public HttpVersion getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the status code as received, -1 before the status line is parsed.
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * @return true if the connection may carry the next request once this
+	 *         response is complete.
+	 */
+	public boolean isKeepAlive() {
+		if (isBodyUntilClose()) {
+			return false;
+		}
+		final String connection = getHeaders().get(HttpHeaderFieldNames.CONNECTION);
+		if (version == HttpVersion.HTTP_1_0) {
+			return HttpHeaderFieldValues.CONNECTION_KEEP_ALIVE.equalsIgnoreCase(connection);
+		}
+		return !HttpHeaderFieldValues.CONNECTION_CLOSE.equalsIgnoreCase(connection);
+	}
+
+	/**
+	 * Creates the response the client units work with from the parsed
+	 * response.
+	 *
+	 * @return the decorated response.
+	 */
+	public HttpDecoratedResponse toDecoratedResponse() {
+		final HttpResponseDenominator denominator = new HttpResponseDenominator(StatusCode.getByCode(statusCode),
+				version);
+		final HttpDecoratedResponse result = new HttpDecoratedResponse(getHeaders(), denominator);
+		if (hasBody() && getBody().hasRemaining()) {
+			result.setLength(getHeaderSize() + getBody().remaining());
+			result.addMessage(getBodyString());
+		}
+		return result;
+	}
+
+	@Override
+	void parseFirstLine() {
+		final int versionEnd = indexOf(SP, 0);
+		if (versionEnd < 0) {
+			throw new SocketException("invalid status line: " + lineString(0, lineLength()));
+		}
+		version = matchVersion(0, versionEnd);
+		if (version == null) {
+			throw new SocketException("unsupported http version: " + lineString(0, versionEnd));
+		}
+		int codeEnd = indexOf(SP, versionEnd + 1);
+		if (codeEnd < 0) {
+			codeEnd = lineLength();
+		}
+		if (codeEnd - versionEnd - 1 != 3) {
+			throw new SocketException("invalid status line: " + lineString(0, lineLength()));
+		}
+		int code = 0;
+		for (int i = versionEnd + 1; i < codeEnd; i++) {
+			final byte b = lineByte(i);
+			if (b < '0' || b > '9') {
+				throw new SocketException("invalid status line: " + lineString(0, lineLength()));
+			}
+			code = code * 10 + (b - '0');
+		}
+		statusCode = code;
+	}
+
+	@Override
+	void resetFirstLine() {
+		version = null;
+		statusCode = NO_STATUS;
+	}
+
+	/**
+	 * Informational, no content and not modified responses never have a body.
+	 */
+	@Override
+	boolean hasBodyUntilClose() {
+		return statusCode >= 200 && statusCode != 204 && statusCode != 304;
+	}
+}
@@ -3,19 +3,23 @@ package com.robo4j.socket.http.util;
 import com.robo4j.socket.http.dto.ClassGetSetDTO;
 import com.robo4j.socket.http.json.JsonDocument;
 import com.robo4j.socket.http.json.JsonGenericTypeAdapter;
+import com.robo4j.socket.http.json.JsonPullReader;
+import com.robo4j.socket.http.json.JsonToken;
 import com.robo4j.socket.http.json.JsonTypeAdapter;
 import com.robo4j.util.StringConstants;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -26,6 +30,7 @@ import static com.robo4j.util.Utf8Constant.UTF8_COLON;
 import static com.robo4j.util.Utf8Constant.UTF8_COMMA;
 import static com.robo4j.util.Utf8Constant.UTF8_CURLY_BRACKET_LEFT;
 import static com.robo4j.util.Utf8Constant.UTF8_CURLY_BRACKET_RIGHT;
+import static com.robo4j.util.Utf8Constant.UTF8_QUOTATION_MARK;
 import static com.robo4j.util.Utf8Constant.UTF8_SQUARE_BRACKET_LEFT;
 import static com.robo4j.util.Utf8Constant.UTF8_SQUARE_BRACKET_RIGHT;
 
@@ -42,8 +47,16 @@ public final class ReflectUtils {
 	private static final String METHOD_GET = "get";
 	private static final String METHOD_SET = "set";
 
-	private static final Map<Class<?>, Map<String, ClassGetSetDTO>> clazzDescriptorMap = new HashMap<>();
-	private static final Map<Class<?>, JsonTypeAdapter> clazzAdapter = new HashMap<>();
+	private static final String JSON_NULL = "null";
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private static final int JSON_BUFFER_CAPACITY = 256;
+	private static final int MAX_JSON_BUFFER_CAPACITY = 64 * 1024;
+
+	private static final Map<Class<?>, Map<String, ClassGetSetDTO>> clazzDescriptorMap = new ConcurrentHashMap<>();
+	private static final Map<Class<?>, JsonTypeAdapter> clazzAdapter = new ConcurrentHashMap<>();
+	private static final Map<Class<?>, Supplier<?>> clazzConstructorMap = new ConcurrentHashMap<>();
+	private static final ThreadLocal<StringBuilder> jsonBuffer = ThreadLocal
+			.withInitial(() -> new StringBuilder(JSON_BUFFER_CAPACITY));
 
 
 	@SuppressWarnings("unchecked")
@@ -92,6 +105,158 @@ public final class ReflectUtils {
 
 	}
 
+	/**
+	 * creates the instance and fills it directly from the reader, no
+	 * intermediate {@link JsonDocument} is built
+	 *
+	 * @param clazz
+	 *            desired class
+	 * @param reader
+	 *            reader positioned in front of a JSON object
+	 * @param <T>
+	 *            type of the instance
+	 * @return filled instance
+	 */
+	public static <T> T createInstanceByClazzAndJsonReader(Class<T> clazz, JsonPullReader reader) {
+		final T instance = getConstructor(clazz).get();
+		final Map<String, ClassGetSetDTO> descriptorMap = getFieldsTypeMap(clazz);
+		reader.beginObject();
+		while (reader.hasNext()) {
+			final ClassGetSetDTO descriptor = descriptorMap.get(reader.nextName());
+			if (descriptor == null || reader.peek() == JsonToken.NULL) {
+				reader.skipValue();
+			} else {
+				final Object value = descriptor.getCollection() == null
+						? readJsonValue(descriptor.getValueClass(), reader) : readJsonCollection(descriptor, reader);
+				try {
+					descriptor.setValue(instance, value);
+				} catch (RuntimeException e) {
+					throw new RoboReflectException("create instance field: " + descriptor, e);
+				}
+			}
+		}
+		reader.endObject();
+		return instance;
+	}
+
+	private static Object readJsonValue(Class<?> clazz, JsonPullReader reader) {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return null;
+		}
+		if (clazz == null) {
+			return readJsonUntyped(reader);
+		}
+		if (clazz.isEnum()) {
+			return extractEnumConstant(reader.nextString(), (Enum<?>[]) clazz.getEnumConstants());
+		}
+		final TypeMapper typeMapper = TypeMapper.getBySource(clazz);
+		return typeMapper == null ? createInstanceByClazzAndJsonReader(clazz, reader)
+				: readJsonSimpleValue(typeMapper, reader);
+	}
+
+	private static Object readJsonSimpleValue(TypeMapper typeMapper, JsonPullReader reader) {
+		final JsonToken token = reader.peek();
+		switch (typeMapper) {
+		case INTEGER:
+		case INT:
+			return token == JsonToken.NUMBER ? reader.nextInt() : Integer.valueOf(reader.nextString());
+		case LONG:
+		case LONG_PRIM:
+			return token == JsonToken.NUMBER ? reader.nextLong() : Long.valueOf(reader.nextString());
+		case DOUBLE:
+		case DOUBLE_PRIM:
+			return token == JsonToken.NUMBER ? reader.nextDouble() : Double.valueOf(reader.nextString());
+		case FLOAT:
+		case FLOAT_PRIM:
+			return token == JsonToken.NUMBER ? (float) reader.nextDouble() : Float.valueOf(reader.nextString());
+		case BOOLEAN:
+		case BOOLEAN_PRIM:
+			return token == JsonToken.BOOLEAN ? reader.nextBoolean() : Boolean.valueOf(reader.nextString());
+		case CHAR:
+		case CHAR_PRIM:
+			final String value = reader.nextString();
+			return value.isEmpty() ? null : value.charAt(0);
+		default:
+			return typeMapper.getTranslate().apply(reader.nextString());
+		}
+	}
+
+	private static Object readJsonCollection(ClassGetSetDTO descriptor, JsonPullReader reader) {
+		final Class<?> valueClass = descriptor.getValueClass();
+		switch (descriptor.getCollection()) {
+		case ARRAY:
+			final List<Object> elements = readJsonList(valueClass, reader);
+			if (elements.isEmpty()) {
+				return null;
+			}
+			final Object array = Array.newInstance(valueClass, elements.size());
+			for (int i = 0; i < elements.size(); i++) {
+				Array.set(array, i, elements.get(i));
+			}
+			return array;
+		case LIST:
+			return readJsonList(valueClass, reader);
+		case MAP:
+			final Map<String, Object> map = new LinkedHashMap<>();
+			reader.beginObject();
+			while (reader.hasNext()) {
+				final String key = reader.nextName();
+				// only nested objects are converted to the value class
+				map.put(key, reader.peek() == JsonToken.BEGIN_OBJECT ? readJsonValue(valueClass, reader)
+						: readJsonUntyped(reader));
+			}
+			reader.endObject();
+			return map;
+		default:
+			throw new RoboReflectException("wrong collection: " + descriptor);
+		}
+	}
+
+	private static List<Object> readJsonList(Class<?> valueClass, JsonPullReader reader) {
+		final List<Object> result = new ArrayList<>();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			final Object value = readJsonValue(valueClass, reader);
+			if (value != null) {
+				result.add(value);
+			}
+		}
+		reader.endArray();
+		return result;
+	}
+
+	private static Object readJsonUntyped(JsonPullReader reader) {
+		switch (reader.peek()) {
+		case BEGIN_OBJECT:
+			final Map<String, Object> map = new LinkedHashMap<>();
+			reader.beginObject();
+			while (reader.hasNext()) {
+				final String key = reader.nextName();
+				map.put(key, readJsonUntyped(reader));
+			}
+			reader.endObject();
+			return map;
+		case BEGIN_ARRAY:
+			final List<Object> list = new ArrayList<>();
+			reader.beginArray();
+			while (reader.hasNext()) {
+				list.add(readJsonUntyped(reader));
+			}
+			reader.endArray();
+			return list;
+		case NUMBER:
+			return reader.nextNumber();
+		case BOOLEAN:
+			return reader.nextBoolean();
+		case NULL:
+			reader.nextNull();
+			return null;
+		default:
+			return reader.nextString();
+		}
+	}
+
 	private static Enum<?> extractEnumConstant(String name, Enum<?>[] constants){
 		for(Enum<?> constant: constants){
 			if(constant.name().equals(name)){
@@ -282,7 +447,139 @@ public final class ReflectUtils {
 							.toString();
 			}
 		}
-		return createJson(map, obj);
+		final StringBuilder sb = jsonBuffer.get();
+		sb.setLength(0);
+		writeJsonObject(sb, map, obj);
+		final String result = sb.toString();
+		if (sb.capacity() > MAX_JSON_BUFFER_CAPACITY) {
+			jsonBuffer.remove();
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Supplier<T> getConstructor(Class<T> clazz) {
+		return (Supplier<T>) clazzConstructorMap.computeIfAbsent(clazz, AccessorUtils::createConstructor);
+	}
+
+	private static void writeJsonObject(StringBuilder sb, Map<String, ClassGetSetDTO> descriptorMap, Object obj) {
+		sb.append(UTF8_CURLY_BRACKET_LEFT);
+		boolean first = true;
+		for (ClassGetSetDTO descriptor : descriptorMap.values()) {
+			final Object value;
+			try {
+				value = descriptor.getValue(obj);
+			} catch (RuntimeException e) {
+				throw new RoboReflectException("object getter value: " + descriptor + " obj: " + obj, e);
+			}
+			if (value != null) {
+				if (!first) {
+					sb.append(UTF8_COMMA);
+				}
+				first = false;
+				writeJsonString(sb, descriptor.getName());
+				sb.append(UTF8_COLON);
+				writeJsonValue(sb, value);
+			}
+		}
+		sb.append(UTF8_CURLY_BRACKET_RIGHT);
+	}
+
+	private static void writeJsonValue(StringBuilder sb, Object value) {
+		if (value == null) {
+			sb.append(JSON_NULL);
+		} else if (value instanceof String || value instanceof Character) {
+			writeJsonString(sb, value.toString());
+		} else if (value instanceof Integer) {
+			sb.append(((Integer) value).intValue());
+		} else if (value instanceof Long) {
+			sb.append(((Long) value).longValue());
+		} else if (value instanceof Double) {
+			sb.append(((Double) value).doubleValue());
+		} else if (value instanceof Boolean) {
+			sb.append(((Boolean) value).booleanValue());
+		} else if (value instanceof Number) {
+			sb.append(value);
+		} else if (value instanceof Enum) {
+			writeJsonString(sb, ((Enum<?>) value).name());
+		} else if (value instanceof Collection) {
+			sb.append(UTF8_SQUARE_BRACKET_LEFT);
+			boolean first = true;
+			for (Object element : (Collection<?>) value) {
+				if (!first) {
+					sb.append(UTF8_COMMA);
+				}
+				first = false;
+				writeJsonValue(sb, element);
+			}
+			sb.append(UTF8_SQUARE_BRACKET_RIGHT);
+		} else if (value.getClass().isArray()) {
+			sb.append(UTF8_SQUARE_BRACKET_LEFT);
+			final int length = Array.getLength(value);
+			for (int i = 0; i < length; i++) {
+				if (i > 0) {
+					sb.append(UTF8_COMMA);
+				}
+				writeJsonValue(sb, Array.get(value, i));
+			}
+			sb.append(UTF8_SQUARE_BRACKET_RIGHT);
+		} else if (value instanceof Map) {
+			sb.append(UTF8_CURLY_BRACKET_LEFT);
+			boolean first = true;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (!first) {
+					sb.append(UTF8_COMMA);
+				}
+				first = false;
+				writeJsonString(sb, String.valueOf(entry.getKey()));
+				sb.append(UTF8_COLON);
+				writeJsonValue(sb, entry.getValue());
+			}
+			sb.append(UTF8_CURLY_BRACKET_RIGHT);
+		} else {
+			writeJsonObject(sb, getFieldsTypeMap(value.getClass()), value);
+		}
+	}
+
+	private static void writeJsonString(StringBuilder sb, String value) {
+		sb.append(UTF8_QUOTATION_MARK);
+		int start = 0;
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c == '"' || c == '\\' || c < 0x20) {
+				sb.append(value, start, i).append('\\');
+				switch (c) {
+				case '\n':
+					sb.append('n');
+					break;
+				case '\r':
+					sb.append('r');
+					break;
+				case '\t':
+					sb.append('t');
+					break;
+				case '\b':
+					sb.append('b');
+					break;
+				case '\f':
+					sb.append('f');
+					break;
+				case '"':
+				case '\\':
+					sb.append(c);
+					break;
+				default:
+					sb.append("u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+				}
+				start = i + 1;
+			}
+		}
+		if (start == 0) {
+			sb.append(value);
+		} else {
+			sb.append(value, start, value.length());
+		}
+		sb.append(UTF8_QUOTATION_MARK);
 	}
 
 	public static String createJson(Map<String, ClassGetSetDTO> descriptorMap, Object obj) {
@@ -34,6 +34,11 @@ public final class RoboHttpUtils {
 
 	public static final int DEFAULT_PORT = 8042;
 	public static final int DEFAULT_UDP_PORT = 9042;
+	public static final int DEFAULT_KEEP_ALIVE_TIMEOUT = 15000;
+	public static final int DEFAULT_REQUEST_POOL_SIZE = 4;
+	public static final int DEFAULT_REACTOR_COUNT = Runtime.getRuntime().availableProcessors();
+	public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+	public static final int DEFAULT_CONNECTIONS_PER_HOST = 4;
 	public static final String HTTP_PROPERTY_PROTOCOL = "protocol";
 	public static final String PROPERTY_TARGET = "target";
 	public static final String PROPERTY_HOST = "host";
@@ -44,6 +49,11 @@ public final class RoboHttpUtils {
 	public static final String PROPERTY_BUFFER_CAPACITY = "bufferCapacity";
 	public static final String PROPERTY_BYTE_BUFFER = "byteBuffer";
 	public static final String PROPERTY_TIMEOUT = "timeout";
+	public static final String PROPERTY_KEEP_ALIVE_TIMEOUT = "keepAliveTimeout";
+	public static final String PROPERTY_REQUEST_POOL_SIZE = "requestPoolSize";
+	public static final String PROPERTY_REACTOR_COUNT = "reactorCount";
+	public static final String PROPERTY_MAX_IN_FLIGHT = "maxInFlight";
+	public static final String PROPERTY_CONNECTIONS_PER_HOST = "connectionsPerHost";
 
 	public static void decorateByNewLine(StringBuilder sb) {
 		sb.append(NEW_LINE_MAC).append(NEW_LINE_UNIX);
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.robo4j.socket.http.channel;
+
+import com.robo4j.socket.http.HttpHeaderFieldValues;
+import com.robo4j.socket.http.enums.StatusCode;
+import com.robo4j.socket.http.request.HttpResponseStream;
+import com.robo4j.socket.http.util.ByteBufferPool;
+import com.robo4j.socket.http.util.HttpResponseParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class HttpResponseWriterTests {
+
+	@Test
+	public void textBodyContentLengthInBytesTest() throws Exception {
+		final String body = "{\"name\":\"Žluťoučký kůň\"}";
+		final byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+		final String response = write(StatusCode.OK, "unit", body);
+
+		Assert.assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"));
+		Assert.assertTrue(response.contains("content-length: " + bodyBytes.length + "\r\n"));
+		Assert.assertTrue(response.endsWith("\r\n\r\n" + body));
+	}
+
+	@Test
+	public void binaryBodyTest() throws Exception {
+		final ByteBufferPool pool = new ByteBufferPool(1024, 4);
+		final HttpResponseWriter writer = new HttpResponseWriter(pool);
+		final byte[] image = new byte[] { (byte) 0xFF, (byte) 0xD8, 0, 1, 2, (byte) 0xFF, (byte) 0xD9 };
+
+		final byte[] response = writeBytes(writer, StatusCode.OK, null, image);
+		final byte[] tail = Arrays.copyOfRange(response, response.length - image.length, response.length);
+		Assert.assertArrayEquals(image, tail);
+		Assert.assertTrue(new String(response, StandardCharsets.US_ASCII).contains("content-length: 7\r\n"));
+	}
+
+	@Test
+	public void buffersReusedTest() throws Exception {
+		final ByteBufferPool pool = new ByteBufferPool(1024, 4);
+		final HttpResponseWriter writer = new HttpResponseWriter(pool);
+
+		writeBytes(writer, StatusCode.OK, null, "first");
+		Assert.assertEquals(2, pool.getPooledCount());
+		ByteBuffer pooled = pool.acquire();
+		pool.release(pooled);
+		writeBytes(writer, StatusCode.ACCEPTED, null, null);
+		Assert.assertEquals(2, pool.getPooledCount());
+		Assert.assertTrue(pooled.isDirect());
+	}
+
+	@Test
+	public void bodyLargerThanPoolBufferTest() throws Exception {
+		final char[] chars = new char[3000];
+		Arrays.fill(chars, 'x');
+		final String body = new String(chars);
+		final ByteBufferPool pool = new ByteBufferPool(1024, 4);
+
+		final byte[] response = writeBytes(new HttpResponseWriter(pool), StatusCode.OK, null, body);
+		Assert.assertTrue(new String(response, StandardCharsets.US_ASCII).endsWith(body));
+	}
+
+	@Test
+	public void chunkedStreamTest() throws Exception {
+		final ByteBufferPool pool = new ByteBufferPool(1024, 4);
+		final HttpResponseWriter writer = new HttpResponseWriter(pool);
+		final HttpResponseStream stream = HttpResponseStream.chunked("text/plain", 4);
+		final Pipe pipe = Pipe.open();
+		pipe.source().configureBlocking(false);
+
+		writer.startStream(StatusCode.OK, HttpHeaderFieldValues.CONNECTION_KEEP_ALIVE, null, stream);
+		stream.offer("robo");
+		// Must not end the stream
+		stream.offer("");
+		stream.offer("4j ž".getBytes(StandardCharsets.UTF_8));
+		Assert.assertFalse(writer.write(pipe.sink()));
+		Assert.assertTrue(writer.isWaitingForFrames());
+
+		final HttpResponseParser parser = new HttpResponseParser();
+		Assert.assertFalse(parser.parse(read(pipe)));
+		stream.close();
+		Assert.assertTrue(writer.write(pipe.sink()));
+		writer.finish();
+		Assert.assertTrue(parser.parse(read(pipe)));
+
+		Assert.assertTrue(parser.isKeepAlive());
+		Assert.assertEquals("text/plain", parser.getHeaders().get("content-type"));
+		Assert.assertEquals("robo4j ž", StandardCharsets.UTF_8.decode(parser.getBody()).toString());
+		Assert.assertEquals(2, pool.getPooledCount());
+	}
+
+	private static ByteBuffer read(Pipe pipe) throws Exception {
+		final ByteBuffer buffer = ByteBuffer.allocate(8192);
+		while (pipe.source().read(buffer) > 0) {
+			// read all
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static String write(StatusCode code, String unitId, Object body) throws Exception {
+		final HttpResponseWriter writer = new HttpResponseWriter(new ByteBufferPool(1024, 4));
+		return new String(writeBytes(writer, code, unitId, body), StandardCharsets.UTF_8);
+	}
+
+	private static byte[] writeBytes(HttpResponseWriter writer, StatusCode code, String unitId, Object body)
+			throws Exception {
+		final Pipe pipe = Pipe.open();
+		writer.start(code, HttpHeaderFieldValues.CONNECTION_KEEP_ALIVE, unitId, body);
+		Assert.assertTrue(writer.write(pipe.sink()));
+		writer.finish();
+		pipe.sink().close();
+
+		final ByteBuffer buffer = ByteBuffer.allocate(8192);
+		while (pipe.source().read(buffer) > 0) {
+			// read all
+		}
+		pipe.source().close();
+		buffer.flip();
+		final byte[] result = new byte[buffer.remaining()];
+		buffer.get(result);
+		return result;
+	}
+}
@@ -0,0 +1,110 @@
+package com.robo4j.socket.http.json;
+
+import com.robo4j.socket.http.codec.CameraConfigMessage;
+import com.robo4j.socket.http.codec.CameraConfigMessageCodec;
+import com.robo4j.socket.http.codec.SimpleCommand;
+import com.robo4j.socket.http.codec.SimpleCommandCodec;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class JsonPullReaderTests {
+
+	private static final String jsonBasicValues = "{ \"number\"\n :  -42, \"message\" \t: \"no message\", \"active\" : false ,"
+			+ " \"floatNumber\" : 0.42, \"empty\" : null, \"big\" : 12345678901}";
+
+	@Test
+	public void basicValuesTest() {
+		JsonPullReader reader = createReader(jsonBasicValues);
+
+		reader.beginObject();
+		Assert.assertEquals("number", reader.nextName());
+		Assert.assertEquals(-42, reader.nextInt());
+		Assert.assertEquals("message", reader.nextName());
+		Assert.assertEquals("no message", reader.nextString());
+		Assert.assertEquals("active", reader.nextName());
+		Assert.assertFalse(reader.nextBoolean());
+		Assert.assertEquals("floatNumber", reader.nextName());
+		Assert.assertEquals(0.42, reader.nextDouble(), 0);
+		Assert.assertEquals("empty", reader.nextName());
+		Assert.assertEquals(JsonToken.NULL, reader.peek());
+		reader.nextNull();
+		Assert.assertEquals("big", reader.nextName());
+		Assert.assertEquals(12345678901L, reader.nextNumber());
+		Assert.assertFalse(reader.hasNext());
+		reader.endObject();
+		Assert.assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+	}
+
+	@Test
+	public void escapedAndMultiByteStringsTest() {
+		JsonPullReader reader = createReader("[\"a\\\"b\\\\c\\n\", \"\\u00e9t\u00e9\", \"\u20ac \uD83E\uDD16\"]");
+
+		reader.beginArray();
+		Assert.assertEquals("a\"b\\c\n", reader.nextString());
+		Assert.assertEquals("\u00e9t\u00e9", reader.nextString());
+		Assert.assertEquals("\u20ac \uD83E\uDD16", reader.nextString());
+		reader.endArray();
+	}
+
+	@Test
+	public void skipNestedValuesTest() {
+		JsonPullReader reader = createReader(
+				"{\"skip\":{\"a\":[1,{\"b\":true},\"c\"],\"d\":null},\"list\":[],\"value\":\"keep\"}");
+
+		reader.beginObject();
+		Assert.assertEquals("skip", reader.nextName());
+		reader.skipValue();
+		Assert.assertEquals("list", reader.nextName());
+		reader.skipValue();
+		Assert.assertEquals("value", reader.nextName());
+		Assert.assertEquals("keep", reader.nextString());
+		reader.endObject();
+	}
+
+	@Test
+	public void readerDoesNotMoveBufferTest() {
+		ByteBuffer buffer = ByteBuffer.wrap("xx{\"value\":\"move\"}".getBytes(StandardCharsets.UTF_8));
+		buffer.position(2);
+
+		SimpleCommand command = new SimpleCommandCodec().decode(buffer);
+
+		Assert.assertEquals(new SimpleCommand("move"), command);
+		Assert.assertEquals(2, buffer.position());
+	}
+
+	@Test
+	public void decodeFromBufferTest() {
+		CameraConfigMessage expected = new CameraConfigMessage(800, 600, 50, 10, 1, 100);
+		CameraConfigMessageCodec codec = new CameraConfigMessageCodec();
+		String json = codec.encode(expected);
+
+		CameraConfigMessage decoded = codec.decode(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+
+		Assert.assertEquals(expected, decoded);
+	}
+
+	@Test(expected = JsonException.class)
+	public void missingSeparatorTest() {
+		JsonPullReader reader = createReader("{\"value\":1 \"type\":2}");
+		reader.beginObject();
+		reader.nextName();
+		reader.nextInt();
+		reader.nextName();
+	}
+
+	@Test(expected = JsonException.class)
+	public void unterminatedStringTest() {
+		createReader("{\"value\":\"move").skipValue();
+	}
+
+	private static JsonPullReader createReader(String json) {
+		return new JsonPullReader(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.robo4j.socket.http.request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class HttpResponseStreamTests {
+
+	@Test
+	public void slowViewerDropsOldestFramesTest() {
+		HttpResponseStream stream = HttpResponseStream.chunked("text/plain", 2);
+		for (int i = 0; i < 5; i++) {
+			Assert.assertTrue(stream.offer("frame" + i));
+		}
+
+		Assert.assertEquals(3, stream.getDroppedFrames());
+		Assert.assertEquals("frame3", stream.poll());
+		Assert.assertEquals("frame4", stream.poll());
+		Assert.assertNull(stream.poll());
+	}
+
+	@Test
+	public void closedStreamTest() {
+		HttpResponseStream stream = HttpResponseStream.multipart("image/jpeg", 1);
+		AtomicInteger notifications = new AtomicInteger();
+		stream.setFrameListener(notifications::incrementAndGet);
+		stream.offer(new byte[] { 1 });
+		stream.close();
+
+		Assert.assertFalse(stream.offer(new byte[] { 2 }));
+		Assert.assertFalse(stream.isDrained());
+		Assert.assertArrayEquals(new byte[] { 1 }, (byte[]) stream.poll());
+		Assert.assertTrue(stream.isDrained());
+		// Set, offered and closed
+		Assert.assertEquals(3, notifications.get());
+	}
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.socket.http.units;
+
+import static com.robo4j.socket.http.units.RoboHttpPingPongTest.PACKAGE_CODECS;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_CODEC_PACKAGES;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_CONNECTIONS_PER_HOST;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_HOST;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_KEEP_ALIVE_TIMEOUT;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_MAX_IN_FLIGHT;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_REQUEST_POOL_SIZE;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_SOCKET_PORT;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_UNIT_PATHS_CONFIG;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.robo4j.RoboBuilder;
+import com.robo4j.RoboContext;
+import com.robo4j.RoboReference;
+import com.robo4j.configuration.Configuration;
+import com.robo4j.configuration.ConfigurationBuilder;
+import com.robo4j.socket.http.HttpMethod;
+import com.robo4j.socket.http.HttpVersion;
+import com.robo4j.socket.http.message.HttpDecoratedRequest;
+import com.robo4j.socket.http.message.HttpRequestDenominator;
+import com.robo4j.socket.http.units.test.HttpSlowAttributeGetController;
+import com.robo4j.socket.http.units.test.StringConsumer;
+import com.robo4j.socket.http.util.HttpPathConfigJsonBuilder;
+import com.robo4j.util.SystemUtil;
+
+/**
+ * Tests the connection handling of the {@link HttpClientUnit} against the
+ * {@link HttpServerUnit}. The client talks to the server through a proxy,
+ * which counts the connections the client opens.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miro Wengner (@miragemiko)
+ */
+public class HttpClientUnitTests {
+	private static final int SERVER_PORT = 9020;
+	private static final long TIMEOUT_MILLIS = 10000;
+	private static final int DELAY = 300;
+	private static final int REQUESTS = 6;
+	private static final String ID_HTTP_SERVER = "http_server";
+	private static final String ID_HTTP_CLIENT = "http_client";
+	private static final String ID_SLOW = "slow";
+	private static final String SLOW_PATH = "/units/" + ID_SLOW + "?attributes="
+			+ HttpSlowAttributeGetController.ATTR_NUMBER;
+
+	/**
+	 * Forwards every accepted connection to the server, and keeps count of
+	 * them. When either side closes, so does the other.
+	 */
+	private static final class ConnectionCountingProxy implements AutoCloseable {
+		private final ServerSocket serverSocket;
+		private final AtomicInteger acceptedConnections = new AtomicInteger();
+		private final AtomicInteger openConnections = new AtomicInteger();
+		private final AtomicInteger maxOpenConnections = new AtomicInteger();
+
+		ConnectionCountingProxy() throws IOException {
+			serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+			Thread acceptor = new Thread(this::accept, "proxy acceptor");
+			acceptor.setDaemon(true);
+			acceptor.start();
+		}
+
+		int getPort() {
+			return serverSocket.getLocalPort();
+		}
+
+		int getAcceptedConnections() {
+			return acceptedConnections.get();
+		}
+
+		int getMaxOpenConnections() {
+			return maxOpenConnections.get();
+		}
+
+		private void accept() {
+			try {
+				while (true) {
+					Socket client = serverSocket.accept();
+					Socket server = new Socket(InetAddress.getLoopbackAddress(), SERVER_PORT);
+					acceptedConnections.incrementAndGet();
+					maxOpenConnections.accumulateAndGet(openConnections.incrementAndGet(), Math::max);
+					AtomicBoolean closed = new AtomicBoolean();
+					Runnable closeBoth = () -> {
+						if (closed.compareAndSet(false, true)) {
+							openConnections.decrementAndGet();
+							closeQuietly(client);
+							closeQuietly(server);
+						}
+					};
+					startPump(client, server, closeBoth);
+					startPump(server, client, closeBoth);
+				}
+			} catch (IOException e) {
+				// Closed
+			}
+		}
+
+		private static void startPump(Socket from, Socket to, Runnable onEnd) {
+			Thread pump = new Thread(() -> {
+				byte[] buffer = new byte[4096];
+				try (InputStream in = from.getInputStream()) {
+					OutputStream out = to.getOutputStream();
+					int count;
+					while ((count = in.read(buffer)) >= 0) {
+						out.write(buffer, 0, count);
+						out.flush();
+					}
+				} catch (IOException e) {
+					// Closed
+				} finally {
+					onEnd.run();
+				}
+			}, "proxy pump");
+			pump.setDaemon(true);
+			pump.start();
+		}
+
+		private static void closeQuietly(Socket socket) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Do not care
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			serverSocket.close();
+		}
+	}
+
+	@Test
+	public void connectionReusedForSequentialRequestsTest() throws Exception {
+		try (ConnectionCountingProxy proxy = new ConnectionCountingProxy()) {
+			RoboContext system = buildSystem(proxy, 0, new ConfigurationBuilder());
+			try {
+				RoboReference<HttpDecoratedRequest> client = system.getReference(ID_HTTP_CLIENT);
+				RoboReference<String> consumer = system.getReference(StringConsumer.NAME);
+				for (int i = 1; i <= REQUESTS; i++) {
+					client.sendMessage(createRequest());
+					awaitResponses(consumer, i);
+				}
+				Assert.assertEquals(1, proxy.getAcceptedConnections());
+			} finally {
+				system.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void connectionsPerHostLimitTest() throws Exception {
+		final int connectionsPerHost = 2;
+		try (ConnectionCountingProxy proxy = new ConnectionCountingProxy()) {
+			RoboContext system = buildSystem(proxy, DELAY,
+					new ConfigurationBuilder().addInteger(PROPERTY_CONNECTIONS_PER_HOST, connectionsPerHost));
+			try {
+				long elapsed = sendConcurrently(system);
+				// All requests were sent at once, so the client opened as many
+				// connections as it may, and not one more
+				Assert.assertEquals(connectionsPerHost, proxy.getAcceptedConnections());
+				Assert.assertEquals(connectionsPerHost, proxy.getMaxOpenConnections());
+				Assert.assertTrue("took " + elapsed + " ms", elapsed >= REQUESTS / connectionsPerHost * DELAY);
+			} finally {
+				system.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void maxInFlightLimitTest() throws Exception {
+		final int maxInFlight = 2;
+		try (ConnectionCountingProxy proxy = new ConnectionCountingProxy()) {
+			RoboContext system = buildSystem(proxy, DELAY, new ConfigurationBuilder()
+					.addInteger(PROPERTY_MAX_IN_FLIGHT, maxInFlight).addInteger(PROPERTY_CONNECTIONS_PER_HOST, REQUESTS));
+			try {
+				long elapsed = sendConcurrently(system);
+				// More connections are allowed, but no more requests may be
+				// outstanding, so the free connections are reused instead
+				Assert.assertEquals(maxInFlight, proxy.getAcceptedConnections());
+				Assert.assertEquals(maxInFlight, proxy.getMaxOpenConnections());
+				Assert.assertTrue("took " + elapsed + " ms", elapsed >= REQUESTS / maxInFlight * DELAY);
+			} finally {
+				system.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void reconnectAfterServerClosedConnectionTest() throws Exception {
+		final int serverKeepAliveTimeout = 200;
+		try (ConnectionCountingProxy proxy = new ConnectionCountingProxy()) {
+			RoboContext system = buildSystem(proxy, 0, new ConfigurationBuilder(), serverKeepAliveTimeout);
+			try {
+				RoboReference<HttpDecoratedRequest> client = system.getReference(ID_HTTP_CLIENT);
+				RoboReference<String> consumer = system.getReference(StringConsumer.NAME);
+				client.sendMessage(createRequest());
+				awaitResponses(consumer, 1);
+				Assert.assertEquals(1, proxy.getAcceptedConnections());
+
+				// The server closes the idle connection well within this time
+				SystemUtil.sleep(serverKeepAliveTimeout * 5);
+				client.sendMessage(createRequest());
+				awaitResponses(consumer, 2);
+				Assert.assertEquals(2, proxy.getAcceptedConnections());
+			} finally {
+				system.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void noClientKeepAliveTimeoutTest() throws Exception {
+		try (ConnectionCountingProxy proxy = new ConnectionCountingProxy()) {
+			RoboContext system = buildSystem(proxy, 0,
+					new ConfigurationBuilder().addInteger(PROPERTY_KEEP_ALIVE_TIMEOUT, 0));
+			try {
+				RoboReference<HttpDecoratedRequest> client = system.getReference(ID_HTTP_CLIENT);
+				RoboReference<String> consumer = system.getReference(StringConsumer.NAME);
+				for (int i = 1; i <= 3; i++) {
+					client.sendMessage(createRequest());
+					awaitResponses(consumer, i);
+					SystemUtil.sleep(100);
+				}
+				// The idle connection is kept, and not closed right away
+				Assert.assertEquals(1, proxy.getAcceptedConnections());
+			} finally {
+				system.shutdown();
+			}
+		}
+	}
+
+	private static RoboContext buildSystem(ConnectionCountingProxy proxy, int delay, ConfigurationBuilder clientConfig)
+			throws Exception {
+		return buildSystem(proxy, delay, clientConfig, null);
+	}
+
+	private static RoboContext buildSystem(ConnectionCountingProxy proxy, int delay, ConfigurationBuilder clientConfig,
+			Integer serverKeepAliveTimeout) throws Exception {
+		RoboBuilder builder = new RoboBuilder();
+
+		ConfigurationBuilder serverConfig = new ConfigurationBuilder().addInteger(PROPERTY_SOCKET_PORT, SERVER_PORT)
+				.addInteger(PROPERTY_REQUEST_POOL_SIZE, REQUESTS).addString(PROPERTY_CODEC_PACKAGES, PACKAGE_CODECS)
+				.addString(PROPERTY_UNIT_PATHS_CONFIG,
+						HttpPathConfigJsonBuilder.Builder().addPath(ID_SLOW, HttpMethod.GET).build());
+		if (serverKeepAliveTimeout != null) {
+			serverConfig.addInteger(PROPERTY_KEEP_ALIVE_TIMEOUT, serverKeepAliveTimeout);
+		}
+		builder.add(HttpServerUnit.class, serverConfig.build(), ID_HTTP_SERVER);
+		builder.add(HttpSlowAttributeGetController.class,
+				new ConfigurationBuilder().addInteger(HttpSlowAttributeGetController.PROP_DELAY, delay).build(), ID_SLOW);
+
+		Configuration config = clientConfig.addString(PROPERTY_HOST, InetAddress.getLoopbackAddress().getHostAddress())
+				.addInteger(PROPERTY_SOCKET_PORT, proxy.getPort()).build();
+		builder.add(HttpClientUnit.class, config, ID_HTTP_CLIENT);
+		builder.add(StringConsumer.class, StringConsumer.NAME);
+
+		RoboContext system = builder.build();
+		system.start();
+		awaitServer();
+		return system;
+	}
+
+	/**
+	 * Sends all requests at once.
+	 *
+	 * @return the milliseconds until all responses were received.
+	 */
+	private static long sendConcurrently(RoboContext system) throws Exception {
+		RoboReference<HttpDecoratedRequest> client = system.getReference(ID_HTTP_CLIENT);
+		long start = System.nanoTime();
+		for (int i = 0; i < REQUESTS; i++) {
+			client.sendMessage(createRequest());
+		}
+		awaitResponses(system.getReference(StringConsumer.NAME), REQUESTS);
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	private static HttpDecoratedRequest createRequest() {
+		HttpDecoratedRequest request = new HttpDecoratedRequest(
+				new HttpRequestDenominator(HttpMethod.GET, SLOW_PATH, HttpVersion.HTTP_1_1));
+		request.addCallback(StringConsumer.NAME);
+		return request;
+	}
+
+	private static void awaitResponses(RoboReference<String> consumer, int count) throws Exception {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		int received;
+		while ((received = consumer.getAttribute(StringConsumer.DESCRIPTOR_MESSAGES_TOTAL).get()) < count) {
+			Assert.assertTrue("received " + received + " of " + count + " responses",
+					System.currentTimeMillis() < deadline);
+			SystemUtil.sleep(10);
+		}
+	}
+
+	private static void awaitServer() throws Exception {
+		// The server socket is opened asynchronously on start
+		for (int i = 0; i < 50; i++) {
+			try (Socket socket = new Socket()) {
+				socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), SERVER_PORT));
+				return;
+			} catch (ConnectException e) {
+				SystemUtil.sleep(100);
+			}
+		}
+		Assert.fail("server did not start");
+	}
+}
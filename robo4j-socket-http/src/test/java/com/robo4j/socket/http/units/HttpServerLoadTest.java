@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.robo4j.socket.http.units;
+
+import com.robo4j.RoboBuilder;
+import com.robo4j.RoboContext;
+import com.robo4j.configuration.Configuration;
+import com.robo4j.configuration.ConfigurationBuilder;
+import com.robo4j.util.SystemUtil;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.robo4j.socket.http.units.RoboHttpPingPongTest.PACKAGE_CODECS;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_CODEC_PACKAGES;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_REACTOR_COUNT;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_SOCKET_PORT;
+
+/**
+ * Load test harness for the {@link HttpServerUnit}. Runs the same load,
+ * keep-alive connections doing back to back GET requests, against servers with
+ * an increasing number of reactors, and prints the throughput of each run.
+ * Meant to be run manually on the target hardware.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class HttpServerLoadTest {
+	private static final int PORT = 9010;
+	private static final int CONNECTIONS = 32;
+	private static final int DURATION_MILLIS = 5000;
+	private static final String REQUEST = "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n";
+	private static final byte[] HEADER_END = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+	@Test
+	@Ignore("load test, run manually")
+	public void reactorScalingTest() throws Exception {
+		final int processors = Runtime.getRuntime().availableProcessors();
+		for (int reactors = 1; reactors <= processors; reactors *= 2) {
+			final double throughput = runLoad(reactors);
+			System.out.println(String.format("reactors: %d, connections: %d, requests/s: %.0f", reactors,
+					CONNECTIONS, throughput));
+		}
+	}
+
+	private double runLoad(int reactors) throws Exception {
+		RoboBuilder builder = new RoboBuilder();
+		Configuration config = new ConfigurationBuilder().addInteger(PROPERTY_SOCKET_PORT, PORT)
+				.addInteger(PROPERTY_REACTOR_COUNT, reactors).addString(PROPERTY_CODEC_PACKAGES, PACKAGE_CODECS)
+				.build();
+		builder.add(HttpServerUnit.class, config, "load_server");
+		RoboContext system = builder.build();
+		system.start();
+
+		final AtomicLong requests = new AtomicLong();
+		final CountDownLatch done = new CountDownLatch(CONNECTIONS);
+		final long deadline = System.currentTimeMillis() + DURATION_MILLIS;
+		final List<Thread> clients = new ArrayList<>();
+		try {
+			for (int i = 0; i < CONNECTIONS; i++) {
+				Thread client = new Thread(() -> {
+					try (Socket socket = connect()) {
+						OutputStream out = socket.getOutputStream();
+						InputStream in = socket.getInputStream();
+						byte[] request = REQUEST.getBytes(StandardCharsets.US_ASCII);
+						while (System.currentTimeMillis() < deadline) {
+							out.write(request);
+							readResponse(in);
+							requests.incrementAndGet();
+						}
+					} catch (Exception e) {
+						e.printStackTrace();
+					} finally {
+						done.countDown();
+					}
+				});
+				clients.add(client);
+				client.start();
+			}
+			done.await();
+		} finally {
+			system.shutdown();
+			// Give the acceptor time to release the port
+			SystemUtil.sleep(500);
+		}
+		Assert.assertTrue(requests.get() > 0);
+		return requests.get() * 1000d / DURATION_MILLIS;
+	}
+
+	private static Socket connect() throws Exception {
+		for (int i = 0; i < 50; i++) {
+			try {
+				Socket socket = new Socket("localhost", PORT);
+				socket.setTcpNoDelay(true);
+				return socket;
+			} catch (ConnectException e) {
+				SystemUtil.sleep(100);
+			}
+		}
+		return new Socket("localhost", PORT);
+	}
+
+	private static void readResponse(InputStream in) throws Exception {
+		final ByteArrayOutputStream header = new ByteArrayOutputStream();
+		int matched = 0;
+		while (matched < HEADER_END.length) {
+			int b = in.read();
+			if (b < 0) {
+				throw new IllegalStateException("connection closed");
+			}
+			header.write(b);
+			matched = b == HEADER_END[matched] ? matched + 1 : (b == HEADER_END[0] ? 1 : 0);
+		}
+		final String headerText = new String(header.toByteArray(), StandardCharsets.US_ASCII).toLowerCase();
+		final int index = headerText.indexOf("content-length:");
+		int contentLength = 0;
+		if (index >= 0) {
+			contentLength = Integer.parseInt(headerText.substring(index + "content-length:".length(),
+					headerText.indexOf("\r\n", index)).trim());
+		}
+		for (int i = 0; i < contentLength; i++) {
+			if (in.read() < 0) {
+				throw new IllegalStateException("connection closed");
+			}
+		}
+	}
+}
@@ -2,11 +2,23 @@ package com.robo4j.socket.http.units;
 
 import static com.robo4j.socket.http.units.RoboHttpPingPongTest.PACKAGE_CODECS;
 import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_CODEC_PACKAGES;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_KEEP_ALIVE_TIMEOUT;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_REACTOR_COUNT;
 import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_SOCKET_PORT;
+import static com.robo4j.socket.http.util.RoboHttpUtils.PROPERTY_UNIT_PATHS_CONFIG;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.robo4j.AttributeDescriptor;
 import com.robo4j.LifecycleState;
 import com.robo4j.RoboBuilder;
 import com.robo4j.RoboBuilderException;
@@ -14,6 +26,10 @@ import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.configuration.ConfigurationBuilder;
+import com.robo4j.socket.http.HttpMethod;
+import com.robo4j.socket.http.request.HttpResponseStream;
+import com.robo4j.socket.http.units.test.HttpSlowAttributeGetController;
+import com.robo4j.socket.http.util.HttpPathConfigJsonBuilder;
 import com.robo4j.util.SystemUtil;
 
 /**
@@ -23,6 +39,9 @@ import com.robo4j.util.SystemUtil;
 public class HttpServerUnitTests {
 	private static final int PORT = 9000;
 	private static final String ID_HTTP_SERVER = "empty_server";
+	private static final String ID_STREAM = "stream";
+	private static final String CONTENT_TYPE_STREAM = "multipart/x-mixed-replace";
+	private static final String PIPELINED_GET = "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n";
 
 	@Test(expected = RoboBuilderException.class)
 	public void httpServerUnitNoCodecsPackageTest() throws Exception {
@@ -62,4 +81,243 @@ public class HttpServerUnitTests {
 		Assert.assertTrue(systemReference.getState().equals(LifecycleState.SHUTDOWN));
 	}
 
+	@Test
+	public void httpServerUnitKeepAlivePipelinedTest() throws Exception {
+		RoboBuilder builder = new RoboBuilder();
+
+		Configuration config = new ConfigurationBuilder().addInteger(PROPERTY_SOCKET_PORT, PORT)
+				.addString(PROPERTY_CODEC_PACKAGES, PACKAGE_CODECS).build();
+		builder.add(HttpServerUnit.class, config, ID_HTTP_SERVER);
+		RoboContext system = builder.build();
+		system.start();
+
+		try (Socket socket = connect()) {
+			socket.setSoTimeout(5000);
+			OutputStream out = socket.getOutputStream();
+			InputStream in = socket.getInputStream();
+
+			// Two requests in one write, answered in order on the same connection
+			out.write((PIPELINED_GET + PIPELINED_GET).getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			String first = readResponse(in);
+			String second = readResponse(in);
+			Assert.assertTrue(first.startsWith("HTTP/1.1 200"));
+			Assert.assertTrue(first.toLowerCase().contains("connection: keep-alive"));
+			Assert.assertTrue(second.startsWith("HTTP/1.1 200"));
+
+			// The connection is still usable after the pipelined requests
+			out.write(("GET / HTTP/1.1\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			String third = readResponse(in);
+			Assert.assertTrue(third.startsWith("HTTP/1.1 200"));
+			Assert.assertTrue(third.toLowerCase().contains("connection: close"));
+			Assert.assertEquals(-1, in.read());
+		} finally {
+			system.shutdown();
+		}
+	}
+
+	@Test
+	public void httpServerUnitNoKeepAliveTimeoutTest() throws Exception {
+		RoboBuilder builder = new RoboBuilder();
+
+		Configuration config = new ConfigurationBuilder().addInteger(PROPERTY_SOCKET_PORT, PORT)
+				.addString(PROPERTY_CODEC_PACKAGES, PACKAGE_CODECS).addInteger(PROPERTY_KEEP_ALIVE_TIMEOUT, 0).build();
+		builder.add(HttpServerUnit.class, config, ID_HTTP_SERVER);
+		RoboContext system = builder.build();
+		system.start();
+
+		try (Socket socket = connect()) {
+			socket.setSoTimeout(5000);
+			OutputStream out = socket.getOutputStream();
+			InputStream in = socket.getInputStream();
+
+			// No idle timeout, so a new connection is not closed before its
+			// first request, nor in between requests
+			SystemUtil.sleep(200);
+			out.write(PIPELINED_GET.getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			Assert.assertTrue(readResponse(in).startsWith("HTTP/1.1 200"));
+			SystemUtil.sleep(200);
+			out.write(PIPELINED_GET.getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			Assert.assertTrue(readResponse(in).startsWith("HTTP/1.1 200"));
+		} finally {
+			system.shutdown();
+		}
+	}
+
+	@Test
+	public void httpServerUnitSlowRequestTest() throws Exception {
+		final int delay = 2000;
+		RoboBuilder builder = new RoboBuilder();
+
+		Configuration config = new ConfigurationBuilder().addInteger(PROPERTY_SOCKET_PORT, PORT)
+				.addString(PROPERTY_CODEC_PACKAGES, PACKAGE_CODECS)
+				.addString(PROPERTY_UNIT_PATHS_CONFIG,
+						HttpPathConfigJsonBuilder.Builder().addPath("slow", HttpMethod.GET).build())
+				.build();
+		builder.add(HttpServerUnit.class, config, ID_HTTP_SERVER);
+		builder.add(HttpSlowAttributeGetController.class,
+				new ConfigurationBuilder().addInteger(HttpSlowAttributeGetController.PROP_DELAY, delay).build(), "slow");
+		RoboContext system = builder.build();
+		system.start();
+
+		try (Socket slowSocket = connect(); Socket fastSocket = connect()) {
+			slowSocket.setSoTimeout(delay * 3);
+			fastSocket.setSoTimeout(delay * 3);
+			long start = System.currentTimeMillis();
+			slowSocket.getOutputStream().write("GET /units/slow?attributes=number HTTP/1.1\r\n\r\n"
+					.getBytes(StandardCharsets.UTF_8));
+			SystemUtil.sleep(100);
+			fastSocket.getOutputStream().write(PIPELINED_GET.getBytes(StandardCharsets.UTF_8));
+
+			// The slow request must not hold up the other connection
+			String fast = readResponse(fastSocket.getInputStream());
+			long fastTime = System.currentTimeMillis() - start;
+			Assert.assertTrue(fast.startsWith("HTTP/1.1 200"));
+			Assert.assertTrue("fast response took " + fastTime + " ms", fastTime < delay);
+
+			String slow = readResponse(slowSocket.getInputStream());
+			Assert.assertTrue(slow.startsWith("HTTP/1.1 200"));
+		} finally {
+			system.shutdown();
+		}
+	}
+
+	@Test
+	public void httpServerUnitMultipleReactorsTest() throws Exception {
+		final int connections = 6;
+		RoboBuilder builder = new RoboBuilder();
+
+		Configuration config = new ConfigurationBuilder().addInteger(PROPERTY_SOCKET_PORT, PORT)
+				.addInteger(PROPERTY_REACTOR_COUNT, 3).addString(PROPERTY_CODEC_PACKAGES, PACKAGE_CODECS).build();
+		builder.add(HttpServerUnit.class, config, ID_HTTP_SERVER);
+		RoboContext system = builder.build();
+		system.start();
+
+		Socket[] sockets = new Socket[connections];
+		try {
+			// Connections are spread over the reactors, all of them must be served
+			for (int i = 0; i < connections; i++) {
+				sockets[i] = connect();
+				sockets[i].setSoTimeout(5000);
+			}
+			for (int round = 0; round < 2; round++) {
+				for (Socket socket : sockets) {
+					socket.getOutputStream().write(PIPELINED_GET.getBytes(StandardCharsets.UTF_8));
+				}
+				for (Socket socket : sockets) {
+					Assert.assertTrue(readResponse(socket.getInputStream()).startsWith("HTTP/1.1 200"));
+				}
+			}
+		} finally {
+			for (Socket socket : sockets) {
+				if (socket != null) {
+					socket.close();
+				}
+			}
+			system.shutdown();
+		}
+	}
+
+	@Test
+	public void httpServerUnitStreamTest() throws Exception {
+		RoboBuilder builder = new RoboBuilder();
+
+		Configuration config = new ConfigurationBuilder().addInteger(PROPERTY_SOCKET_PORT, PORT)
+				.addString(PROPERTY_CODEC_PACKAGES, PACKAGE_CODECS)
+				.addString(PROPERTY_UNIT_PATHS_CONFIG,
+						HttpPathConfigJsonBuilder.Builder().addPath(ID_STREAM, HttpMethod.GET).build())
+				.build();
+		builder.add(HttpServerUnit.class, config, ID_HTTP_SERVER);
+		builder.add(HttpStreamUnit.class, new ConfigurationBuilder()
+				.addString(HttpStreamUnit.PROPERTY_CONTENT_TYPE, "image/jpeg").build(), ID_STREAM);
+		RoboContext system = builder.build();
+		system.start();
+
+		// Reading the attributes must not open a stream no one ever views
+		RoboReference<Object> streamReference = system.getReference(ID_STREAM);
+		Map<AttributeDescriptor<?>, Object> attributes = streamReference.getAttributes().get();
+		Assert.assertEquals(CONTENT_TYPE_STREAM, attributes.get(HttpResponseStream.DESCRIPTOR_STREAM_CONTENT_TYPE));
+		Assert.assertEquals(Integer.valueOf(0), streamReference.getAttribute(HttpStreamUnit.DESCRIPTOR_VIEWERS).get());
+
+		try (Socket socket = connect()) {
+			socket.setSoTimeout(5000);
+			InputStream in = socket.getInputStream();
+			socket.getOutputStream().write(("GET /units/" + ID_STREAM + " HTTP/1.1\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+
+			String header = readResponse(in);
+			Assert.assertTrue(header.startsWith("HTTP/1.1 200"));
+			Assert.assertTrue(header.contains("transfer-encoding: chunked"));
+			Assert.assertTrue(header.contains("content-type: multipart/x-mixed-replace;boundary=robo4jframe"));
+
+			for (int i = 0; i < 50 && streamReference.getAttribute(HttpStreamUnit.DESCRIPTOR_VIEWERS).get() == 0; i++) {
+				SystemUtil.sleep(100);
+			}
+			// One frame per part, on the same connection
+			for (int i = 0; i < 3; i++) {
+				byte[] frame = ("frame" + i).getBytes(StandardCharsets.UTF_8);
+				streamReference.sendMessage(frame);
+				String part = new String(readChunk(in), StandardCharsets.UTF_8);
+				Assert.assertEquals("--robo4jframe\r\ncontent-type: image/jpeg\r\ncontent-length: 6\r\n\r\nframe" + i
+						+ "\r\n", part);
+			}
+		} finally {
+			system.shutdown();
+		}
+	}
+
+	static Socket connect() throws Exception {
+		// The server socket is opened asynchronously on start
+		for (int i = 0; i < 50; i++) {
+			try {
+				return new Socket("localhost", PORT);
+			} catch (ConnectException e) {
+				SystemUtil.sleep(100);
+			}
+		}
+		return new Socket("localhost", PORT);
+	}
+
+	static byte[] readChunk(InputStream in) throws Exception {
+		StringBuilder sizeLine = new StringBuilder();
+		int b;
+		while ((b = in.read()) != '\n') {
+			Assert.assertNotEquals("connection closed early", -1, b);
+			sizeLine.append((char) b);
+		}
+		int size = Integer.parseInt(sizeLine.toString().trim(), 16);
+		byte[] result = new byte[size];
+		for (int i = 0; i < size; i++) {
+			b = in.read();
+			Assert.assertNotEquals("connection closed early", -1, b);
+			result[i] = (byte) b;
+		}
+		Assert.assertEquals('\r', in.read());
+		Assert.assertEquals('\n', in.read());
+		return result;
+	}
+
+	static String readResponse(InputStream in) throws Exception {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		String headerText = "";
+		while (!headerText.endsWith("\r\n\r\n")) {
+			int b = in.read();
+			Assert.assertNotEquals("connection closed early", -1, b);
+			header.write(b);
+			headerText = new String(header.toByteArray(), StandardCharsets.UTF_8);
+		}
+		int contentLength = 0;
+		for (String line : headerText.split("\r\n")) {
+			if (line.toLowerCase().startsWith("content-length:")) {
+				contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+			}
+		}
+		for (int i = 0; i < contentLength; i++) {
+			Assert.assertNotEquals("connection closed early", -1, in.read());
+		}
+		return headerText;
+	}
+
 }
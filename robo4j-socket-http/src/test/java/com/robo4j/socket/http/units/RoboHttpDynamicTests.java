@@ -91,7 +91,10 @@ public class RoboHttpDynamicTests {
 
 		/* client system sending a messages to the main system */
 		RoboReference<Object> decoratedProducer = clientSystem.getReference(DECORATED_PRODUCER);
+		CountDownLatch producerSetupLatch = decoratedProducer
+				.getAttribute(SocketMessageDecoratedProducerUnit.DESCRIPTOR_SETUP_LATCH).get();
 		decoratedProducer.sendMessage(MESSAGES_NUMBER);
+		producerSetupLatch.await(TIMEOUT, TIME_UNIT);
 		CountDownLatch countDownLatchDecoratedProducer = decoratedProducer
 				.getAttribute(SocketMessageDecoratedProducerUnit.DESCRIPTOR_MESSAGES_LATCH).get();
 		countDownLatchDecoratedProducer.await(TIMEOUT, TIME_UNIT);
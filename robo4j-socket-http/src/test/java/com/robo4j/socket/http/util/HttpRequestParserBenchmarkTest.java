@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.robo4j.socket.http.util;
+
+import com.robo4j.socket.http.message.HttpDecoratedRequest;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Micro benchmark comparing the incremental {@link HttpRequestParser} with the
+ * string based parsing, on requests typical for controlling a robot. Meant to
+ * be run manually, the numbers are only indicative without a proper benchmark
+ * harness.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class HttpRequestParserBenchmarkTest {
+	private static final int WARMUP_ITERATIONS = 200_000;
+	private static final int ITERATIONS = 1_000_000;
+	private static final String[] REQUESTS = {
+			"POST /units/platformController HTTP/1.1\r\nHost: robot:8042\r\nContent-Type: application/json\r\n"
+					+ "Content-Length: 17\r\nConnection: keep-alive\r\n\r\n{\"value\":\"move\"}\n",
+			"GET /units/gyro?attributes=x,y,z HTTP/1.1\r\nHost: robot:8042\r\nAccept: application/json\r\n"
+					+ "Connection: keep-alive\r\n\r\n",
+			"GET / HTTP/1.1\r\nHost: robot:8042\r\nUser-Agent: robo4j-client\r\nAccept: */*\r\n\r\n" };
+
+	private static volatile Object sink;
+
+	@Test
+	@Ignore("micro benchmark, run manually")
+	public void parserBenchmarkTest() {
+		for (String request : REQUESTS) {
+			final ByteBuffer buffer = ByteBuffer.wrap(request.getBytes(StandardCharsets.UTF_8));
+			final String name = request.substring(0, request.indexOf('\r'));
+			run(buffer, WARMUP_ITERATIONS, false);
+			run(buffer, WARMUP_ITERATIONS, true);
+			System.out.println(String.format("%-45s string: %6.0f ns, incremental: %6.0f ns", name,
+					run(buffer, ITERATIONS, false), run(buffer, ITERATIONS, true)));
+		}
+	}
+
+	private static double run(ByteBuffer buffer, int iterations, boolean incremental) {
+		final HttpRequestParser parser = new HttpRequestParser();
+		final long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			buffer.rewind();
+			final HttpDecoratedRequest request;
+			if (incremental) {
+				Assert.assertTrue(parser.parse(buffer));
+				request = parser.toDecoratedRequest();
+				parser.reset();
+			} else {
+				final StringBuilder sb = new StringBuilder();
+				ChannelBufferUtils.addToStringBuilder(sb, buffer, buffer.remaining());
+				request = ChannelBufferUtils.extractDecoratedRequestByStringMessage(sb.toString());
+			}
+			sink = request;
+		}
+		return (System.nanoTime() - start) / (double) iterations;
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.robo4j.socket.http.util;
+
+import com.robo4j.socket.http.HttpHeaderFieldNames;
+import com.robo4j.socket.http.HttpHeaderFieldValues;
+import com.robo4j.socket.http.HttpMethod;
+import com.robo4j.socket.http.HttpVersion;
+import com.robo4j.socket.http.SocketException;
+import com.robo4j.socket.http.message.HttpDecoratedRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class HttpRequestParserTests {
+	private static final String BODY = "{\"value\":\"move\",\"speed\":\"Ä\"}";
+	private static final String POST_REQUEST = "POST /units/controller HTTP/1.1\r\n" + "Host: localhost:8042\r\n"
+			+ "Content-Type: application/json\r\n" + "Content-Length: "
+			+ BODY.getBytes(StandardCharsets.UTF_8).length + "\r\n" + "\r\n" + BODY;
+	private static final String GET_REQUEST = "GET /units/controller?attributes=number HTTP/1.1\r\n"
+			+ "Connection: keep-alive\r\n" + "\r\n";
+
+	@Test
+	public void postRequestTest() {
+		HttpRequestParser parser = new HttpRequestParser();
+		Assert.assertTrue(parser.parse(toBuffer(POST_REQUEST)));
+
+		Assert.assertEquals(HttpMethod.POST, parser.getMethod());
+		Assert.assertEquals("/units/controller", parser.getPath());
+		Assert.assertEquals(HttpVersion.HTTP_1_1, parser.getVersion());
+		Assert.assertEquals("localhost:8042", parser.getHeaders().get(HttpHeaderFieldNames.HOST));
+		Assert.assertEquals(BODY, StandardCharsets.UTF_8.decode(parser.getBody()).toString());
+
+		HttpDecoratedRequest request = parser.toDecoratedRequest();
+		Assert.assertEquals(HttpMethod.POST, request.getPathMethod().getMethod());
+		Assert.assertEquals("/units/controller", request.getPathMethod().getPath());
+		Assert.assertEquals(BODY, request.getMessage());
+	}
+
+	@Test
+	public void fragmentedRequestTest() {
+		HttpRequestParser parser = new HttpRequestParser();
+		ByteBuffer request = toBuffer(POST_REQUEST);
+		int steps = 0;
+		// One byte per read, the worst case for a fragmented request
+		while (request.hasRemaining()) {
+			ByteBuffer piece = ByteBuffer.wrap(new byte[] { request.get() });
+			boolean complete = parser.parse(piece);
+			Assert.assertEquals(!request.hasRemaining(), complete);
+			steps++;
+		}
+		Assert.assertEquals(POST_REQUEST.getBytes(StandardCharsets.UTF_8).length, steps);
+		Assert.assertEquals(BODY, parser.toDecoratedRequest().getMessage());
+	}
+
+	@Test
+	public void pipelinedRequestsTest() {
+		HttpRequestParser parser = new HttpRequestParser();
+		ByteBuffer buffer = toBuffer(GET_REQUEST + POST_REQUEST);
+
+		Assert.assertTrue(parser.parse(buffer));
+		HttpDecoratedRequest first = parser.toDecoratedRequest();
+		Assert.assertEquals(HttpMethod.GET, first.getPathMethod().getMethod());
+		Assert.assertEquals("/units/controller", first.getPathMethod().getPath());
+		Assert.assertTrue(buffer.hasRemaining());
+
+		parser.reset();
+		Assert.assertTrue(parser.parse(buffer));
+		Assert.assertEquals(HttpMethod.POST, parser.getMethod());
+		Assert.assertFalse(buffer.hasRemaining());
+	}
+
+	@Test
+	public void commonHeadersSharedTest() {
+		HttpRequestParser parser = new HttpRequestParser();
+		Assert.assertTrue(parser.parse(toBuffer(GET_REQUEST.replace("Connection", "CONNECTION"))));
+		String name = parser.getHeaders().keySet().iterator().next();
+		Assert.assertSame(HttpHeaderFieldNames.CONNECTION, name);
+		Assert.assertSame(HttpHeaderFieldValues.CONNECTION_KEEP_ALIVE,
+				parser.getHeaders().get(name));
+	}
+
+	@Test(expected = SocketException.class)
+	public void invalidContentLengthTest() {
+		new HttpRequestParser().parse(toBuffer("POST / HTTP/1.1\r\nContent-Length: -5\r\n\r\n"));
+	}
+
+	@Test(expected = SocketException.class)
+	public void headerTooLargeTest() {
+		StringBuilder sb = new StringBuilder("GET / HTTP/1.1\r\n");
+		while (sb.length() <= HttpRequestParser.MAX_HEADER_SIZE) {
+			sb.append("x-filler: 0123456789012345678901234567890123456789\r\n");
+		}
+		new HttpRequestParser().parse(toBuffer(sb.toString()));
+	}
+
+	private static ByteBuffer toBuffer(String request) {
+		return ByteBuffer.wrap(request.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.robo4j.socket.http.util;
+
+import com.robo4j.socket.http.HttpVersion;
+import com.robo4j.socket.http.SocketException;
+import com.robo4j.socket.http.enums.StatusCode;
+import com.robo4j.socket.http.message.HttpDecoratedResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class HttpResponseParserTests {
+	private static final String BODY = "{\"value\":\"move\",\"speed\":\"Ä\"}";
+	private static final String OK_RESPONSE = "HTTP/1.1 200 OK\r\n" + "Content-Length: "
+			+ BODY.getBytes(StandardCharsets.UTF_8).length + "\r\n" + "\r\n" + BODY;
+	private static final String CHUNKED_RESPONSE = "HTTP/1.1 200 OK\r\n" + "Transfer-Encoding: chunked\r\n" + "\r\n"
+			+ "4\r\n" + "robo\r\n" + "3;ext=1\r\n" + "4j!\r\n" + "0\r\n" + "\r\n";
+
+	@Test
+	public void contentLengthResponseTest() {
+		HttpResponseParser parser = new HttpResponseParser();
+		Assert.assertTrue(parser.parse(toBuffer(OK_RESPONSE)));
+
+		Assert.assertEquals(HttpVersion.HTTP_1_1, parser.getVersion());
+		Assert.assertEquals(200, parser.getStatusCode());
+		Assert.assertTrue(parser.isKeepAlive());
+
+		HttpDecoratedResponse response = parser.toDecoratedResponse();
+		Assert.assertEquals(StatusCode.OK, response.getCode());
+		Assert.assertEquals(BODY, response.getMessage());
+	}
+
+	@Test
+	public void chunkedResponseTest() {
+		HttpResponseParser parser = new HttpResponseParser();
+		ByteBuffer buffer = toBuffer(CHUNKED_RESPONSE);
+		boolean complete = false;
+		// One byte at a time
+		while (buffer.hasRemaining()) {
+			ByteBuffer single = buffer.duplicate();
+			single.limit(single.position() + 1);
+			complete = parser.parse(single);
+			buffer.position(buffer.position() + 1);
+		}
+
+		Assert.assertTrue(complete);
+		Assert.assertTrue(parser.isKeepAlive());
+		Assert.assertEquals("robo4j!", parser.toDecoratedResponse().getMessage());
+	}
+
+	@Test
+	public void bodyUntilCloseResponseTest() {
+		HttpResponseParser parser = new HttpResponseParser();
+		Assert.assertFalse(parser.parse(toBuffer("HTTP/1.0 200 OK\r\n\r\n" + BODY)));
+		Assert.assertTrue(parser.parseEndOfStream());
+
+		Assert.assertFalse(parser.isKeepAlive());
+		Assert.assertEquals(BODY, parser.toDecoratedResponse().getMessage());
+	}
+
+	@Test
+	public void noContentResponseTest() {
+		HttpResponseParser parser = new HttpResponseParser();
+		Assert.assertTrue(parser.parse(toBuffer("HTTP/1.1 204 No Content\r\n\r\n")));
+		Assert.assertTrue(parser.isKeepAlive());
+
+		parser.reset();
+		Assert.assertTrue(parser.isIdle());
+		Assert.assertTrue(parser.parse(toBuffer("HTTP/1.1 202 Accepted\r\nConnection: close\r\nContent-Length: 0\r\n\r\n")));
+		Assert.assertEquals(202, parser.getStatusCode());
+		Assert.assertFalse(parser.isKeepAlive());
+	}
+
+	@Test(expected = SocketException.class)
+	public void invalidStatusLineTest() {
+		new HttpResponseParser().parse(toBuffer("HTTP/1.1 OK\r\n\r\n"));
+	}
+
+	private static ByteBuffer toBuffer(String response) {
+		return ByteBuffer.wrap(response.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2014, 2018, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.socket.http.util;
+
+import com.robo4j.socket.http.codec.CameraMessage;
+import com.robo4j.socket.http.codec.SimpleCommand;
+import com.robo4j.socket.http.dto.PathAttributeDTO;
+import com.robo4j.socket.http.dto.PathAttributeListDTO;
+import com.robo4j.socket.http.json.JsonPullReader;
+import com.robo4j.socket.http.json.JsonReader;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Micro benchmark comparing the codec path bound through method handles with
+ * the reflective path ({@link ReflectUtils#createJson(java.util.Map, Object)}
+ * and the {@link JsonReader} document). Meant to be run manually, the numbers
+ * are only indicative without a proper benchmark harness.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class JsonCodecBenchmarkTest {
+	private static final int WARMUP_ITERATIONS = 100_000;
+	private static final int ITERATIONS = 300_000;
+
+	private static volatile Object sink;
+
+	@Test
+	@Ignore("micro benchmark, run manually")
+	public void codecBenchmarkTest() {
+		final byte[] image = new byte[4096];
+		Arrays.fill(image, (byte) 42);
+		final PathAttributeListDTO attributes = new PathAttributeListDTO();
+		attributes.addAttribute(createAttribute("x", "0.42"));
+		attributes.addAttribute(createAttribute("y", "-1.5"));
+		attributes.addAttribute(createAttribute("z", "9.81"));
+
+		benchmark(new SimpleCommand("move", "platform"));
+		benchmark(new CameraMessage("jpg", "22", Base64.getEncoder().encodeToString(image)));
+		benchmark(attributes);
+	}
+
+	private static void benchmark(Object message) {
+		final String json = ReflectUtils.createJson(message);
+		Assert.assertEquals(ReflectUtils.createJson(ReflectUtils.getFieldsTypeMap(message.getClass()), message), json);
+		for (boolean bound : new boolean[] { false, true }) {
+			encode(message, WARMUP_ITERATIONS, bound);
+			decode(message.getClass(), json, WARMUP_ITERATIONS, bound);
+		}
+		System.out.println(String.format("%-22s encode reflective: %7.0f ns, bound: %7.0f ns", message.getClass().getSimpleName(),
+				encode(message, ITERATIONS, false), encode(message, ITERATIONS, true)));
+		System.out.println(String.format("%-22s decode reflective: %7.0f ns, bound: %7.0f ns", message.getClass().getSimpleName(),
+				decode(message.getClass(), json, ITERATIONS, false), decode(message.getClass(), json, ITERATIONS, true)));
+	}
+
+	private static double encode(Object message, int iterations, boolean bound) {
+		final long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			sink = bound ? ReflectUtils.createJson(message)
+					: ReflectUtils.createJson(ReflectUtils.getFieldsTypeMap(message.getClass()), message);
+		}
+		return (System.nanoTime() - start) / (double) iterations;
+	}
+
+	private static double decode(Class<?> clazz, String json, int iterations, boolean bound) {
+		final ByteBuffer buffer = ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
+		final long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			sink = bound ? ReflectUtils.createInstanceByClazzAndJsonReader(clazz, new JsonPullReader(buffer))
+					: ReflectUtils.createInstanceByClazzAndDescriptorAndJsonDocument(clazz, new JsonReader(json).read());
+		}
+		return (System.nanoTime() - start) / (double) iterations;
+	}
+
+	private static PathAttributeDTO createAttribute(String name, String value) {
+		final PathAttributeDTO result = new PathAttributeDTO();
+		result.setName(name);
+		result.setValue(value);
+		return result;
+	}
+}
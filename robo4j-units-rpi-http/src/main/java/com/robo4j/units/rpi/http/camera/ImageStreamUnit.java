@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2014, 2017, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.units.rpi.http.camera;
+
+import com.robo4j.RoboContext;
+import com.robo4j.socket.http.units.HttpStreamUnit;
+import com.robo4j.units.rpi.camera.ImageDTO;
+
+/**
+ * Streams the images of a camera, e.g. the {@link ImageDTO}s of the
+ * RaspistillUnit, as MJPEG to every browser viewing the unit through the
+ * HttpServerUnit.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miro Wengner (@miragemiko)
+ */
+public class ImageStreamUnit extends HttpStreamUnit {
+
+	public ImageStreamUnit(RoboContext context, String id) {
+		super(context, id);
+	}
+
+	@Override
+	protected Object toFrame(Object message) {
+		if (message instanceof ImageDTO) {
+			return ((ImageDTO) message).getContent();
+		}
+		return super.toFrame(message);
+	}
+}
@@ -22,7 +22,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import com.robo4j.AttributeDescriptor;
@@ -36,7 +35,11 @@ import com.robo4j.hw.rpi.i2c.gyro.CalibratedGyro;
 import com.robo4j.hw.rpi.i2c.gyro.GyroL3GD20Device;
 import com.robo4j.hw.rpi.i2c.gyro.GyroL3GD20Device.Sensitivity;
 import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.metrics.LatencyHistogram;
 import com.robo4j.math.geometry.Tuple3f;
+import com.robo4j.scheduler.CatchUpPolicy;
+import com.robo4j.scheduler.FixedRateFuture;
+import com.robo4j.scheduler.FixedRateTask;
 import com.robo4j.units.rpi.I2CRoboUnit;
 import com.robo4j.units.rpi.gyro.GyroRequest.GyroAction;
 
@@ -76,8 +79,16 @@ public class GyroL3GD20Unit extends I2CRoboUnit<GyroRequest> {
 	 */
 	public static final String ATTRIBUTE_NAME_STATE = "state";
 
+	/**
+	 * This attribute will provide a {@link LatencyHistogram.Snapshot} of the
+	 * lateness of the gyro readings, useful for tuning the period. Null if the
+	 * gyro has never been read continuously.
+	 */
+	public static final String ATTRIBUTE_NAME_LATENESS = "lateness";
+
 	public static final Collection<AttributeDescriptor<?>> KNOWN_ATTRIBUTES = Collections
-			.unmodifiableCollection(Arrays.asList(DefaultAttributeDescriptor.create(Tuple3f.class, ATTRIBUTE_NAME_STATE)));
+			.unmodifiableCollection(Arrays.asList(DefaultAttributeDescriptor.create(Tuple3f.class, ATTRIBUTE_NAME_STATE),
+					DefaultAttributeDescriptor.create(LatencyHistogram.Snapshot.class, ATTRIBUTE_NAME_LATENESS)));
 
 	private final Map<RoboReference<GyroEvent>, GyroNotificationEntry> activeThresholds = new HashMap<>();
 
@@ -87,26 +98,27 @@ public class GyroL3GD20Unit extends I2CRoboUnit<GyroRequest> {
 	private boolean highPassFilter;
 	private int period;
 	private CalibratedGyro gyro;
-	private volatile ScheduledFuture<?> readings;
+	private volatile FixedRateFuture readings;
+	private volatile LatencyHistogram lateness;
 
-	private class GyroScanner implements Runnable {
-		private long lastReadingTime = System.currentTimeMillis();
+	private class GyroScanner implements FixedRateTask {
+		private long lastReadingTime = System.nanoTime();
 		private Tuple3f lastReading = new Tuple3f(0f, 0f, 0f);
 
 		@Override
-		public void run() {
+		public void run(long intendedTime, long actualTime) {
 			Tuple3f data = read();
-			long newTime = System.currentTimeMillis();
 
-			// Trapezoid
+			// Trapezoid, using the time the reading was actually done, since
+			// ticks may be late or compressed
 			Tuple3f tmp = new Tuple3f(data);
-			long deltaTime = newTime - lastReadingTime;
+			long deltaTime = actualTime - lastReadingTime;
 			data.add(lastReading);
-			data.multiplyScalar(deltaTime / 2000.0f);
+			data.multiplyScalar(deltaTime / 2000000000.0f);
 
 			lastReading.set(tmp);
 			addToDeltas(data);
-			lastReadingTime = newTime;
+			lastReadingTime = actualTime;
 		}
 
 		private void addToDeltas(Tuple3f data) {
@@ -118,7 +130,7 @@ public class GyroL3GD20Unit extends I2CRoboUnit<GyroRequest> {
 		}
 
 		private void reset() {
-			lastReadingTime = System.currentTimeMillis();
+			lastReadingTime = System.nanoTime();
 			lastReading = read();
 		}
 
@@ -216,6 +228,11 @@ public class GyroL3GD20Unit extends I2CRoboUnit<GyroRequest> {
 				SimpleLoggingUtil.error(getClass(), "Failed to read the gyro!", e);
 			}
 		}
+		if (descriptor.getAttributeType() == LatencyHistogram.Snapshot.class
+				&& descriptor.getAttributeName().equals(ATTRIBUTE_NAME_LATENESS)) {
+			LatencyHistogram histogram = lateness;
+			return histogram == null ? null : (R) histogram.snapshot();
+		}
 		return super.onGetAttribute(descriptor);
 	}
 
@@ -229,7 +246,11 @@ public class GyroL3GD20Unit extends I2CRoboUnit<GyroRequest> {
 		}
 		if (readings == null) {
 			synchronized (this) {
-				readings = getContext().getScheduler().scheduleAtFixedRate(scanner, 0, period, TimeUnit.MILLISECONDS);
+				// Missed readings are compressed into one, as the integration
+				// uses the actual time between the readings anyway
+				readings = getContext().getScheduler().scheduleAtFixedRate(scanner, 0, period, TimeUnit.MILLISECONDS,
+						CatchUpPolicy.COMPRESS);
+				lateness = readings.getLatenessHistogram();
 			}
 		}
 	}
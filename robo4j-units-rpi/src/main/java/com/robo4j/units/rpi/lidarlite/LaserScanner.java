@@ -27,12 +27,15 @@ import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.hw.rpi.i2c.lidar.LidarLiteDevice;
+import com.robo4j.jfr.JfrSupport;
+import com.robo4j.jfr.ScanEvent;
 import com.robo4j.logging.SimpleLoggingUtil;
 import com.robo4j.math.geometry.Point2f;
 import com.robo4j.math.geometry.ScanResult2D;
 import com.robo4j.math.geometry.impl.ScanResultImpl;
-import com.robo4j.math.jfr.JfrUtils;
-import com.robo4j.math.jfr.ScanEvent;
+import com.robo4j.scheduler.CatchUpPolicy;
+import com.robo4j.scheduler.FixedRateFuture;
+import com.robo4j.scheduler.FixedRateTask;
 import com.robo4j.units.rpi.I2CRoboUnit;
 import com.robo4j.units.rpi.pwm.PCA9685ServoUnit;
 
@@ -58,6 +61,7 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 	 * depending on your hardware and needs.
 	 */
 	private final static float DEFAULT_FILTER_MIN_RANGE = 0.08f;
+	private final static boolean JFR_AVAILABLE = JfrSupport.isAvailable();
 	private Predicate<Point2f> pointFilter;
 	private String pan;
 	private LidarLiteDevice lidar;
@@ -83,7 +87,7 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 		}
 	}
 
-	private final static class ScanJob implements Runnable {
+	private final static class ScanJob implements FixedRateTask {
 		private final AtomicInteger invokeCount = new AtomicInteger(0);
 		private final ScanResultImpl scanResult;
 		private final ScanRequest request;
@@ -98,6 +102,7 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 		private volatile float currentAngle;
 		private volatile boolean finished = false;
 		private final ScanEvent scanEvent;
+		private volatile FixedRateFuture schedule;
 
 		/**
 		 * 
@@ -128,13 +133,21 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 			this.delayMicros = calculateDelay(minimumAcquisitionTime, minimumServoMovementTime);
 			this.currentAngle = lowToHigh ? request.getStartAngle() : request.getStartAngle() + request.getRange();
 			this.scanResult = new ScanResultImpl(100, request.getStep(), pointFilter);
-			scanEvent = new ScanEvent(scanResult.getScanID(), getScanInfo());
-			scanEvent.setScanLeftRight(lowToHigh);
-			JfrUtils.begin(scanEvent);
+			if (JFR_AVAILABLE) {
+				scanEvent = new ScanEvent(scanResult.getScanID(), getScanInfo());
+				scanEvent.setScanLeftRight(lowToHigh);
+				scanEvent.begin();
+			} else {
+				scanEvent = null;
+			}
 		}
 
 		@Override
-		public void run() {
+		public void run(long intendedTime, long actualTime) {
+			if (finished) {
+				cancelSchedule();
+				return;
+			}
 			int currentRun = invokeCount.incrementAndGet();
 			if (currentRun == 1) {
 				// On first step, only move servo to start position
@@ -186,13 +199,22 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 			if (!finished) {
 				recipient.sendMessage(scanResult);
 				finished = true;
-				JfrUtils.end(scanEvent);
-				JfrUtils.commit(scanEvent);
+				cancelSchedule();
+				if (scanEvent != null) {
+					scanEvent.commit();
+				}
 			} else {
 				SimpleLoggingUtil.error(getClass(), "Tried to scan more laser points after being finished!");
 			}
 		}
 
+		private void cancelSchedule() {
+			FixedRateFuture future = schedule;
+			if (future != null) {
+				future.cancel(false);
+			}
+		}
+
 		private void updateTargetAngle() {
 			if (lowToHigh) {
 				currentAngle += request.getStep();
@@ -330,14 +352,13 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 	}
 
 	private void schedule(ScanJob job) {
-		long actualDelayMicros = job.delayMicros;
-		// One extra for first servo move.
-		for (int i = 0; i < job.numberOfScans + 1; i++) {
-			// FIXME(Marcus/Apr 4, 2017): Simplified - need to take angular
-			// speed of the servo into account.
-			getContext().getScheduler().schedule(job, actualDelayMicros, TimeUnit.MICROSECONDS);
-			actualDelayMicros += job.delayMicros;
-		}
+		// FIXME(Marcus/Apr 4, 2017): Simplified - need to take angular
+		// speed of the servo into account.
+		// The job runs one extra tick for the first servo move, and cancels
+		// the schedule when done. Every tick moves the servo one step, so
+		// missed ticks must all be run.
+		job.schedule = getContext().getScheduler().scheduleAtFixedRate(job, job.delayMicros, job.delayMicros,
+				TimeUnit.MICROSECONDS, CatchUpPolicy.BURST);
 	}
 
 	private float getCurrentInput(RoboReference<Float> servo) {